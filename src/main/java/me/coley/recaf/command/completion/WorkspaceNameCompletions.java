@@ -16,6 +16,6 @@ public class WorkspaceNameCompletions implements Iterable<String> {
 		Workspace workspace = Recaf.getCurrentWorkspace();
 		if (workspace == null)
 			return Collections.emptyIterator();
-		return workspace.getClassNames().stream().sorted().iterator();
+		return workspace.getClassNameIndex().getNames().iterator();
 	}
 }
@@ -2,8 +2,8 @@ package me.coley.recaf.command.impl;
 
 import me.coley.recaf.command.ControllerCommand;
 import me.coley.recaf.command.completion.WorkspaceNameCompletions;
+import me.coley.recaf.decompile.DecompileCache;
 import me.coley.recaf.decompile.DecompileImpl;
-import me.coley.recaf.decompile.Decompiler;
 import picocli.CommandLine;
 
 import java.util.*;
@@ -33,7 +33,6 @@ public class Decompile extends ControllerCommand implements Callable<String> {
 	 * 		error</li></ul>
 	 */
 	@Override
-	@SuppressWarnings("unchecked")
 	public String call() throws Exception {
 		if(className == null || className.isEmpty())
 			throw new IllegalStateException("No class specified to decompile");
@@ -42,8 +41,7 @@ public class Decompile extends ControllerCommand implements Callable<String> {
 					"' exists in the workspace");
 		String prefix = (getController().config().decompile().showName ?
 				"// Decompiled with: " + decompiler.getNameAndVersion() + "\n" : "");
-		Decompiler<?> impl = decompiler.create(getController());
-		impl.getOptions().putAll((Map) options);
-		return prefix + impl.decompile(className);
+		return prefix + DecompileCache.getInstance()
+				.decompile(getController(), decompiler, options.isEmpty() ? null : options, className);
 	}
 }
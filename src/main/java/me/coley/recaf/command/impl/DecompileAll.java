@@ -0,0 +1,236 @@
+package me.coley.recaf.command.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import me.coley.recaf.Recaf;
+import me.coley.recaf.command.ControllerCommand;
+import me.coley.recaf.decompile.DecompileImpl;
+import me.coley.recaf.decompile.Decompiler;
+import me.coley.recaf.util.EscapeUtil;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static me.coley.recaf.util.Log.*;
+
+/**
+ * Command for decompiling all classes in the primary resource into a sources archive.
+ *
+ * @author Matt
+ */
+@CommandLine.Command(name = "decompileall", description = "Decompile all classes in the workspace to a sources zip.")
+public class DecompileAll extends ControllerCommand implements Callable<String> {
+	@CommandLine.Parameters(index = "0",  description = "The output sources zip.")
+	public File output;
+	@CommandLine.Option(names = {"--decompiler"}, description = "The decompiler implementation to use.",
+			defaultValue = "CFR")
+	public DecompileImpl decompiler = DecompileImpl.CFR;
+	@CommandLine.Option(names = { "--options" },  description = "List of options to pass.", arity = "0..*")
+	public Map<String, String> options = new HashMap<>();
+	@CommandLine.Option(names = { "--threads" },  description = "Number of classes to decompile at once.")
+	public int threads = Runtime.getRuntime().availableProcessors();
+	@CommandLine.Option(names = { "--timeout" },
+			description = "Time in millis to wait on a single class. Defaults to the configured decompile timeout.")
+	public long timeout = -1;
+	@CommandLine.Option(names = { "--max-timeouts" },
+			description = "Number of timed out classes after which the remaining classes are skipped. " +
+					"Decompilers cannot be interrupted, so each timed out class may keep a thread busy.")
+	public int maxTimeouts = 16;
+
+	/**
+	 * @return Summary of the decompiled classes.
+	 *
+	 * @throws Exception
+	 * 		<ul><li>IOException, cannot write to output</li></ul>
+	 */
+	@Override
+	public String call() throws Exception {
+		File parentDir = output.getParentFile();
+		if (parentDir != null && !parentDir.isDirectory() && !parentDir.mkdirs())
+			throw new IOException("Failed to create parent directory for: " + output);
+		long classTimeout = timeout > 0 ? timeout : getController().config().decompile().timeout;
+		Queue<String> queue = new ConcurrentLinkedQueue<>(getTopLevelNames());
+		int total = queue.size();
+		Stats stats = new Stats();
+		ThreadFactory decompileThreads = new ThreadFactoryBuilder()
+				.setNameFormat("Recaf Decompile #%d")
+				.setDaemon(true)
+				.build();
+		ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactoryBuilder()
+				.setNameFormat("Recaf Decompile Worker #%d")
+				.setDaemon(true)
+				.build());
+		long start = System.currentTimeMillis();
+		try (ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(output)))) {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < Math.max(1, threads); i++) {
+				futures.add(workers.submit(() -> {
+					// Each worker waits on its class being decompiled on its own decompile thread, so that a
+					// class that never finishes can be abandoned without stopping the worker.
+					DecompileThread thread = new DecompileThread(decompileThreads);
+					try {
+						String name;
+						while (stats.timedOut.get() < maxTimeouts && (name = queue.poll()) != null) {
+							Future<String> future = thread.decompile(name);
+							String text;
+							try {
+								text = future.get(classTimeout, TimeUnit.MILLISECONDS);
+							} catch(TimeoutException ex) {
+								// Decompilers do not respond to interrupts, so the thread may keep running.
+								// It is left with its decompiler, and the worker continues on a new one.
+								thread.abandon();
+								warn("Decompiling '{}' timed out after {}ms", name, classTimeout);
+								if (stats.timedOut.incrementAndGet() == maxTimeouts)
+									warn("Reached {} timed out classes, skipping remaining classes", maxTimeouts);
+								thread = new DecompileThread(decompileThreads);
+								continue;
+							} catch(ExecutionException ex) {
+								warn("Failed to decompile '{}': {}", name, ex.getCause());
+								stats.failed.incrementAndGet();
+								continue;
+							}
+							byte[] data = EscapeUtil.unescapeUnicode(text).getBytes(StandardCharsets.UTF_8);
+							synchronized(zos) {
+								zos.putNextEntry(new ZipEntry(name + ".java"));
+								zos.write(data);
+								zos.closeEntry();
+							}
+							stats.bytes.addAndGet(data.length);
+							int done = stats.decompiled.incrementAndGet();
+							if (done % 1000 == 0)
+								info("Decompiled {}/{} classes", done, total);
+						}
+					} finally {
+						thread.abandon();
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get();
+		} finally {
+			workers.shutdownNow();
+		}
+		stats.skipped = queue.size();
+		stats.millis = System.currentTimeMillis() - start;
+		return stats.toString(total, output);
+	}
+
+	/**
+	 * Inner classes are included in the decompilation of their outer class. A class is only treated as an inner
+	 * class when it names its outer class and the outer class declares it as well, since that is what decompilers
+	 * use to find inner classes. Names alone are not enough, as obfuscated top level classes may contain
+	 * {@code '$'}.
+	 *
+	 * @return Sorted names of primary classes that are not decompiled as part of another class.
+	 */
+	private List<String> getTopLevelNames() {
+		Map<String, InnerClasses> inners = new HashMap<>();
+		for (Map.Entry<String, byte[]> e : getWorkspace().getPrimary().getClasses().entrySet())
+			inners.put(e.getKey(), InnerClasses.read(e.getValue()));
+		List<String> names = new ArrayList<>();
+		for (Map.Entry<String, InnerClasses> e : inners.entrySet()) {
+			String outer = e.getValue().outer;
+			InnerClasses outerInners = outer == null ? null : inners.get(outer);
+			if (outerInners == null || !outerInners.declared.contains(e.getKey()))
+				names.add(e.getKey());
+		}
+		Collections.sort(names);
+		return names;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Decompiler<?> createDecompiler() {
+		Decompiler<?> impl = decompiler.create(getController());
+		impl.getOptions().putAll((Map) options);
+		return impl;
+	}
+
+	/**
+	 * Dedicated thread with its own decompiler.
+	 */
+	private class DecompileThread {
+		private final ExecutorService executor;
+		private final Decompiler<?> impl = createDecompiler();
+
+		private DecompileThread(ThreadFactory factory) {
+			executor = Executors.newSingleThreadExecutor(factory);
+		}
+
+		private Future<String> decompile(String name) {
+			return executor.submit(() -> impl.decompile(name));
+		}
+
+		private void abandon() {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Inner class information of a class.
+	 */
+	private static class InnerClasses {
+		private final Set<String> declared = new HashSet<>();
+		private String outer;
+
+		private static InnerClasses read(byte[] value) {
+			InnerClasses inners = new InnerClasses();
+			try {
+				new ClassReader(value).accept(new ClassVisitor(Recaf.ASM_VERSION) {
+					private String name;
+					private String enclosing;
+
+					@Override
+					public void visit(int version, int access, String name, String signature, String superName,
+									  String[] interfaces) {
+						this.name = name;
+					}
+
+					@Override
+					public void visitOuterClass(String owner, String name, String descriptor) {
+						enclosing = owner;
+					}
+
+					@Override
+					public void visitInnerClass(String name, String outerName, String innerName, int access) {
+						inners.declared.add(name);
+						// Local and anonymous classes only name their outer class in the enclosing method
+						if (name.equals(this.name))
+							inners.outer = outerName != null ? outerName : enclosing;
+					}
+				}, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+			} catch(Exception ex) {
+				// Classes that cannot be read are left to the decompiler to report
+			}
+			return inners;
+		}
+	}
+
+	/**
+	 * Batch decompilation statistics.
+	 */
+	private static class Stats {
+		private final AtomicInteger decompiled = new AtomicInteger();
+		private final AtomicInteger failed = new AtomicInteger();
+		private final AtomicInteger timedOut = new AtomicInteger();
+		private final AtomicLong bytes = new AtomicLong();
+		private int skipped;
+		private long millis;
+
+		private String toString(int total, File output) {
+			double seconds = Math.max(millis, 1) / 1000.0;
+			return String.format("Decompiled %d/%d classes to %s in %.1fs (%.1f classes/s, %d KiB)\n" +
+							" - Failed: %d\n - Timed out: %d\n - Skipped: %d",
+					decompiled.get(), total, output.getName(), seconds, decompiled.get() / seconds,
+					bytes.get() / 1024, failed.get(), timedOut.get(), skipped);
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package me.coley.recaf.command.impl;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import me.coley.recaf.command.ControllerCommand;
 import me.coley.recaf.plugin.PluginsManager;
 import me.coley.recaf.plugin.api.ExportInterceptorPlugin;
@@ -10,14 +11,14 @@ import org.objectweb.asm.ClassReader;
 import picocli.CommandLine;
 
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.*;
 import java.util.*;
-import java.util.concurrent.Callable;
+import java.util.concurrent.*;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipOutputStream;
 
 import static me.coley.recaf.util.CollectionUtil.copySet;
@@ -30,10 +31,14 @@ import static me.coley.recaf.util.Log.*;
  */
 @CommandLine.Command(name = "export", description = "Export workspace to a class/jar.")
 public class Export extends ControllerCommand implements Callable<Void> {
+	private static final int PARALLEL_CHUNK_SIZE = 16;
 	@CommandLine.Parameters(index = "0",  description = "The output file.")
 	public File output;
 	@CommandLine.Option(names = { "--shadelibs" }, description = "Add library files to export.")
 	public boolean shadeLibs;
+	@CommandLine.Option(names = { "--incremental" },
+			description = "Copy unmodified entries from the input archive without recompressing them.")
+	public boolean incremental;
 
 	/**
 	 * @return n/a
@@ -60,11 +65,6 @@ public class Export extends ControllerCommand implements Callable<Void> {
 			info("Saved to {}", output.getName());
 			return null;
 		}
-		// Collect content to put into export archive
-		Map<String, byte[]> outContent = new TreeMap<>();
-		if (shadeLibs)
-			getWorkspace().getLibraries().forEach(lib -> put(outContent, lib));
-		put(outContent, primary);
 		// Calculate modified classes
 		Set<String> modifiedClasses = new HashSet<>();
 		Set<String> modifiedResources = new HashSet<>();
@@ -78,10 +78,26 @@ public class Export extends ControllerCommand implements Callable<Void> {
 				.map(Map.Entry::getKey)
 				.collect(Collectors.toSet()));
 		// Write to archive
-		if (output.isDirectory() && primary instanceof DirectoryResource)
-			writeDirectory(output, outContent);
-		else
-			writeArchive(output, outContent);
+		MappedArchive source = incremental ? openSource(primary) : null;
+		if (source != null) {
+			try {
+				writeReplacing(primary, file -> writeIncremental(primary, source, file));
+			} finally {
+				// The resource's own archive is still in use by its classes
+				if (source != getResourceArchive(primary))
+					source.close();
+			}
+		} else {
+			// Collect content to put into export archive
+			Map<String, byte[]> outContent = new TreeMap<>();
+			if (shadeLibs)
+				getWorkspace().getLibraries().forEach(lib -> put(outContent, lib));
+			put(outContent, primary);
+			if (output.isDirectory() && primary instanceof DirectoryResource)
+				writeDirectory(output, outContent);
+			else
+				writeReplacing(primary, file -> writeArchive(file, outContent));
+		}
 		info("Saved to {}.\n - Modified classes: {}\n - Modified resources: {}",
 				output.getName(), modifiedClasses.size(), modifiedResources.size());
 		return null;
@@ -139,22 +155,9 @@ public class Export extends ControllerCommand implements Callable<Void> {
 					out = interceptor.intercept(key, out);
 				}
 				// Write directories for upcoming entries if necessary
-				// - Ugly, but does the job.
-				if (key.contains("/")) {
-					// Record directories
-					String parent = key;
-					List<String> toAdd = new ArrayList<>();
-					do {
-						parent = parent.substring(0, parent.lastIndexOf('/'));
-						if (dirsVisited.add(parent)) {
-							toAdd.add(0, parent + '/');
-						} else break;
-					} while (parent.contains("/"));
-					// Put directories in order of depth
-					for (String dir : toAdd) {
-						jos.putNextEntry(new JarEntry(dir));
-						jos.closeEntry();
-					}
+				for (String dir : getNewDirectories(key, dirsVisited)) {
+					jos.putNextEntry(new JarEntry(dir));
+					jos.closeEntry();
 				}
 				// Write entry content
 				jos.putNextEntry(new JarEntry(key));
@@ -164,6 +167,242 @@ public class Export extends ControllerCommand implements Callable<Void> {
 		}
 	}
 
+	/**
+	 * Writes the primary resource to an archive, copying entries that are unchanged since they were read
+	 * from the source archive as they are stored. Only the remaining entries are deflated, in parallel.
+	 *
+	 * @param primary
+	 * 		Primary resource, read from the source archive.
+	 * @param source
+	 * 		Mapped view of the archive the primary resource was read from.
+	 * @param output
+	 * 		File location of jar.
+	 *
+	 * @throws IOException
+	 * 		When the source archive cannot be read, or the output cannot be written to.
+	 */
+	private void writeIncremental(JavaResource primary, MappedArchive source, File output) throws IOException {
+		// Values are either entries of the source archive, or content that needs to be deflated
+		Map<String, Object> outContent = new TreeMap<>();
+		if (shadeLibs)
+			for (JavaResource lib : getWorkspace().getLibraries()) {
+				Map<String, byte[]> content = new HashMap<>();
+				put(content, lib);
+				outContent.putAll(content);
+			}
+		Set<String> dirtyFiles = primary.getDirtyFiles();
+		for (Map.Entry<String, byte[]> e : copySet(primary.getFiles().entrySet()))
+			outContent.put(e.getKey(), getSourceEntry(source, e.getKey(), e.getValue(),
+					dirtyFiles.contains(e.getKey())));
+		Map<String, byte[]> backing = primary.getClasses().getBacking();
+		MappedClassMap mapped = backing instanceof MappedClassMap &&
+				((MappedClassMap) backing).getArchive().getPath().equals(source.getPath()) ?
+				(MappedClassMap) backing : null;
+		Set<String> dirtyClasses = primary.getDirtyClasses();
+		for (String name : new ArrayList<>(primary.getClasses().keySet())) {
+			String entryName = name + ".class";
+			if (primary instanceof WarResource)
+				entryName = WarResource.WAR_CLASS_PREFIX + entryName;
+			// Classes that are still references into the archive do not need to be read at all
+			MappedArchive.Entry reference = mapped == null ? null : mapped.getReference(name);
+			if (reference != null) {
+				outContent.put(entryName, reference);
+				continue;
+			}
+			byte[] value = primary.getClasses().get(name);
+			if (value != null)
+				outContent.put(entryName, getSourceEntry(source, entryName, value, dirtyClasses.contains(name)));
+		}
+		Map<String, RawArchiveWriter.Compressed> compressed = deflate(outContent);
+		int copied = outContent.size() - compressed.size();
+		try (RawArchiveWriter writer = new RawArchiveWriter(new FileOutputStream(output))) {
+			Set<String> dirsVisited = new HashSet<>();
+			for (Map.Entry<String, Object> entry : outContent.entrySet()) {
+				String key = entry.getKey();
+				for (String dir : getNewDirectories(key, dirsVisited))
+					writer.writeDirectory(dir);
+				Object value = entry.getValue();
+				if (value instanceof MappedArchive.Entry)
+					writer.copy(key, source, (MappedArchive.Entry) value);
+				else
+					writer.write(key, compressed.get(key));
+			}
+		}
+		debug("Copied {} unmodified entries, compressed {} entries", copied, compressed.size());
+	}
+
+	/**
+	 * @param primary
+	 * 		Primary resource.
+	 *
+	 * @return Mapped view of the archive the primary resource was read from, or {@code null} if entries
+	 * cannot be copied from it.
+	 */
+	private MappedArchive openSource(JavaResource primary) {
+		if (!(primary instanceof JarResource || primary instanceof WarResource) || output.isDirectory())
+			return null;
+		// Interceptors may change any entry, so every entry has to pass through them
+		if (!PluginsManager.getInstance().ofType(ExportInterceptorPlugin.class).isEmpty()) {
+			debug("Export interceptors are registered, entries will not be copied from the input");
+			return null;
+		}
+		Path path = ((ArchiveResource) primary).getPath();
+		try {
+			MappedArchive archive = getResourceArchive(primary);
+			return archive != null ? archive : MappedArchive.open(path);
+		} catch(IOException ex) {
+			warn("Cannot copy entries from \"{}\", all entries will be compressed: {}",
+					path.getFileName(), ex.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * @param primary
+	 * 		Primary resource.
+	 *
+	 * @return Archive the resource's classes are mapped from, or {@code null} if they are held in memory.
+	 */
+	private static MappedArchive getResourceArchive(JavaResource primary) {
+		Map<String, byte[]> backing = primary.getClasses().getBacking();
+		if (!(backing instanceof MappedClassMap))
+			return null;
+		MappedArchive archive = ((MappedClassMap) backing).getArchive();
+		return archive.isClosed() ? null : archive;
+	}
+
+	/**
+	 * Writes the output to a temporary file next to it, which then replaces the output. The input may be
+	 * the output, and it can still be read from while the output is written.
+	 *
+	 * @param primary
+	 * 		Primary resource.
+	 * @param action
+	 * 		Action writing to the given file.
+	 *
+	 * @throws IOException
+	 * 		When the output cannot be written to.
+	 */
+	private void writeReplacing(JavaResource primary, WriteAction action) throws IOException {
+		Path target = output.toPath().toAbsolutePath();
+		Path temp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+		try {
+			action.write(temp.toFile());
+			// Classes mapped from the output would read the replaced file, so they are moved into memory
+			Map<String, byte[]> backing = primary.getClasses().getBacking();
+			if (backing instanceof MappedClassMap && Files.exists(target)) {
+				MappedClassMap mapped = (MappedClassMap) backing;
+				if (Files.isSameFile(mapped.getArchive().getPath(), target))
+					mapped.detach();
+			}
+			try {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch(AtomicMoveNotSupportedException ex) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * @param source
+	 * 		Archive the resource was read from.
+	 * @param entryName
+	 * 		Name of the entry in the archive.
+	 * @param value
+	 * 		Current content of the entry.
+	 * @param dirty
+	 * 		Flag indicating if the content has been modified since it was read.
+	 *
+	 * @return Entry of the source archive matching the content, or the content itself if no such entry exists.
+	 */
+	private static Object getSourceEntry(MappedArchive source, String entryName, byte[] value, boolean dirty) {
+		MappedArchive.Entry entry = source.getEntry(entryName);
+		if (dirty || entry == null || entry.getSize() != value.length)
+			return value;
+		// Loaders may patch content as it is read, so the checksum is compared as well
+		CRC32 crc = new CRC32();
+		crc.update(value, 0, value.length);
+		return crc.getValue() == entry.getCrc() ? entry : value;
+	}
+
+	/**
+	 * @param content
+	 * 		Output content, where uncompressed values are byte arrays.
+	 *
+	 * @return Map of entry names to compressed content, for each uncompressed value.
+	 */
+	private static Map<String, RawArchiveWriter.Compressed> deflate(Map<String, Object> content) {
+		List<String> names = content.entrySet().stream()
+				.filter(e -> e.getValue() instanceof byte[])
+				.map(Map.Entry::getKey)
+				.collect(Collectors.toList());
+		Map<String, RawArchiveWriter.Compressed> compressed = new ConcurrentHashMap<>();
+		int threads = Math.min(Runtime.getRuntime().availableProcessors(),
+				(names.size() + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE);
+		if (threads <= 1) {
+			deflate(content, names, compressed);
+			return compressed;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+				.setNameFormat("Recaf Export #%d")
+				.setDaemon(true)
+				.build());
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < names.size(); i += PARALLEL_CHUNK_SIZE) {
+				List<String> chunk = names.subList(i, Math.min(names.size(), i + PARALLEL_CHUNK_SIZE));
+				futures.add(pool.submit(() -> deflate(content, chunk, compressed)));
+			}
+			for (Future<?> future : futures)
+				future.get();
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while compressing export entries", ex);
+		} catch(ExecutionException ex) {
+			throw new IllegalStateException("Failed to compress export entries", ex.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		return compressed;
+	}
+
+	private static void deflate(Map<String, Object> content, List<String> names,
+								Map<String, RawArchiveWriter.Compressed> compressed) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			for (String name : names)
+				compressed.put(name, RawArchiveWriter.deflate((byte[]) content.get(name), deflater));
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Archive content is written in sorted order, which allows directory entries to be inserted before the
+	 * first entry inside of them.
+	 *
+	 * @param key
+	 * 		Name of the next entry.
+	 * @param dirsVisited
+	 * 		Directories already written.
+	 *
+	 * @return Directories that need to be written before the entry, in order of depth.
+	 */
+	private static List<String> getNewDirectories(String key, Set<String> dirsVisited) {
+		List<String> toAdd = new ArrayList<>();
+		String parent = key;
+		while (parent.contains("/")) {
+			parent = parent.substring(0, parent.lastIndexOf('/'));
+			if (dirsVisited.add(parent))
+				toAdd.add(0, parent + '/');
+			else
+				break;
+		}
+		return toAdd;
+	}
+
 	private void put(Map<String, byte[]> content, JavaResource res) {
 		content.putAll(res.getFiles());
 		for(Map.Entry<String, byte[]> e : copySet(res.getClasses().entrySet())) {
@@ -174,4 +413,11 @@ public class Export extends ControllerCommand implements Callable<Void> {
 			content.put(name, e.getValue());
 		}
 	}
+
+	/**
+	 * Action writing export content to a file.
+	 */
+	private interface WriteAction {
+		void write(File file) throws IOException;
+	}
 }
@@ -33,6 +33,9 @@ public class LoadWorkspace implements Callable<Workspace> {
 	public Path javadoc;
 	@CommandLine.Option(names = { "--lazy" },  description = "Don't immediately load the workspace content.")
 	public boolean lazy;
+	@CommandLine.Option(names = { "--mapped" },  description = "Read unmodified classes from a memory-mapped " +
+			"view of the archive instead of keeping them in memory.")
+	public boolean mapped;
 	@CommandLine.Option(names = "--skip")
 	public List<String> skippedPrefixes;
 	private String status = "...";
@@ -93,6 +96,8 @@ public class LoadWorkspace implements Callable<Workspace> {
 		//
 		if (skippedPrefixes != null)
 			resource.setSkippedPrefixes(skippedPrefixes);
+		if (mapped && resource instanceof ArchiveResource)
+			((ArchiveResource) resource).setMappedStorage(true);
 		// Initial load classes & files
 		if (!lazy) {
 			status = LangUtil.translate("ui.load.loading");
@@ -42,6 +42,19 @@ public class ConfDecompile extends Config {
 	@Conf("decompile.timeout")
 	public long timeout = 9000;
 
+	/**
+	 * Write decompiled classes to the cache directory, so they do not need to be decompiled
+	 * again in later sessions.
+	 */
+	@Conf("decompile.diskcache")
+	public boolean diskCache;
+
+	/**
+	 * Decompile the classes next to the currently viewed class in the background.
+	 */
+	@Conf("decompile.predecompile")
+	public boolean preDecompile = true;
+
 	// ============================ CFR OPTIONS ============================ //
 
 	// TODO: Add cfr options
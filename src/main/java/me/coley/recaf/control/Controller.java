@@ -10,13 +10,12 @@ import me.coley.recaf.plugin.api.StartupPlugin;
 import me.coley.recaf.plugin.api.WorkspacePlugin;
 import me.coley.recaf.util.ThreadUtil;
 import me.coley.recaf.workspace.InstrumentationResource;
+import me.coley.recaf.workspace.JavaResource;
 import me.coley.recaf.workspace.Workspace;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.function.Supplier;
 
@@ -52,6 +51,15 @@ public abstract class Controller implements Runnable {
 		Workspace old = this.workspace;
 		if (old != null) {
 			plugins.forEach(plugin -> plugin.onClosed(old));
+			// Release resources that are not carried over to the new workspace
+			Set<JavaResource> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+			if (workspace != null) {
+				kept.add(workspace.getPrimary());
+				kept.addAll(workspace.getLibraries());
+			}
+			if (!kept.contains(old.getPrimary()))
+				old.getPrimary().close();
+			old.getLibraries().stream().filter(lib -> !kept.contains(lib)).forEach(JavaResource::close);
 		}
 		this.workspace = workspace;
 		Recaf.setCurrentWorkspace(workspace);
@@ -134,6 +142,7 @@ public abstract class Controller implements Runnable {
 		register(WorkspaceInfo.class);
 		register(Disassemble.class);
 		register(Decompile.class);
+		register(DecompileAll.class);
 		register(Assemble.class);
 		register(Export.class);
 		register(Search.class);
@@ -224,6 +224,7 @@ public class HeadlessController extends Controller {
 		});
 		registerHandler(LoadWorkspace.class, this::setWorkspace);
 		registerHandler(Decompile.class, Log::info);
+		registerHandler(DecompileAll.class, Log::info);
 		registerHandler(Search.ClassInheritance.class, printResults);
 		registerHandler(Search.ClassName.class, printResults);
 		registerHandler(Search.Member.class, printResults);
@@ -0,0 +1,349 @@
+package me.coley.recaf.decompile;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import me.coley.recaf.Recaf;
+import me.coley.recaf.config.ConfDecompile;
+import me.coley.recaf.control.Controller;
+import me.coley.recaf.util.ClassUtil;
+import me.coley.recaf.util.ThreadUtil;
+import me.coley.recaf.workspace.Workspace;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static me.coley.recaf.util.Log.*;
+
+/**
+ * Cache of decompiled classes. Entries are keyed by the decompiler implementation and version, the hash of its
+ * options, the workspace's libraries and the class's bytecode <i>(including its inner classes)</i>, so modified
+ * classes are decompiled again.
+ * <br>
+ * Recently used decompilations are kept in memory, and when {@link ConfDecompile#diskCache enabled} all
+ * decompilations are also written to the cache directory so they survive restarts.
+ *
+ * @author Matt
+ */
+public class DecompileCache {
+	private static final DecompileCache INSTANCE = new DecompileCache();
+	private static final Path CACHE_DIR = Recaf.getDirectory("cache").resolve("decompile");
+	private static final String EXTENSION = ".java.gz";
+	private static final long MAX_MEMORY_CHARS = 16_000_000L;
+	private static final int MAX_DISK_ENTRIES = 4096;
+	private static final int PRUNE_INTERVAL = 64;
+	private static final int NEIGHBOURS = 3;
+	private final Map<String, String> memory = new LinkedHashMap<>(64, 0.75F, true);
+	private final ExecutorService worker = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+			.setNameFormat("Recaf Pre-decompile #%d")
+			.setPriority(Thread.MIN_PRIORITY)
+			.setDaemon(true)
+			.build());
+	private final AtomicInteger generation = new AtomicInteger();
+	private final AtomicInteger diskWrites = new AtomicInteger();
+	private long memoryChars;
+
+	private DecompileCache() {
+	}
+
+	/**
+	 * @return Shared decompile cache.
+	 */
+	public static DecompileCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Decompile a class with the decompiler's default options.
+	 *
+	 * @param controller
+	 * 		Controller with configuration to pull from and the workspace to pull classes from.
+	 * @param impl
+	 * 		Decompiler to use.
+	 * @param name
+	 * 		Name of the class to decompile.
+	 *
+	 * @return Decompiled text of the class.
+	 */
+	public String decompile(Controller controller, DecompileImpl impl, String name) {
+		return decompile(controller, impl, null, name);
+	}
+
+	/**
+	 * Decompile a class, or fetch its previous decompilation.
+	 *
+	 * @param controller
+	 * 		Controller with configuration to pull from and the workspace to pull classes from.
+	 * @param impl
+	 * 		Decompiler to use.
+	 * @param options
+	 * 		Options to put over the decompiler's default options. May be {@code null} to use the defaults.
+	 * @param name
+	 * 		Name of the class to decompile.
+	 *
+	 * @return Decompiled text of the class.
+	 */
+	@SuppressWarnings("unchecked")
+	public String decompile(Controller controller, DecompileImpl impl, Map<String, ?> options, String name) {
+		String key = key(controller, impl, options, name);
+		boolean disk = controller.config().decompile().diskCache;
+		String text = key == null ? null : get(key, disk);
+		if (text != null)
+			return text;
+		Decompiler<?> decompiler = impl.create(controller);
+		if (options != null)
+			decompiler.getOptions().putAll((Map) options);
+		text = decompiler.decompile(name);
+		if (key != null && text != null)
+			put(key, text, disk);
+		return text;
+	}
+
+	/**
+	 * @param controller
+	 * 		Controller with configuration to pull from and the workspace to pull classes from.
+	 * @param impl
+	 * 		Decompiler to use.
+	 * @param name
+	 * 		Name of the class.
+	 *
+	 * @return {@code true} if the default options decompilation of the class is cached.
+	 */
+	public boolean isCached(Controller controller, DecompileImpl impl, String name) {
+		String key = key(controller, impl, null, name);
+		return key != null && get(key, controller.config().decompile().diskCache) != null;
+	}
+
+	/**
+	 * Decompile the classes next to the given class in its package, in the background. Requests made before this
+	 * one are abandoned.
+	 *
+	 * @param controller
+	 * 		Controller with configuration to pull from and the workspace to pull classes from.
+	 * @param impl
+	 * 		Decompiler to use.
+	 * @param name
+	 * 		Name of the class currently being viewed.
+	 */
+	public void preDecompileNeighbours(Controller controller, DecompileImpl impl, String name) {
+		int current = generation.incrementAndGet();
+		Workspace workspace = controller.getWorkspace();
+		if (workspace == null || !controller.config().decompile().preDecompile)
+			return;
+		long timeout = controller.config().decompile().timeout;
+		worker.execute(() -> {
+			for (String neighbour : getNeighbours(workspace, name)) {
+				if (generation.get() != current || controller.getWorkspace() != workspace)
+					return;
+				if (isCached(controller, impl, neighbour))
+					continue;
+				// Decompiles that hang are abandoned, the same way a timed out decompile in the UI is
+				Future<?> future = ThreadUtil.run(() -> decompile(controller, impl, neighbour));
+				try {
+					future.get(timeout, TimeUnit.MILLISECONDS);
+				} catch(TimeoutException ex) {
+					debug("Pre-decompile of '{}' timed out", neighbour);
+					return;
+				} catch(Exception ex) {
+					debug("Pre-decompile of '{}' failed: {}", neighbour, ex.getMessage());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Remove all decompilations from memory.
+	 */
+	public synchronized void clear() {
+		memory.clear();
+		memoryChars = 0;
+	}
+
+	/**
+	 * @param workspace
+	 * 		Workspace containing the class.
+	 * @param name
+	 * 		Name of the class.
+	 *
+	 * @return Outer classes in the same package, ordered by distance to the given class.
+	 */
+	private static List<String> getNeighbours(Workspace workspace, String name) {
+		String pkg = name.contains("/") ? name.substring(0, name.lastIndexOf('/') + 1) : "";
+		List<String> siblings = workspace.getPrimaryClassNames().stream()
+				.filter(n -> n.startsWith(pkg) && n.indexOf('/', pkg.length()) < 0 && n.indexOf('$') < 0)
+				.sorted()
+				.collect(Collectors.toList());
+		int index = Collections.binarySearch(siblings, name);
+		// Inner classes are not in the list, so their outer class is the closest neighbour
+		int next = index < 0 ? -index - 1 : index + 1;
+		int previous = index < 0 ? -index - 2 : index - 1;
+		List<String> neighbours = new ArrayList<>();
+		for (int i = 0; i < NEIGHBOURS; i++) {
+			if (next + i < siblings.size())
+				neighbours.add(siblings.get(next + i));
+			if (previous - i >= 0)
+				neighbours.add(siblings.get(previous - i));
+		}
+		return neighbours;
+	}
+
+	/**
+	 * @param controller
+	 * 		Controller with configuration to pull from and the workspace to pull classes from.
+	 * @param impl
+	 * 		Decompiler to use.
+	 * @param options
+	 * 		Options put over the defaults, or {@code null}.
+	 * @param name
+	 * 		Name of the class.
+	 *
+	 * @return Cache key, or {@code null} if the class does not exist.
+	 */
+	private static String key(Controller controller, DecompileImpl impl, Map<String, ?> options, String name) {
+		Workspace workspace = controller.getWorkspace();
+		byte[] code = workspace == null ? null : workspace.getRawClass(name);
+		if (code == null)
+			return null;
+		ConfDecompile config = controller.config().decompile();
+		MessageDigest digest = DigestUtils.getSha1Digest();
+		// Decompilers are bundled, so a new release may change their output
+		digest.update((Recaf.VERSION + ":" + impl.getNameAndVersion() + ":").getBytes(StandardCharsets.UTF_8));
+		// Default options depend on the config
+		String optionText = options == null ? "defaults:" + config.showSynthetic : new TreeMap<>(options).toString();
+		digest.update((optionText + ":" + config.stripDebug).getBytes(StandardCharsets.UTF_8));
+		// Libraries are used to resolve types, which changes the output
+		digest.update(workspace.describeLibraries().getBytes(StandardCharsets.UTF_8));
+		digest.update(code);
+		// Inner classes are part of the decompilation of the outer class
+		for (String inner : getInnerClasses(workspace, name)) {
+			byte[] innerCode = workspace.getRawClass(inner);
+			digest.update(inner.getBytes(StandardCharsets.UTF_8));
+			digest.update(innerCode);
+		}
+		return impl.name().toLowerCase() + "-" + Hex.encodeHexString(digest.digest());
+	}
+
+	/**
+	 * @param workspace
+	 * 		Workspace containing the class.
+	 * @param name
+	 * 		Name of the outer class.
+	 *
+	 * @return Sorted names of the classes declared in the class, directly or nested deeper.
+	 */
+	private static Set<String> getInnerClasses(Workspace workspace, String name) {
+		Set<String> inners = new TreeSet<>();
+		Deque<String> queue = new ArrayDeque<>();
+		queue.add(name);
+		while (!queue.isEmpty()) {
+			String outer = queue.poll();
+			byte[] outerCode = workspace.getRawClass(outer);
+			if (outerCode == null)
+				continue;
+			// Classes the outer class refers to are only its own when they say so
+			for (String candidate : ClassUtil.getInnerClassNames(outerCode)) {
+				byte[] code = workspace.getRawClass(candidate);
+				if (code != null && !inners.contains(candidate) && outer.equals(ClassUtil.getOuterClassName(code))) {
+					inners.add(candidate);
+					queue.add(candidate);
+				}
+			}
+		}
+		return inners;
+	}
+
+	private String get(String key, boolean disk) {
+		synchronized(this) {
+			String text = memory.get(key);
+			if (text != null || !disk)
+				return text;
+		}
+		Path file = CACHE_DIR.resolve(key + EXTENSION);
+		if (!Files.exists(file))
+			return null;
+		try (Reader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)),
+				StandardCharsets.UTF_8)) {
+			StringBuilder sb = new StringBuilder();
+			char[] buffer = new char[8192];
+			int read;
+			while ((read = reader.read(buffer)) != -1)
+				sb.append(buffer, 0, read);
+			String text = sb.toString();
+			// Prune least recently used entries first
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+			putMemory(key, text);
+			return text;
+		} catch(IOException ex) {
+			warn("Failed to read cached decompilation \"{}\": {}", file.getFileName(), ex.getMessage());
+			return null;
+		}
+	}
+
+	private void put(String key, String text, boolean disk) {
+		putMemory(key, text);
+		if (!disk)
+			return;
+		try {
+			if (!Files.isDirectory(CACHE_DIR))
+				Files.createDirectories(CACHE_DIR);
+			Path file = CACHE_DIR.resolve(key + EXTENSION);
+			Path temp = Files.createTempFile(CACHE_DIR, key, ".tmp");
+			try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(temp)),
+					StandardCharsets.UTF_8)) {
+				writer.write(text);
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			if (diskWrites.incrementAndGet() % PRUNE_INTERVAL == 0)
+				prune();
+		} catch(IOException ex) {
+			warn("Failed to write decompilation to cache: {}", ex.getMessage());
+		}
+	}
+
+	private synchronized void putMemory(String key, String text) {
+		String old = memory.put(key, text);
+		if (old != null)
+			memoryChars -= old.length();
+		memoryChars += text.length();
+		Iterator<String> it = memory.values().iterator();
+		while (memoryChars > MAX_MEMORY_CHARS && it.hasNext()) {
+			memoryChars -= it.next().length();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Remove the least recently used decompilations once the disk cache holds too many.
+	 */
+	private static void prune() {
+		try (Stream<Path> stream = Files.list(CACHE_DIR)) {
+			List<Path> entries = stream.filter(p -> p.toString().endsWith(EXTENSION))
+					.sorted(Comparator.comparingLong(DecompileCache::lastModified).reversed())
+					.collect(Collectors.toList());
+			for (Path old : entries.subList(Math.min(MAX_DISK_ENTRIES, entries.size()), entries.size()))
+				Files.deleteIfExists(old);
+		} catch(IOException ex) {
+			warn("Failed to prune decompile cache: {}", ex.getMessage());
+		}
+	}
+
+	private static long lastModified(Path path) {
+		try {
+			return Files.getLastModifiedTime(path).toMillis();
+		} catch(IOException ex) {
+			return 0;
+		}
+	}
+}
@@ -1,18 +1,17 @@
 package me.coley.recaf.decompile.fernflower;
 
-import me.coley.recaf.workspace.Workspace;
 import org.jetbrains.java.decompiler.main.*;
 import org.jetbrains.java.decompiler.main.extern.*;
 import org.jetbrains.java.decompiler.struct.*;
-import org.jetbrains.java.decompiler.struct.lazy.LazyLoader;
 import org.jetbrains.java.decompiler.util.TextBuffer;
 
-import java.io.IOException;
 import java.util.*;
 
 /**
  * FernFlower accessor. Modified from {@link org.jetbrains.java.decompiler.main.Fernflower} to
  * allow fileless decompilation.
+ * <br>
+ * Instances are cheap, the expensive class data is held by the shared {@link StructContextDecorator}.
  *
  * @author Matt
  */
@@ -23,22 +22,21 @@ public class FernFlowerAccessor implements IDecompiledData {
 	/**
 	 * Constructs a FernFlower decompiler instance.
 	 *
-	 * @param provider
-	 * 		Class file provider.
-	 * @param saver
-	 * 		Decompilation output saver <i>(Unused/noop)</i>
+	 * @param structContext
+	 * 		Context to pull classes from. The context must be {@link StructContextDecorator#prepare(String)
+	 * 		prepared} for the classes to decompile.
 	 * @param properties
 	 * 		FernFlower options.
 	 * @param logger
 	 * 		FernFlower logger instance.
 	 */
-	public FernFlowerAccessor(IBytecodeProvider provider, IResultSaver saver, Map<String, Object>
-			properties, IFernflowerLogger logger) {
+	public FernFlowerAccessor(StructContextDecorator structContext, Map<String, Object> properties,
+							  IFernflowerLogger logger) {
 		String level = (String) properties.get(IFernflowerPreferences.LOG_LEVEL);
 		if(level != null) {
 			logger.setSeverity(IFernflowerLogger.Severity.valueOf(level.toUpperCase(Locale.ENGLISH)));
 		}
-		structContext = new StructContextDecorator(saver, this, new LazyLoader(provider));
+		this.structContext = structContext;
 		classProcessor = new ClassesProcessor(structContext);
 		DecompilerContext context = new DecompilerContext(properties, logger, structContext,
 				classProcessor, null);
@@ -46,23 +44,7 @@ public class FernFlowerAccessor implements IDecompiledData {
 	}
 
 	/**
-	 * @param workspace
-	 * 		Recaf workspace to pull classes from.
-	 *
-	 * @throws IOException
-	 * 		Thrown if a class cannot be read.
-	 * @throws ReflectiveOperationException
-	 * 		Thrown if the parent loader could not be fetched.
-	 * @throws IndexOutOfBoundsException
-	 * 		Thrown if FernFlower can't read the class.
-	 * 		<i>(IE: It fails on newer Java class files)</i>
-	 */
-	public void addWorkspace(Workspace workspace) throws IOException, ReflectiveOperationException {
-		structContext.addWorkspace(workspace);
-	}
-
-	/**
-	 * Analyze classes in the workspace.
+	 * Analyze the classes to decompile.
 	 */
 	public void analyze() {
 		classProcessor.loadClasses(null);
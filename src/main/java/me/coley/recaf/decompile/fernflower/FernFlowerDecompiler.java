@@ -4,12 +4,18 @@ import me.coley.recaf.config.ConfDecompile;
 import me.coley.recaf.control.Controller;
 import me.coley.recaf.decompile.Decompiler;
 import me.coley.recaf.util.ClassUtil;
+import me.coley.recaf.util.struct.InternalBiConsumer;
+import me.coley.recaf.util.struct.InternalConsumer;
+import me.coley.recaf.util.struct.ListeningMap;
 import me.coley.recaf.workspace.Workspace;
 import org.jetbrains.java.decompiler.main.extern.IBytecodeProvider;
 import org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences;
+import org.jetbrains.java.decompiler.struct.lazy.LazyLoader;
 
-import java.io.*;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * FernFlower decompiler implementation.
@@ -19,8 +25,12 @@ import java.util.*;
 public class FernFlowerDecompiler extends Decompiler<Object> {
 	private static final FernFlowerLogger LOGGER = new FernFlowerLogger();
 	private static final DummyCollector DUMMY_COLLECTOR = new DummyCollector();
-	private FernFlowerAccessor decompiler;
-	private Workspace lastWorkspace;
+	private static final ReentrantLock SHARED_LOCK = new ReentrantLock();
+	private static volatile StructContextDecorator sharedContext;
+	private static volatile Workspace sharedWorkspace;
+	private static boolean sharedStripDebug;
+	private static BiConsumer<String, byte[]> sharedPutListener;
+	private static Consumer<Object> sharedRemoveListener;
 
 	/**
 	 * Initialize the decompiler wrapper.
@@ -30,9 +40,6 @@ public class FernFlowerDecompiler extends Decompiler<Object> {
 	 */
 	public FernFlowerDecompiler(Controller controller) {
 		super(controller);
-		// Initial setup for the given controller
-		if (controller.getWorkspace() != null)
-			setup(controller.getWorkspace());
 	}
 
 	@Override
@@ -52,21 +59,84 @@ public class FernFlowerDecompiler extends Decompiler<Object> {
 	@Override
 	public String decompile(String name) {
 		Workspace workspace = getController().getWorkspace();
-		// Rerun setup if the workspace has changed.
-		// This is required because FernFlower builds a cache of all classes as a custom node structure...
-		if (workspace != lastWorkspace)
-			setup(workspace);
-		// Dump class content
+		// FernFlower's class structures are not thread safe, so the shared context is used by one
+		// decompilation at a time. FernFlower cannot be interrupted, so waiting on a decompilation that
+		// hangs would stall every later one. Instead, a context of our own is used when the shared one is busy.
+		if (!SHARED_LOCK.tryLock())
+			return decompile(createContext(workspace), name);
+		try {
+			return decompile(getSharedContext(workspace), name);
+		} finally {
+			SHARED_LOCK.unlock();
+		}
+	}
+
+	/**
+	 * @param context
+	 * 		Context to pull classes from.
+	 * @param name
+	 * 		Name of the class to decompile.
+	 *
+	 * @return Decompiled text of the class.
+	 */
+	private String decompile(StructContextDecorator context, String name) {
+		context.prepare(name);
+		FernFlowerAccessor decompiler = new FernFlowerAccessor(context, getOptions(), LOGGER);
+		decompiler.analyze();
 		return decompiler.decompile(name);
 	}
 
 	/**
-	 * Initialize FernFlower with the given workspace.
+	 * FernFlower builds its own structure of every class it reads. The structure is kept between
+	 * decompilations of the same workspace, only reloading classes that have been modified since.
+	 *
+	 * @param workspace
+	 * 		Workspace to pull classes from.
 	 *
+	 * @return Context shared by decompilations of the workspace.
+	 */
+	private StructContextDecorator getSharedContext(Workspace workspace) {
+		boolean stripDebug = getController().config().decompile().stripDebug;
+		if (sharedContext == null || sharedWorkspace != workspace || sharedStripDebug != stripDebug) {
+			if (sharedWorkspace != workspace) {
+				// Move the invalidation listeners over to the new workspace
+				if (sharedWorkspace != null) {
+					ListeningMap<String, byte[]> old = sharedWorkspace.getPrimary().getClasses();
+					old.getPutListeners().remove(sharedPutListener);
+					old.getRemoveListeners().remove(sharedRemoveListener);
+				}
+				sharedPutListener = InternalBiConsumer.internal((name, code) -> invalidate(workspace, name));
+				sharedRemoveListener = InternalConsumer.internal(name -> invalidate(workspace, (String) name));
+				ListeningMap<String, byte[]> classes = workspace.getPrimary().getClasses();
+				classes.getPutListeners().add(sharedPutListener);
+				classes.getRemoveListeners().add(sharedRemoveListener);
+			}
+			sharedContext = createContext(workspace);
+			sharedWorkspace = workspace;
+			sharedStripDebug = stripDebug;
+		}
+		return sharedContext;
+	}
+
+	/**
+	 * @param workspace
+	 * 		Workspace the class belongs to.
+	 * @param name
+	 * 		Name of modified class.
+	 */
+	private static void invalidate(Workspace workspace, String name) {
+		StructContextDecorator context = sharedContext;
+		if (context != null && sharedWorkspace == workspace)
+			context.invalidate(name);
+	}
+
+	/**
 	 * @param workspace
 	 * 		Workspace to pull classes from.
+	 *
+	 * @return New FernFlower context for the workspace.
 	 */
-	private void setup(Workspace workspace) {
+	private StructContextDecorator createContext(Workspace workspace) {
 		IBytecodeProvider provider = (externalPath, internalPath) -> {
 			if(internalPath != null) {
 				String className = internalPath.substring(0, internalPath.indexOf(".class"));
@@ -79,19 +149,6 @@ public class FernFlowerDecompiler extends Decompiler<Object> {
 			throw new IllegalStateException("Provider should only receive internal names."+
 					"Got external name: " + externalPath);
 		};
-		decompiler = new FernFlowerAccessor(provider, DUMMY_COLLECTOR, getOptions(), LOGGER);
-		try {
-			decompiler.addWorkspace(workspace);
-		} catch(IOException ex) {
-			throw new IllegalStateException("Failed to load inputs for FernFlower!", ex);
-		} catch(ReflectiveOperationException ex) {
-			throw new IllegalStateException("Failed to setup FernFlower!", ex);
-		} catch(IndexOutOfBoundsException ex) {
-			throw new IllegalStateException("FernFlower internal error", ex);
-		} catch(Exception ex) {
-			throw new IllegalStateException(ex);
-		}
-		decompiler.analyze();
-		lastWorkspace = workspace;
+		return new StructContextDecorator(DUMMY_COLLECTOR, null, new LazyLoader(provider), workspace);
 	}
 }
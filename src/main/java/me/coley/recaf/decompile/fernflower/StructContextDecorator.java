@@ -7,68 +7,139 @@ import org.jetbrains.java.decompiler.struct.*;
 import org.jetbrains.java.decompiler.struct.lazy.LazyLoader;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
-import static me.coley.recaf.util.CollectionUtil.*;
+import static me.coley.recaf.util.Log.*;
 
 /**
  * Decorator for StructContext to support Recaf workspaces.
+ * <br>
+ * Classes are loaded from the workspace as FernFlower requests them, so the context can be kept for the
+ * lifetime of the workspace. Classes that are modified are {@link #invalidate(String) invalidated} and
+ * loaded again on the next request.
  *
  * @author Matt
  */
 public class StructContextDecorator extends StructContext {
+	private final Queue<String> invalidated = new ConcurrentLinkedQueue<>();
+	private final Set<String> ownClasses = new HashSet<>();
+	private final LazyLoader loader;
+	private final Workspace workspace;
+
 	/**
 	 * Constructs a StructContext.
 	 *
 	 * @param saver
 	 * 		Result saver <i>(Unused/noop)</i>
 	 * @param data
-	 * 		Data instance, should be an instance of
-	 * 		{@link me.coley.recaf.decompile.fernflower.FernFlowerAccessor}.
+	 * 		Decompiled data <i>(Unused, only used when saving)</i>
 	 * @param loader
 	 * 		LazyLoader to hold links to class resources.
+	 * @param workspace
+	 * 		Recaf workspace to pull classes from.
 	 */
-	public StructContextDecorator(IResultSaver saver, IDecompiledData data, LazyLoader loader) {
+	public StructContextDecorator(IResultSaver saver, IDecompiledData data, LazyLoader loader,
+								  Workspace workspace) {
 		super(saver, data, loader);
+		this.loader = loader;
+		this.workspace = workspace;
+	}
+
+	@Override
+	public StructClass getClass(String name) {
+		StructClass clazz = getClasses().get(name);
+		if (clazz == null)
+			clazz = load(name, false);
+		return clazz;
 	}
 
 	/**
-	 * @param workspace
-	 * 		Recaf workspace to pull classes from.
+	 * Load the given class and the other classes of its nest as classes to decompile.
+	 * Classes prepared by the previous call are no longer treated as classes to decompile.
+	 * Must be called before analyzing the classes to decompile.
 	 *
-	 * @throws IOException
-	 * 		Thrown if a class cannot be read.
-	 * @throws ReflectiveOperationException
-	 * 		Thrown if the parent loader could not be fetched.
-	 * @throws IndexOutOfBoundsException
-	 * 		Thrown if FernFlower can't read the class.
-	 * 		<i>(IE: It fails on newer Java class files)</i>
+	 * @param name
+	 * 		Name of class to decompile.
 	 */
-	public void addWorkspace(Workspace workspace) throws IOException,
-			ReflectiveOperationException {
-		LazyLoader loader = getLoader();
-		// Add primary resource classes
-		addResource(workspace.getPrimary(), loader);
-		for (JavaResource resource : workspace.getLibraries())
-			addResource(resource, loader);
+	public void prepare(String name) {
+		// Drop classes modified since the last decompilation
+		String modified;
+		while ((modified = invalidated.poll()) != null) {
+			getClasses().remove(modified);
+			loader.removeClassLink(modified);
+		}
+		String outer = name.contains("$") ? name.substring(0, name.indexOf('$')) : name;
+		Set<String> nest = new TreeSet<>();
+		nest.add(outer);
+		nest.add(name);
+		// '%' is the character after '$', so this is every name starting with the inner prefix
+		nest.addAll(workspace.getClassNameIndex().getNames().subSet(outer + '$', outer + '%'));
+		// FernFlower processes every class marked as its own, so the classes of the last nest are dropped.
+		// They are loaded again as referenced classes when needed.
+		for (String previous : ownClasses) {
+			if (!nest.contains(previous)) {
+				getClasses().remove(previous);
+				loader.removeClassLink(previous);
+			}
+		}
+		ownClasses.clear();
+		for (String member : nest) {
+			StructClass clazz = getClasses().get(member);
+			if (clazz == null || !clazz.isOwn())
+				clazz = load(member, true);
+			if (clazz != null)
+				ownClasses.add(member);
+		}
 	}
 
-	private void addResource(JavaResource resource, LazyLoader loader) throws IOException {
-		// Iterate resource class entries
-		for(Map.Entry<String, byte[]> entry : copySet(resource.getClasses().entrySet())) {
-			String name = entry.getKey();
-			byte[] code = entry.getValue();
+	/**
+	 * Mark a class as modified. It is reloaded on the next {@link #prepare(String)}.
+	 * Safe to call while another thread is decompiling.
+	 *
+	 * @param name
+	 * 		Name of modified class.
+	 */
+	public void invalidate(String name) {
+		invalidated.add(name);
+	}
+
+	/**
+	 * @return Resources to load classes from, the primary resource first.
+	 */
+	private List<JavaResource> getResources() {
+		List<JavaResource> resources = new ArrayList<>(workspace.getLibraries());
+		resources.add(0, workspace.getPrimary());
+		return resources;
+	}
+
+	/**
+	 * @param name
+	 * 		Name of class to load.
+	 * @param own
+	 * 		{@code true} if the class will be decompiled, {@code false} if it is only referenced.
+	 *
+	 * @return Loaded class, or {@code null} if the class is not in the workspace.
+	 */
+	private StructClass load(String name, boolean own) {
+		byte[] code = null;
+		for (JavaResource resource : getResources()) {
+			code = resource.getClasses().get(name);
+			if (code != null)
+				break;
+		}
+		if (code == null)
+			return null;
+		try {
+			StructClass clazz = new StructClass(code, own, loader);
 			// register class in the map and lazy-loader.
-			getClasses().put(name, new StructClass(code, true, loader));
+			getClasses().put(name, clazz);
 			loader.addClassLink(name, new LazyLoader.Link(null, name + ".class"));
+			return clazz;
+		} catch(IOException | IndexOutOfBoundsException ex) {
+			// IndexOutOfBounds is thrown when FernFlower can't read the class (IE: newer Java class files)
+			debug("FernFlower failed to read class '{}': {}", name, ex);
+			return null;
 		}
 	}
-
-	private LazyLoader getLoader() throws ReflectiveOperationException {
-		// Hack to access private parent loader
-		Field floader = StructContext.class.getDeclaredField("loader");
-		floader.setAccessible(true);
-		return (LazyLoader) floader.get(this);
-	}
 }
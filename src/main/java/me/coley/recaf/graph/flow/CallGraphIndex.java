@@ -0,0 +1,337 @@
+package me.coley.recaf.graph.flow;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import me.coley.recaf.Recaf;
+import me.coley.recaf.util.struct.InternalBiConsumer;
+import me.coley.recaf.util.struct.InternalConsumer;
+import me.coley.recaf.util.struct.ListeningMap;
+import me.coley.recaf.workspace.Workspace;
+import org.objectweb.asm.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static me.coley.recaf.util.Log.*;
+
+/**
+ * Index of the method calls made by the primary resource's classes.
+ * <br>
+ * Methods are identified by interned integer ids. Calls are stored in compressed-sparse-row form:
+ * the callees of a method are the slice of one shared array between two offsets, and the callers
+ * are stored the same way in a second pair of arrays. The index is built in parallel and updated per
+ * class as classes in the primary resource are put or removed.
+ *
+ * @author Matt
+ */
+public class CallGraphIndex {
+	private static final int[] EMPTY = new int[0];
+	private static final int PARALLEL_CHUNK_SIZE = 256;
+	private final Map<String, Integer> ids = new HashMap<>();
+	private final List<String> owners = new ArrayList<>();
+	private final List<String> names = new ArrayList<>();
+	private final List<String> descs = new ArrayList<>();
+	private final Map<String, int[]> classMethods = new HashMap<>();
+	// Callee rows of methods updated since the arrays were last compacted
+	private final Map<Integer, int[]> updated = new HashMap<>();
+	private int[] calleeOffsets = new int[1];
+	private int[] callees = EMPTY;
+	private int[] callerOffsets = new int[1];
+	private int[] callers = EMPTY;
+
+	/**
+	 * Constructs and populates the index.
+	 *
+	 * @param workspace
+	 * 		Workspace to index the primary classes of.
+	 */
+	public CallGraphIndex(Workspace workspace) {
+		ListeningMap<String, byte[]> classes = workspace.getPrimary().getClasses();
+		for (ClassCalls calls : scan(new ArrayList<>(classes.values())))
+			put(calls);
+		compact();
+		classes.getPutListeners().add(InternalBiConsumer.internal(this::update));
+		classes.getRemoveListeners().add(InternalConsumer.internal(name -> remove((String) name)));
+	}
+
+	/**
+	 * @param owner
+	 * 		Class name.
+	 *
+	 * @return {@code true} when the calls of the class's methods are in the index.
+	 */
+	public synchronized boolean isIndexed(String owner) {
+		return classMethods.containsKey(owner);
+	}
+
+	/**
+	 * @param owner
+	 * 		Class name.
+	 * @param name
+	 * 		Method name.
+	 * @param desc
+	 * 		Method descriptor.
+	 *
+	 * @return Id of the method, or {@code -1} if the method is neither declared nor called by an indexed class.
+	 */
+	public synchronized int getId(String owner, String name, String desc) {
+		return ids.getOrDefault(key(owner, name, desc), -1);
+	}
+
+	/**
+	 * @param id
+	 * 		Method id.
+	 *
+	 * @return Name of the class declaring the method.
+	 */
+	public synchronized String getOwner(int id) {
+		return owners.get(id);
+	}
+
+	/**
+	 * @param id
+	 * 		Method id.
+	 *
+	 * @return Method name.
+	 */
+	public synchronized String getName(int id) {
+		return names.get(id);
+	}
+
+	/**
+	 * @param id
+	 * 		Method id.
+	 *
+	 * @return Method descriptor.
+	 */
+	public synchronized String getDesc(int id) {
+		return descs.get(id);
+	}
+
+	/**
+	 * @param id
+	 * 		Method id.
+	 *
+	 * @return Ids of the methods called by the method, in order of their first call.
+	 */
+	public synchronized int[] getCallees(int id) {
+		int[] row = updated.get(id);
+		if (row != null)
+			return row.clone();
+		if (id + 1 >= calleeOffsets.length)
+			return EMPTY;
+		return Arrays.copyOfRange(callees, calleeOffsets[id], calleeOffsets[id + 1]);
+	}
+
+	/**
+	 * @param id
+	 * 		Method id.
+	 *
+	 * @return Ids of the methods that call the method.
+	 */
+	public synchronized int[] getCallers(int id) {
+		// The callers are only known for all classes at once, so apply pending updates first
+		if (!updated.isEmpty())
+			compact();
+		if (id + 1 >= callerOffsets.length)
+			return EMPTY;
+		return Arrays.copyOfRange(callers, callerOffsets[id], callerOffsets[id + 1]);
+	}
+
+	/**
+	 * Index or re-index a class.
+	 *
+	 * @param name
+	 * 		Class name.
+	 * @param value
+	 * 		Class bytecode.
+	 */
+	private synchronized void update(String name, byte[] value) {
+		remove(name);
+		ClassCalls calls = scan(value);
+		if (calls != null)
+			put(calls);
+	}
+
+	/**
+	 * @param name
+	 * 		Name of class to remove from the index.
+	 */
+	private synchronized void remove(String name) {
+		int[] methods = classMethods.remove(name);
+		if (methods != null)
+			for (int id : methods)
+				updated.put(id, EMPTY);
+	}
+
+	/**
+	 * @param calls
+	 * 		Calls of a class to add to the index.
+	 */
+	private void put(ClassCalls calls) {
+		int[] methods = new int[calls.methods.size()];
+		for (int i = 0; i < methods.length; i++) {
+			String[] method = calls.methods.get(i);
+			methods[i] = intern(calls.name, method[0], method[1]);
+			List<String[]> called = calls.calls.get(i);
+			int[] row = new int[called.size()];
+			for (int j = 0; j < row.length; j++) {
+				String[] callee = called.get(j);
+				row[j] = intern(callee[0], callee[1], callee[2]);
+			}
+			updated.put(methods[i], row);
+		}
+		classMethods.put(calls.name, methods);
+	}
+
+	/**
+	 * Rebuild the callee and caller arrays with the pending updates applied.
+	 */
+	private void compact() {
+		int count = owners.size();
+		int[] offsets = new int[count + 1];
+		int[][] rows = new int[count][];
+		for (int id = 0; id < count; id++) {
+			int[] row = updated.get(id);
+			if (row == null)
+				row = id + 1 < calleeOffsets.length ?
+						Arrays.copyOfRange(callees, calleeOffsets[id], calleeOffsets[id + 1]) : EMPTY;
+			rows[id] = row;
+			offsets[id + 1] = offsets[id] + row.length;
+		}
+		int[] data = new int[offsets[count]];
+		int[] reverseOffsets = new int[count + 1];
+		for (int id = 0; id < count; id++) {
+			System.arraycopy(rows[id], 0, data, offsets[id], rows[id].length);
+			for (int callee : rows[id])
+				reverseOffsets[callee + 1]++;
+		}
+		for (int id = 0; id < count; id++)
+			reverseOffsets[id + 1] += reverseOffsets[id];
+		int[] reverse = new int[data.length];
+		int[] cursor = Arrays.copyOf(reverseOffsets, count);
+		for (int id = 0; id < count; id++)
+			for (int callee : rows[id])
+				reverse[cursor[callee]++] = id;
+		calleeOffsets = offsets;
+		callees = data;
+		callerOffsets = reverseOffsets;
+		callers = reverse;
+		updated.clear();
+	}
+
+	private int intern(String owner, String name, String desc) {
+		String key = key(owner, name, desc);
+		Integer id = ids.get(key);
+		if (id == null) {
+			id = owners.size();
+			ids.put(key, id);
+			owners.add(owner);
+			names.add(name);
+			descs.add(desc);
+		}
+		return id;
+	}
+
+	private static String key(String owner, String name, String desc) {
+		return owner + '.' + name + desc;
+	}
+
+	/**
+	 * @param classes
+	 * 		Bytecode of classes to scan.
+	 *
+	 * @return Calls of the classes that could be read.
+	 */
+	private static List<ClassCalls> scan(List<byte[]> classes) {
+		List<ClassCalls> results = Collections.synchronizedList(new ArrayList<>(classes.size()));
+		int threads = Math.min(Runtime.getRuntime().availableProcessors(),
+				(classes.size() + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE);
+		if (threads <= 1) {
+			for (byte[] value : classes) {
+				ClassCalls calls = scan(value);
+				if (calls != null)
+					results.add(calls);
+			}
+			return results;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+				.setNameFormat("Recaf Call Graph #%d")
+				.setDaemon(true)
+				.build());
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < classes.size(); i += PARALLEL_CHUNK_SIZE) {
+				List<byte[]> chunk = classes.subList(i, Math.min(classes.size(), i + PARALLEL_CHUNK_SIZE));
+				futures.add(pool.submit(() -> {
+					for (byte[] value : chunk) {
+						ClassCalls calls = scan(value);
+						if (calls != null)
+							results.add(calls);
+					}
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get();
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while indexing calls", ex);
+		} catch(ExecutionException ex) {
+			throw new IllegalStateException("Failed to index calls", ex.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		return results;
+	}
+
+	/**
+	 * @param value
+	 * 		Class bytecode.
+	 *
+	 * @return Calls of the class, or {@code null} if the class could not be read.
+	 */
+	private static ClassCalls scan(byte[] value) {
+		try {
+			ClassCalls calls = new ClassCalls();
+			new ClassReader(value).accept(calls, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+			return calls;
+		} catch(Exception ex) {
+			debug("Failed to index calls of class: {}", ex.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Collects the calls made by each method of a class.
+	 */
+	private static class ClassCalls extends ClassVisitor {
+		private final List<String[]> methods = new ArrayList<>();
+		private final List<List<String[]>> calls = new ArrayList<>();
+		private String name;
+
+		private ClassCalls() {
+			super(Recaf.ASM_VERSION);
+		}
+
+		@Override
+		public void visit(int version, int access, String name, String sig, String superName,
+						  String[] interfaces) {
+			this.name = name;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int acc, String name, String desc, String sig, String[] exc) {
+			List<String[]> called = new ArrayList<>();
+			methods.add(new String[]{name, desc});
+			calls.add(called);
+			// Each callee is recorded once, in order of its first call like in the OutboundCollector
+			Set<String> visited = new HashSet<>();
+			return new MethodVisitor(api) {
+				@Override
+				public void visitMethodInsn(int op, String owner, String name, String desc, boolean itf) {
+					if (visited.add(key(owner, name, desc)))
+						called.add(new String[]{owner, name, desc});
+				}
+			};
+		}
+	}
+}
@@ -1,9 +1,15 @@
 package me.coley.recaf.graph.flow;
 
 import me.coley.recaf.graph.WorkspaceGraph;
+import me.coley.recaf.util.struct.InternalBiConsumer;
+import me.coley.recaf.util.struct.InternalConsumer;
+import me.coley.recaf.util.struct.ListeningMap;
 import me.coley.recaf.workspace.Workspace;
 import org.objectweb.asm.ClassReader;
 
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Graph model to represent the method call graph starting at some specified method <i>(Modled by
  * {@link me.coley.recaf.graph.flow.FlowVertex})</i>.
@@ -11,6 +17,9 @@ import org.objectweb.asm.ClassReader;
  * @author Matt
  */
 public class FlowGraph extends WorkspaceGraph<FlowVertex> {
+	private final Map<String, ClassReader> readers = new ConcurrentHashMap<>();
+	private CallGraphIndex index;
+
 	/**
 	 * Constructs a flow graph from the given workspace.
 	 *
@@ -19,6 +28,71 @@ public class FlowGraph extends WorkspaceGraph<FlowVertex> {
 	 */
 	public FlowGraph(Workspace workspace) {
 		super(workspace);
+		// Only primary classes are modified, readers of other classes can be kept
+		ListeningMap<String, byte[]> classes = workspace.getPrimary().getClasses();
+		classes.getPutListeners().add(InternalBiConsumer.internal((name, value) -> readers.remove(name)));
+		classes.getRemoveListeners().add(InternalConsumer.internal(readers::remove));
+	}
+
+	/**
+	 * @return Index of the calls made by the primary resource's classes.
+	 */
+	public synchronized CallGraphIndex getIndex() {
+		if (index == null)
+			index = new CallGraphIndex(getWorkspace());
+		return index;
+	}
+
+	/**
+	 * @param reader
+	 * 		Class reader of the class containing the given method.
+	 * @param name
+	 * 		Name of method in class.
+	 * @param descriptor
+	 * 		Descriptor of method in class.
+	 *
+	 * @return Vertices of the methods called by the given method, in order of their first call.
+	 * {@code null} if the reader is not this graph's current reader of a primary resource's class,
+	 * so its calls are not in the {@link #getIndex() index}.
+	 */
+	public List<FlowVertex> getCallees(ClassReader reader, String name, String descriptor) {
+		String owner = reader.getClassName();
+		// Cached readers are dropped when their class is modified, so only those are known to match the index.
+		// Readers from elsewhere, such as other resources, are scanned by the caller instead.
+		if (readers.get(owner) != reader)
+			return null;
+		CallGraphIndex index = getIndex();
+		if (!index.isIndexed(owner))
+			return null;
+		int id = index.getId(owner, name, descriptor);
+		return id < 0 ? Collections.emptyList() : toVertices(index, index.getCallees(id));
+	}
+
+	/**
+	 * @param owner
+	 * 		Class name.
+	 * @param name
+	 * 		Name of method in class.
+	 * @param descriptor
+	 * 		Descriptor of method in class.
+	 *
+	 * @return Vertices of the methods in the primary resource that call the given method.
+	 */
+	public List<FlowVertex> getCallers(String owner, String name, String descriptor) {
+		CallGraphIndex index = getIndex();
+		int id = index.getId(owner, name, descriptor);
+		return id < 0 ? Collections.emptyList() : toVertices(index, index.getCallers(id));
+	}
+
+	private List<FlowVertex> toVertices(CallGraphIndex index, int[] ids) {
+		List<FlowVertex> vertices = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			// Methods of classes not in the workspace are skipped, as they are by the OutboundCollector
+			FlowVertex vertex = getVertex(index.getOwner(id), index.getName(id), index.getDesc(id));
+			if (vertex != null)
+				vertices.add(vertex);
+		}
+		return vertices;
 	}
 
 	/**
@@ -32,11 +106,13 @@ public class FlowGraph extends WorkspaceGraph<FlowVertex> {
 	 * @return FlowVertex outlining the given method.
 	 */
 	public FlowVertex getVertex(String owner, String name, String descriptor) {
-		if(getWorkspace().hasClass(owner)) {
-			ClassReader reader = getWorkspace().getClassReader(owner);
-			return getVertex(reader, name, descriptor);
+		ClassReader reader = readers.get(owner);
+		if (reader == null && getWorkspace().hasClass(owner)) {
+			reader = getWorkspace().getClassReader(owner);
+			if (reader != null)
+				readers.put(owner, reader);
 		}
-		return null;
+		return reader == null ? null : getVertex(reader, name, descriptor);
 	}
 
 	/**
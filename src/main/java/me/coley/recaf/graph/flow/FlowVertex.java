@@ -38,6 +38,15 @@ public class FlowVertex extends ClassVertex<FlowGraph> {
 
 	@Override
 	public Set<Edge<ClassReader>> getEdges() {
+		// Only search if the method has been specified
+		if (name == null || desc == null)
+			return Collections.emptySet();
+		// Calls of primary classes are taken from the graph's index
+		List<FlowVertex> callees = graph.getCallees(getData(), name, desc);
+		if (callees != null)
+			return callees.stream()
+					.map(vert -> new DirectedEdge<>(this, vert))
+					.collect(Collectors.toCollection(LinkedHashSet::new));
 		// Due to the generative nature of the graphing api, we can only track outbound calls from
 		// the context of a single vertex.
 		return getOutbound().stream()
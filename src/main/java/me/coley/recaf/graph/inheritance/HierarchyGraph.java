@@ -2,10 +2,18 @@ package me.coley.recaf.graph.inheritance;
 
 import me.coley.recaf.graph.*;
 import me.coley.recaf.util.ClassUtil;
+import me.coley.recaf.util.struct.InternalBiConsumer;
+import me.coley.recaf.util.struct.InternalConsumer;
+import me.coley.recaf.util.struct.ListeningMap;
+import me.coley.recaf.util.struct.Pair;
+import me.coley.recaf.workspace.JavaResource;
+import me.coley.recaf.workspace.ResourceIndex;
 import me.coley.recaf.workspace.Workspace;
 import org.objectweb.asm.ClassReader;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -14,16 +22,34 @@ import static java.util.stream.Stream.*;
 
 /**
  * Graph model to represent the class inheritance of a loaded input. <br>
- * The graph is generative, meaning the graph's vertices and edges are dynamically generated when
- * requested. The relations are not stored due to their modifiable nature.
+ * The graph is generative, meaning the graph's vertices are dynamically generated when
+ * requested. The inheritance edges are kept in an index that is updated as classes of the
+ * primary resource are modified.
  *
  * @author Matt
  */
 public class HierarchyGraph extends WorkspaceGraph<HierarchyVertex> {
 	/**
-	 * Map of parent to children names.
+	 * Interned parent and child edges.
 	 */
-	private final Map<String, Set<String>> descendents = new HashMap<>();
+	private final HierarchyIndex index = new HierarchyIndex();
+	/**
+	 * Ids of all parents of a class, keyed by class id. Used to answer {@link #hasParent(String, String)}
+	 * without walking the hierarchy. Sets are never modified once cached.
+	 */
+	private final Map<Integer, BitSet> ancestors = new ConcurrentHashMap<>();
+	/**
+	 * Lock for invalidating {@link #ancestors}.
+	 */
+	private final Object ancestorLock = new Object();
+	/**
+	 * Incremented on invalidation, so sets computed before a change are not cached after it.
+	 */
+	private long ancestorVersion;
+	/**
+	 * Incremented whenever the hierarchy changes.
+	 */
+	private final AtomicLong modifications = new AtomicLong();
 
 	/**
 	 * Constructs a hierarchy graph from the given workspace.
@@ -34,6 +60,24 @@ public class HierarchyGraph extends WorkspaceGraph<HierarchyVertex> {
 	public HierarchyGraph(Workspace workspace) {
 		super(workspace);
 		refresh();
+		// Keep the edges up to date with changes to the primary resource
+		ListeningMap<String, byte[]> classes = workspace.getPrimary().getClasses();
+		classes.getPutListeners().add(InternalBiConsumer.internal((name, value) -> {
+			index.removePrimary(name);
+			try {
+				ClassReader reader = new ClassReader(value);
+				index.putPrimary(reader.getClassName(), reader.getSuperName(), reader.getInterfaces());
+			} catch(Exception ex) {
+				// Not a parsable class, so it has no edges
+			}
+			invalidateAncestors(name);
+			modifications.incrementAndGet();
+		}));
+		classes.getRemoveListeners().add(InternalConsumer.internal(name -> {
+			index.removePrimary((String) name);
+			invalidateAncestors((String) name);
+			modifications.incrementAndGet();
+		}));
 	}
 
 	@Override
@@ -96,10 +140,10 @@ public class HierarchyGraph extends WorkspaceGraph<HierarchyVertex> {
 	 * @return Direct descendants of the class.
 	 */
 	public Stream<String> getDescendants(String name) {
-		if (descendents.containsKey(name))
-			return descendents.get(name).stream();
-		// Empty stream
-		return empty();
+		int id = index.find(name);
+		if (id < 0)
+			return empty();
+		return names(index.children(id));
 	}
 
 	/**
@@ -109,11 +153,7 @@ public class HierarchyGraph extends WorkspaceGraph<HierarchyVertex> {
 	 * @return All descendants of the class.
 	 */
 	public Stream<String> getAllDescendants(String name) {
-		Set<String> descendentNames = descendents.get(name);
-		if (descendentNames == null)
-			return empty();
-		return concat(descendentNames.stream(),
-				descendentNames.stream().flatMap(this::getAllDescendants));
+		return getAllDescendantsWithBreakCondition(name, n -> false);
 	}
 
 	/**
@@ -125,12 +165,27 @@ public class HierarchyGraph extends WorkspaceGraph<HierarchyVertex> {
 	 * @return All descendants of the class, up until a point specified by the check condition.
 	 */
 	public Stream<String> getAllDescendantsWithBreakCondition(String name, Predicate<String> breakCheck) {
-		Set<String> descendentNames = descendents.get(name);
-		if (descendentNames == null)
+		int id = index.find(name);
+		if (id < 0)
 			return empty();
-		descendentNames.removeIf(breakCheck);
-		return concat(descendentNames.stream(),
-				descendentNames.stream().flatMap(d -> getAllDescendantsWithBreakCondition(d, breakCheck)));
+		List<String> descendantNames = new ArrayList<>();
+		BitSet visited = new BitSet();
+		visited.set(id);
+		Deque<Integer> queue = new ArrayDeque<>();
+		queue.add(id);
+		while (!queue.isEmpty()) {
+			for (int child : index.children(queue.poll())) {
+				if (visited.get(child))
+					continue;
+				visited.set(child);
+				String childName = index.name(child);
+				if (breakCheck.test(childName))
+					continue;
+				descendantNames.add(childName);
+				queue.add(child);
+			}
+		}
+		return descendantNames.stream();
 	}
 
 	/**
@@ -140,11 +195,11 @@ public class HierarchyGraph extends WorkspaceGraph<HierarchyVertex> {
 	 * @return Direct parents of the class.
 	 */
 	public Stream<String> getParents(String name) {
-		HierarchyVertex vert = getVertex(name);
-		if (vert != null)
-			return getParents(vert);
-		// Empty stream
-		return empty();
+		int id = lookup(name);
+		int[] parents = id < 0 ? null : parents(id);
+		if (parents == null)
+			return empty();
+		return names(parents);
 	}
 
 	/**
@@ -166,8 +221,43 @@ public class HierarchyGraph extends WorkspaceGraph<HierarchyVertex> {
 	 * @return All parents of the class.
 	 */
 	public Stream<String> getAllParents(String name) {
-		return (getParents(name).map(this::getAllParents)
-				.reduce(getParents(name), Stream::concat));
+		List<String> parentNames = new ArrayList<>();
+		BitSet visited = new BitSet();
+		int id = lookup(name);
+		if (id < 0)
+			return empty();
+		visited.set(id);
+		Deque<Integer> queue = new ArrayDeque<>();
+		queue.add(id);
+		while (!queue.isEmpty()) {
+			int[] parents = parents(queue.poll());
+			if (parents == null)
+				continue;
+			for (int parent : parents) {
+				if (visited.get(parent))
+					continue;
+				visited.set(parent);
+				parentNames.add(index.name(parent));
+				queue.add(parent);
+			}
+		}
+		return parentNames.stream();
+	}
+
+	/**
+	 * @param name
+	 * 		Class name.
+	 * @param parent
+	 * 		Potential parent class name.
+	 *
+	 * @return {@code true} if the class extends or implements the parent, directly or indirectly.
+	 */
+	public boolean hasParent(String name, String parent) {
+		int id = lookup(name);
+		int target = lookup(parent);
+		if (id < 0 || target < 0)
+			return false;
+		return getAncestors(id).get(target);
 	}
 
 	/**
@@ -226,11 +316,27 @@ public class HierarchyGraph extends WorkspaceGraph<HierarchyVertex> {
 				.getPrimaryClassNames().contains(vertex.getClassName()));
 		// Check if the library classes have a matching method.
 		return libClasses
-					.map(ClassVertex::getData)
-					.flatMap(cr -> ClassUtil.getMethodDefs(cr).stream())
+					.flatMap(vertex -> getMethodDefs(vertex).stream())
 					.anyMatch(method -> name.equals(method.getKey()) && desc.equals(method.getValue()));
 	}
 
+	/**
+	 * @param vertex
+	 * 		Library class vertex.
+	 *
+	 * @return Method definitions of the class, from its resource's index if available.
+	 */
+	private List<Pair<String, String>> getMethodDefs(HierarchyVertex vertex) {
+		// Libraries are never modified, so their index is always up to date
+		JavaResource resource = getWorkspace().getContainingResourceForClass(vertex.getClassName());
+		if (resource != null && resource.getIndex() != null && !resource.isPrimary()) {
+			ResourceIndex.ClassInfo info = resource.getIndex().getClass(vertex.getClassName());
+			if (info != null)
+				return info.getMethods();
+		}
+		return ClassUtil.getMethodDefs(vertex.getData());
+	}
+
 	/**
 	 * Check if two methods are linked.
 	 * It is assumed that the member definitions <i>(name + desc)</i> exist in their respective owner classes.
@@ -275,19 +381,144 @@ public class HierarchyGraph extends WorkspaceGraph<HierarchyVertex> {
 	// ============================== UTILITY =================================== //
 
 	/**
-	 * Populate {@link #descendents} map.
+	 * @param name
+	 * 		Class name.
+	 *
+	 * @return Id of the class name, or {@code -1} if the class is not in the workspace. Names are only
+	 * interned once the class is known to exist, so arbitrary queries do not grow the index.
+	 */
+	private int lookup(String name) {
+		int id = index.find(name);
+		if (id < 0 && getWorkspace().getClassReader(name) != null)
+			id = index.intern(name);
+		return id;
+	}
+
+	/**
+	 * @param id
+	 * 		Class id.
+	 *
+	 * @return Ids of the direct parents of the class, or {@code null} if the class is not in the workspace.
+	 */
+	private int[] parents(int id) {
+		int[] parents = index.parents(id);
+		if (parents != null)
+			return parents;
+		// Classes outside the primary resource are looked up on demand. Classes that cannot be found
+		// are not recorded since they may be added later, for instance by phantom generation.
+		ClassReader reader = getWorkspace().getClassReader(index.name(id));
+		if (reader == null)
+			return null;
+		String superName = reader.getSuperName();
+		String[] interfaces = reader.getInterfaces();
+		int count = superName == null ? 0 : 1;
+		parents = new int[count + interfaces.length];
+		if (superName != null)
+			parents[0] = index.intern(superName);
+		for (int i = 0; i < interfaces.length; i++)
+			parents[count + i] = index.intern(interfaces[i]);
+		index.setLibraryParents(id, parents);
+		return parents;
+	}
+
+	/**
+	 * @param id
+	 * 		Class id.
+	 *
+	 * @return Ids of all parents of the class. Must not be modified.
+	 */
+	private BitSet getAncestors(int id) {
+		BitSet set = ancestors.get(id);
+		if (set != null)
+			return set;
+		long version;
+		synchronized (ancestorLock) {
+			version = ancestorVersion;
+		}
+		set = new BitSet();
+		// Ancestries with classes missing from the workspace are not cached since the classes may be added later
+		boolean complete = true;
+		Deque<Integer> queue = new ArrayDeque<>();
+		queue.add(id);
+		while (!queue.isEmpty()) {
+			int[] parents = parents(queue.poll());
+			if (parents == null) {
+				complete = false;
+				continue;
+			}
+			for (int parent : parents) {
+				if (set.get(parent))
+					continue;
+				set.set(parent);
+				// Parents with a known ancestry do not need to be walked
+				BitSet known = ancestors.get(parent);
+				if (known != null)
+					set.or(known);
+				else
+					queue.add(parent);
+			}
+		}
+		if (complete) {
+			synchronized (ancestorLock) {
+				if (version == ancestorVersion)
+					ancestors.put(id, set);
+			}
+		}
+		return set;
+	}
+
+	/**
+	 * Drop the cached ancestry of a class and of all classes that inherit from it.
+	 * Called after the edges of the class are updated.
+	 *
+	 * @param name
+	 * 		Name of the changed class.
+	 */
+	private void invalidateAncestors(String name) {
+		int id = index.find(name);
+		if (id < 0)
+			return;
+		synchronized (ancestorLock) {
+			ancestorVersion++;
+			ancestors.remove(id);
+			ancestors.values().removeIf(set -> set.get(id));
+		}
+	}
+
+	/**
+	 * @return Number of changes made to the hierarchy. Results computed from the hierarchy are outdated once
+	 * this changes.
+	 */
+	public long getModificationCount() {
+		return modifications.get();
+	}
+
+	private Stream<String> names(int[] ids) {
+		return Arrays.stream(ids).mapToObj(index::name);
+	}
+
+	/**
+	 * Rebuild the hierarchy from the primary resource. Changes made to the primary resource's classes
+	 * are tracked automatically, so this is only needed if the primary resource was reloaded.
 	 */
 	public void refresh() {
-		// TODO: Call this when the inheritance tree is modified.
-		//  - Already called by mappings
-		//  - But later if user changes a class name WITHOUT remappping this needs to be called too
-		descendents.clear();
-		for (ClassReader reader : getWorkspace().getPrimaryClassReaders()) {
-			String superName = reader.getSuperName();
-			if (superName == null || !superName.equals("java/lang/Object"))
-				descendents.computeIfAbsent(superName, k -> new HashSet<>()).add(reader.getClassName());
-			for (String inter : reader.getInterfaces()) {
-				descendents.computeIfAbsent(inter, k -> new HashSet<>()).add(reader.getClassName());
+		modifications.incrementAndGet();
+		synchronized (ancestorLock) {
+			ancestorVersion++;
+			ancestors.clear();
+		}
+		index.clear();
+		JavaResource primary = getWorkspace().getPrimary();
+		ResourceIndex resourceIndex = primary.getIndex();
+		for (Map.Entry<String, byte[]> e : primary.getClasses().entrySet()) {
+			// Unmodified classes can use the parents recorded in the index instead of being parsed
+			ResourceIndex.ClassInfo info = resourceIndex == null || primary.getDirtyClasses().contains(e.getKey()) ?
+					null : resourceIndex.getClass(e.getKey());
+			if (info != null) {
+				index.putPrimary(info.getName(), info.getSuperName(), info.getInterfaces());
+			} else {
+				ClassReader reader = new ClassReader(e.getValue());
+				index.putPrimary(reader.getClassName(), reader.getSuperName(), reader.getInterfaces());
 			}
 		}
 	}
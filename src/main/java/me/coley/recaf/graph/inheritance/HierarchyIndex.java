@@ -0,0 +1,196 @@
+package me.coley.recaf.graph.inheritance;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inheritance edges of a {@link HierarchyGraph}. Class names are interned to int ids and the edges between them
+ * are stored in int arrays, so that walking the hierarchy does not need to parse any classes.
+ * <br>
+ * Parent edges are stored for every class that has been looked up. Child edges are only stored for classes of
+ * the primary resource, matching the {@link HierarchyGraph#getDescendants(String) descendant} lookups.
+ * Children of {@code java/lang/Object} are not recorded.
+ * <br>
+ * All access is synchronized on the index.
+ *
+ * @author Matt
+ */
+class HierarchyIndex {
+	private static final int[] EMPTY = new int[0];
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final String OBJECT = "java/lang/Object";
+	private final Map<String, Integer> ids = new HashMap<>();
+	private String[] names = new String[INITIAL_CAPACITY];
+	private int[][] parents = new int[INITIAL_CAPACITY][];
+	private int[][] children = new int[INITIAL_CAPACITY][];
+	private int[] childCounts = new int[INITIAL_CAPACITY];
+	private boolean[] primary = new boolean[INITIAL_CAPACITY];
+	private int size;
+
+	/**
+	 * @param name
+	 * 		Class name.
+	 *
+	 * @return Id of the class name. A new id is assigned if the name has not been seen before.
+	 */
+	synchronized int intern(String name) {
+		Integer id = ids.get(name);
+		if (id != null)
+			return id;
+		ensureCapacity(size + 1);
+		names[size] = name;
+		ids.put(name, size);
+		return size++;
+	}
+
+	/**
+	 * @param name
+	 * 		Class name.
+	 *
+	 * @return Id of the class name, or {@code -1} if the name has not been seen before.
+	 */
+	synchronized int find(String name) {
+		Integer id = ids.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @param id
+	 * 		Class id.
+	 *
+	 * @return Class name of the id.
+	 */
+	synchronized String name(int id) {
+		return names[id];
+	}
+
+	/**
+	 * @param id
+	 * 		Class id.
+	 *
+	 * @return Ids of the direct parents of the class, or {@code null} if the parents are not yet known.
+	 */
+	synchronized int[] parents(int id) {
+		return parents[id];
+	}
+
+	/**
+	 * @param id
+	 * 		Class id.
+	 *
+	 * @return Ids of the primary classes that directly extend or implement the class.
+	 */
+	synchronized int[] children(int id) {
+		int count = childCounts[id];
+		return count == 0 ? EMPTY : Arrays.copyOf(children[id], count);
+	}
+
+	/**
+	 * Record the parents of a class outside of the primary resource.
+	 * Ignored if the class has since been defined by the primary resource.
+	 *
+	 * @param id
+	 * 		Class id.
+	 * @param parentIds
+	 * 		Ids of the direct parents of the class.
+	 */
+	synchronized void setLibraryParents(int id, int[] parentIds) {
+		if (!primary[id])
+			parents[id] = parentIds;
+	}
+
+	/**
+	 * Define or update a class of the primary resource.
+	 * Only the edges of the given class are updated.
+	 *
+	 * @param name
+	 * 		Class name.
+	 * @param superName
+	 * 		Parent class name, may be {@code null}.
+	 * @param interfaces
+	 * 		Implemented interface names.
+	 */
+	synchronized void putPrimary(String name, String superName, String[] interfaces) {
+		int id = intern(name);
+		unlinkChildren(id);
+		int count = superName == null ? 0 : 1;
+		int[] parentIds = new int[count + interfaces.length];
+		if (superName != null)
+			parentIds[0] = intern(superName);
+		for (int i = 0; i < interfaces.length; i++)
+			parentIds[count + i] = intern(interfaces[i]);
+		parents[id] = parentIds;
+		primary[id] = true;
+		for (int parent : parentIds)
+			if (!OBJECT.equals(names[parent]))
+				addChild(parent, id);
+	}
+
+	/**
+	 * Remove a class from the primary resource. Its parents will be looked up again on the next request,
+	 * in case another resource defines the class.
+	 *
+	 * @param name
+	 * 		Class name.
+	 */
+	synchronized void removePrimary(String name) {
+		int id = find(name);
+		if (id < 0)
+			return;
+		unlinkChildren(id);
+		parents[id] = null;
+		primary[id] = false;
+	}
+
+	/**
+	 * Remove all edges. Interned ids are kept.
+	 */
+	synchronized void clear() {
+		Arrays.fill(parents, 0, size, null);
+		Arrays.fill(children, 0, size, null);
+		Arrays.fill(childCounts, 0, size, 0);
+		Arrays.fill(primary, 0, size, false);
+	}
+
+	private void unlinkChildren(int id) {
+		if (!primary[id] || parents[id] == null)
+			return;
+		for (int parent : parents[id]) {
+			int[] siblings = children[parent];
+			int count = childCounts[parent];
+			for (int i = 0; i < count; i++) {
+				if (siblings[i] == id) {
+					System.arraycopy(siblings, i + 1, siblings, i, count - i - 1);
+					childCounts[parent] = count - 1;
+					break;
+				}
+			}
+		}
+	}
+
+	private void addChild(int parent, int child) {
+		int[] siblings = children[parent];
+		int count = childCounts[parent];
+		for (int i = 0; i < count; i++)
+			if (siblings[i] == child)
+				return;
+		if (siblings == null)
+			siblings = children[parent] = new int[4];
+		else if (count == siblings.length)
+			siblings = children[parent] = Arrays.copyOf(siblings, count * 2);
+		siblings[count] = child;
+		childCounts[parent] = count + 1;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= names.length)
+			return;
+		int newCapacity = Math.max(capacity, names.length * 2);
+		names = Arrays.copyOf(names, newCapacity);
+		parents = Arrays.copyOf(parents, newCapacity);
+		children = Arrays.copyOf(children, newCapacity);
+		childCounts = Arrays.copyOf(childCounts, newCapacity);
+		primary = Arrays.copyOf(primary, newCapacity);
+	}
+}
@@ -113,9 +113,22 @@ public class Correlation {
 		return results;
 	}
 
+	/**
+	 * Matches the classes and members of the resources by structural fingerprints instead of comparing
+	 * call graphs from entry points, so resources without entry points such as libraries can be
+	 * correlated too. See {@link FingerprintMatcher}.
+	 *
+	 * @return ASM formatted mappings from the target names to the base names.
+	 */
+	public Map<String, String> analyzeFingerprints() {
+		return new FingerprintMatcher(base, target).getMappings();
+	}
+
 	private Set<FlowVertex> getEntryPoints(JavaResource resource) {
 		FlowGraph flow = workspace.getFlowGraph();
-		Function<ClassReader, FlowVertex> readerToVert =
+		// Vertices of the primary's classes use the graph's readers, so their calls come from its index
+		Function<ClassReader, FlowVertex> readerToVert = resource == workspace.getPrimary() ?
+				reader -> flow.getVertex(reader.getClassName(), "main", "([Ljava/lang/String;)V") :
 				reader -> flow.getVertex(reader, "main", "([Ljava/lang/String;)V");
 		return resource.getClasses().values().stream()
 				.map(ClassReader::new)
@@ -1,11 +1,10 @@
 package me.coley.recaf.mapping;
 
-import me.coley.recaf.util.StringUtil;
 import me.coley.recaf.workspace.Workspace;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Stack;
 
@@ -36,11 +35,16 @@ public class EnigmaMappings extends FileMappings {
 
 	@Override
 	protected Map<String, String> parse(String text) {
-		Map<String, String> map = new HashMap<>();
-		String[] lines = StringUtil.splitNewline(text);
+		return parseLines(text);
+	}
+
+	@Override
+	protected Map<String, String> parse(BufferedReader reader) throws IOException {
+		MappingTable map = new MappingTable();
 		int line = 0;
 		Stack<String> currentClass = new Stack<>();
-		for(String lineStr : lines) {
+		String lineStr;
+		while((lineStr = reader.readLine()) != null) {
 			line++;
 			String lineStrTrim = lineStr.trim();
 			int strIndent = lineStr.indexOf(lineStrTrim) + 1;
@@ -49,7 +53,7 @@ public class EnigmaMappings extends FileMappings {
 			try {
 				switch(type) {
 					case "CLASS":
-						if (lineStr.matches("\\s+.+")) {
+						if (Character.isWhitespace(lineStr.charAt(0))) {
 							// Check for indentation, implies the class is an inner
 							currentClass.add(args[1]);
 						} else {
@@ -60,7 +64,7 @@ public class EnigmaMappings extends FileMappings {
 						// Not all classes need to be renamed if they have child elements that are renamed
 						if (args.length >= 3) {
 							String renamedClass = args[2];
-							map.put(currentClass.peek(), renamedClass);
+							map.putClass(currentClass.peek(), renamedClass);
 						}
 						break;
 					case "FIELD":
@@ -73,7 +77,7 @@ public class EnigmaMappings extends FileMappings {
 							throw new IllegalArgumentException(FAIL + "could not map field, no class context");
 						String currentField = args[1];
 						String renamedField = args[2];
-						map.put(currentClass.peek() + "." + currentField, renamedField);
+						map.putField(currentClass.peek(), currentField, null, renamedField);
 						break;
 					case "METHOD":
 						// Check if no longer within inner-class scope
@@ -90,7 +94,7 @@ public class EnigmaMappings extends FileMappings {
 						if (args.length >= 4) {
 							String renamedMethod = args[2];
 							String methodType = args[3];
-							map.put(currentClass.peek() + "." + currentMethod + methodType, renamedMethod);
+							map.putMethod(currentClass.peek(), currentMethod, methodType, renamedMethod);
 						}
 						break;
 					case "ARG":
@@ -1,10 +1,10 @@
 package me.coley.recaf.mapping;
 
 import me.coley.recaf.workspace.Workspace;
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Map;
 
@@ -54,8 +54,44 @@ public abstract class FileMappings extends Mappings {
 	 * 		Thrown if the file could not be read.
 	 */
 	protected void read(File file) throws IOException {
-		String text = FileUtils.readFileToString(file, "UTF-8");
-		setMappings(parse(text));
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+				StandardCharsets.UTF_8))) {
+			setMappings(parse(reader));
+		}
+	}
+
+	/**
+	 * Parses the mappings into the standard ASM format. By default the whole text is read and passed to
+	 * {@link #parse(String)}. Formats that can be parsed line by line should override this so that large
+	 * mapping files do not need to be held in memory.
+	 *
+	 * @param reader
+	 * 		Reader of the mappings text.
+	 *
+	 * @return ASM formatted mappings.
+	 *
+	 * @throws IOException
+	 * 		Thrown if the text could not be read.
+	 */
+	protected Map<String, String> parse(BufferedReader reader) throws IOException {
+		return parse(IOUtils.toString(reader));
+	}
+
+	/**
+	 * Parses the given text with {@link #parse(BufferedReader)}.
+	 *
+	 * @param text
+	 * 		Text of the mappings.
+	 *
+	 * @return ASM formatted mappings.
+	 */
+	protected Map<String, String> parseLines(String text) {
+		try {
+			return parse(new BufferedReader(new StringReader(text)));
+		} catch(IOException ex) {
+			// Not thrown by in-memory readers
+			throw new IllegalStateException(ex);
+		}
 	}
 
 	/**
@@ -0,0 +1,626 @@
+package me.coley.recaf.mapping;
+
+import me.coley.recaf.Recaf;
+import me.coley.recaf.workspace.JavaResource;
+import org.objectweb.asm.*;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static me.coley.recaf.util.Log.*;
+
+/**
+ * Matches the classes and members of two versions of a program by structural fingerprints.
+ * <br>
+ * Each method is reduced to a hash of its opcodes, constants and the shape of the calls and
+ * field accesses it makes, along with a set of opcode n-gram hashes. Names of types declared in the
+ * program are left out of the hashes, since they may be renamed between versions. Classes and members
+ * are then matched when their fingerprints are unique on both sides. Once some classes are matched,
+ * references to them are included in the fingerprints, which separates classes that looked the same
+ * before, and matching is repeated until no new matches are found.
+ *
+ * @author Matt
+ */
+public class FingerprintMatcher {
+	private static final String UNKNOWN = "?";
+	private static final int MAX_ROUNDS = 16;
+	private static final double MIN_SIMILARITY = 0.75;
+	private static final long PRIME = 0x100000001B3L;
+	private static final long SEED = 0xCBF29CE484222325L;
+	// Marks the position of a reference to a type declared in the program
+	private static final int REF = 0x5EF;
+	private final JavaResource base;
+	private final JavaResource target;
+	private final Map<String, String> classMatches = new HashMap<>();
+	private final Map<String, String> mappings = new HashMap<>();
+	private boolean analyzed;
+
+	/**
+	 * @param base
+	 * 		The base resource, with the names to map to.
+	 * @param target
+	 * 		The target resource, with the names to map from.
+	 */
+	public FingerprintMatcher(JavaResource base, JavaResource target) {
+		this.base = base;
+		this.target = target;
+	}
+
+	/**
+	 * @return Map of target class names to the matching base class names.
+	 */
+	public Map<String, String> getClassMatches() {
+		analyze();
+		return classMatches;
+	}
+
+	/**
+	 * Generates ASM formatted mappings from the names in the target resource to the names of the
+	 * matching classes and members in the base resource. Only differing names are included.
+	 * <br>
+	 * See the
+	 * {@link org.objectweb.asm.commons.SimpleRemapper#SimpleRemapper(Map)} docs for more
+	 * information.
+	 *
+	 * @return ASM formatted mappings.
+	 */
+	public Map<String, String> getMappings() {
+		analyze();
+		return mappings;
+	}
+
+	private synchronized void analyze() {
+		if (analyzed)
+			return;
+		analyzed = true;
+		Map<String, ClassPrint> basePrints = extract(base);
+		Map<String, ClassPrint> targetPrints = extract(target);
+		debug("Fingerprinted {} base and {} target classes", basePrints.size(), targetPrints.size());
+		matchClasses(basePrints, targetPrints);
+		Function<String, String> baseResolver = baseResolver();
+		Function<String, String> targetResolver = targetResolver();
+		for (Map.Entry<String, String> e : classMatches.entrySet()) {
+			String targetName = e.getKey();
+			String baseName = e.getValue();
+			if (!targetName.equals(baseName))
+				mappings.put(targetName, baseName);
+			ClassPrint baseClass = basePrints.get(baseName);
+			ClassPrint targetClass = targetPrints.get(targetName);
+			matchMembers(baseClass.methods, targetClass.methods, baseResolver, targetResolver, true)
+					.forEach((t, b) -> {
+						if (!t.name.equals(b.name))
+							mappings.put(targetName + "." + t.name + t.desc, b.name);
+					});
+			matchMembers(baseClass.fields, targetClass.fields, baseResolver, targetResolver, false)
+					.forEach((t, b) -> {
+						if (!t.name.equals(b.name))
+							mappings.put(targetName + "." + t.name, b.name);
+					});
+		}
+		debug("Matched {} of {} target classes", classMatches.size(), targetPrints.size());
+	}
+
+	/**
+	 * Match classes with unique fingerprints, repeating with the names of matched classes included
+	 * in the fingerprints until no new matches are found.
+	 *
+	 * @param basePrints
+	 * 		Base class fingerprints.
+	 * @param targetPrints
+	 * 		Target class fingerprints.
+	 */
+	private void matchClasses(Map<String, ClassPrint> basePrints, Map<String, ClassPrint> targetPrints) {
+		Set<String> matchedBase = new HashSet<>();
+		for (int round = 0; round < MAX_ROUNDS; round++) {
+			Map<Long, List<String>> baseBuckets = bucket(basePrints, matchedBase, baseResolver());
+			Map<Long, List<String>> targetBuckets = bucket(targetPrints, classMatches.keySet(), targetResolver());
+			int matched = 0;
+			for (Map.Entry<Long, List<String>> e : targetBuckets.entrySet()) {
+				List<String> baseNames = baseBuckets.get(e.getKey());
+				if (e.getValue().size() == 1 && baseNames != null && baseNames.size() == 1) {
+					classMatches.put(e.getValue().get(0), baseNames.get(0));
+					matchedBase.add(baseNames.get(0));
+					matched++;
+				}
+			}
+			if (matched == 0)
+				break;
+		}
+	}
+
+	/**
+	 * @param prints
+	 * 		Class fingerprints.
+	 * @param matched
+	 * 		Names of classes that are already matched, which are skipped.
+	 * @param resolver
+	 * 		Resolver for references to types declared in the program.
+	 *
+	 * @return Map of class hashes to the names of the unmatched classes with the hash.
+	 */
+	private static Map<Long, List<String>> bucket(Map<String, ClassPrint> prints, Set<String> matched,
+												  Function<String, String> resolver) {
+		return prints.values().parallelStream()
+				.filter(print -> !matched.contains(print.name))
+				.collect(Collectors.groupingByConcurrent(print -> print.hash(resolver),
+						Collectors.mapping(print -> print.name, Collectors.toList())));
+	}
+
+	/**
+	 * @param baseMembers
+	 * 		Members of a base class.
+	 * @param targetMembers
+	 * 		Members of the matching target class.
+	 * @param baseResolver
+	 * 		Resolver for references in the base members.
+	 * @param targetResolver
+	 * 		Resolver for references in the target members.
+	 * @param fuzzy
+	 * 		{@code true} to match remaining members by the similarity of their code,
+	 * 		otherwise they are matched by unique descriptors.
+	 *
+	 * @return Map of target members to matching base members.
+	 */
+	private static Map<MemberPrint, MemberPrint> matchMembers(List<MemberPrint> baseMembers,
+															  List<MemberPrint> targetMembers,
+															  Function<String, String> baseResolver,
+															  Function<String, String> targetResolver,
+															  boolean fuzzy) {
+		Map<MemberPrint, MemberPrint> matches = new HashMap<>();
+		List<MemberPrint> baseLeft = new ArrayList<>(baseMembers);
+		List<MemberPrint> targetLeft = new ArrayList<>(targetMembers);
+		matchUnique(baseLeft, targetLeft, matches, m -> m.hash(baseResolver), m -> m.hash(targetResolver));
+		if (!fuzzy) {
+			// Fields with a type no other field of the class has
+			matchUnique(baseLeft, targetLeft, matches,
+					m -> m.descHash(baseResolver), m -> m.descHash(targetResolver));
+			return matches;
+		}
+		// Methods that changed between versions, matched to the most similar method of the same shape
+		for (MemberPrint t : new ArrayList<>(targetLeft)) {
+			long shape = t.descHash(targetResolver);
+			MemberPrint best = null;
+			double bestScore = MIN_SIMILARITY;
+			boolean tie = false;
+			for (MemberPrint b : baseLeft) {
+				if (b.descHash(baseResolver) != shape || t.name.startsWith("<") != b.name.startsWith("<"))
+					continue;
+				double score = similarity(b.ngrams, t.ngrams);
+				if (score > bestScore) {
+					best = b;
+					bestScore = score;
+					tie = false;
+				} else if (score == bestScore) {
+					tie = true;
+				}
+			}
+			if (best != null && !tie) {
+				matches.put(t, best);
+				baseLeft.remove(best);
+				targetLeft.remove(t);
+			}
+		}
+		return matches;
+	}
+
+	private static void matchUnique(List<MemberPrint> baseLeft, List<MemberPrint> targetLeft,
+									Map<MemberPrint, MemberPrint> matches,
+									Function<MemberPrint, Long> baseKey, Function<MemberPrint, Long> targetKey) {
+		Map<Long, List<MemberPrint>> baseBuckets = baseLeft.stream().collect(Collectors.groupingBy(baseKey));
+		Map<Long, List<MemberPrint>> targetBuckets = targetLeft.stream().collect(Collectors.groupingBy(targetKey));
+		for (Map.Entry<Long, List<MemberPrint>> e : targetBuckets.entrySet()) {
+			List<MemberPrint> bases = baseBuckets.get(e.getKey());
+			if (e.getValue().size() == 1 && bases != null && bases.size() == 1) {
+				MemberPrint t = e.getValue().get(0);
+				MemberPrint b = bases.get(0);
+				// Constructors and static initializers are only matched to each other
+				if (t.name.startsWith("<") != b.name.startsWith("<"))
+					continue;
+				matches.put(t, b);
+				baseLeft.remove(b);
+				targetLeft.remove(t);
+			}
+		}
+	}
+
+	/**
+	 * @param a
+	 * 		Sorted n-gram hashes.
+	 * @param b
+	 * 		Other sorted n-gram hashes.
+	 *
+	 * @return Jaccard similarity of the two sets.
+	 */
+	private static double similarity(int[] a, int[] b) {
+		if (a.length == 0 && b.length == 0)
+			return 1;
+		int common = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] == b[j]) {
+				common++;
+				i++;
+				j++;
+			} else if (a[i] < b[j]) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return common / (double) (a.length + b.length - common);
+	}
+
+	/**
+	 * @return Resolver of base class names, only known once the class is matched.
+	 */
+	private Function<String, String> baseResolver() {
+		Set<String> matched = new HashSet<>(classMatches.values());
+		return name -> matched.contains(name) ? name : UNKNOWN;
+	}
+
+	/**
+	 * @return Resolver of target class names to the names of their matching base classes.
+	 */
+	private Function<String, String> targetResolver() {
+		Map<String, String> matched = new HashMap<>(classMatches);
+		return name -> matched.getOrDefault(name, UNKNOWN);
+	}
+
+	/**
+	 * @param resource
+	 * 		Resource to fingerprint.
+	 *
+	 * @return Map of class names to their fingerprints.
+	 */
+	private static Map<String, ClassPrint> extract(JavaResource resource) {
+		Set<String> declared = resource.getClasses().keySet();
+		return new ArrayList<>(resource.getClasses().values()).parallelStream()
+				.map(code -> {
+					try {
+						ClassPrint print = new ClassPrint(declared);
+						new ClassReader(code).accept(print, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+						return print;
+					} catch(Exception ex) {
+						debug("Failed to fingerprint class: {}", ex.toString());
+						return null;
+					}
+				})
+				.filter(Objects::nonNull)
+				.collect(Collectors.toConcurrentMap(print -> print.name, print -> print, (a, b) -> a));
+	}
+
+	private static long mix(long hash, long value) {
+		return (hash ^ value) * PRIME;
+	}
+
+	/**
+	 * Hash state that records references to types declared in the program separately.
+	 */
+	private static class Hasher {
+		private final Set<String> declared;
+		private final List<String> refs = new ArrayList<>();
+		private long hash = SEED;
+
+		private Hasher(Set<String> declared) {
+			this.declared = declared;
+		}
+
+		private void add(long value) {
+			hash = mix(hash, value);
+		}
+
+		private void add(String value) {
+			hash = mix(hash, value == null ? 0 : value.hashCode());
+		}
+
+		private void addType(String internalName) {
+			if (internalName != null && declared.contains(internalName)) {
+				add(REF);
+				refs.add(internalName);
+			} else {
+				add(internalName);
+			}
+		}
+
+		private void addDesc(String desc) {
+			addType(Type.getType(desc));
+		}
+
+		private void addType(Type type) {
+			switch(type.getSort()) {
+				case Type.METHOD:
+					for (Type arg : type.getArgumentTypes())
+						addType(arg);
+					add(')');
+					addType(type.getReturnType());
+					break;
+				case Type.ARRAY:
+					add(type.getDimensions());
+					addType(type.getElementType());
+					break;
+				case Type.OBJECT:
+					addType(type.getInternalName());
+					break;
+				default:
+					add(type.getDescriptor());
+					break;
+			}
+		}
+
+		private String[] refs() {
+			return refs.toArray(new String[0]);
+		}
+	}
+
+	/**
+	 * Fingerprint of a field or method.
+	 */
+	private static class MemberPrint {
+		private final String name;
+		private final String desc;
+		private final long descHash;
+		private final String[] descRefs;
+		private final long hash;
+		private final String[] refs;
+		private final int[] ngrams;
+
+		private MemberPrint(String name, String desc, Hasher descHasher, Hasher hasher, int[] ngrams) {
+			this.name = name;
+			this.desc = desc;
+			this.descHash = descHasher.hash;
+			this.descRefs = descHasher.refs();
+			this.hash = hasher.hash;
+			this.refs = hasher.refs();
+			this.ngrams = ngrams;
+		}
+
+		/**
+		 * @param resolver
+		 * 		Resolver for references to types declared in the program.
+		 *
+		 * @return Hash of the member's descriptor.
+		 */
+		private long descHash(Function<String, String> resolver) {
+			return resolve(descHash, descRefs, resolver);
+		}
+
+		/**
+		 * @param resolver
+		 * 		Resolver for references to types declared in the program.
+		 *
+		 * @return Hash of the member's descriptor and content.
+		 */
+		private long hash(Function<String, String> resolver) {
+			return mix(descHash(resolver), resolve(hash, refs, resolver));
+		}
+
+		private static long resolve(long hash, String[] refs, Function<String, String> resolver) {
+			for (String ref : refs)
+				hash = mix(hash, resolver.apply(ref).hashCode());
+			return hash;
+		}
+	}
+
+	/**
+	 * Fingerprint of a class, collected by visiting it.
+	 */
+	private static class ClassPrint extends ClassVisitor {
+		private final Set<String> declared;
+		private final List<MemberPrint> fields = new ArrayList<>();
+		private final List<MemberPrint> methods = new ArrayList<>();
+		private Hasher header;
+		private String name;
+
+		private ClassPrint(Set<String> declared) {
+			super(Recaf.ASM_VERSION);
+			this.declared = declared;
+		}
+
+		/**
+		 * @param resolver
+		 * 		Resolver for references to types declared in the program.
+		 *
+		 * @return Hash of the class's header and members.
+		 */
+		private long hash(Function<String, String> resolver) {
+			long hash = MemberPrint.resolve(header.hash, header.refs(), resolver);
+			hash = mixSorted(hash, fields, resolver);
+			return mixSorted(hash, methods, resolver);
+		}
+
+		private static long mixSorted(long hash, List<MemberPrint> members, Function<String, String> resolver) {
+			// Member order may change between versions
+			long[] hashes = new long[members.size()];
+			for (int i = 0; i < hashes.length; i++)
+				hashes[i] = members.get(i).hash(resolver);
+			Arrays.sort(hashes);
+			for (long value : hashes)
+				hash = mix(hash, value);
+			return mix(hash, hashes.length);
+		}
+
+		@Override
+		public void visit(int version, int access, String name, String signature, String superName,
+						  String[] interfaces) {
+			this.name = name;
+			header = new Hasher(declared);
+			header.add(access & ~Opcodes.ACC_SUPER);
+			header.addType(superName);
+			for (String itf : interfaces)
+				header.addType(itf);
+		}
+
+		@Override
+		public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+			Hasher descHasher = new Hasher(declared);
+			descHasher.addDesc(desc);
+			Hasher hasher = new Hasher(declared);
+			hasher.add(access);
+			hasher.add(String.valueOf(value));
+			fields.add(new MemberPrint(name, desc, descHasher, hasher, new int[0]));
+			return null;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String desc, String signature,
+										 String[] exceptions) {
+			Hasher descHasher = new Hasher(declared);
+			descHasher.addDesc(desc);
+			Hasher hasher = new Hasher(declared);
+			hasher.add(access & (Opcodes.ACC_STATIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE |
+					Opcodes.ACC_SYNCHRONIZED | Opcodes.ACC_VARARGS));
+			// Names of constructors and static initializers are never renamed
+			if (name.startsWith("<"))
+				hasher.add(name);
+			return new MethodPrinter(hasher) {
+				@Override
+				public void visitEnd() {
+					methods.add(new MemberPrint(name, desc, descHasher, hasher, ngrams()));
+				}
+			};
+		}
+	}
+
+	/**
+	 * Hashes the instructions of a method.
+	 */
+	private static class MethodPrinter extends MethodVisitor {
+		private static final int N = 3;
+		private final Hasher hasher;
+		private final Set<Integer> ngrams = new HashSet<>();
+		private final int[] window = new int[N];
+		private int count;
+
+		private MethodPrinter(Hasher hasher) {
+			super(Recaf.ASM_VERSION);
+			this.hasher = hasher;
+		}
+
+		/**
+		 * @return Sorted hashes of each sequence of {@link #N} opcodes in the method.
+		 */
+		protected int[] ngrams() {
+			int[] values = new int[ngrams.size()];
+			int i = 0;
+			for (int value : ngrams)
+				values[i++] = value;
+			Arrays.sort(values);
+			return values;
+		}
+
+		private void op(int opcode) {
+			hasher.add(opcode);
+			window[count++ % N] = opcode;
+			if (count >= N) {
+				int hash = 1;
+				for (int i = count - N; i < count; i++)
+					hash = 31 * hash + window[i % N];
+				ngrams.add(hash);
+			}
+		}
+
+		@Override
+		public void visitInsn(int opcode) {
+			// Padding inserted by obfuscators does not change the behavior of the method
+			if (opcode != Opcodes.NOP)
+				op(opcode);
+		}
+
+		@Override
+		public void visitIntInsn(int opcode, int operand) {
+			op(opcode);
+			hasher.add(operand);
+		}
+
+		@Override
+		public void visitVarInsn(int opcode, int var) {
+			op(opcode);
+		}
+
+		@Override
+		public void visitTypeInsn(int opcode, String type) {
+			op(opcode);
+			hasher.addDesc(type.startsWith("[") ? type : "L" + type + ";");
+		}
+
+		@Override
+		public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+			op(opcode);
+			hasher.addType(owner);
+			// Names of fields declared in the program may be renamed
+			if (!hasher.declared.contains(owner))
+				hasher.add(name);
+			hasher.addDesc(desc);
+		}
+
+		@Override
+		public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+			op(opcode);
+			if (owner.startsWith("["))
+				hasher.addDesc(owner);
+			else
+				hasher.addType(owner);
+			if (!hasher.declared.contains(owner) || name.startsWith("<"))
+				hasher.add(name);
+			hasher.addDesc(desc);
+		}
+
+		@Override
+		public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
+			op(Opcodes.INVOKEDYNAMIC);
+			hasher.addType(bsm.getOwner());
+			hasher.add(bsm.getName());
+			hasher.addDesc(desc);
+		}
+
+		@Override
+		public void visitJumpInsn(int opcode, Label label) {
+			op(opcode);
+		}
+
+		@Override
+		public void visitLdcInsn(Object value) {
+			op(Opcodes.LDC);
+			if (value instanceof Type)
+				hasher.addType((Type) value);
+			else if (value instanceof String || value instanceof Number)
+				hasher.add(value.toString());
+		}
+
+		@Override
+		public void visitIincInsn(int var, int increment) {
+			op(Opcodes.IINC);
+			hasher.add(increment);
+		}
+
+		@Override
+		public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+			op(Opcodes.TABLESWITCH);
+			hasher.add(min);
+			hasher.add(max);
+		}
+
+		@Override
+		public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+			op(Opcodes.LOOKUPSWITCH);
+			for (int key : keys)
+				hasher.add(key);
+		}
+
+		@Override
+		public void visitMultiANewArrayInsn(String desc, int dims) {
+			op(Opcodes.MULTIANEWARRAY);
+			hasher.addDesc(desc);
+			hasher.add(dims);
+		}
+
+		@Override
+		public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+			hasher.add(REF + 1);
+			if (type != null)
+				hasher.addType(type);
+		}
+	}
+}
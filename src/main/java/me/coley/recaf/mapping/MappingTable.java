@@ -0,0 +1,313 @@
+package me.coley.recaf.mapping;
+
+import java.util.*;
+
+/**
+ * Compact storage of ASM formatted mappings. See the
+ * {@link org.objectweb.asm.commons.SimpleRemapper#SimpleRemapper(Map)} docs for the key format.
+ * <br>
+ * Members are grouped by their owner and name instead of being stored under concatenated keys, and
+ * owner, name and descriptor strings are interned so that repeated values share one instance.
+ * Members can be looked up without building keys, while the {@link Map} view creates keys on demand.
+ *
+ * @author Matt
+ */
+public class MappingTable extends AbstractMap<String, String> {
+	private final Map<String, String> pool = new HashMap<>();
+	private final Map<String, String> classes = new HashMap<>();
+	/**
+	 * Owner to name to pairs of descriptor and mapped name.
+	 * Field descriptors are {@code null} when the mapping does not specify one.
+	 */
+	private final Map<String, Map<String, String[]>> fields = new HashMap<>();
+	private final Map<String, Map<String, String[]>> methods = new HashMap<>();
+	private int size;
+
+	/**
+	 * @param name
+	 * 		Class name.
+	 *
+	 * @return Mapped class name, or {@code null} if the class is not mapped.
+	 */
+	public String mapClass(String name) {
+		return classes.get(name);
+	}
+
+	/**
+	 * @param owner
+	 * 		Declaring class name.
+	 * @param name
+	 * 		Field name.
+	 * @param desc
+	 * 		Field descriptor, or {@code null} for mappings that do not specify descriptors.
+	 *
+	 * @return Mapped field name, or {@code null} if the field is not mapped.
+	 */
+	public String mapField(String owner, String name, String desc) {
+		return find(fields, owner, name, desc);
+	}
+
+	/**
+	 * @param owner
+	 * 		Declaring class name.
+	 * @param name
+	 * 		Method name.
+	 * @param desc
+	 * 		Method descriptor.
+	 *
+	 * @return Mapped method name, or {@code null} if the method is not mapped.
+	 */
+	public String mapMethod(String owner, String name, String desc) {
+		return find(methods, owner, name, desc);
+	}
+
+	/**
+	 * @param name
+	 * 		Class name.
+	 * @param mapped
+	 * 		Mapped class name.
+	 *
+	 * @return Previous mapped name, or {@code null} if the class was not mapped.
+	 */
+	public String putClass(String name, String mapped) {
+		String old = classes.put(intern(name), mapped);
+		if (old == null)
+			size++;
+		return old;
+	}
+
+	/**
+	 * @param owner
+	 * 		Declaring class name.
+	 * @param name
+	 * 		Field name.
+	 * @param desc
+	 * 		Field descriptor, or {@code null} for mappings that do not specify descriptors.
+	 * @param mapped
+	 * 		Mapped field name.
+	 *
+	 * @return Previous mapped name, or {@code null} if the field was not mapped.
+	 */
+	public String putField(String owner, String name, String desc, String mapped) {
+		return put(fields, owner, name, desc, mapped);
+	}
+
+	/**
+	 * @param owner
+	 * 		Declaring class name.
+	 * @param name
+	 * 		Method name.
+	 * @param desc
+	 * 		Method descriptor.
+	 * @param mapped
+	 * 		Mapped method name.
+	 *
+	 * @return Previous mapped name, or {@code null} if the method was not mapped.
+	 */
+	public String putMethod(String owner, String name, String desc, String mapped) {
+		return put(methods, owner, name, desc, mapped);
+	}
+
+	@Override
+	public String get(Object key) {
+		if (!(key instanceof String))
+			return null;
+		String text = (String) key;
+		int dot = text.indexOf('.');
+		if (dot < 0)
+			return classes.get(text);
+		String owner = text.substring(0, dot);
+		int paren = text.indexOf('(', dot);
+		if (paren >= 0)
+			return mapMethod(owner, text.substring(dot + 1, paren), text.substring(paren));
+		int space = text.indexOf(' ', dot);
+		if (space >= 0)
+			return mapField(owner, text.substring(dot + 1, space), text.substring(space + 1));
+		return mapField(owner, text.substring(dot + 1), null);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public String put(String key, String value) {
+		Objects.requireNonNull(value, "Mapped names cannot be null");
+		int dot = key.indexOf('.');
+		if (dot < 0)
+			return putClass(key, value);
+		String owner = key.substring(0, dot);
+		int paren = key.indexOf('(', dot);
+		if (paren >= 0)
+			return putMethod(owner, key.substring(dot + 1, paren), key.substring(paren), value);
+		int space = key.indexOf(' ', dot);
+		if (space >= 0)
+			return putField(owner, key.substring(dot + 1, space), key.substring(space + 1), value);
+		return putField(owner, key.substring(dot + 1), null, value);
+	}
+
+	@Override
+	public String remove(Object key) {
+		if (!(key instanceof String))
+			return null;
+		String text = (String) key;
+		int dot = text.indexOf('.');
+		if (dot < 0) {
+			String old = classes.remove(text);
+			if (old != null)
+				size--;
+			return old;
+		}
+		String owner = text.substring(0, dot);
+		int paren = text.indexOf('(', dot);
+		if (paren >= 0)
+			return remove(methods, owner, text.substring(dot + 1, paren), text.substring(paren));
+		int space = text.indexOf(' ', dot);
+		if (space >= 0)
+			return remove(fields, owner, text.substring(dot + 1, space), text.substring(space + 1));
+		return remove(fields, owner, text.substring(dot + 1), null);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		pool.clear();
+		classes.clear();
+		fields.clear();
+		methods.clear();
+		size = 0;
+	}
+
+	@Override
+	public Set<Entry<String, String>> entrySet() {
+		return new AbstractSet<Entry<String, String>>() {
+			@Override
+			public Iterator<Entry<String, String>> iterator() {
+				List<Entry<String, String>> entries = new ArrayList<>(size);
+				for (Entry<String, String> e : classes.entrySet())
+					entries.add(new SimpleImmutableEntry<>(e));
+				addEntries(entries, fields, false);
+				addEntries(entries, methods, true);
+				// Entries are a snapshot, so removals go through the table
+				Iterator<Entry<String, String>> it = entries.iterator();
+				return new Iterator<Entry<String, String>>() {
+					private Entry<String, String> last;
+
+					@Override
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					@Override
+					public Entry<String, String> next() {
+						return last = it.next();
+					}
+
+					@Override
+					public void remove() {
+						if (last == null)
+							throw new IllegalStateException();
+						MappingTable.this.remove(last.getKey());
+						last = null;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	private String intern(String value) {
+		if (value == null)
+			return null;
+		String existing = pool.putIfAbsent(value, value);
+		return existing == null ? value : existing;
+	}
+
+	private String put(Map<String, Map<String, String[]>> members, String owner, String name,
+					   String desc, String mapped) {
+		Map<String, String[]> names = members.computeIfAbsent(intern(owner), k -> new HashMap<>());
+		String[] pairs = names.get(name);
+		if (pairs != null) {
+			for (int i = 0; i < pairs.length; i += 2) {
+				if (Objects.equals(pairs[i], desc)) {
+					String old = pairs[i + 1];
+					pairs[i + 1] = mapped;
+					return old;
+				}
+			}
+			pairs = Arrays.copyOf(pairs, pairs.length + 2);
+		} else {
+			pairs = new String[2];
+		}
+		// Overloads share the array, so the new pair always goes last
+		pairs[pairs.length - 2] = intern(desc);
+		pairs[pairs.length - 1] = mapped;
+		names.put(intern(name), pairs);
+		size++;
+		return null;
+	}
+
+	private String remove(Map<String, Map<String, String[]>> members, String owner, String name, String desc) {
+		Map<String, String[]> names = members.get(owner);
+		String[] pairs = names == null ? null : names.get(name);
+		if (pairs == null)
+			return null;
+		for (int i = 0; i < pairs.length; i += 2) {
+			if (Objects.equals(pairs[i], desc)) {
+				String old = pairs[i + 1];
+				if (pairs.length == 2) {
+					names.remove(name);
+					if (names.isEmpty())
+						members.remove(owner);
+				} else {
+					String[] rest = new String[pairs.length - 2];
+					System.arraycopy(pairs, 0, rest, 0, i);
+					System.arraycopy(pairs, i + 2, rest, i, pairs.length - i - 2);
+					names.put(name, rest);
+				}
+				size--;
+				return old;
+			}
+		}
+		return null;
+	}
+
+	private static String find(Map<String, Map<String, String[]>> members, String owner, String name,
+							   String desc) {
+		Map<String, String[]> names = members.get(owner);
+		if (names == null)
+			return null;
+		String[] pairs = names.get(name);
+		if (pairs == null)
+			return null;
+		for (int i = 0; i < pairs.length; i += 2)
+			if (Objects.equals(pairs[i], desc))
+				return pairs[i + 1];
+		return null;
+	}
+
+	private static void addEntries(List<Entry<String, String>> entries, Map<String, Map<String, String[]>> members,
+								   boolean method) {
+		for (Entry<String, Map<String, String[]>> owner : members.entrySet()) {
+			for (Entry<String, String[]> name : owner.getValue().entrySet()) {
+				String[] pairs = name.getValue();
+				for (int i = 0; i < pairs.length; i += 2) {
+					String desc = pairs[i];
+					String key = owner.getKey() + '.' + name.getKey();
+					if (desc != null)
+						key += method ? desc : ' ' + desc;
+					entries.add(new SimpleImmutableEntry<>(key, pairs[i + 1]));
+				}
+			}
+		}
+	}
+}
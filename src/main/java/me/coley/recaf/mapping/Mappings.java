@@ -1,5 +1,6 @@
 package me.coley.recaf.mapping;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import me.coley.recaf.plugin.PluginsManager;
 import me.coley.recaf.plugin.api.ClassVisitorPlugin;
 import me.coley.recaf.workspace.*;
@@ -9,6 +10,7 @@ import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.commons.ClassRemapper;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 /**
@@ -17,6 +19,10 @@ import java.util.stream.Collectors;
  * @author Matt
  */
 public class Mappings {
+	/**
+	 * Number of classes a remapping thread handles at a time.
+	 */
+	private static final int PARALLEL_CHUNK_SIZE = 256;
 	private Map<String, String> mappings;
 	private Map<String, String> reverseClassMappings;
 	private Workspace workspace;
@@ -130,29 +136,76 @@ public class Mappings {
 	 */
 	public Map<String, byte[]> accept(JavaResource resource) {
 		// Collect: <OldName, NewBytecode>
-		Map<String, byte[]> updated = new HashMap<>();
-		for(Map.Entry<String, byte[]> e : resource.getClasses().entrySet()) {
-			byte[] old = e.getValue();
-			ClassReader cr = new ClassReader(old);
-			accept(updated, cr);
-		}
-		// Update the resource's classes map
+		Map<String, byte[]> updated = remap(new ArrayList<>(resource.getClasses().values()));
+		// Update the resource's classes map.
+		// All renamed classes are removed before any are added, so classes that swap names are not lost.
+		Map<String, byte[]> renamed = new HashMap<>();
 		for(Map.Entry<String, byte[]> e : updated.entrySet()) {
 			String oldKey = e.getKey();
 			String newKey = new ClassReader(e.getValue()).getClassName();
 			if (!oldKey.equals(newKey))
 				resource.getClasses().remove(oldKey);
-			resource.getClasses().put(newKey, e.getValue());
+			renamed.put(newKey, e.getValue());
 		}
-		// Tell the workspace we've finished renaming classes
+		resource.getClasses().putAll(renamed);
+		// Tell the workspace we've finished renaming classes.
+		// The hierarchy graph is updated as classes are put, so it does not need to be refreshed.
 		workspace.onPrimaryDefinitionChanges(updated.keySet());
-		// Update hierarchy graph
-		workspace.getHierarchyGraph().refresh();
 		// Update saved mappings
 		workspace.updateAggregateMappings(getMappings(), updated.keySet());
 		return updated;
 	}
 
+	/**
+	 * Applies mappings to the given classes. Large sets of classes are split between multiple threads, unless
+	 * {@link ClassVisitorPlugin}s are registered, since those are not required to be thread safe.
+	 *
+	 * @param classes
+	 * 		Bytecode of classes to map.
+	 *
+	 * @return Map of updated classes. Keys of the old names, values of the updated code.
+	 */
+	private Map<String, byte[]> remap(List<byte[]> classes) {
+		Map<String, byte[]> updated = new ConcurrentHashMap<>();
+		// Shared by all classes, so each part of the hierarchy is only walked once
+		MemberInheritanceTable inheritance = checkFieldHierarchy || checkMethodHierarchy ?
+				new MemberInheritanceTable(getMappings(), workspace) : null;
+		Collection<ClassVisitorPlugin> plugins = PluginsManager.getInstance().ofType(ClassVisitorPlugin.class);
+		int threads = Math.min(Runtime.getRuntime().availableProcessors(),
+				(classes.size() + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE);
+		if (threads <= 1 || !plugins.isEmpty()) {
+			for (byte[] value : classes)
+				accept(updated, new ClassReader(value), inheritance, plugins);
+			return new HashMap<>(updated);
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+				.setNameFormat("Recaf Remap #%d")
+				.setDaemon(true)
+				.build());
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < classes.size(); i += PARALLEL_CHUNK_SIZE) {
+				List<byte[]> chunk = classes.subList(i, Math.min(classes.size(), i + PARALLEL_CHUNK_SIZE));
+				futures.add(pool.submit(() -> {
+					for (byte[] value : chunk)
+						accept(updated, new ClassReader(value), inheritance, plugins);
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get();
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while applying mappings", ex);
+		} catch(ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException)
+				throw (RuntimeException) ex.getCause();
+			throw new IllegalStateException("Failed to apply mappings", ex.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		return new HashMap<>(updated);
+	}
+
 	/**
 	 * Applies mappings to the given class and puts the modified bytecode in the map.
 	 *
@@ -160,30 +213,44 @@ public class Mappings {
 	 * 		Map to collect updated values in.
 	 * @param cr
 	 * 		Class bytecode reader.
+	 * @param inheritance
+	 * 		Table of member mappings declared in super-classes.
+	 * @param plugins
+	 * 		Plugins to intercept the mapped class with.
 	 */
-	private void accept(Map<String, byte[]> updated, ClassReader cr) {
+	private void accept(Map<String, byte[]> updated, ClassReader cr, MemberInheritanceTable inheritance,
+						Collection<ClassVisitorPlugin> plugins) {
+		// Renaming does not change the control flow, so the existing frames only need their types mapped.
+		// Plugins may change the code though, in which case the frames must be computed.
+		if (plugins.isEmpty()) {
+			try {
+				accept(updated, cr, inheritance, plugins, 0, 0);
+				return;
+			} catch(RuntimeException ex) {
+				// Frames could not be read or copied, so they are computed instead
+			}
+		}
 		try {
-			accept(updated, cr, ClassReader.SKIP_FRAMES, ClassWriter.COMPUTE_FRAMES);
+			accept(updated, cr, inheritance, plugins, ClassReader.SKIP_FRAMES, ClassWriter.COMPUTE_FRAMES);
 		} catch(IllegalArgumentException ex) {
 			// ASM throws: "JSR/RET are not supported with computeFrames option"
 			if (ex.getMessage() != null && ex.getMessage().contains("JSR/RET")) {
-				accept(updated, cr, ClassReader.EXPAND_FRAMES, ClassWriter.COMPUTE_MAXS);
+				accept(updated, cr, inheritance, plugins, ClassReader.EXPAND_FRAMES, ClassWriter.COMPUTE_MAXS);
 			}
 		}
 	}
 
-	private void accept(Map<String, byte[]> updated, ClassReader cr, int readFlags, int writeFlags) {
+	private void accept(Map<String, byte[]> updated, ClassReader cr, MemberInheritanceTable inheritance,
+						Collection<ClassVisitorPlugin> plugins, int readFlags, int writeFlags) {
 		String name = cr.getClassName();
 		// Apply with mapper
 		SimpleRecordingRemapper mapper = new SimpleRecordingRemapper(getMappings(),
-				checkFieldHierarchy, checkMethodHierarchy, workspace);
+				checkFieldHierarchy, checkMethodHierarchy, workspace, inheritance);
 		WorkspaceClassWriter cw = workspace.createWriter(writeFlags);
 		cw.setMappings(getMappings(), reverseClassMappings);
 		ClassVisitor visitor = cw;
-		for (ClassVisitorPlugin visitorPlugin : PluginsManager.getInstance()
-				.ofType(ClassVisitorPlugin.class)) {
+		for (ClassVisitorPlugin visitorPlugin : plugins)
 			visitor = visitorPlugin.intercept(visitor);
-		}
 		ClassRemapper adapter = new LenientClassRemapper(visitor, mapper);
 		if (clearDebugInfo)
 			readFlags |= ClassReader.SKIP_DEBUG;
@@ -0,0 +1,88 @@
+package me.coley.recaf.mapping;
+
+import me.coley.recaf.graph.inheritance.HierarchyGraph;
+import me.coley.recaf.workspace.Workspace;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lookup of member mappings declared in the parents of a class, for mappings that specify the
+ * declaring class as the owner of members referenced through child classes.
+ * <br>
+ * The parents of each class are walked once and resolved lookups are recorded, so remapping many
+ * classes does not walk the same parts of the hierarchy repeatedly. Safe to use from multiple threads.
+ *
+ * @author Matt
+ */
+public class MemberInheritanceTable {
+	private static final String[] NO_PARENTS = new String[0];
+	private final Map<String, String> mappings;
+	private final HierarchyGraph graph;
+	private final Set<String> mappedOwners = new HashSet<>();
+	private final Map<String, String[]> parents = new ConcurrentHashMap<>();
+	private final Map<String, Optional<String>> resolved = new ConcurrentHashMap<>();
+
+	/**
+	 * @param mappings
+	 * 		ASM formatted mappings.
+	 * @param workspace
+	 * 		Workspace to pull the hierarchy from.
+	 */
+	public MemberInheritanceTable(Map<String, String> mappings, Workspace workspace) {
+		this.mappings = mappings;
+		this.graph = workspace.getHierarchyGraph();
+		for (String key : mappings.keySet()) {
+			int index = key.indexOf('.');
+			if (index > 0)
+				mappedOwners.add(key.substring(0, index));
+		}
+	}
+
+	/**
+	 * @param owner
+	 * 		Class the member was referenced through.
+	 * @param memberDef
+	 * 		Member name, or name and descriptor, as used in the mapping keys.
+	 *
+	 * @return Mapped name declared by the closest parent of the owner, or {@code null} if no parent
+	 * maps the member.
+	 */
+	public String map(String owner, String memberDef) {
+		if (mappedOwners.isEmpty())
+			return null;
+		String key = owner + '.' + memberDef;
+		Optional<String> mapped = resolved.get(key);
+		if (mapped == null) {
+			mapped = Optional.empty();
+			for (String parent : getParents(owner)) {
+				if (!mappedOwners.contains(parent))
+					continue;
+				String value = mappings.get(parent + '.' + memberDef);
+				if (value != null) {
+					mapped = Optional.of(value);
+					break;
+				}
+			}
+			resolved.put(key, mapped);
+		}
+		return mapped.orElse(null);
+	}
+
+	/**
+	 * @param name
+	 * 		Class name.
+	 *
+	 * @return All parents of the class, closest first.
+	 */
+	private String[] getParents(String name) {
+		String[] names = parents.get(name);
+		if (names == null) {
+			names = graph.getAllParents(name).toArray(String[]::new);
+			if (names.length == 0)
+				names = NO_PARENTS;
+			parents.put(name, names);
+		}
+		return names;
+	}
+}
@@ -1,12 +1,11 @@
 package me.coley.recaf.mapping;
 
-import me.coley.recaf.util.StringUtil;
 import me.coley.recaf.workspace.Workspace;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Proguard mappings file implementation. <br>
@@ -18,10 +17,7 @@ import java.util.Map;
  */
 public class ProguardMappings extends FileMappings {
 	private static final String FAIL = "Invalid Proguard mappings, ";
-	private static final String NAME_LINE = "^.+:";
 	private static final String SPLITTER = "( |->)+";
-	private Map<String, String> obfToClean = new HashMap<>();
-	private Map<String, String> cleanToObf = new HashMap<>();
 
 	/**
 	 * Constructs mappings from a given file.
@@ -40,115 +36,139 @@ public class ProguardMappings extends FileMappings {
 
 	@Override
 	protected Map<String, String> parse(String text) {
-		obfToClean = new HashMap<>();
-		cleanToObf = new HashMap<>();
-		String[] lines = StringUtil.splitNewline(text);
-		collectNames(lines);
-		parseMembers(lines);
-		return obfToClean;
+		return parseLines(text);
 	}
 
-	private void collectNames(String[] lines) {
+	@Override
+	protected Map<String, String> parse(BufferedReader reader) throws IOException {
+		MappingTable obfToClean = new MappingTable();
+		Map<String, String> cleanToObf = new HashMap<>();
+		// Method descriptors may reference classes declared further on, so they are built once all
+		// class names are known: [obf-owner, obf-name, ret-type, args, clean-name]
+		List<String[]> methods = new ArrayList<>();
 		int line = 0;
-		for(String lineStr : lines) {
+		String currentObf = null;
+		String lineStr;
+		while((lineStr = reader.readLine()) != null) {
 			line++;
-			// Skip comments line
-			if(lineStr.startsWith("#"))
+			// Skip comments and empty lines
+			if(lineStr.startsWith("#") || lineStr.trim().isEmpty())
 				continue;
-			// Only look at name lines
-			if(lineStr.matches(NAME_LINE)) {
-				try {
-					String[] split = lineStr.split("( |->)+");
-					String clean = internalize(split[0]);
-					String obf = internalize(split[1]);
-					obf = obf.substring(0, obf.indexOf(':'));
-					obfToClean.put(obf, clean);
-					cleanToObf.put(clean, obf);
-				} catch(IndexOutOfBoundsException ex) {
-					throw new IllegalArgumentException(FAIL + "failed parsing line " + line, ex);
+			try {
+				// Mark current class
+				if(lineStr.endsWith(":")) {
+					currentObf = parseClass(lineStr, obfToClean, cleanToObf);
+					continue;
 				}
+				if(currentObf == null)
+					throw new IllegalArgumentException(FAIL + "failed parsing line " + line + ", no class context");
+				// Handle members, skipping constructors
+				if(!lineStr.contains("("))
+					parseField(lineStr, currentObf, obfToClean);
+				else if (!lineStr.contains("init>"))
+					methods.add(parseMethod(lineStr, currentObf));
+			} catch(IndexOutOfBoundsException ex) {
+				throw new IllegalArgumentException(FAIL + "failed parsing line " + line, ex);
 			}
 		}
+		for (String[] method : methods)
+			obfToClean.putMethod(method[0], method[1], toObfDesc(method[2], method[3], cleanToObf), method[4]);
+		return obfToClean;
 	}
 
-	private void parseMembers(String[] lines) {
-		int line = 0;
-		String currentObf = null;
-		for(String lineStr : lines) {
-			line++;
-			// Skip comments line
-			if(lineStr.startsWith("#"))
-				continue;
-			// Mark current class
-			if(lineStr.matches(NAME_LINE)) {
-				currentObf = internalize(lineStr.substring(lineStr.lastIndexOf(' ') + 1, lineStr.indexOf(':')));
+	/**
+	 * @param lineStr
+	 * 		Class line, {@code <clean-name> -> <obf-name>:}
+	 * @param obfToClean
+	 * 		Mappings to add the class to.
+	 * @param cleanToObf
+	 * 		Reverse class mappings to add the class to.
+	 *
+	 * @return Obfuscated name of the class.
+	 */
+	private String parseClass(String lineStr, MappingTable obfToClean, Map<String, String> cleanToObf) {
+		String[] split = lineStr.split(SPLITTER);
+		String clean = internalize(split[0]);
+		String obf = internalize(split[1]);
+		String currentObf = obf.substring(0, obf.indexOf(':'));
+		obfToClean.putClass(currentObf, clean);
+		cleanToObf.put(clean, currentObf);
+		return currentObf;
+	}
+
+	/**
+	 * @param lineStr
+	 * 		Field line, {@code <type> <clean-name> -> <obf-name>}
+	 * @param currentObf
+	 * 		Obfuscated name of the declaring class.
+	 * @param obfToClean
+	 * 		Mappings to add the field to.
+	 */
+	private void parseField(String lineStr, String currentObf, MappingTable obfToClean) {
+		String[] split = lineStr.trim().split(SPLITTER);
+		String clean = split[1];
+		String obf = split[2];
+		obfToClean.putField(currentObf, obf, null, clean);
+	}
+
+	/**
+	 * @param lineStr
+	 * 		Method line, either {@code <start>:<finish>:<ret-type> <name><qualified-desc> -> <obf-name>} or
+	 * 		{@code <ret-type> <name><qualified-desc> -> <obf-name>}
+	 * @param currentObf
+	 * 		Obfuscated name of the declaring class.
+	 *
+	 * @return Method as {@code [obf-owner, obf-name, ret-type, args, clean-name]}.
+	 */
+	private String[] parseMethod(String lineStr, String currentObf) {
+		// Method 64:168:void updateStream() -> i
+		String[] split = null;
+		if (lineStr.contains(":"))
+			split = lineStr.substring(lineStr.lastIndexOf(":") + 1).trim().split(SPLITTER);
+		else
+			split = lineStr.trim().split(SPLITTER);
+		// name(name,name)
+		String cleanDefintion = split[1];
+		String clean = cleanDefintion.substring(0, cleanDefintion.indexOf('('));
+		String args = cleanDefintion.substring(cleanDefintion.indexOf('(') + 1,
+				cleanDefintion.length() - 1);
+		return new String[]{currentObf, split[2], split[0], args, clean};
+	}
+
+	/**
+	 * @param proRet
+	 * 		Proguard return type.
+	 * @param proArgs
+	 * 		Comma separated proguard argument types.
+	 * @param cleanToObf
+	 * 		Clean class names to obfuscated names.
+	 *
+	 * @return Method descriptor using the obfuscated class names.
+	 */
+	private String toObfDesc(String proRet, String proArgs, Map<String, String> cleanToObf) {
+		// Return type
+		// - Internalize the type (void -> V, or com.Type -> com/Type))
+		// - Map to obf if the type is not primitive
+		String cleanRet = internalize(proRet);
+		String obfRet = isPrimitive(proRet) ? cleanRet :
+				"L" + cleanToObf.getOrDefault(cleanRet, cleanRet) + ";";
+		// Parse the desc
+		String[] progaurdArgs = proArgs.isEmpty() ? new String[0] : proArgs.split(",");
+		for (int i = 0; i < progaurdArgs.length; i++) {
+			String type = progaurdArgs[i];
+			// Swap clean name with obf name (already internalized)
+			String typeObf = cleanToObf.get(type.replace(".", "/"));
+			if (typeObf != null) {
+				progaurdArgs[i] = "L" + typeObf + ";";
 				continue;
 			}
-			if(currentObf == null)
-				throw new IllegalArgumentException(FAIL + "failed parsing line " + line + ", no class context");
-			// Handle members
-			if(!lineStr.contains("(")) {
-				// Field
-				// <type> <clean-name> -> <obf-name>
-				String[] split = lineStr.trim().split(SPLITTER);
-				String clean = split[1];
-				String obf = split[2];
-				/*
-				String type = split[0];
-				if (!isPrimitive(type))
-					type = "L" + internalize(type) + ";";
-				else
-					type = internalize(type);
-				*/
-				obfToClean.put(currentObf + "." + obf, clean);
-			} else {
-				// Skip constructors
-				if (lineStr.contains("init>"))
-					continue;
-				// Method 64:168:void updateStream() -> i
-				// <start>:<finish>:<ret-type> <name><qualified-desc> -> <obf-name>
-				// <ret-type> <name::qualified-desc> -> <obf-name>
-				String[] split = null;
-				if (lineStr.contains(":"))
-					split = lineStr.substring(lineStr.lastIndexOf(":") + 1).trim().split(SPLITTER);
-				else
-					split = lineStr.trim().split(SPLITTER);
-				// Return type
-				// - Internalize the type (void -> V, or com.Type -> com/Type))
-				// - Map to obf if the type is not primitive
-				String proRet = split[0];
-				String cleanRet = internalize(proRet);
-				String obfRet = isPrimitive(proRet) ? cleanRet :
-						"L" + cleanToObf.getOrDefault(cleanRet, cleanRet) + ";";
-				// Parse the desc
-				// name(name,name)
-				String cleanDefintion = split[1];
-				String clean = cleanDefintion.substring(0, cleanDefintion.indexOf('('));
-				String[] progaurdArgs = cleanDefintion
-						.substring(cleanDefintion.indexOf('(') + 1, cleanDefintion.length() - 1)
-						.split(",");
-				if (progaurdArgs.length == 1 && progaurdArgs[0].isEmpty())
-					progaurdArgs = new String[0];
-				for (int i = 0; i < progaurdArgs.length; i++) {
-					String type = progaurdArgs[i];
-					// Swap clean name with obf name (already internalized)
-					String typeObf = cleanToObf.get(type.replace(".", "/"));
-					if (typeObf != null) {
-						progaurdArgs[i] = "L" + typeObf + ";";
-						continue;
-					}
-					// Internalize the type
-					if (isPrimitive(type))
-						progaurdArgs[i] = internalize(progaurdArgs[i]);
-					else
-						progaurdArgs[i] = "L" + internalize(progaurdArgs[i]) + ";";
-				}
-				String obf = split[2];
-				String obfDesc = "(" + String.join("", progaurdArgs) + ")" + obfRet;
-				String obfKey = currentObf + "." + obf + obfDesc;
-				obfToClean.put(obfKey, clean);
-			}
+			// Internalize the type
+			if (isPrimitive(type))
+				progaurdArgs[i] = internalize(progaurdArgs[i]);
+			else
+				progaurdArgs[i] = "L" + internalize(progaurdArgs[i]) + ";";
 		}
+		return "(" + String.join("", progaurdArgs) + ")" + obfRet;
 	}
 
 	private String internalize(String name) {
@@ -17,6 +17,8 @@ public class SimpleRecordingRemapper extends SimpleRemapper {
 	private final boolean checkFieldHierarchy;
 	private final boolean checkMethodHierarchy;
 	private final Workspace workspace;
+	private final MemberInheritanceTable inheritance;
+	private final MappingTable table;
 	private boolean dirty;
 
 	/**
@@ -34,10 +36,34 @@ public class SimpleRecordingRemapper extends SimpleRemapper {
 	 */
 	public SimpleRecordingRemapper(Map<String, String> mapping, boolean checkFieldHierarchy,
 								   boolean checkMethodHierarchy, Workspace workspace) {
+		this(mapping, checkFieldHierarchy, checkMethodHierarchy, workspace, null);
+	}
+
+	/**
+	 * Constructs a recording remapper.
+	 *
+	 * @param mapping
+	 * 		Map of asm styled mappings. See
+	 *        {@link SimpleRemapper#SimpleRemapper(Map)}.
+	 * @param checkFieldHierarchy
+	 * 		Flag for checking for field keys using super-classes.
+	 * @param checkMethodHierarchy
+	 * 		Flag for checking for method keys using super-classes.
+	 * @param workspace
+	 * 		Workspace to pull names from when using hierarchy lookups.
+	 * @param inheritance
+	 * 		Table of member mappings declared in super-classes, shared between remappers of the same
+	 * 		mappings. May be {@code null} to look up super-classes on each use.
+	 */
+	public SimpleRecordingRemapper(Map<String, String> mapping, boolean checkFieldHierarchy,
+								   boolean checkMethodHierarchy, Workspace workspace,
+								   MemberInheritanceTable inheritance) {
 		super(mapping);
 		this.checkFieldHierarchy = checkFieldHierarchy;
 		this.checkMethodHierarchy = checkMethodHierarchy;
 		this.workspace = workspace;
+		this.inheritance = inheritance;
+		this.table = mapping instanceof MappingTable ? (MappingTable) mapping : null;
 	}
 
 	/**
@@ -51,8 +77,34 @@ public class SimpleRecordingRemapper extends SimpleRemapper {
 		return dirty;
 	}
 
+	@Override
+	public String mapMethodName(String owner, String name, String descriptor) {
+		// Look up members directly instead of building keys, since most references are not mapped
+		if (table != null && name.indexOf('<') < 0) {
+			String mapped = table.mapMethod(owner, name, descriptor);
+			if (mapped != null) {
+				dirty = true;
+				return mapped;
+			}
+			if (!checkMethodHierarchy)
+				return name;
+		}
+		return super.mapMethodName(owner, name, descriptor);
+	}
+
 	@Override
 	public String mapFieldName(String owner, String name, String descriptor) {
+		if (table != null && name.indexOf('<') < 0) {
+			String mapped = table.mapField(owner, name, null);
+			if (mapped == null)
+				mapped = table.mapField(owner, name, descriptor);
+			if (mapped != null) {
+				dirty = true;
+				return mapped;
+			}
+			if (!checkFieldHierarchy)
+				return name;
+		}
 		// Standard format
 		String remappedName = map(owner + '.' + name);
 		// Check if we are also using descriptors in keys, in cases where name overloading occurs
@@ -83,12 +135,16 @@ public class SimpleRecordingRemapper extends SimpleRemapper {
 				// Normally we would check the whole hierarchy, but the mappings should at least be
 				// correct enough for this to work.
 				if ((!method && checkFieldHierarchy) || (method && checkMethodHierarchy)) {
-					for (String parent : getParents(key)) {
-						// Attempt to map with parent name
-						mapped = map(parent + "." + memberDef);
-						// If found, break so we can return the discovered mapping.
-						if (mapped != null)
-							break;
+					if (inheritance != null) {
+						mapped = inheritance.map(key.substring(0, key.indexOf(".")), memberDef);
+					} else {
+						for (String parent : getParents(key)) {
+							// Attempt to map with parent name
+							mapped = map(parent + "." + memberDef);
+							// If found, break so we can return the discovered mapping.
+							if (mapped != null)
+								break;
+						}
 					}
 				}
 			} else {
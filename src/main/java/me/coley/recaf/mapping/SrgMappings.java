@@ -1,11 +1,10 @@
 package me.coley.recaf.mapping;
 
-import me.coley.recaf.util.StringUtil;
 import me.coley.recaf.workspace.Workspace;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.HashMap;
 import java.util.Map;
 
 import static me.coley.recaf.util.Log.trace;
@@ -35,10 +34,15 @@ public class SrgMappings extends FileMappings {
 
 	@Override
 	protected Map<String, String> parse(String text) {
-		Map<String, String> map = new HashMap<>();
-		String[] lines = StringUtil.splitNewline(text);
+		return parseLines(text);
+	}
+
+	@Override
+	protected Map<String, String> parse(BufferedReader reader) throws IOException {
+		MappingTable map = new MappingTable();
 		int line = 0;
-		for(String lineStr : lines) {
+		String lineStr;
+		while((lineStr = reader.readLine()) != null) {
 			line++;
 			String[] args = lineStr.trim().split(" ");
 			String type = args[0];
@@ -47,7 +51,7 @@ public class SrgMappings extends FileMappings {
 					case "CL:":
 						String obfClass = args[1];
 						String renamedClass = args[2];
-						map.put(obfClass, renamedClass);
+						map.putClass(obfClass, renamedClass);
 						break;
 					case "FD:": {
 						String obfKey = args[1];
@@ -57,7 +61,7 @@ public class SrgMappings extends FileMappings {
 						String renamedKey = args[2];
 						splitPos = renamedKey.lastIndexOf('/');
 						String renamedName = renamedKey.substring(splitPos + 1);
-						map.put(obfOwner + "." + obfName, renamedName);
+						map.putField(obfOwner, obfName, null, renamedName);
 						break;
 					}
 					case "MD:": {
@@ -69,7 +73,7 @@ public class SrgMappings extends FileMappings {
 						String renamedKey = args[3];
 						splitPos = renamedKey.lastIndexOf('/');
 						String renamedName = renamedKey.substring(splitPos + 1);
-						map.put(obfOwner + "." + obfName + obfDesc, renamedName);
+						map.putMethod(obfOwner, obfName, obfDesc, renamedName);
 						break;
 					}
 					default:
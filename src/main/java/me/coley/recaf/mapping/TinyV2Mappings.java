@@ -1,11 +1,10 @@
 package me.coley.recaf.mapping;
 
-import me.coley.recaf.util.StringUtil;
 import me.coley.recaf.workspace.Workspace;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.HashMap;
 import java.util.Map;
 
 import static me.coley.recaf.util.Log.trace;
@@ -42,11 +41,16 @@ public class TinyV2Mappings extends FileMappings {
 
 	@Override
 	protected Map<String, String> parse(String text) {
-		Map<String, String> map = new HashMap<>();
-		String[] lines = StringUtil.splitNewline(text);
+		return parseLines(text);
+	}
+
+	@Override
+	protected Map<String, String> parse(BufferedReader reader) throws IOException {
+		MappingTable map = new MappingTable();
 		int line = 0;
 		String currentClass = null;
-		for(String lineStr : lines) {
+		String lineStr;
+		while((lineStr = reader.readLine()) != null) {
 			line++;
 			// Skip initial header
 			if (lineStr.startsWith("tiny\t"))
@@ -71,7 +75,7 @@ public class TinyV2Mappings extends FileMappings {
 						int[] clsRenameIndices = subType.getFromXToYOffsets(Context.CLASS, args.length);
 						currentClass = args[clsRenameIndices[0]];
 						String renamedClass = args[clsRenameIndices[1]];
-						map.put(currentClass, renamedClass);
+						map.putClass(currentClass, renamedClass);
 						break;
 					case "f":
 						if (currentClass == null)
@@ -83,7 +87,7 @@ public class TinyV2Mappings extends FileMappings {
 						int[] fldRenameIndices = subType.getFromXToYOffsets(Context.FIELD, args.length);
 						String currentField = args[fldRenameIndices[0]];
 						String renamedField = args[fldRenameIndices[1]];
-						map.put(currentClass + "." + currentField, renamedField);
+						map.putField(currentClass, currentField, null, renamedField);
 						break;
 					case "m":
 						if (currentClass == null)
@@ -96,7 +100,7 @@ public class TinyV2Mappings extends FileMappings {
 						String methodType = args[1];
 						String currentMethod = args[mtdRenameIndices[0]];
 						String renamedMethod = args[mtdRenameIndices[1]];
-						map.put(currentClass + "." + currentMethod + methodType, renamedMethod);
+						map.putMethod(currentClass, currentMethod, methodType, renamedMethod);
 						break;
 					default:
 						trace("Unknown Tiny-V2 mappings line type: \"{}\" @line {}", type, line);
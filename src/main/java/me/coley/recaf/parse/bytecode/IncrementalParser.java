@@ -0,0 +1,136 @@
+package me.coley.recaf.parse.bytecode;
+
+import me.coley.recaf.parse.bytecode.ast.*;
+import me.coley.recaf.parse.bytecode.exception.ASTParseException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser for text that is edited over time, such as in an editor.
+ * <br>
+ * The AST of each line is kept between parses. Lines that are unchanged since the last parse at the
+ * start and end of the text are reused, moving them to their new line numbers when lines were added
+ * or removed before them. Only the lines in between are parsed again.
+ * <br>
+ * As reused nodes are shared between results and are moved and relinked in place, the
+ * {@link RootAST} of a previous result must not be used after parsing again.
+ *
+ * @author Matt
+ */
+public class IncrementalParser {
+	private String[] lines = new String[0];
+	private AST[] asts = new AST[0];
+	private List<String> aliasLines = new ArrayList<>();
+
+	/**
+	 * Parse the text, reusing the nodes of unchanged lines from the last parse. The root of the
+	 * last result is invalid afterwards.
+	 *
+	 * @param text
+	 * 		Text to visit.
+	 *
+	 * @return Parse result wrapper of generated AST.
+	 */
+	public synchronized ParseResult<RootAST> parse(String text) {
+		String[] newLines = Parse.splitLines(text);
+		// Aliases apply to every line, so when they change nothing can be reused
+		List<String> newAliasLines = new ArrayList<>();
+		for(String line : newLines)
+			if(Parse.isAlias(line))
+				newAliasLines.add(line);
+		int prefix = 0;
+		int suffix = 0;
+		if(newAliasLines.equals(aliasLines)) {
+			prefix = countPrefix(newLines);
+			suffix = countSuffix(newLines, prefix);
+		}
+		List<AliasAST> aliases = Parse.parseAliases(newLines);
+		List<ASTParseException> problems = new ArrayList<>();
+		AST[] newAsts = new AST[newLines.length];
+		for(int i = 0; i < newLines.length; i++) {
+			AST ast = reuse(i, newLines.length, prefix, suffix);
+			// Lines that failed to parse are not kept, so their problems are collected again
+			if(ast == null) {
+				try {
+					ast = Parse.parseLine(i + 1, newLines[i], aliases);
+				} catch(ASTParseException ex) {
+					problems.add(ex);
+				}
+			}
+			newAsts[i] = ast;
+		}
+		lines = newLines;
+		asts = newAsts;
+		aliasLines = newAliasLines;
+		return new ParseResult<>(createRoot(newAsts), problems);
+	}
+
+	/**
+	 * @param newLines
+	 * 		Lines of the new text.
+	 *
+	 * @return Number of leading lines that are unchanged since the last parse.
+	 */
+	private int countPrefix(String[] newLines) {
+		int max = Math.min(lines.length, newLines.length);
+		int prefix = 0;
+		while(prefix < max && lines[prefix].equals(newLines[prefix]))
+			prefix++;
+		return prefix;
+	}
+
+	/**
+	 * @param newLines
+	 * 		Lines of the new text.
+	 * @param prefix
+	 * 		Number of leading lines that are unchanged, which are not counted again.
+	 *
+	 * @return Number of trailing lines that are unchanged since the last parse.
+	 */
+	private int countSuffix(String[] newLines, int prefix) {
+		int max = Math.min(lines.length, newLines.length) - prefix;
+		int suffix = 0;
+		while(suffix < max && lines[lines.length - 1 - suffix].equals(newLines[newLines.length - 1 - suffix]))
+			suffix++;
+		return suffix;
+	}
+
+	/**
+	 * @param line
+	 * 		Index of the line in the new text.
+	 * @param count
+	 * 		Number of lines in the new text.
+	 * @param prefix
+	 * 		Number of leading lines that are unchanged.
+	 * @param suffix
+	 * 		Number of trailing lines that are unchanged.
+	 *
+	 * @return Node of the unchanged line from the last parse, moved to its new line number.
+	 * {@code null} if the line changed or did not parse.
+	 */
+	private AST reuse(int line, int count, int prefix, int suffix) {
+		if(line < prefix)
+			return asts[line];
+		if(line < count - suffix)
+			return null;
+		int shift = count - lines.length;
+		AST ast = asts[line - shift];
+		if(ast != null && shift != 0)
+			ast.setLine(line + 1);
+		return ast;
+	}
+
+	private static RootAST createRoot(AST[] asts) {
+		RootAST root = new RootAST();
+		for(AST ast : asts) {
+			if(ast == null)
+				continue;
+			// Links to the nodes of the previous root are replaced
+			ast.setPrev(null);
+			ast.setNext(null);
+			root.addChild(ast);
+		}
+		return root;
+	}
+}
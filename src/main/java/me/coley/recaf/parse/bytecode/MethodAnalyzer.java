@@ -24,7 +24,6 @@ public class MethodAnalyzer extends SimAnalyzer {
 	@Override
 	protected TypeChecker createTypeChecker() {
 		return (parent, child) -> Recaf.getCurrentWorkspace().getHierarchyGraph()
-				.getAllParents(child.getInternalName())
-					.anyMatch(n -> n != null && n.equals(parent.getInternalName()));
+				.hasParent(child.getInternalName(), parent.getInternalName());
 	}
 }
@@ -1,12 +1,15 @@
 package me.coley.recaf.parse.bytecode;
 
+import me.coley.recaf.Recaf;
 import me.coley.recaf.config.ConfAssembler;
 import me.coley.analysis.value.AbstractValue;
+import me.coley.recaf.graph.inheritance.HierarchyGraph;
 import me.coley.recaf.parse.bytecode.ast.*;
 import me.coley.recaf.parse.bytecode.exception.ASTParseException;
 import me.coley.recaf.parse.bytecode.exception.AssemblerException;
 import me.coley.recaf.parse.bytecode.exception.VerifierException;
 import me.coley.recaf.util.AccessFlag;
+import me.coley.recaf.workspace.Workspace;
 import org.objectweb.asm.tree.*;
 import org.objectweb.asm.tree.analysis.Frame;
 
@@ -25,6 +28,10 @@ public class MethodAssembler {
 	private MethodNode lastCompile;
 	private Frame<AbstractValue>[] frames;
 	private MethodCompilation compilation;
+	private MethodAssembler previous;
+	private String code;
+	private HierarchyGraph hierarchy;
+	private long hierarchyVersion;
 
 	/**
 	 * @param declaringType
@@ -50,6 +57,9 @@ public class MethodAssembler {
 	 * 		</ul>
 	 */
 	public MethodNode compile(ParseResult<RootAST> result) throws AssemblerException {
+		// Only the last compilation is needed, so don't keep a chain of them
+		MethodAssembler previous = this.previous;
+		this.previous = null;
 		if(!result.isSuccess()) {
 			ASTParseException cause = result.getProblems().get(0);
 			AssemblerException ex  = new AssemblerException(cause, "AST must not contain errors", cause.getLine());
@@ -113,7 +123,7 @@ public class MethodAssembler {
 		// Verify code is valid & store analyzed stack data.
 		// Use the saved data to fill in missing variable types.
 		if (config.verify) {
-			frames = verify(node);
+			frames = verifyChanged(previous, root, node);
 			variables.visitWithFrames(frames, compilation.getNameToLabel());
 		}
 		if (config.variables) {
@@ -122,6 +132,40 @@ public class MethodAssembler {
 		return (lastCompile = node);
 	}
 
+	/**
+	 * Verify the generated method, unless the code is the same as in the {@link #setPrevious(MethodAssembler)
+	 * previous} compilation. Comments and the lines the code is written on do not change the generated
+	 * instructions, so the previous analysis still applies. The analysis depends on the workspace's
+	 * hierarchy, so it is not reused when the hierarchy changed since.
+	 *
+	 * @param previous
+	 * 		Assembler of the previous compilation, may be {@code null}.
+	 * @param root
+	 * 		AST of method.
+	 * @param generated
+	 * 		Method generated by this assembler.
+	 *
+	 * @return Analyzed frames of the method.
+	 *
+	 * @throws VerifierException
+	 * 		Wrapped verification exception.
+	 */
+	private Frame<AbstractValue>[] verifyChanged(MethodAssembler previous, RootAST root, MethodNode generated)
+			throws VerifierException {
+		StringBuilder sb = new StringBuilder();
+		for(AST ast : root.getChildren())
+			if (!(ast instanceof CommentAST))
+				sb.append(ast.print()).append('\n');
+		code = sb.toString();
+		Workspace workspace = Recaf.getCurrentWorkspace();
+		hierarchy = workspace == null ? null : workspace.getHierarchyGraph();
+		hierarchyVersion = hierarchy == null ? 0 : hierarchy.getModificationCount();
+		if (previous != null && previous.frames != null && code.equals(previous.code) &&
+				hierarchy == previous.hierarchy && hierarchyVersion == previous.hierarchyVersion)
+			return previous.frames;
+		return verify(generated);
+	}
+
 	/**
 	 * Verify the generated method.
 	 *
@@ -145,6 +189,15 @@ public class MethodAssembler {
 		this.defaultVariables = defaultVariables;
 	}
 
+	/**
+	 * @param previous
+	 * 		Assembler used for the previous compilation of the same method. When the code has not changed
+	 * 		since, its analysis is reused instead of verifying the method again.
+	 */
+	public void setPrevious(MethodAssembler previous) {
+		this.previous = previous;
+	}
+
 	/**
 	 * @return Analyzed frames. Will be {@code null} if analysis failed.
 	 */
@@ -43,59 +43,137 @@ public class Parse {
 	public static ParseResult<RootAST> parse(String text) {
 		List<ASTParseException> problems = new ArrayList<>();
 		RootAST root = new RootAST();
-		int lineNo = 0;
-		String[] lines = text.split("[\n\r]");
-		// Collect aliases
-		List<AliasAST> aliases = new ArrayList<>();
-		for(String line : lines) {
-			lineNo++;
-			// Skip empty lines
-			if(line.trim().isEmpty())
-				continue;
-			// Check for alias
-			String token = line.trim().split("\\s")[0].toUpperCase();
+		String[] lines = splitLines(text);
+		List<AliasAST> aliases = parseAliases(lines);
+		for(int i = 0; i < lines.length; i++) {
 			try {
-				if (token.equals("ALIAS")) {
-					// Why? Because we want to support aliases-in-aliases when they
-					// are defined in order.
-					String lineCopy = line;
-					for (AliasAST alias : aliases)
-						lineCopy = lineCopy.replace("${" + alias.getName().getName() + "}",
-								alias.getValue().getValue());
-					// Parse alias
-					aliases.add((AliasAST) getParser(lineNo, token).visit(lineNo, lineCopy));
-				}
-			} catch(ClassCastException | ASTParseException ex) {
-				/* ignored, we will collect the error on the second pass */
+				AST ast = parseLine(i + 1, lines[i], aliases);
+				if (ast != null)
+					root.addChild(ast);
+			} catch(ASTParseException ex) {
+				problems.add(ex);
 			}
 		}
-		// Parse again
-		lineNo = 0;
-		for(String line : lines) {
-			lineNo++;
-			// Skip empty lines
-			String trim = line.trim();
-			if(trim.isEmpty())
+		return new ParseResult<>(root, problems);
+	}
+
+	/**
+	 * @param text
+	 * 		Text to split.
+	 *
+	 * @return Lines of the text. Both {@code '\n'} and {@code '\r'} end a line.
+	 */
+	public static String[] splitLines(String text) {
+		List<String> lines = new ArrayList<>();
+		int start = 0;
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if(c == '\n' || c == '\r') {
+				lines.add(text.substring(start, i));
+				start = i + 1;
+			}
+		}
+		lines.add(text.substring(start));
+		// Trailing empty lines are not included, like with String.split
+		int size = lines.size();
+		while(size > 0 && lines.get(size - 1).isEmpty())
+			size--;
+		return lines.subList(0, size).toArray(new String[0]);
+	}
+
+	/**
+	 * @param lines
+	 * 		Lines of the text to parse.
+	 *
+	 * @return Aliases declared in the lines.
+	 */
+	public static List<AliasAST> parseAliases(String[] lines) {
+		List<AliasAST> aliases = new ArrayList<>();
+		for(int i = 0; i < lines.length; i++) {
+			String line = lines[i];
+			if(!isAlias(line))
 				continue;
-			// Determine parse action from starting token
-			String token = trim.split("\\s")[0].toUpperCase();
 			try {
-				AbstractParser parser = getParser(lineNo, token);
-				if(parser == null)
-					throw new ASTParseException(lineNo, "Unknown identifier: " + token);
-				// Apply aliases
-				String lineCopy = line;
-				for (AliasAST alias : aliases)
-					lineCopy = lineCopy.replace("${" + alias.getName().getName() + "}",
-							alias.getValue().getValue());
-				// Parse and add to root
-				AST ast = parser.visit(lineNo, lineCopy);
-				root.addChild(ast);
-			} catch(ASTParseException ex) {
-				problems.add(ex);
+				// Why? Because we want to support aliases-in-aliases when they
+				// are defined in order.
+				String lineCopy = applyAliases(line, aliases);
+				// Parse alias
+				aliases.add((AliasAST) getParser(i + 1, "ALIAS").visit(i + 1, lineCopy));
+			} catch(ClassCastException | ASTParseException ex) {
+				/* ignored, we will collect the error when parsing the line */
 			}
 		}
-		return new ParseResult<>(root, problems);
+		return aliases;
+	}
+
+	/**
+	 * @param line
+	 * 		Line text.
+	 *
+	 * @return {@code true} when the line declares an alias.
+	 */
+	public static boolean isAlias(String line) {
+		return getToken(line.trim()).equals("ALIAS");
+	}
+
+	/**
+	 * @param lineNo
+	 * 		Line number.
+	 * @param line
+	 * 		Line text.
+	 * @param aliases
+	 * 		Aliases to apply to the line.
+	 *
+	 * @return AST of the line, or {@code null} if the line is empty.
+	 *
+	 * @throws ASTParseException
+	 * 		When the line could not be parsed.
+	 */
+	public static AST parseLine(int lineNo, String line, List<AliasAST> aliases) throws ASTParseException {
+		// Skip empty lines
+		String trim = line.trim();
+		if(trim.isEmpty())
+			return null;
+		// Determine parse action from starting token
+		String token = getToken(trim);
+		AbstractParser parser = getParser(lineNo, token);
+		if(parser == null)
+			throw new ASTParseException(lineNo, "Unknown identifier: " + token);
+		// Apply aliases & parse
+		return parser.visit(lineNo, applyAliases(line, aliases));
+	}
+
+	/**
+	 * @param line
+	 * 		Line text.
+	 * @param aliases
+	 * 		Aliases to apply.
+	 *
+	 * @return Line text with alias references replaced by their values.
+	 */
+	private static String applyAliases(String line, List<AliasAST> aliases) {
+		// Most lines do not reference any alias
+		if(aliases.isEmpty() || !line.contains("${"))
+			return line;
+		for (AliasAST alias : aliases)
+			line = line.replace("${" + alias.getName().getName() + "}", alias.getValue().getValue());
+		return line;
+	}
+
+	/**
+	 * @param trim
+	 * 		Trimmed line text.
+	 *
+	 * @return First token of the line, in upper case.
+	 */
+	private static String getToken(String trim) {
+		for(int i = 0; i < trim.length(); i++) {
+			char c = trim.charAt(i);
+			// Same characters as the '\\s' regex class
+			if(c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r')
+				return trim.substring(0, i).toUpperCase();
+		}
+		return trim.toUpperCase();
 	}
 
 	/**
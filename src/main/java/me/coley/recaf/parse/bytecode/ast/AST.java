@@ -9,7 +9,7 @@ import java.util.List;
  * @author Matt
  */
 public abstract class AST {
-	private final int line;
+	private int line;
 	private final int start;
 	private final List<AST> children = new ArrayList<>();
 	private AST parent;
@@ -34,6 +34,18 @@ public abstract class AST {
 		return line;
 	}
 
+	/**
+	 * Move this node and its children to another line.
+	 *
+	 * @param line
+	 * 		New line number.
+	 */
+	public void setLine(int line) {
+		this.line = line;
+		for(AST child : getChildren())
+			child.setLine(line);
+	}
+
 	/**
 	 * @return Offset from line start this node starts at.
 	 */
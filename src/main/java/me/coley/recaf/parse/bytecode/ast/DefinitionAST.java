@@ -25,6 +25,12 @@ public abstract class DefinitionAST extends AST {
 		this.name = name;
 	}
 
+	@Override
+	public void setLine(int line) {
+		super.setLine(line);
+		name.setLine(line);
+	}
+
 	/**
 	 * @return Full descriptor of the definition.
 	 */
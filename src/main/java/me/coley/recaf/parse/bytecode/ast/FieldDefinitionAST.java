@@ -50,6 +50,12 @@ public class FieldDefinitionAST extends DefinitionAST {
 		return type;
 	}
 
+	@Override
+	public void setLine(int line) {
+		super.setLine(line);
+		type.setLine(line);
+	}
+
 	@Override
 	public String getDescriptor() {
 		return getType().getDesc();
@@ -32,6 +32,12 @@ public class LabelAST extends AST implements Compilable {
 	}
 
 
+	@Override
+	public void setLine(int line) {
+		super.setLine(line);
+		name.setLine(line);
+	}
+
 	@Override
 	public String print() {
 		return name.print() + ":";
@@ -79,6 +79,12 @@ public class MethodDefinitionAST extends DefinitionAST {
 	}
 
 
+	@Override
+	public void setLine(int line) {
+		super.setLine(line);
+		retType.setLine(line);
+	}
+
 	/**
 	 * @return Combined method descriptor of argument children and return type child.
 	 */
@@ -7,20 +7,46 @@ import com.github.javaparser.symbolsolver.reflectionmodel.ReflectionClassDeclara
 import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
 import javassist.*;
 import me.coley.recaf.util.StringUtil;
+import me.coley.recaf.util.struct.InternalBiConsumer;
+import me.coley.recaf.util.struct.InternalConsumer;
 import me.coley.recaf.workspace.Workspace;
 
 import java.io.*;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import static com.github.javaparser.symbolsolver.javassistmodel.JavassistFactory.toTypeDeclaration;
 
 /**
  * Type resolver that uses a Recaf workspace as a classpath.
+ * <br>
+ * Classes are read from the workspace when they are first requested and resolved declarations are
+ * kept in a bounded cache. Entries of primary classes are dropped when the classes are modified.
  *
  * @author Matt
  */
 public class WorkspaceTypeResolver implements TypeSolver {
+	private static final int CACHE_SIZE = 2048;
 	private final TypeSolver childSolver = new ReflectionTypeSolver(false);
-	private final ClassPool classPool = new ClassPool(false);
+	private final WorkspaceClassPool classPool = new WorkspaceClassPool();
+	private final Map<String, ResolvedReferenceTypeDeclaration> cache =
+			new LinkedHashMap<String, ResolvedReferenceTypeDeclaration>(64, 0.75F, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, ResolvedReferenceTypeDeclaration> eldest) {
+					if (size() > CACHE_SIZE) {
+						classPool.removeCached(eldest.getKey());
+						return true;
+					}
+					return false;
+				}
+			};
+	private final BiConsumer<String, byte[]> putListener =
+			InternalBiConsumer.internal((name, code) -> invalidate(name));
+	private final Consumer<Object> removeListener = InternalConsumer.internal(name -> invalidate((String) name));
 	private Workspace workspace;
 	private TypeSolver parent;
 
@@ -30,9 +56,19 @@ public class WorkspaceTypeResolver implements TypeSolver {
 	 */
 	public WorkspaceTypeResolver(Workspace workspace) {
 		this.workspace = workspace;
-		for (String name : workspace.getClassNames())
-			classPool.insertClassPath(new ByteArrayClassPath(name.replace("/", "."), workspace.getRawClass(name)));
+		classPool.appendClassPath(new WorkspaceClassPath());
 		classPool.appendSystemPath();
+		workspace.getPrimary().getClasses().getPutListeners().add(putListener);
+		workspace.getPrimary().getClasses().getRemoveListeners().add(removeListener);
+	}
+
+	/**
+	 * Stop tracking changes to the workspace's classes, so that the resolver can be discarded while the
+	 * workspace is still in use.
+	 */
+	public void dispose() {
+		workspace.getPrimary().getClasses().getPutListeners().remove(putListener);
+		workspace.getPrimary().getClasses().getRemoveListeners().remove(removeListener);
 	}
 
 	@Override
@@ -59,18 +95,100 @@ public class WorkspaceTypeResolver implements TypeSolver {
 			String internal = name.replace('.','/');
 			while (internal.indexOf('/') > 0) {
 				if (workspace.hasClass(internal)) {
-					InputStream is = new ByteArrayInputStream(workspace.getRawClass(internal));
-					ResolvedReferenceTypeDeclaration dec = toTypeDeclaration(classPool.makeClass(is), getRoot());
-					SymbolReference<ResolvedReferenceTypeDeclaration> solved = SymbolReference.solved(dec);
-					if (solved.isSolved())
-						return solved;
-				} else {
-					internal = StringUtil.replaceLast(internal, "/", "$");
+					ResolvedReferenceTypeDeclaration dec = getDeclaration(internal);
+					if (dec != null)
+						return SymbolReference.solved(dec);
+					break;
 				}
+				internal = StringUtil.replaceLast(internal, "/", "$");
 			}
-		} catch(IOException ex) {
+		} catch(NotFoundException ex) {
 			throw new IllegalStateException("Failed to resolve type: " + name, ex);
 		}
 		return childSolver.tryToSolveType(name);
 	}
+
+	/**
+	 * Drop the cached declaration of a class so that it is read from the workspace again on the next lookup.
+	 *
+	 * @param name
+	 * 		Internal name of modified class.
+	 */
+	public void invalidate(String name) {
+		String key = name.replace('/', '.');
+		synchronized(cache) {
+			cache.remove(key);
+			classPool.removeCached(key);
+		}
+	}
+
+	/**
+	 * Drop all cached declarations.
+	 */
+	public void invalidateAll() {
+		synchronized(cache) {
+			cache.keySet().forEach(classPool::removeCached);
+			cache.clear();
+		}
+	}
+
+	/**
+	 * @param internal
+	 * 		Internal name of a class in the workspace.
+	 *
+	 * @return Declaration of the class.
+	 *
+	 * @throws NotFoundException
+	 * 		When the class cannot be read.
+	 */
+	private ResolvedReferenceTypeDeclaration getDeclaration(String internal) throws NotFoundException {
+		String key = internal.replace('/', '.');
+		synchronized(cache) {
+			ResolvedReferenceTypeDeclaration dec = cache.get(key);
+			if (dec == null) {
+				dec = toTypeDeclaration(classPool.get(key), getRoot());
+				cache.put(key, dec);
+			}
+			return dec;
+		}
+	}
+
+	/**
+	 * Class pool that allows dropping cached classes.
+	 */
+	private static class WorkspaceClassPool extends ClassPool {
+		private WorkspaceClassPool() {
+			super(false);
+		}
+
+		@Override
+		protected CtClass removeCached(String name) {
+			return super.removeCached(name);
+		}
+	}
+
+	/**
+	 * Class path that reads classes from the workspace when requested.
+	 */
+	private class WorkspaceClassPath implements ClassPath {
+		@Override
+		public InputStream openClassfile(String name) throws NotFoundException {
+			byte[] code = workspace.getRawClass(name.replace('.', '/'));
+			if (code == null)
+				throw new NotFoundException(name);
+			return new ByteArrayInputStream(code);
+		}
+
+		@Override
+		public URL find(String name) {
+			String internal = name.replace('.', '/');
+			if (!workspace.hasClass(internal))
+				return null;
+			try {
+				return new URL("file:/recaf-workspace/" + internal + ".class");
+			} catch(MalformedURLException ex) {
+				return null;
+			}
+		}
+	}
 }
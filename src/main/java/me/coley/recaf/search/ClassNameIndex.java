@@ -0,0 +1,200 @@
+package me.coley.recaf.search;
+
+import me.coley.recaf.util.ClasspathUtil;
+import me.coley.recaf.util.struct.InternalBiConsumer;
+import me.coley.recaf.util.struct.InternalConsumer;
+import me.coley.recaf.util.struct.ListeningMap;
+import me.coley.recaf.workspace.JavaResource;
+import me.coley.recaf.workspace.Workspace;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Sorted index of the names of the classes in the workspace's primary resource and libraries, for prefix
+ * lookups such as auto-completion. Names with a given prefix are a contiguous range of the index, so a
+ * lookup only visits the names it returns.
+ * <br>
+ * The index is updated as classes are put or removed. Libraries added to the workspace after the index is
+ * created, and resources that were reloaded or cleared, are indexed again on the next lookup.
+ *
+ * @author Matt
+ */
+public class ClassNameIndex {
+	private static String[] systemNames;
+	private final ConcurrentSkipListMap<String, Integer> counts = new ConcurrentSkipListMap<>();
+	private final Map<JavaResource, IndexedResource> indexed = new IdentityHashMap<>();
+	private final Workspace workspace;
+
+	/**
+	 * Constructs and populates the index.
+	 *
+	 * @param workspace
+	 * 		Workspace to index the class names of.
+	 */
+	public ClassNameIndex(Workspace workspace) {
+		this.workspace = workspace;
+		updateResources();
+	}
+
+	/**
+	 * @return Sorted view of the names of the workspace's classes.
+	 */
+	public NavigableSet<String> getNames() {
+		updateResources();
+		return Collections.unmodifiableNavigableSet(counts.navigableKeySet());
+	}
+
+	/**
+	 * @param prefix
+	 * 		Name prefix.
+	 *
+	 * @return Sorted names of the workspace's classes and
+	 * {@linkplain ClasspathUtil#getSystemClassNames() system classes} that start with the prefix.
+	 */
+	public List<String> getNamesWithPrefix(String prefix) {
+		updateResources();
+		String[] system = getSystemNames();
+		int i = firstWithPrefix(system, prefix);
+		String nextSystem = nameWithPrefix(system, i, prefix);
+		Iterator<String> it = counts.tailMap(prefix).keySet().iterator();
+		String next = nextWithPrefix(it, prefix);
+		List<String> list = new ArrayList<>();
+		// Merge the two sorted ranges, dropping names in both
+		while (next != null || nextSystem != null) {
+			int cmp = next == null ? 1 : nextSystem == null ? -1 : next.compareTo(nextSystem);
+			list.add(cmp <= 0 ? next : nextSystem);
+			if (cmp <= 0)
+				next = nextWithPrefix(it, prefix);
+			if (cmp >= 0)
+				nextSystem = nameWithPrefix(system, ++i, prefix);
+		}
+		return list;
+	}
+
+	/**
+	 * @param prefix
+	 * 		Name prefix.
+	 *
+	 * @return Sorted names of {@linkplain ClasspathUtil#getSystemClassNames() system classes} that start with
+	 * the prefix.
+	 */
+	public static List<String> getSystemNamesWithPrefix(String prefix) {
+		String[] system = getSystemNames();
+		List<String> list = new ArrayList<>();
+		for (int i = firstWithPrefix(system, prefix); i < system.length && system[i].startsWith(prefix); i++)
+			list.add(system[i]);
+		return list;
+	}
+
+	/**
+	 * Rebuild the index. Changes made through the resources' class maps are tracked automatically, and
+	 * resources that were reloaded or cleared are re-indexed on the next lookup, so this is rarely needed.
+	 */
+	public synchronized void refresh() {
+		new ArrayList<>(indexed.keySet()).forEach(this::drop);
+		updateResources();
+	}
+
+	/**
+	 * Index the classes of resources added to the workspace, and drop those of removed resources.
+	 * Resources whose classes changed without notifying the index are indexed again.
+	 */
+	private synchronized void updateResources() {
+		List<JavaResource> resources = new ArrayList<>();
+		resources.add(workspace.getPrimary());
+		resources.addAll(workspace.getLibraries());
+		Set<JavaResource> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+		removed.addAll(indexed.keySet());
+		for (JavaResource resource : resources) {
+			removed.remove(resource);
+			ListeningMap<String, byte[]> classes = resource.getClasses();
+			IndexedResource current = indexed.get(resource);
+			// Invalidating a resource removes the index's listeners, and clearing its classes does not
+			// notify them, so either leaves the indexed names outdated.
+			if (current != null && (!classes.getPutListeners().contains(current.put) ||
+					classes.size() != current.names.size()))
+				drop(resource);
+			if (!indexed.containsKey(resource))
+				index(resource);
+		}
+		removed.forEach(this::drop);
+	}
+
+	private void index(JavaResource resource) {
+		ListeningMap<String, byte[]> classes = resource.getClasses();
+		Set<String> names = ConcurrentHashMap.newKeySet();
+		IndexedResource indexedResource = new IndexedResource(names,
+				InternalBiConsumer.internal((name, value) -> {
+					if (names.add(name))
+						increment(name);
+				}), InternalConsumer.internal(name -> {
+					if (names.remove(name))
+						decrement((String) name);
+				}));
+		classes.getPutListeners().add(indexedResource.put);
+		classes.getRemoveListeners().add(indexedResource.remove);
+		for (String name : classes.keySet())
+			if (names.add(name))
+				increment(name);
+		indexed.put(resource, indexedResource);
+	}
+
+	private void drop(JavaResource resource) {
+		IndexedResource indexedResource = indexed.remove(resource);
+		ListeningMap<String, byte[]> classes = resource.getClasses();
+		classes.getPutListeners().remove(indexedResource.put);
+		classes.getRemoveListeners().remove(indexedResource.remove);
+		for (String name : indexedResource.names)
+			if (indexedResource.names.remove(name))
+				decrement(name);
+	}
+
+	private void increment(String name) {
+		counts.merge(name, 1, Integer::sum);
+	}
+
+	private void decrement(String name) {
+		counts.computeIfPresent(name, (k, count) -> count > 1 ? count - 1 : null);
+	}
+
+	private static String nextWithPrefix(Iterator<String> it, String prefix) {
+		if (!it.hasNext())
+			return null;
+		String next = it.next();
+		return next.startsWith(prefix) ? next : null;
+	}
+
+	private static String nameWithPrefix(String[] sorted, int index, String prefix) {
+		return index < sorted.length && sorted[index].startsWith(prefix) ? sorted[index] : null;
+	}
+
+	private static int firstWithPrefix(String[] sorted, String prefix) {
+		int index = Arrays.binarySearch(sorted, prefix);
+		return index < 0 ? -index - 1 : index;
+	}
+
+	private static synchronized String[] getSystemNames() {
+		if (systemNames == null)
+			systemNames = ClasspathUtil.getSystemClassNames().stream().sorted().toArray(String[]::new);
+		return systemNames;
+	}
+
+	/**
+	 * Names of an indexed resource's classes, and the listeners keeping them up to date.
+	 */
+	private static class IndexedResource {
+		private final Set<String> names;
+		private final BiConsumer<String, byte[]> put;
+		private final Consumer<Object> remove;
+
+		private IndexedResource(Set<String> names, BiConsumer<String, byte[]> put, Consumer<Object> remove) {
+			this.names = names;
+			this.put = put;
+			this.remove = remove;
+		}
+	}
+}
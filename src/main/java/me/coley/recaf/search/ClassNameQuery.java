@@ -1,12 +1,14 @@
 package me.coley.recaf.search;
 
+import java.util.function.Predicate;
+
 /**
  * Query to find classes matching the given name.
  *
  * @author Matt
  */
 public class ClassNameQuery extends Query {
-	private final String name;
+	private final Predicate<String> matcher;
 
 	/**
 	 * Constructs a class name matching query.
@@ -18,7 +20,7 @@ public class ClassNameQuery extends Query {
 	 */
 	public ClassNameQuery(String name, StringMatchMode stringMode) {
 		super(QueryType.CLASS_NAME, stringMode);
-		this.name = name;
+		this.matcher = compile(name);
 	}
 
 	/**
@@ -30,7 +32,7 @@ public class ClassNameQuery extends Query {
 	 * 		Name of class.
 	 */
 	public void match(int access, String name) {
-		if (stringMode.match(this.name, name)) {
+		if (matcher.test(name)) {
 			getMatched().add(new ClassResult(access, name));
 		}
 	}
@@ -1,6 +1,10 @@
 package me.coley.recaf.search;
 
+import me.coley.recaf.workspace.Workspace;
+
+import java.util.Set;
 import java.util.function.IntSupplier;
+import java.util.function.Predicate;
 
 /**
  * Query to find references to the given class.
@@ -9,6 +13,7 @@ import java.util.function.IntSupplier;
  */
 public class ClassReferenceQuery extends Query {
 	private final String name;
+	private final Predicate<String> matcher;
 
 	/**
 	 * Constructs a class referencing query.
@@ -32,6 +37,7 @@ public class ClassReferenceQuery extends Query {
 	public ClassReferenceQuery(String name, StringMatchMode stringMode) {
 		super(QueryType.CLASS_REFERENCE, stringMode);
 		this.name = name;
+		this.matcher = compile(name);
 	}
 
 	/**
@@ -43,8 +49,17 @@ public class ClassReferenceQuery extends Query {
 	 * 		Name of class.
 	 */
 	public void match(IntSupplier access, String name) {
-		if (stringMode.match(this.name, name)) {
+		if (matcher.test(name)) {
 			getMatched().add(new ClassResult(access.getAsInt(), name));
 		}
 	}
+
+	@Override
+	Set<String> getCandidates(Workspace workspace) {
+		// Referenced names are either UTF8 constants or are contained in descriptor constants.
+		// A regex may not match the text around the name, so it cannot be checked this way.
+		if (stringMode == StringMatchMode.REGEX)
+			return null;
+		return workspace.getConstantIndex().getClassesWithUtf8(text -> text.contains(name));
+	}
 }
@@ -0,0 +1,178 @@
+package me.coley.recaf.search;
+
+import me.coley.recaf.util.struct.InternalBiConsumer;
+import me.coley.recaf.util.struct.InternalConsumer;
+import me.coley.recaf.util.struct.ListeningMap;
+import me.coley.recaf.workspace.Workspace;
+import org.objectweb.asm.ClassReader;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Inverted index of the constant pools of the primary resource's classes. Maps each UTF8 and numeric
+ * constant to the names of the classes that contain it, so that searches only need to visit classes that
+ * can possibly contain a match.
+ * <br>
+ * The index is updated as classes in the primary resource are put or removed.
+ *
+ * @author Matt
+ */
+public class ConstantIndex {
+	private static final int UTF8 = 1;
+	private static final int INTEGER = 3;
+	private static final int FLOAT = 4;
+	private static final int LONG = 5;
+	private static final int DOUBLE = 6;
+	private final Map<String, Set<String>> utf8Classes = new HashMap<>();
+	private final Map<Object, Set<String>> valueClasses = new HashMap<>();
+	private final Map<String, List<Object>> classConstants = new HashMap<>();
+	private final Set<String> unindexed = new HashSet<>();
+
+	/**
+	 * Constructs and populates the index.
+	 *
+	 * @param workspace
+	 * 		Workspace to index the primary classes of.
+	 */
+	public ConstantIndex(Workspace workspace) {
+		ListeningMap<String, byte[]> classes = workspace.getPrimary().getClasses();
+		for (Map.Entry<String, byte[]> e : classes.entrySet())
+			update(e.getKey(), e.getValue());
+		classes.getPutListeners().add(InternalBiConsumer.internal(this::update));
+		classes.getRemoveListeners().add(InternalConsumer.internal(name -> remove((String) name)));
+	}
+
+	/**
+	 * @param matcher
+	 * 		UTF8 constant matcher.
+	 *
+	 * @return Names of classes with at least one UTF8 constant accepted by the matcher,
+	 * including classes that could not be indexed.
+	 */
+	public synchronized Set<String> getClassesWithUtf8(Predicate<String> matcher) {
+		Set<String> names = new HashSet<>(unindexed);
+		for (Map.Entry<String, Set<String>> e : utf8Classes.entrySet())
+			if (matcher.test(e.getKey()))
+				names.addAll(e.getValue());
+		return names;
+	}
+
+	/**
+	 * @param value
+	 * 		An {@link Integer}, {@link Float}, {@link Long} or {@link Double} value.
+	 *
+	 * @return Names of classes with the value in their constant pool,
+	 * including classes that could not be indexed.
+	 */
+	public synchronized Set<String> getClassesWithValue(Object value) {
+		Set<String> names = new HashSet<>(unindexed);
+		names.addAll(valueClasses.getOrDefault(value, Collections.emptySet()));
+		return names;
+	}
+
+	/**
+	 * Index or re-index a class.
+	 *
+	 * @param name
+	 * 		Class name.
+	 * @param value
+	 * 		Class bytecode.
+	 */
+	private synchronized void update(String name, byte[] value) {
+		remove(name);
+		List<Object> constants;
+		try {
+			constants = readConstants(value);
+		} catch(Exception ex) {
+			// Always visited by searches, since nothing is known about the content
+			unindexed.add(name);
+			return;
+		}
+		for (Object constant : constants) {
+			if (constant instanceof String)
+				utf8Classes.computeIfAbsent((String) constant, k -> new HashSet<>()).add(name);
+			else
+				valueClasses.computeIfAbsent(constant, k -> new HashSet<>()).add(name);
+		}
+		classConstants.put(name, constants);
+	}
+
+	/**
+	 * @param name
+	 * 		Name of class to remove from the index.
+	 */
+	private synchronized void remove(String name) {
+		unindexed.remove(name);
+		List<Object> constants = classConstants.remove(name);
+		if (constants == null)
+			return;
+		for (Object constant : constants) {
+			Map<?, Set<String>> map = constant instanceof String ? utf8Classes : valueClasses;
+			Set<String> names = map.get(constant);
+			if (names != null) {
+				names.remove(name);
+				if (names.isEmpty())
+					map.remove(constant);
+			}
+		}
+	}
+
+	/**
+	 * @param b
+	 * 		Class bytecode.
+	 *
+	 * @return UTF8 and numeric constants in the class's constant pool.
+	 */
+	private static List<Object> readConstants(byte[] b) {
+		ClassReader reader = new ClassReader(b);
+		int count = reader.getItemCount();
+		List<Object> constants = new ArrayList<>(count);
+		char[] buffer = new char[reader.getMaxStringLength()];
+		for (int i = 1; i < count; i++) {
+			int offset = reader.getItem(i);
+			// Second slot of long/double entries
+			if (offset == 0)
+				continue;
+			switch(b[offset - 1]) {
+				case UTF8:
+					constants.add(readUtf8(b, offset, buffer));
+					break;
+				case INTEGER:
+					constants.add(reader.readInt(offset));
+					break;
+				case FLOAT:
+					constants.add(Float.intBitsToFloat(reader.readInt(offset)));
+					break;
+				case LONG:
+					constants.add(reader.readLong(offset));
+					break;
+				case DOUBLE:
+					constants.add(Double.longBitsToDouble(reader.readLong(offset)));
+					break;
+				default:
+					break;
+			}
+		}
+		return constants;
+	}
+
+	private static String readUtf8(byte[] b, int offset, char[] buffer) {
+		int length = ((b[offset] & 0xFF) << 8) | (b[offset + 1] & 0xFF);
+		int i = offset + 2;
+		int end = i + length;
+		int chars = 0;
+		// Modified UTF-8, as decoded by ASM's ClassReader
+		while (i < end) {
+			int c = b[i++];
+			if ((c & 0x80) == 0) {
+				buffer[chars++] = (char) (c & 0x7F);
+			} else if ((c & 0xE0) == 0xC0) {
+				buffer[chars++] = (char) (((c & 0x1F) << 6) + (b[i++] & 0x3F));
+			} else {
+				buffer[chars++] = (char) (((c & 0xF) << 12) + ((b[i++] & 0x3F) << 6) + (b[i++] & 0x3F));
+			}
+		}
+		return new String(buffer, 0, chars).intern();
+	}
+}
@@ -4,6 +4,8 @@ import me.coley.recaf.util.StringUtil;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Query to find instructions based off of their disassembled representation.
@@ -11,7 +13,7 @@ import java.util.List;
  * @author Matt
  */
 public class InsnTextQuery extends Query {
-	private final List<String> lines;
+	private final List<Predicate<String>> lines;
 
 	/**
 	 * Constructs a instruction text query.
@@ -23,7 +25,7 @@ public class InsnTextQuery extends Query {
 	 */
 	public InsnTextQuery(List<String> lines, StringMatchMode stringMode) {
 		super(QueryType.INSTRUCTION_TEXT, stringMode);
-		this.lines = lines;
+		this.lines = lines.stream().map(this::compile).collect(Collectors.toList());
 	}
 
 	/**
@@ -47,10 +49,9 @@ public class InsnTextQuery extends Query {
 			// - If matching for all lines, return the match
 			// - If a line doesn't match skip to the next method insn starting point
 			for (int j = 0; j < lines.size(); j++) {
-				String line = lines.get(j);
 				String lineDis = codeLines[i+j];
 				ret.add(lineDis);
-				if (!stringMode.match(line, lineDis)) {
+				if (!lines.get(j).test(lineDis)) {
 					match = false;
 					break;
 				}
@@ -1,14 +1,16 @@
 package me.coley.recaf.search;
 
+import java.util.function.Predicate;
+
 /**
  * Query to find member definitions matching the given information.
  *
  * @author Matt
  */
 public class MemberDefinitionQuery extends Query {
-	private final String owner;
-	private final String name;
-	private final String desc;
+	private final Predicate<String> ownerMatcher;
+	private final Predicate<String> nameMatcher;
+	private final Predicate<String> descMatcher;
 
 	/**
 	 * Constructs a member definition query.
@@ -28,9 +30,9 @@ public class MemberDefinitionQuery extends Query {
 		if(owner == null && name == null && desc == null) {
 			throw new IllegalArgumentException("At least one query parameter must be non-null!");
 		}
-		this.owner = owner;
-		this.name = name;
-		this.desc = desc;
+		this.ownerMatcher = compile(owner);
+		this.nameMatcher = compile(name);
+		this.descMatcher = compile(desc);
 	}
 
 	/**
@@ -46,9 +48,9 @@ public class MemberDefinitionQuery extends Query {
 	 * 		Member descriptor.
 	 */
 	public void match(int access, String owner, String name, String desc) {
-		boolean hasOwner = this.owner == null || stringMode.match(this.owner, owner);
-		boolean hasName = this.name == null || stringMode.match(this.name, name);
-		boolean hasDesc = this.desc == null || stringMode.match(this.desc, desc);
+		boolean hasOwner = ownerMatcher == null || ownerMatcher.test(owner);
+		boolean hasName = nameMatcher == null || nameMatcher.test(name);
+		boolean hasDesc = descMatcher == null || descMatcher.test(desc);
 		if(hasOwner && hasName && hasDesc) {
 			getMatched().add(new MemberResult(access, owner, name, desc));
 		}
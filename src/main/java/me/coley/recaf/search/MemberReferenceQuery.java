@@ -1,6 +1,11 @@
 package me.coley.recaf.search;
 
+import me.coley.recaf.workspace.Workspace;
+
+import java.util.Arrays;
+import java.util.Set;
 import java.util.function.IntSupplier;
+import java.util.function.Predicate;
 
 /**
  * Query to find member references matching the given information.
@@ -8,9 +13,9 @@ import java.util.function.IntSupplier;
  * @author Matt
  */
 public class MemberReferenceQuery extends Query {
-	private final String owner;
-	private final String name;
-	private final String desc;
+	private final Predicate<String> ownerMatcher;
+	private final Predicate<String> nameMatcher;
+	private final Predicate<String> descMatcher;
 
 	/**
 	 * Constructs a member references query.
@@ -30,9 +35,9 @@ public class MemberReferenceQuery extends Query {
 		if(owner == null && name == null && desc == null) {
 			throw new IllegalArgumentException("At least one query parameter must be non-null!");
 		}
-		this.owner = owner;
-		this.name = name;
-		this.desc = desc;
+		this.ownerMatcher = compile(owner);
+		this.nameMatcher = compile(name);
+		this.descMatcher = compile(desc);
 	}
 
 	/**
@@ -48,11 +53,27 @@ public class MemberReferenceQuery extends Query {
 	 * 		Member descriptor.
 	 */
 	public void match(IntSupplier access, String owner, String name, String desc) {
-		boolean hasOwner = this.owner == null || stringMode.match(this.owner, owner);
-		boolean hasName = this.name == null || stringMode.match(this.name, name);
-		boolean hasDesc = this.desc == null || stringMode.match(this.desc, desc);
+		boolean hasOwner = ownerMatcher == null || ownerMatcher.test(owner);
+		boolean hasName = nameMatcher == null || nameMatcher.test(name);
+		boolean hasDesc = descMatcher == null || descMatcher.test(desc);
 		if(hasOwner && hasName && hasDesc) {
 			getMatched().add(new MemberResult(access.getAsInt(), owner, name, desc));
 		}
 	}
+
+	@Override
+	Set<String> getCandidates(Workspace workspace) {
+		// The owner, name and descriptor of a reference are each UTF8 constants
+		Set<String> candidates = null;
+		for (Predicate<String> matcher : Arrays.asList(ownerMatcher, nameMatcher, descMatcher)) {
+			if (matcher == null)
+				continue;
+			Set<String> names = workspace.getConstantIndex().getClassesWithUtf8(matcher);
+			if (candidates == null)
+				candidates = names;
+			else
+				candidates.retainAll(names);
+		}
+		return candidates;
+	}
 }
@@ -1,6 +1,9 @@
 package me.coley.recaf.search;
 
+import me.coley.recaf.workspace.Workspace;
+
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * Query base.
@@ -10,7 +13,7 @@ import java.util.*;
 public abstract class Query {
 	private final QueryType type;
 	protected final StringMatchMode stringMode;
-	protected final List<SearchResult> matched = new ArrayList<>();
+	private final ThreadLocal<List<SearchResult>> matched = ThreadLocal.withInitial(ArrayList::new);
 
 	/**
 	 * Baseline query.
@@ -43,11 +46,35 @@ public abstract class Query {
 	}
 
 	/**
-	 * A temporary storage of results.
+	 * A temporary storage of results. Each thread has its own storage so that a query
+	 * can be matched against multiple classes at once.
 	 *
 	 * @return List of results matched.
 	 */
 	public List<SearchResult> getMatched() {
-		return matched;
+		return matched.get();
+	}
+
+	/**
+	 * @param key
+	 * 		Expected pattern, may be {@code null}.
+	 *
+	 * @return Matcher of texts against the key using the query's {@link StringMatchMode},
+	 * or {@code null} if the key is {@code null}.
+	 */
+	protected Predicate<String> compile(String key) {
+		return key == null ? null : stringMode.compile(key);
+	}
+
+	/**
+	 * Used to skip classes that cannot contain a match, without visiting them.
+	 *
+	 * @param workspace
+	 * 		Workspace being searched.
+	 *
+	 * @return Names of the classes that may contain a match, or {@code null} if any class may.
+	 */
+	Set<String> getCandidates(Workspace workspace) {
+		return null;
 	}
 }
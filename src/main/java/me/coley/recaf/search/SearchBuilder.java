@@ -4,6 +4,12 @@ import me.coley.recaf.workspace.Workspace;
 import org.objectweb.asm.*;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 
 /**
  * Builder for {@link SearchCollector}.
@@ -11,10 +17,27 @@ import java.util.*;
  * @author Matt
  */
 public class SearchBuilder {
+	/**
+	 * Number of classes a parallel search worker handles without splitting the work further.
+	 */
+	private static final int PARALLEL_CHUNK_SIZE = 128;
+	/**
+	 * Pool shared by all parallel searches. Its threads are started on demand and are daemons,
+	 * so an idle pool does not keep the application alive.
+	 */
+	private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), p -> {
+		ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+		thread.setName("Recaf Search #" + thread.getPoolIndex());
+		thread.setDaemon(true);
+		return thread;
+	}, null, false);
 	private final Workspace workspace;
 	private final List<Query> queries = new ArrayList<>();
 	private int readFlags = ClassReader.SKIP_FRAMES;
 	private Collection<String> skipped = Collections.emptyList();
+	private boolean parallel;
+	private BooleanSupplier cancelled = () -> false;
+	private BiConsumer<Integer, Integer> progress;
 
 	private SearchBuilder(Workspace workspace) {
 		this.workspace = workspace;
@@ -71,21 +94,101 @@ public class SearchBuilder {
 		return this;
 	}
 
+	/**
+	 * Classes are split across multiple threads, each collecting results on their own.
+	 * The results are merged in class name order, the same order as a serial search.
+	 *
+	 * @return Builder that searches classes in parallel.
+	 */
+	public SearchBuilder parallel() {
+		this.parallel = true;
+		return this;
+	}
+
+	/**
+	 * @param cancelled
+	 * 		Checked before each class is searched. Once it returns {@code true} no further
+	 * 		classes are searched, and the results found so far are returned.
+	 *
+	 * @return Builder that can be cancelled.
+	 */
+	public SearchBuilder cancelWhen(BooleanSupplier cancelled) {
+		this.cancelled = cancelled;
+		return this;
+	}
+
+	/**
+	 * @param progress
+	 * 		Called with the number of searched classes and the total number of classes to search,
+	 * 		each time a class is searched. Parallel searches call this from the worker threads.
+	 *
+	 * @return Builder that reports its progress.
+	 */
+	public SearchBuilder onProgress(BiConsumer<Integer, Integer> progress) {
+		this.progress = progress;
+		return this;
+	}
+
 	/**
 	 * @return SearchCollector from the builder. The search is started by calling this method.
 	 */
 	public SearchCollector build() {
+		Set<String> candidates = getCandidates();
+		List<String> names = new ArrayList<>();
+		for (String name : candidates == null ? workspace.getPrimaryClassNames() : candidates)
+			if (!skip(name))
+				names.add(name);
+		// Sorted so that results are in a consistent order, regardless of how the work is split
+		Collections.sort(names);
+		AtomicInteger searched = new AtomicInteger();
+		if (!parallel || names.size() <= PARALLEL_CHUNK_SIZE)
+			return search(names, searched, names.size());
+		return POOL.invoke(new SearchTask(names, searched, names.size()));
+	}
+
+	/**
+	 * @param names
+	 * 		Names of classes to search.
+	 * @param searched
+	 * 		Counter of searched classes, shared by all workers.
+	 * @param total
+	 * 		Total number of classes to search, for progress reporting.
+	 *
+	 * @return Collector with the results of the given classes.
+	 */
+	private SearchCollector search(List<String> names, AtomicInteger searched, int total) {
 		SearchCollector collector = new SearchCollector(workspace, queries);
 		SearchClassVisitor sv = new SearchClassVisitor(collector);
-		workspace.getPrimaryClassReaders().forEach(cr -> {
-			String name = cr.getClassName();
-			if (skip(name))
-				return;
-			cr.accept(sv, readFlags);
-		});
+		for (String name : names) {
+			if (cancelled.getAsBoolean())
+				break;
+			byte[] value = workspace.getPrimary().getClasses().get(name);
+			if (value != null)
+				new ClassReader(value).accept(sv, readFlags);
+			int count = searched.incrementAndGet();
+			if (progress != null)
+				progress.accept(count, total);
+		}
 		return collector;
 	}
 
+	/**
+	 * @return Names of the classes that may match any of the queries,
+	 * or {@code null} if all classes need to be searched.
+	 */
+	private Set<String> getCandidates() {
+		if (queries.isEmpty())
+			return null;
+		Set<String> candidates = new HashSet<>();
+		for (Query query : queries) {
+			Set<String> names = query.getCandidates(workspace);
+			if (names == null)
+				return null;
+			candidates.addAll(names);
+		}
+		return candidates;
+	}
+
 	/**
 	 * @param name
 	 * 		Class name.
@@ -95,4 +198,34 @@ public class SearchBuilder {
 	private boolean skip(String name) {
 		return skipped.stream().anyMatch(name::startsWith);
 	}
+
+	/**
+	 * Splits the classes to search in half until they are small enough to search in a single task.
+	 */
+	private class SearchTask extends RecursiveTask<SearchCollector> {
+		private static final long serialVersionUID = 1L;
+		private final List<String> names;
+		private final AtomicInteger searched;
+		private final int total;
+
+		private SearchTask(List<String> names, AtomicInteger searched, int total) {
+			this.names = names;
+			this.searched = searched;
+			this.total = total;
+		}
+
+		@Override
+		protected SearchCollector compute() {
+			if (names.size() <= PARALLEL_CHUNK_SIZE)
+				return search(names, searched, total);
+			int mid = names.size() / 2;
+			SearchTask left = new SearchTask(names.subList(0, mid), searched, total);
+			SearchTask right = new SearchTask(names.subList(mid, names.size()), searched, total);
+			right.fork();
+			SearchCollector collector = left.compute();
+			// Right half is merged after the left half to keep the results ordered
+			collector.merge(right.join());
+			return collector;
+		}
+	}
 }
@@ -91,6 +91,16 @@ public class SearchCollector {
 		return new ArrayList<>(results.values());
 	}
 
+	/**
+	 * Appends the results of another collector, after the results of this collector.
+	 *
+	 * @param other
+	 * 		Collector of the same queries.
+	 */
+	void merge(SearchCollector other) {
+		results.putAll(other.results);
+	}
+
 	/**
 	 * @param clazz
 	 * 		Query class reference.
@@ -2,8 +2,12 @@ package me.coley.recaf.search;
 
 import jregex.Pattern;
 import me.coley.recaf.util.Log;
+import me.coley.recaf.util.RegexUtil;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 
 /**
  * String match implementations.
@@ -32,13 +36,36 @@ public enum StringMatchMode {
 	 */
 	REGEX((key, text) -> regmatch(text, key));
 
+	private static final int MAX_CACHED_PATTERNS = 256;
+	private static final Map<String, Predicate<String>> PATTERNS = new ConcurrentHashMap<>();
+
 	private static boolean regmatch(String text, String key) {
+		Predicate<String> matcher = PATTERNS.get(key);
+		if (matcher == null) {
+			// Keys of one-off matches are not kept around indefinitely
+			if (PATTERNS.size() >= MAX_CACHED_PATTERNS)
+				PATTERNS.clear();
+			matcher = PATTERNS.computeIfAbsent(key, StringMatchMode::compileRegex);
+		}
+		return matcher.test(text);
+	}
+
+	private static Predicate<String> compileRegex(String key) {
+		Pattern pattern;
 		try {
-			return new Pattern(key).matcher(text).find();
+			pattern = new Pattern(key);
 		} catch(Exception ex) {
 			Log.error(ex, "Invalid pattern: '{}'", key);
-			return false;
+			return text -> false;
 		}
+		String[] literals = RegexUtil.getRequiredLiterals(key);
+		return text -> {
+			// Most text can be rejected without running the regex
+			for (String literal : literals)
+				if (text.indexOf(literal) < 0)
+					return false;
+			return pattern.matcher(text).find();
+		};
 	}
 
 	private final BiPredicate<String, String> matcher;
@@ -58,4 +85,18 @@ public enum StringMatchMode {
 	public boolean match(String key, String text) {
 		return matcher.test(key, text);
 	}
+
+	/**
+	 * Prepares the key for matching many texts. Regular expressions are only compiled once.
+	 *
+	 * @param key
+	 * 		Expected pattern.
+	 *
+	 * @return Matcher of texts against the given key.
+	 */
+	public Predicate<String> compile(String key) {
+		if (this == REGEX)
+			return compileRegex(key);
+		return text -> matcher.test(key, text);
+	}
 }
@@ -1,12 +1,17 @@
 package me.coley.recaf.search;
 
+import me.coley.recaf.workspace.Workspace;
+
+import java.util.Set;
+import java.util.function.Predicate;
+
 /**
  * Query to find strings matching the given pattern.
  *
  * @author Matt
  */
 public class StringQuery extends Query {
-	private final String pattern;
+	private final Predicate<String> matcher;
 
 	/**
 	 * Constructs a string matching query.
@@ -18,7 +23,7 @@ public class StringQuery extends Query {
 	 */
 	public StringQuery(String pattern, StringMatchMode stringMode) {
 		super(QueryType.CLASS_NAME, stringMode);
-		this.pattern = pattern;
+		this.matcher = compile(pattern);
 	}
 
 	/**
@@ -28,8 +33,14 @@ public class StringQuery extends Query {
 	 * 		Text to match.
 	 */
 	public void match(String text) {
-		if(stringMode.match(pattern, text)) {
+		if(matcher.test(text)) {
 			getMatched().add(new StringResult(text));
 		}
 	}
+
+	@Override
+	Set<String> getCandidates(Workspace workspace) {
+		// Matched strings are always UTF8 constants
+		return workspace.getConstantIndex().getClassesWithUtf8(matcher);
+	}
 }
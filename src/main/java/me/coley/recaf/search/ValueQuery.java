@@ -1,5 +1,9 @@
 package me.coley.recaf.search;
 
+import me.coley.recaf.workspace.Workspace;
+
+import java.util.Set;
+
 /**
  * Query to find constant values.
  *
@@ -30,4 +34,13 @@ public class ValueQuery extends Query {
 			getMatched().add(new ValueResult(value));
 		}
 	}
+
+	@Override
+	Set<String> getCandidates(Workspace workspace) {
+		// Integers can also be inlined in instructions and switch keys, so only wide values are
+		// guaranteed to be in the constant pool.
+		if (value instanceof Long || value instanceof Float || value instanceof Double)
+			return workspace.getConstantIndex().getClassesWithValue(value);
+		return null;
+	}
 }
@@ -646,6 +646,8 @@ public class ContextBuilder {
 				File file = loader.showOpenDialog(null);
 				if (file != null) {
 					try {
+						// Large attachments would block here, so only parse classes once they are viewed
+						resource.setDeferAttachmentParsing(true);
 						resource.setClassDocs(file.toPath());
 					} catch(IOException ex) {
 						Log.error(ex, "Failed to set resource documentation");
@@ -656,6 +658,7 @@ public class ContextBuilder {
 				File file = loader.showOpenDialog(null);
 				if (file != null) {
 					try {
+						resource.setDeferAttachmentParsing(true);
 						resource.setClassSources(file.toPath());
 					} catch(IOException ex) {
 						Log.error(ex, "Failed to set resource sources");
@@ -315,6 +315,7 @@ public class MainMenu extends MenuBar {
 			Export exporter = new Export();
 			exporter.setController(controller);
 			exporter.output = file;
+			exporter.incremental = true;
 			try {
 				exporter.call();
 				config().recentSaveApp = file.getAbsolutePath();
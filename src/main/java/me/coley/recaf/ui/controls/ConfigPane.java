@@ -69,6 +69,8 @@ public class ConfigPane extends ColumnPane {
 		editorOverrides.put("decompile.stripdebug", Toggle::new);
 		editorOverrides.put("decompile.showname", Toggle::new);
 		editorOverrides.put("decompile.timeout", (w) -> new NumberSlider<>(controller, w, 1_000, 20_000, 1_000));
+		editorOverrides.put("decompile.diskcache", Toggle::new);
+		editorOverrides.put("decompile.predecompile", Toggle::new);
 		hideUnsupported = true;
 		setupConfigControls(config);
 	}
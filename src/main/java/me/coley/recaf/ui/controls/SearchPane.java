@@ -1,5 +1,6 @@
 package me.coley.recaf.ui.controls;
 
+import javafx.application.Platform;
 import javafx.geometry.Orientation;
 import javafx.scene.Node;
 import javafx.scene.control.*;
@@ -9,9 +10,11 @@ import me.coley.recaf.search.*;
 import me.coley.recaf.ui.controls.tree.*;
 import me.coley.recaf.util.LangUtil;
 import me.coley.recaf.util.Log;
+import me.coley.recaf.util.ThreadUtil;
 import me.coley.recaf.workspace.Workspace;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -28,8 +31,10 @@ import static me.coley.recaf.util.LangUtil.translate;
 public class SearchPane extends SplitPane {
 	private final Map<String, Input> inputMap = new HashMap<>();
 	private final TreeView tree = new TreeView();
+	private final ProgressBar progress = new ProgressBar(0);
+	private final Button btn = new Button(LangUtil.translate("ui.search"));
 	private final Runnable searchAction;
-
+	private AtomicBoolean running;
 
 	/**
 	 * @param controller
@@ -42,7 +47,6 @@ public class SearchPane extends SplitPane {
 		setDividerPositions(0.5);
 		tree.setCellFactory(e -> new JavaResourceCell());
 		ColumnPane params = new ColumnPane();
-		Button btn = new Button(LangUtil.translate("ui.search"));
 		btn.getStyleClass().add("search-button");
 		switch(type) {
 			case MEMBER_DEFINITION:
@@ -59,7 +63,6 @@ public class SearchPane extends SplitPane {
 					return comboMode;
 				}, ComboBoxBase::getValue, ComboBoxBase::setValue));
 				searchAction = () -> search(controller, () -> buildDefinitionSearch(controller.getWorkspace()));
-				btn.setOnAction(e -> search());
 				break;
 			case CLASS_REFERENCE:
 				addInput(new Input<>(params, "ui.search.cls_reference.name", "ui.search.cls_reference.name.sub",
@@ -71,7 +74,6 @@ public class SearchPane extends SplitPane {
 					return comboMode;
 				}, ComboBoxBase::getValue, ComboBoxBase::setValue));
 				searchAction = () -> search(controller, () -> buildClassReferenceSearch(controller.getWorkspace()));
-				btn.setOnAction(e -> search());
 				break;
 			case MEMBER_REFERENCE:
 				addInput(new Input<>(params, "ui.search.mem_reference.owner", "ui.search.mem_reference.owner.sub",
@@ -87,7 +89,6 @@ public class SearchPane extends SplitPane {
 					return comboMode;
 				}, ComboBoxBase::getValue, ComboBoxBase::setValue));
 				searchAction = () -> search(controller, () -> buildMemberReferenceSearch(controller.getWorkspace()));
-				btn.setOnAction(e -> search());
 				break;
 			case STRING:
 				addInput(new Input<>(params, "ui.search.string", "ui.search.string.sub",
@@ -99,7 +100,6 @@ public class SearchPane extends SplitPane {
 					return comboMode;
 				}, ComboBoxBase::getValue, ComboBoxBase::setValue));
 				searchAction = () -> search(controller, () -> buildStringSearch(controller.getWorkspace()));
-				btn.setOnAction(e -> search());
 				break;
 			case VALUE:
 				addInput(new Input<>(params, "ui.search.value", "ui.search.value.sub",
@@ -109,7 +109,6 @@ public class SearchPane extends SplitPane {
 						return;
 					search(controller, () -> buildValueSearch(controller.getWorkspace()));
 				};
-				btn.setOnAction(e -> search());
 				break;
 			case INSTRUCTION_TEXT:
 				addInput(new Input<>(params, "ui.search.insn.lines", "ui.search.insn.lines.sub",
@@ -122,7 +121,6 @@ public class SearchPane extends SplitPane {
 					return comboMode;
 				}, ComboBoxBase::getValue, ComboBoxBase::setValue));
 				searchAction = () -> search(controller, () -> buildInsnSearch(controller.getWorkspace()));
-				btn.setOnAction(e -> search());
 				break;
 			default:
 				searchAction = null;
@@ -131,97 +129,153 @@ public class SearchPane extends SplitPane {
 		PackageSelector selector = new PackageSelector(controller.windows());
 		addInput(new Input<>(params, "ui.search.skippackages", "ui.search.skippackages.sub",
 				() -> selector, PackageSelector::get, PackageSelector::set));
-		params.add(null, btn);
+		// The button cancels the running search
+		btn.setOnAction(e -> {
+			if (running != null)
+				running.set(true);
+			else
+				search();
+		});
+		progress.setMaxWidth(Double.MAX_VALUE);
+		progress.setVisible(false);
+		params.add(progress, btn);
 		getItems().addAll(params, tree);
 		SplitPane.setResizableWithParent(params, Boolean.FALSE);
 	}
 
 	/**
-	 * Run search and display results.
+	 * Run search and display results. A search that is still running is cancelled.
 	 */
 	public void search() {
+		if (running != null)
+			running.set(true);
 		searchAction.run();
 		tree.requestFocus();
 	}
 
 	/**
-	 * Run search and display results.
+	 * Run search in the background and display results once it completes.
 	 *
 	 * @param controller
 	 * 		Controller for the workspace.
-	 * @param collectorSupplier
+	 * @param builderSupplier
 	 * 		Search generator.
 	 */
-	private void search(Controller controller, Supplier<SearchCollector> collectorSupplier) {
+	private void search(Controller controller, Supplier<SearchBuilder> builderSupplier) {
 		Workspace workspace = controller.getWorkspace();
-		List<SearchResult> results = null;
-		SearchCollector collector = null;
-		try {
-			collector = collectorSupplier.get();
-			results = collector.getAllResults();
-		} catch(IllegalArgumentException ex) {
-			// Some search argument requirements were not met
-			results = Collections.emptyList();
-			// TODO: visual warning
-			Log.warn("Failed search due to illegal arguments: {}", ex.getMessage());
-		}
 		// Create parameter map so the root item can show the parameters of the search
 		Map<String, Object> params = new TreeMap<>(inputMap.entrySet().stream()
 				.collect(Collectors.toMap(
 						e -> e.getKey().substring(e.getKey().lastIndexOf(".") + 1),
 						e -> e.getValue().getOr("")
 				)));
+		SearchBuilder builder;
+		try {
+			builder = builderSupplier.get();
+		} catch(IllegalArgumentException ex) {
+			// Some search argument requirements were not met
+			// TODO: visual warning
+			Log.warn("Failed search due to illegal arguments: {}", ex.getMessage());
+			showResults(workspace, Collections.emptyList(), params);
+			return;
+		}
+		AtomicBoolean cancelled = new AtomicBoolean();
+		AtomicBoolean progressQueued = new AtomicBoolean();
+		running = cancelled;
+		btn.setText(translate("ui.search.cancel"));
+		progress.setProgress(0);
+		progress.setVisible(true);
+		builder.cancelWhen(cancelled::get).onProgress((count, total) -> {
+			// Updates are coalesced so that the search workers do not flood the FX thread
+			if (progressQueued.compareAndSet(false, true))
+				Platform.runLater(() -> {
+					progressQueued.set(false);
+					progress.setProgress(count / (double) total);
+				});
+		});
+		ThreadUtil.runSupplyConsumer(() -> builder.build().getAllResults(), Long.MAX_VALUE, null,
+				results -> finish(cancelled, workspace, results, params),
+				t -> Platform.runLater(() -> {
+					Log.error("Failed search: {}", String.valueOf(t));
+					finish(cancelled, workspace, Collections.emptyList(), params);
+				}));
+	}
+
+	/**
+	 * @param search
+	 * 		Cancellation flag of the completed search.
+	 * @param workspace
+	 * 		Searched workspace.
+	 * @param results
+	 * 		Results of the search. If it was cancelled, the results found until then.
+	 * @param params
+	 * 		Parameters of the search.
+	 */
+	private void finish(AtomicBoolean search, Workspace workspace, List<SearchResult> results,
+						Map<String, Object> params) {
+		// Results of a search that was replaced by another are dropped
+		if (running != search)
+			return;
+		running = null;
+		btn.setText(translate("ui.search"));
+		progress.setVisible(false);
+		showResults(workspace, results, params);
+	}
+
+	private void showResults(Workspace workspace, List<SearchResult> results, Map<String, Object> params) {
 		tree.setRoot(new SearchRootItem(workspace.getPrimary(), results, params));
 		JavaResourceTree.recurseOpen(tree.getRoot());
 	}
 
-	private SearchCollector buildDefinitionSearch(Workspace workspace) {
+	private SearchBuilder buildDefinitionSearch(Workspace workspace) {
 		return SearchBuilder.in(workspace)
+				.parallel()
 				.skipDebug()
 				.skipCode()
 				.query(new MemberDefinitionQuery(
 						input("ui.search.declaration.owner"), input("ui.search.declaration.name"),
 						input("ui.search.declaration.desc"), input("ui.search.matchmode")))
-				.skipPackages(input("ui.search.skippackages"))
-				.build();
+				.skipPackages(input("ui.search.skippackages"));
 	}
 
-	private SearchCollector buildClassReferenceSearch(Workspace workspace) {
+	private SearchBuilder buildClassReferenceSearch(Workspace workspace) {
 		return SearchBuilder.in(workspace)
+				.parallel()
 				.query(new ClassReferenceQuery(
 						input("ui.search.cls_reference.name"), input("ui.search.matchmode")))
-				.skipPackages(input("ui.search.skippackages"))
-				.build();
+				.skipPackages(input("ui.search.skippackages"));
 	}
 
-	private SearchCollector buildMemberReferenceSearch(Workspace workspace) {
+	private SearchBuilder buildMemberReferenceSearch(Workspace workspace) {
 		return SearchBuilder.in(workspace)
+				.parallel()
 				.query(new MemberReferenceQuery(
 						input("ui.search.mem_reference.owner"), input("ui.search.mem_reference.name"),
 						input("ui.search.mem_reference.desc"), input("ui.search.matchmode")))
-				.skipPackages(input("ui.search.skippackages"))
-				.build();
+				.skipPackages(input("ui.search.skippackages"));
 	}
 
-	private SearchCollector buildStringSearch(Workspace workspace) {
+	private SearchBuilder buildStringSearch(Workspace workspace) {
 		return SearchBuilder.in(workspace)
+				.parallel()
 				.skipDebug()
 				.query(new StringQuery(input("ui.search.string"), input("ui.search.matchmode")))
-				.skipPackages(input("ui.search.skippackages"))
-				.build();
+				.skipPackages(input("ui.search.skippackages"));
 	}
 
-	private SearchCollector buildValueSearch(Workspace workspace) {
+	private SearchBuilder buildValueSearch(Workspace workspace) {
 		return SearchBuilder.in(workspace)
+				.parallel()
 				.skipDebug()
 				.skipPackages(input("ui.search.skippackages"))
-				.query(new ValueQuery(input("ui.search.value"))).build();
+				.query(new ValueQuery(input("ui.search.value")));
 	}
 
-	private SearchCollector buildInsnSearch(Workspace workspace) {
+	private SearchBuilder buildInsnSearch(Workspace workspace) {
 		return SearchBuilder.in(workspace)
+				.parallel()
 				.skipPackages(input("ui.search.skippackages"))
-				.query(new InsnTextQuery(input("ui.search.insn.lines"), input("ui.search.matchmode"))).build();
+				.query(new InsnTextQuery(input("ui.search.insn.lines"), input("ui.search.matchmode")));
 	}
 
 	/**
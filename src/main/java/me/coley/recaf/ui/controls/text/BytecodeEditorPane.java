@@ -36,7 +36,9 @@ public class BytecodeEditorPane extends EditorPane<BytecodeErrorHandling, Byteco
 	private BytecodeStackHelper stackHelper;
 	private BytecodeLocalHelper localHelper;
 	private IconView errorGraphic;
+	private final IncrementalParser parser = new IncrementalParser();
 	private ParseResult<RootAST> lastParse;
+	private MethodAssembler lastAssembler;
 	private MethodNode currentMethod;
 	private FieldNode currentField;
 
@@ -63,9 +65,9 @@ public class BytecodeEditorPane extends EditorPane<BytecodeErrorHandling, Byteco
 			currentField = null;
 			currentMethod = null;
 			// Setup assembler & context handling
-			ParseResult<RootAST> result = Parse.parse(getText());
-			if (result.isSuccess())
-				contextHandler.setAST(result.getRoot());
+			ParseResult<RootAST> result = parser.parse(getText());
+			// The previous root is invalid after parsing again, so the lines that did parse are used
+			contextHandler.setAST(result.getRoot());
 			lastParse = result;
 			if(isMethod) {
 				MethodAssembler assembler = new MethodAssembler(className, controller.config().assembler());
@@ -79,7 +81,9 @@ public class BytecodeEditorPane extends EditorPane<BytecodeErrorHandling, Byteco
 						assembler.setDefaultVariables(existingMethod.localVariables);
 					}
 				}
-				// Recompile & verify code
+				// Recompile & verify code, verification is skipped if the code did not change
+				assembler.setPrevious(lastAssembler);
+				lastAssembler = assembler;
 				currentMethod = assembler.compile(result);
 				stackHelper.setMethodAssembler(assembler);
 				localHelper.setMethodAssembler(assembler);
@@ -44,6 +44,8 @@ public class EditorPane<E extends ErrorHandling, C extends ContextHandling> exte
 	protected final ErrorList errorList = new ErrorList(this);
 	protected final SplitPane split;
 	private final SearchBar search = new SearchBar(codeArea::getText);
+	private final LanguageStyler styler;
+	private String styledText;
 	private Consumer<String> onCodeChange;
 	private E errHandler;
 
@@ -58,6 +60,7 @@ public class EditorPane<E extends ErrorHandling, C extends ContextHandling> exte
 	public EditorPane(GuiController controller, Language language, BiFunction<GuiController, CodeArea, C> handlerFunc) {
 		this.controller = controller;
 		this.contextHandler = handlerFunc.apply(controller, codeArea);
+		this.styler = new LanguageStyler(language);
 		getStyleClass().add("editor-pane");
 		setupCodeArea(language);
 		setupSearch();
@@ -87,15 +90,18 @@ public class EditorPane<E extends ErrorHandling, C extends ContextHandling> exte
 			return hbox;
 		};
 		Platform.runLater(() -> codeArea.setParagraphGraphicFactory(decorationFactory));
-		LanguageStyler styler = new LanguageStyler(language);
 		codeArea.richChanges()
 				.filter(ch -> !ch.isPlainTextIdentity())
 				.filter(ch -> !ch.getInserted().equals(ch.getRemoved()))
-				.subscribe(change -> ThreadUtil.runSupplyConsumer(() -> {
-					if(onCodeChange != null)
-						onCodeChange.accept(codeArea.getText());
-					return styler.computeStyle(codeArea.getText());
-				}, computedStyle -> codeArea.setStyleSpans(0, computedStyle)));
+				.subscribe(change -> {
+					String text = codeArea.getText();
+					styledText = text;
+					ThreadUtil.runSupplyConsumer(() -> {
+						if(onCodeChange != null)
+							onCodeChange.accept(text);
+						return styler.computeStyleUpdate(text);
+					}, this::applyStyle);
+				});
 		// So, tabs are hard-coded to be 8-characters wide visually until JavaFX 14
 		// Its not great, but using 4 actual spaces is a good enough solution.
 		InputMap<KeyEvent> im = InputMap.consume(
@@ -105,6 +111,48 @@ public class EditorPane<E extends ErrorHandling, C extends ContextHandling> exte
 		Nodes.addInputMap(codeArea, im);
 	}
 
+	/**
+	 * Apply computed styles. Visible paragraphs are styled first, the rest of the region afterwards.
+	 *
+	 * @param update
+	 * 		Styles of the region that changed.
+	 */
+	private void applyStyle(LanguageStyler.StyleUpdate update) {
+		// Skip updates for outdated text, the update for the current text will cover their changes
+		if(update == null || update.getText() != styledText || !styler.accept(update))
+			return;
+		int start = update.getStart();
+		int end = update.getEnd();
+		if(start == end)
+			return;
+		if(codeArea.getVisibleParagraphs().isEmpty()) {
+			codeArea.setStyleSpans(start, update.getSpans(start, end));
+			return;
+		}
+		int visibleStart = Math.max(start, codeArea.getAbsolutePosition(codeArea.firstVisibleParToAllParIndex(), 0));
+		int lastVisible = codeArea.lastVisibleParToAllParIndex();
+		int visibleEnd = Math.min(end, codeArea.getAbsolutePosition(lastVisible,
+				codeArea.getParagraphLength(lastVisible)));
+		if(visibleStart >= visibleEnd || (visibleStart == start && visibleEnd == end)) {
+			codeArea.setStyleSpans(start, update.getSpans(start, end));
+			return;
+		}
+		codeArea.setStyleSpans(visibleStart, update.getSpans(visibleStart, visibleEnd));
+		Platform.runLater(() -> {
+			// The text changed before the rest was styled, so the accepted styles are not all displayed
+			if(update.getText() != styledText) {
+				styler.reset();
+				String text = styledText;
+				ThreadUtil.runSupplyConsumer(() -> styler.computeStyleUpdate(text), this::applyStyle);
+				return;
+			}
+			if(start < visibleStart)
+				codeArea.setStyleSpans(start, update.getSpans(start, visibleStart));
+			if(visibleEnd < end)
+				codeArea.setStyleSpans(visibleEnd, update.getSpans(visibleEnd, end));
+		});
+	}
+
 	private void setupSearch() {
 		setOnKeyPressed(e -> {
 			if(controller.config().keys().find.match(e)) {
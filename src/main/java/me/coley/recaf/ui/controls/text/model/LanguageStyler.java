@@ -11,11 +11,23 @@ import java.util.*;
 
 /**
  * Utility for applying a given theme to some text based on the given language rule-set.
+ * <br>
+ * Styles can be computed for the full text with {@link #computeStyle(String)}, or for only the region
+ * that changed since the last {@link #accept(StyleUpdate) accepted} update with
+ * {@link #computeStyleUpdate(String)}. Updates only lex the paragraphs around the change, until the
+ * matches line up with the previous matches again.
  *
  * @author Matt
  */
 public class LanguageStyler {
-	private Language language;
+	private static final String META = "()[]{}?+*|^$.\\";
+	private static final String[] MULTI_LINE_MARKERS = {"\\s", "\\W", "\\D", "\\n", "\\r", "[^"};
+	private final Language language;
+	private final Pattern pattern;
+	private final int[] groupIds;
+	private final List<Collection<String>> styles = new ArrayList<>();
+	private final Set<Character> delimiters = new HashSet<>();
+	private Tokens applied;
 
 	/**
 	 * @param language
@@ -25,6 +37,15 @@ public class LanguageStyler {
 		if(language == null)
 			throw new IllegalStateException("Language must not be null");
 		this.language = language;
+		this.pattern = createPattern();
+		this.groupIds = new int[getRules().size()];
+		for(int i = 0; i < groupIds.length; i++) {
+			Rule rule = getRules().get(i);
+			groupIds[i] = pattern.groupId(rule.getPatternGroupName());
+			styles.add(Collections.singleton(rule.getName()));
+			if(spansLines(rule.getPattern()))
+				addDelimiters(rule.getPattern());
+		}
 	}
 
 	/**
@@ -34,31 +55,136 @@ public class LanguageStyler {
 	 * @return Stylized regions of the text <i>(via css tags)</i>.
 	 */
 	public StyleSpans<Collection<String>> computeStyle(String text) {
-		Matcher matcher = getPattern().matcher(text);
-		int lastKwEnd = 0;
-		StyleSpansBuilder<Collection<String>> spansBuilder = new StyleSpansBuilder<>();
-		try {
-			while(matcher.find()) {
-				String styleClass = getClassFromGroup(matcher);
-				if(styleClass == null)
-					styleClass = "text";
-				spansBuilder.add(Collections.emptyList(), matcher.start() - lastKwEnd);
-				spansBuilder.add(Collections.singleton(styleClass), matcher.end() - matcher.start());
-				lastKwEnd = matcher.end();
-			}
-		} catch(NullPointerException npe) {
-			// There was once some odd behavior in 'matcher.find()' which caused NPE...
-			// This seems to have been fixed, but we will check for regressions
-			Log.error(npe, "Error occurred when computing styles:");
+		Tokens tokens = new Tokens(text);
+		lex(text, 0, tokens, null, 0, 0, 0);
+		return tokens.toSpans(0, text.length());
+	}
+
+	/**
+	 * Compute the styles of the region that changed since the last {@link #accept(StyleUpdate) accepted}
+	 * update. If no update has been accepted the styles of the full text are computed.
+	 *
+	 * @param text
+	 * 		Text to apply styles to.
+	 *
+	 * @return Stylized region of the text, or {@code null} if the text did not change.
+	 */
+	public synchronized StyleUpdate computeStyleUpdate(String text) {
+		Tokens base = applied;
+		if(base == null) {
+			Tokens tokens = new Tokens(text);
+			lex(text, 0, tokens, null, 0, 0, 0);
+			return new StyleUpdate(null, tokens, 0, text.length());
 		}
-		spansBuilder.add(Collections.emptyList(), text.length() - lastKwEnd);
-		return spansBuilder.create();
+		String old = base.text;
+		if(old.equals(text))
+			return null;
+		// Find the changed region
+		int max = Math.min(old.length(), text.length());
+		int prefix = 0;
+		while(prefix < max && old.charAt(prefix) == text.charAt(prefix))
+			prefix++;
+		int suffix = 0;
+		while(suffix < max - prefix &&
+				old.charAt(old.length() - 1 - suffix) == text.charAt(text.length() - 1 - suffix))
+			suffix++;
+		int oldEditEnd = old.length() - suffix;
+		int newEditEnd = text.length() - suffix;
+		int restart = findRestart(base, text, prefix, oldEditEnd, newEditEnd);
+		Tokens tokens = new Tokens(text);
+		tokens.copy(base, 0, base.indexOfEndAfter(restart), 0);
+		int kept = lex(text, restart, tokens, base, oldEditEnd, newEditEnd, newEditEnd - oldEditEnd);
+		// Only the region where the matches differ needs to be styled again
+		int start = findUnchangedEnd(tokens, base, prefix);
+		int end = kept < 0 ? text.length() : tokens.starts[kept];
+		return new StyleUpdate(base, tokens, start, end);
+	}
+
+	/**
+	 * Matches of rules that span lines may begin anywhere before the change, unless the change cannot
+	 * open or close them. Otherwise lexing restarts at the paragraph of the change.
+	 *
+	 * @param base
+	 * 		Tokens of the previous text.
+	 * @param text
+	 * 		Changed text.
+	 * @param prefix
+	 * 		Length of the text shared with the previous text before the change.
+	 * @param oldEditEnd
+	 * 		End of the changed region in the previous text.
+	 * @param newEditEnd
+	 * 		End of the changed region in the text.
+	 *
+	 * @return Position to restart lexing at.
+	 */
+	private int findRestart(Tokens base, String text, int prefix, int oldEditEnd, int newEditEnd) {
+		if(hasDelimiter(base.text, prefix, oldEditEnd) || hasDelimiter(text, prefix, newEditEnd))
+			return 0;
+		int restart = text.lastIndexOf('\n', prefix - 1) + 1;
+		int crossing = base.indexOfEndAfter(restart);
+		if(crossing < base.count && base.starts[crossing] < restart)
+			restart = base.starts[crossing];
+		return restart;
+	}
+
+	/**
+	 * @param tokens
+	 * 		Tokens of the changed text.
+	 * @param base
+	 * 		Tokens of the previous text.
+	 * @param prefix
+	 * 		Length of the text shared with the previous text before the change.
+	 *
+	 * @return End of the leading matches that are the same in both texts.
+	 */
+	private static int findUnchangedEnd(Tokens tokens, Tokens base, int prefix) {
+		int end = 0;
+		for(int i = 0; i < tokens.count && i < base.count; i++) {
+			if(tokens.ends[i] > prefix || !tokens.same(i, base, i, 0))
+				break;
+			end = tokens.ends[i];
+		}
+		return end;
+	}
+
+	/**
+	 * Mark an update as applied to the displayed text. Following updates are computed relative to it.
+	 *
+	 * @param update
+	 * 		Update that was computed by this styler.
+	 *
+	 * @return {@code true} when the update was accepted. {@code false} when another update was accepted
+	 * since the given update was computed, in which case it must not be applied.
+	 */
+	public synchronized boolean accept(StyleUpdate update) {
+		if(update.base != applied)
+			return false;
+		applied = update.tokens;
+		return true;
+	}
+
+	/**
+	 * Forget the accepted styles, so that the next update covers the full text.
+	 */
+	public synchronized void reset() {
+		applied = null;
 	}
 
 	/**
 	 * @return Compiled regex pattern from {@link #getRules() all existing rules}.
 	 */
 	public Pattern getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * @return List of language rules.
+	 */
+	private List<Rule> getRules() {
+		return language.getRules();
+	}
+
+	private Pattern createPattern() {
 		if(getRules().isEmpty())
 			return RegexUtil.pattern("({EMPTY}EMPTY)");
 		StringBuilder sb = new StringBuilder();
@@ -68,24 +194,298 @@ public class LanguageStyler {
 	}
 
 	/**
-	 * @return List of language rules.
+	 * Find matches in the text, adding them to the given tokens.
+	 *
+	 * @param text
+	 * 		Text to match against.
+	 * @param start
+	 * 		Position to start matching at.
+	 * @param tokens
+	 * 		Tokens to add matches to.
+	 * @param base
+	 * 		Tokens of the previous text to stop at once the matches line up with them again.
+	 * 		May be {@code null} to match the full text.
+	 * @param oldEditEnd
+	 * 		End of the changed region in the previous text.
+	 * @param newEditEnd
+	 * 		End of the changed region in the text.
+	 * @param shift
+	 * 		Offset of the unchanged text after the changed region, relative to the previous text.
+	 *
+	 * @return Index in the tokens of the first match that lines up with the previous matches,
+	 * or {@code -1} if matching reached the end of the text.
 	 */
-	private List<Rule> getRules() {
-		return language.getRules();
+	private int lex(String text, int start, Tokens tokens, Tokens base, int oldEditEnd, int newEditEnd,
+					int shift) {
+		Matcher matcher = pattern.matcher(text);
+		matcher.setPosition(start);
+		int next = base == null ? 0 : base.indexOfStartAfter(oldEditEnd);
+		try {
+			while(matcher.find()) {
+				int matchStart = matcher.start();
+				int matchEnd = matcher.end();
+				int rule = getRule(matcher);
+				// Matches after the change that equal a previous match are followed by the same matches.
+				// The first character after the change is skipped, as it may be read by a look-behind.
+				if(base != null && matchStart > newEditEnd) {
+					while(next < base.count && base.starts[next] + shift < matchStart)
+						next++;
+					if(next < base.count && base.starts[next] + shift == matchStart &&
+							base.ends[next] + shift == matchEnd && base.rules[next] == rule) {
+						int index = tokens.count;
+						tokens.copy(base, next, base.count, shift);
+						return index;
+					}
+				}
+				tokens.add(matchStart, matchEnd, rule);
+			}
+		} catch(NullPointerException npe) {
+			// There was once some odd behavior in 'matcher.find()' which caused NPE...
+			// This seems to have been fixed, but we will check for regressions
+			Log.error(npe, "Error occurred when computing styles:");
+		}
+		return -1;
 	}
 
 	/**
-	 * Fetch the CSS class name to use based on the matched group.
+	 * Fetch the index of the rule of the matched group.
 	 *
 	 * @param matcher
 	 * 		Matcher that has found a group.
 	 *
+	 * @return Index of the matched rule, or {@code -1} if no rule group was captured.
+	 */
+	private int getRule(Matcher matcher) {
+		for(int i = 0; i < groupIds.length; i++)
+			if(matcher.isCaptured(groupIds[i]))
+				return i;
+		return -1;
+	}
+
+	/**
+	 * @param rule
+	 * 		Index of a rule.
+	 *
 	 * @return CSS class name <i>(Raw name of regex rule)</i>
 	 */
-	private String getClassFromGroup(Matcher matcher) {
-		for(Rule rule : getRules())
-			if(matcher.group(rule.getPatternGroupName()) != null)
-				return rule.getName();
-		return null;
+	private Collection<String> getStyle(int rule) {
+		return rule < 0 ? Collections.singleton("text") : styles.get(rule);
+	}
+
+	private boolean hasDelimiter(String text, int start, int end) {
+		for(int i = start; i < end; i++)
+			if(delimiters.contains(text.charAt(i)))
+				return true;
+		return false;
+	}
+
+	/**
+	 * @param regex
+	 * 		Rule pattern.
+	 *
+	 * @return {@code true} if matches of the pattern may span multiple lines.
+	 */
+	private static boolean spansLines(String regex) {
+		for(String marker : MULTI_LINE_MARKERS)
+			if(regex.contains(marker))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Record the literal characters of a rule pattern. Changes that do not contain these cannot change
+	 * where a match of the rule begins or ends.
+	 *
+	 * @param regex
+	 * 		Rule pattern.
+	 */
+	private void addDelimiters(String regex) {
+		int i = 0;
+		while(i < regex.length()) {
+			char c = regex.charAt(i);
+			if(c == '\\' && i + 1 < regex.length()) {
+				addDelimiter(regex.charAt(i + 1));
+				i += 2;
+			} else if(c == '[') {
+				i = addClassDelimiters(regex, i + 1);
+			} else if(c == '(' && i + 1 < regex.length() && regex.charAt(i + 1) == '?') {
+				// Skip group constructs such as "(?:", "(?=" and "(?<!"
+				i += 2;
+				while(i < regex.length() && "<=!:".indexOf(regex.charAt(i)) >= 0)
+					i++;
+			} else {
+				if(!Character.isWhitespace(c) && META.indexOf(c) < 0)
+					addDelimiter(c);
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Record the literal characters of a character class.
+	 *
+	 * @param regex
+	 * 		Rule pattern.
+	 * @param start
+	 * 		Position after the opening bracket of the class.
+	 *
+	 * @return Position after the closing bracket of the class.
+	 */
+	private int addClassDelimiters(String regex, int start) {
+		int i = start;
+		while(i < regex.length()) {
+			char c = regex.charAt(i);
+			if(c == '\\' && i + 1 < regex.length()) {
+				addDelimiter(regex.charAt(i + 1));
+				i += 2;
+				continue;
+			}
+			i++;
+			if(c == ']')
+				break;
+			if(c != '^' && c != '-')
+				addDelimiter(c);
+		}
+		return i;
+	}
+
+	private void addDelimiter(char c) {
+		if(!Character.isLetterOrDigit(c))
+			delimiters.add(c);
+	}
+
+	/**
+	 * Styles of a region of text, computed by {@link #computeStyleUpdate(String)}.
+	 */
+	public final class StyleUpdate {
+		private final Tokens base;
+		private final Tokens tokens;
+		private final int start;
+		private final int end;
+
+		private StyleUpdate(Tokens base, Tokens tokens, int start, int end) {
+			this.base = base;
+			this.tokens = tokens;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * @return Text the styles apply to.
+		 */
+		public String getText() {
+			return tokens.text;
+		}
+
+		/**
+		 * @return Start of the styled region.
+		 */
+		public int getStart() {
+			return start;
+		}
+
+		/**
+		 * @return End of the styled region.
+		 */
+		public int getEnd() {
+			return end;
+		}
+
+		/**
+		 * @param from
+		 * 		Start of the region, within {@link #getStart()} and {@link #getEnd()}.
+		 * @param to
+		 * 		End of the region, within {@link #getStart()} and {@link #getEnd()}.
+		 *
+		 * @return Stylized regions of the text between the given positions.
+		 */
+		public StyleSpans<Collection<String>> getSpans(int from, int to) {
+			return tokens.toSpans(from, to);
+		}
+	}
+
+	/**
+	 * Matches of the rules in some text, in order.
+	 */
+	private final class Tokens {
+		private final String text;
+		private int[] starts = new int[64];
+		private int[] ends = new int[64];
+		private int[] rules = new int[64];
+		private int count;
+
+		private Tokens(String text) {
+			this.text = text;
+		}
+
+		private void add(int start, int end, int rule) {
+			if(count == starts.length) {
+				int size = count * 2;
+				starts = Arrays.copyOf(starts, size);
+				ends = Arrays.copyOf(ends, size);
+				rules = Arrays.copyOf(rules, size);
+			}
+			starts[count] = start;
+			ends[count] = end;
+			rules[count] = rule;
+			count++;
+		}
+
+		private void copy(Tokens other, int from, int to, int shift) {
+			for(int i = from; i < to; i++)
+				add(other.starts[i] + shift, other.ends[i] + shift, other.rules[i]);
+		}
+
+		private boolean same(int index, Tokens other, int otherIndex, int shift) {
+			return starts[index] == other.starts[otherIndex] + shift &&
+					ends[index] == other.ends[otherIndex] + shift &&
+					rules[index] == other.rules[otherIndex];
+		}
+
+		/**
+		 * @return Index of the first token ending after the position.
+		 */
+		private int indexOfEndAfter(int position) {
+			int low = 0;
+			int high = count;
+			while(low < high) {
+				int mid = (low + high) >>> 1;
+				if(ends[mid] > position)
+					high = mid;
+				else
+					low = mid + 1;
+			}
+			return low;
+		}
+
+		/**
+		 * @return Index of the first token starting at or after the position.
+		 */
+		private int indexOfStartAfter(int position) {
+			int low = 0;
+			int high = count;
+			while(low < high) {
+				int mid = (low + high) >>> 1;
+				if(starts[mid] >= position)
+					high = mid;
+				else
+					low = mid + 1;
+			}
+			return low;
+		}
+
+		private StyleSpans<Collection<String>> toSpans(int from, int to) {
+			StyleSpansBuilder<Collection<String>> spansBuilder = new StyleSpansBuilder<>();
+			int last = from;
+			for(int i = indexOfEndAfter(from); i < count && starts[i] < to; i++) {
+				int start = Math.max(starts[i], from);
+				int end = Math.min(ends[i], to);
+				spansBuilder.add(Collections.emptyList(), start - last);
+				spansBuilder.add(getStyle(rules[i]), end - start);
+				last = end;
+			}
+			spansBuilder.add(Collections.emptyList(), to - last);
+			return spansBuilder.create();
+		}
 	}
 }
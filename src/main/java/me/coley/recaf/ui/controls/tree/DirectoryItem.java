@@ -15,6 +15,7 @@ public class DirectoryItem extends BaseItem implements Comparable<DirectoryItem>
 	private final Map<String, DirectoryItem> localToDir = new HashMap<>();
 	private final Map<String, DirectoryItem> localToLeaf = new HashMap<>();
 	private final String local;
+	private Runnable loader;
 
 
 	/**
@@ -55,6 +56,77 @@ public class DirectoryItem extends BaseItem implements Comparable<DirectoryItem>
 		addSourceChild(child);
 	}
 
+	/**
+	 * Add multiple children by their local names.
+	 *
+	 * @param dirs
+	 * 		Directory children, by local name.
+	 * @param leaves
+	 * 		Leaf children, by local name.
+	 */
+	public void addChildren(Map<String, DirectoryItem> dirs, Map<String, DirectoryItem> leaves) {
+		localToDir.putAll(dirs);
+		localToLeaf.putAll(leaves);
+		List<DirectoryItem> children = new ArrayList<>(dirs.size() + leaves.size());
+		children.addAll(dirs.values());
+		children.addAll(leaves.values());
+		addSourceChildren(children);
+	}
+
+	/**
+	 * Remove a child by the local name.
+	 *
+	 * @param local
+	 * 		Local name of child.
+	 * @param isLeaf
+	 * 		Does the local name belong to a leaf.
+	 */
+	public void removeChild(String local, boolean isLeaf) {
+		DirectoryItem child = isLeaf ? localToLeaf.remove(local) : localToDir.remove(local);
+		if (child != null)
+			removeSourceChild(child);
+	}
+
+	/**
+	 * Set an action that creates the children of this item once they are needed,
+	 * when the item is expanded or a child is looked up.
+	 *
+	 * @param loader
+	 * 		Action that adds the children to this item.
+	 */
+	public void setLoader(Runnable loader) {
+		if (this.loader == null && loader != null)
+			expandedProperty().addListener((ob, old, expanded) -> {
+				if (expanded)
+					load();
+			});
+		this.loader = loader;
+	}
+
+	/**
+	 * Create the children of this item if they have not been created yet.
+	 */
+	public void load() {
+		Runnable action = loader;
+		if (action != null) {
+			loader = null;
+			action.run();
+		}
+	}
+
+	/**
+	 * @return {@code true} when the children of the item have been created.
+	 */
+	public boolean isLoaded() {
+		return loader == null;
+	}
+
+	@Override
+	public boolean isLeaf() {
+		// Children that are not yet created are still shown as expandable
+		return isLoaded() && super.isLeaf();
+	}
+
 	/**
 	 * @param local
 	 * 		Local name of child.
@@ -82,6 +154,7 @@ public class DirectoryItem extends BaseItem implements Comparable<DirectoryItem>
 		List<String> parts = new ArrayList<>(Arrays.asList(path.split("/")));
 		while(!parts.isEmpty() && item != null) {
 			String part = parts.remove(0);
+			item.load();
 			item = item.getChild(part, parts.isEmpty());
 		}
 		return item;
@@ -2,40 +2,27 @@ package me.coley.recaf.ui.controls.tree;
 
 import me.coley.recaf.workspace.JavaResource;
 
-import java.util.*;
-
 /**
  * Tree item to contain class sub-items.
  *
  * @author Matt
  */
-public class FileFolderItem extends DirectoryItem {
-	private final JavaResource resource = resource();
-
+public class FileFolderItem extends IndexedFolderItem {
 	/**
 	 * @param resource
 	 * 		The resource associated with the item.
 	 */
 	public FileFolderItem(JavaResource resource) {
-		super(resource, "files");
-		// Add class sub-items in sorted order
-		new TreeSet<>(resource.getFiles().keySet()).forEach(this::addFile);
+		super(resource, "files", resource.getFiles().keySet());
+	}
+
+	@Override
+	protected DirectoryItem createLeaf(String local, String name) {
+		return new FileItem(resource(), local, name);
 	}
 
-	protected void addFile(String name) {
-		DirectoryItem item = this;
-		List<String> parts = new ArrayList<>(Arrays.asList(name.split("/")));
-		while(!parts.isEmpty()) {
-			String part = parts.remove(0);
-			boolean isLeaf = parts.isEmpty();
-			DirectoryItem child = item.getChild(part, isLeaf);
-			if(child == null) {
-				child = isLeaf ?
-						new FileItem(resource, part, name) :
-						new DirectoryItem(resource, part);
-				item.addChild(part, child, isLeaf);
-			}
-			item = child;
-		}
+	@Override
+	protected DirectoryItem createDirectory(String local, String path) {
+		return new DirectoryItem(resource(), local);
 	}
-}
\ No newline at end of file
+}
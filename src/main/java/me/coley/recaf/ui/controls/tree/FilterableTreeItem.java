@@ -1,7 +1,9 @@
 package me.coley.recaf.ui.controls.tree;
 
 import java.lang.reflect.Field;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.function.Predicate;
 
 import javafx.beans.binding.Bindings;
@@ -84,10 +86,25 @@ public class FilterableTreeItem<T> extends TreeItem<T> {
 	 * 		Child item to add.
 	 */
 	public void addSourceChild(TreeItem<T> item) {
-		int index = Arrays.binarySearch(getChildren().toArray(), item);
-		if(index < 0)
-			index = -(index + 1);
-		sourceChildren.add(index, item);
+		sourceChildren.add(indexOf(item), item);
+	}
+
+	/**
+	 * Add multiple unfiltered children to this item. When the item has no children yet,
+	 * the children are added with a single change.
+	 *
+	 * @param items
+	 * 		Child items to add.
+	 */
+	@SuppressWarnings("unchecked")
+	public void addSourceChildren(Collection<? extends TreeItem<T>> items) {
+		if(!sourceChildren.isEmpty()) {
+			items.forEach(this::addSourceChild);
+			return;
+		}
+		List<TreeItem<T>> sorted = new ArrayList<>(items);
+		sorted.sort((a, b) -> ((Comparable<Object>) a).compareTo(b));
+		sourceChildren.setAll(sorted);
 	}
 
 	/**
@@ -100,6 +117,30 @@ public class FilterableTreeItem<T> extends TreeItem<T> {
 		sourceChildren.remove(child);
 	}
 
+	/**
+	 * @param item
+	 * 		Child item to insert.
+	 *
+	 * @return Index in the unfiltered children to insert the item at, to keep the children sorted.
+	 */
+	@SuppressWarnings("unchecked")
+	private int indexOf(TreeItem<T> item) {
+		Comparable<Object> key = (Comparable<Object>) item;
+		int low = 0;
+		int high = sourceChildren.size() - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = key.compareTo(sourceChildren.get(mid));
+			if(cmp > 0)
+				low = mid + 1;
+			else if(cmp < 0)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return low;
+	}
+
 	/**
 	 * @return Predicate property.
 	 */
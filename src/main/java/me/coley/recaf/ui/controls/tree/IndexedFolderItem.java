@@ -0,0 +1,242 @@
+package me.coley.recaf.ui.controls.tree;
+
+import me.coley.recaf.workspace.JavaResource;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Tree item to contain the items of a set of path names, such as class or file names.
+ * <br>
+ * The names are kept in a sorted index. Items for the contents of a directory are only created once
+ * the directory is expanded, so that large resources do not need an item for every name up front.
+ * The index can be {@link #search(String) searched} off of the FX thread.
+ *
+ * @author Matt
+ */
+public abstract class IndexedFolderItem extends DirectoryItem {
+	private final NavigableSet<String> names = new ConcurrentSkipListSet<>();
+
+	/**
+	 * @param resource
+	 * 		The resource associated with the item.
+	 * @param local
+	 * 		Name of the folder.
+	 * @param names
+	 * 		Names of the items to contain.
+	 */
+	public IndexedFolderItem(JavaResource resource, String local, Collection<String> names) {
+		super(resource, local);
+		this.names.addAll(names);
+		setLoader(() -> load(this, ""));
+	}
+
+	/**
+	 * @param local
+	 * 		Last part of the name.
+	 * @param name
+	 * 		Full name.
+	 *
+	 * @return Item to represent the name.
+	 */
+	protected abstract DirectoryItem createLeaf(String local, String name);
+
+	/**
+	 * @param local
+	 * 		Last part of the directory path.
+	 * @param path
+	 * 		Full directory path, without a trailing {@code '/'}.
+	 *
+	 * @return Item to represent the directory.
+	 */
+	protected abstract DirectoryItem createDirectory(String local, String path);
+
+	/**
+	 * @param text
+	 * 		Text to search for.
+	 *
+	 * @return Names containing the text, and the directories containing them.
+	 */
+	public Match search(String text) {
+		return search(text, names);
+	}
+
+	/**
+	 * @param text
+	 * 		Text to search for.
+	 * @param previous
+	 * 		Prior match of text that is contained by the given text. Only its names need to be checked.
+	 *
+	 * @return Names containing the text, and the directories containing them.
+	 */
+	public Match search(String text, Match previous) {
+		return search(text, previous.names);
+	}
+
+	/**
+	 * Add a name, creating its item if the items of its directory have been created.
+	 *
+	 * @param name
+	 * 		Name to add.
+	 */
+	protected void add(String name) {
+		if (!names.add(name))
+			return;
+		DirectoryItem item = this;
+		int start = 0;
+		while (item.isLoaded()) {
+			int slash = name.indexOf('/', start);
+			boolean isLeaf = slash < 0;
+			String local = isLeaf ? name.substring(start) : name.substring(start, slash);
+			DirectoryItem child = item.getChild(local, isLeaf);
+			if (child == null) {
+				// The new item's own children are taken from the index once it is expanded
+				item.addChild(local, isLeaf ? createLeaf(local, name) :
+						createLazyDirectory(local, name.substring(0, slash)), isLeaf);
+				return;
+			}
+			if (isLeaf)
+				return;
+			item = child;
+			start = slash + 1;
+		}
+	}
+
+	/**
+	 * Remove a name, and the items of directories that no longer contain any names.
+	 *
+	 * @param name
+	 * 		Name to remove.
+	 */
+	protected void remove(String name) {
+		if (!names.remove(name))
+			return;
+		// Created items along the path, by depth
+		List<DirectoryItem> items = new ArrayList<>();
+		DirectoryItem item = this;
+		int start = 0;
+		while (item != null) {
+			items.add(item);
+			if (!item.isLoaded())
+				break;
+			int slash = name.indexOf('/', start);
+			if (slash < 0) {
+				item.removeChild(name.substring(start), true);
+				break;
+			}
+			item = item.getChild(name.substring(start, slash), false);
+			start = slash + 1;
+		}
+		// Remove directories that no longer contain any names, from the deepest up
+		for (int depth = items.size() - 1; depth > 0; depth--) {
+			int end = indexOfPart(name, depth);
+			if (hasNames(name.substring(0, end)))
+				break;
+			items.get(depth - 1).removeChild(name.substring(indexOfPart(name, depth - 1), end - 1), false);
+		}
+	}
+
+	/**
+	 * Create the items of a directory's direct contents.
+	 *
+	 * @param dir
+	 * 		Directory item.
+	 * @param prefix
+	 * 		Path of the directory with a trailing {@code '/'}, or empty for this folder.
+	 */
+	private void load(DirectoryItem dir, String prefix) {
+		Map<String, DirectoryItem> dirs = new HashMap<>();
+		Map<String, DirectoryItem> leaves = new HashMap<>();
+		String next = names.ceiling(prefix);
+		while (next != null && next.startsWith(prefix)) {
+			int slash = next.indexOf('/', prefix.length());
+			if (slash < 0) {
+				String local = next.substring(prefix.length());
+				leaves.put(local, createLeaf(local, next));
+				next = names.higher(next);
+			} else {
+				String local = next.substring(prefix.length(), slash);
+				String path = next.substring(0, slash);
+				dirs.put(local, createLazyDirectory(local, path));
+				// Skip past all names in the directory, '0' being the character after '/'
+				next = names.ceiling(path + '0');
+			}
+		}
+		dir.addChildren(dirs, leaves);
+	}
+
+	private DirectoryItem createLazyDirectory(String local, String path) {
+		DirectoryItem dir = createDirectory(local, path);
+		dir.setLoader(() -> load(dir, path + '/'));
+		return dir;
+	}
+
+	private boolean hasNames(String prefix) {
+		String next = names.ceiling(prefix);
+		return next != null && next.startsWith(prefix);
+	}
+
+	/**
+	 * @return Index after the {@code '/'} ending the given number of directory parts of the name.
+	 */
+	private static int indexOfPart(String name, int parts) {
+		int index = 0;
+		for (int i = 0; i < parts; i++)
+			index = name.indexOf('/', index) + 1;
+		return index;
+	}
+
+	private static Match search(String text, Collection<String> candidates) {
+		Set<String> matches = new TreeSet<>();
+		Set<String> dirs = new HashSet<>();
+		for (String name : candidates) {
+			if (!name.contains(text))
+				continue;
+			matches.add(name);
+			int slash = name.lastIndexOf('/');
+			while (slash >= 0 && dirs.add(name.substring(0, slash)))
+				slash = name.lastIndexOf('/', slash - 1);
+		}
+		return new Match(matches, dirs);
+	}
+
+	/**
+	 * Names matched by a {@link #search(String) search}.
+	 */
+	public static class Match {
+		private final Set<String> names;
+		private final Set<String> dirs;
+
+		private Match(Set<String> names, Set<String> dirs) {
+			this.names = names;
+			this.dirs = dirs;
+		}
+
+		/**
+		 * @return Matched names, in sorted order.
+		 */
+		public Set<String> getNames() {
+			return names;
+		}
+
+		/**
+		 * @param path
+		 * 		Directory path, without a trailing {@code '/'}.
+		 *
+		 * @return {@code true} if the directory contains any matched name.
+		 */
+		public boolean containsDirectory(String path) {
+			return dirs.contains(path);
+		}
+
+		/**
+		 * @param name
+		 * 		Name of an item.
+		 *
+		 * @return {@code true} if the name was matched.
+		 */
+		public boolean containsName(String name) {
+			return names.contains(name);
+		}
+	}
+}
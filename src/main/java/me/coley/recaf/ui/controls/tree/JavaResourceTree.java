@@ -5,8 +5,11 @@ import javafx.scene.input.*;
 import javafx.scene.layout.BorderPane;
 import me.coley.recaf.control.gui.GuiController;
 import me.coley.recaf.util.LangUtil;
+import me.coley.recaf.util.ThreadUtil;
 import me.coley.recaf.workspace.JavaResource;
 
+import java.util.Iterator;
+
 /**
  * Tree representation of a given {@link JavaResource resource}.
  *
@@ -14,9 +17,11 @@ import me.coley.recaf.workspace.JavaResource;
  */
 @SuppressWarnings("unchecked")
 public class JavaResourceTree extends BorderPane {
+	private static final int MAX_EXPANDED_MATCHES = 100;
 	private final GuiController controller;
 	private final TextField search;
 	private final TreeView tree;
+	private Filter filter;
 
 	/**
 	 * @param controller
@@ -55,6 +60,7 @@ public class JavaResourceTree extends BorderPane {
 
 	/**
 	 * Filter items in the tree that match <i>(contains)</i> the given text.
+	 * The names are matched off of the FX thread, then the filter is applied to the tree.
 	 *
 	 * @param text
 	 * 		Text to search with.
@@ -65,22 +71,21 @@ public class JavaResourceTree extends BorderPane {
 		//  - Support for actions, for example:
 		//    - "enum:true com/" - search enums in com packages
 		//    - "ext:json xyz" - search for whatever ending in ".json"
-		root.predicateProperty().set(item -> {
-			// Empty predicate -> Simple return.
-			if(text.isEmpty())
-				return true;
-			// Check for content match
-			boolean match = false;
-			if(item instanceof ClassItem)
-				match = ((ClassItem) item).getClassName().contains(text);
-			else if(item instanceof FileItem)
-				match = ((FileItem) item).getFileName().contains(text);
-			// Expand items that match, hide those that do not.
-			if(match)
-				((DirectoryItem) item).expandParents();
-			else
-				item.setExpanded(false);
-			return match;
+		if(text.isEmpty()) {
+			filter = null;
+			root.predicateProperty().set(null);
+			return;
+		}
+		Filter previous = filter;
+		ThreadUtil.runSupplyConsumer(() -> new Filter(root, text, previous), result -> {
+			// Skip results of outdated searches
+			if(!text.equals(search.getText()))
+				return;
+			filter = result;
+			root.predicateProperty().set(result::test);
+			// Expand items that match
+			result.expand(root.getClasses(), result.classes);
+			result.expand(root.getFiles(), result.files);
 		});
 	}
 
@@ -170,4 +175,92 @@ public class JavaResourceTree extends BorderPane {
 		if(item.getChildren().size() == 1)
 			recurseOpen((TreeItem) item.getChildren().get(0));
 	}
+
+	/**
+	 * Names of classes and files that match a search.
+	 */
+	private static class Filter {
+		private final String text;
+		private final IndexedFolderItem.Match classes;
+		private final IndexedFolderItem.Match files;
+
+		/**
+		 * @param root
+		 * 		Root of the tree to search.
+		 * @param text
+		 * 		Text to search for.
+		 * @param previous
+		 * 		Prior filter, used to narrow down the search when the text extends its text.
+		 * 		May be {@code null}.
+		 */
+		private Filter(RootItem root, String text, Filter previous) {
+			this.text = text;
+			boolean narrow = previous != null && text.contains(previous.text);
+			classes = search(root.getClasses(), narrow ? previous.classes : null);
+			files = search(root.getFiles(), narrow ? previous.files : null);
+		}
+
+		private IndexedFolderItem.Match search(IndexedFolderItem folder, IndexedFolderItem.Match previous) {
+			if(folder == null)
+				return null;
+			return previous == null ? folder.search(text) : folder.search(text, previous);
+		}
+
+		/**
+		 * @param item
+		 * 		Item to check.
+		 *
+		 * @return {@code true} if the item or any of its contents match.
+		 */
+		private boolean test(TreeItem<JavaResource> item) {
+			if(item instanceof ClassItem)
+				return classes.containsName(((ClassItem) item).getClassName());
+			else if(item instanceof FileItem)
+				return files.containsName(((FileItem) item).getFileName());
+			else if(item instanceof PackageItem)
+				return classes.containsDirectory(((PackageItem) item).getPackageName());
+			else if(item instanceof ClassFolderItem)
+				return !classes.getNames().isEmpty();
+			else if(item instanceof FileFolderItem)
+				return !files.getNames().isEmpty();
+			else if(item instanceof DirectoryItem)
+				return files.containsDirectory(getPath((DirectoryItem) item));
+			return false;
+		}
+
+		/**
+		 * Expand the parents of the first matching items.
+		 *
+		 * @param folder
+		 * 		Folder containing the items.
+		 * @param match
+		 * 		Matched names in the folder.
+		 */
+		private void expand(IndexedFolderItem folder, IndexedFolderItem.Match match) {
+			if(folder == null)
+				return;
+			Iterator<String> it = match.getNames().iterator();
+			for(int i = 0; i < MAX_EXPANDED_MATCHES && it.hasNext(); i++) {
+				DirectoryItem item = folder.getDeepChild(it.next());
+				if(item != null)
+					item.expandParents();
+			}
+		}
+
+		/**
+		 * @param item
+		 * 		Directory of a file folder.
+		 *
+		 * @return Path of the directory.
+		 */
+		private static String getPath(DirectoryItem item) {
+			StringBuilder sb = new StringBuilder(item.getLocalName());
+			TreeItem<JavaResource> parent = item.getParent();
+			while(parent instanceof DirectoryItem && !(parent instanceof IndexedFolderItem)) {
+				sb.insert(0, ((DirectoryItem) parent).getLocalName() + "/");
+				parent = parent.getParent();
+			}
+			return sb.toString();
+		}
+	}
 }
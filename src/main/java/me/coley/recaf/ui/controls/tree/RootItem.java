@@ -24,60 +24,42 @@ public class RootItem extends BaseItem {
 		if(resource.getClasses().size() > 0) {
 			addSourceChild(classes = new ClassFolderItem(resource));
 			// Register listeners and update if the classes update
-			resource.getClasses().getRemoveListeners().add(InternalConsumer.internal(r -> {
-				String name = r.toString();
-				DirectoryItem di = classes.getDeepChild(name);
-				if (di != null) {
-					Platform.runLater(() -> {
-						BaseItem parent = (BaseItem) di.getParent();
-						if(parent != null) {
-							parent.removeSourceChild(di);
-							// Remove directories if needed
-							while(parent.isLeaf() && !(parent instanceof ClassFolderItem)) {
-								BaseItem parentOfParent = (BaseItem) parent.getParent();
-								parentOfParent.removeSourceChild(parent);
-								parent = parentOfParent;
-							}
-						}
-					});
-				}
-			}));
+			resource.getClasses().getRemoveListeners().add(InternalConsumer.internal(r ->
+					Platform.runLater(() -> classes.remove(r.toString()))));
 			resource.getClasses().getPutListeners().add(InternalBiConsumer.internal((k, v) -> {
 				// Put includes updates, so only "add" the class when it doesn't already exist
 				if (!resource.getClasses().containsKey(k))
-					Platform.runLater(() -> classes.addClass(k));
+					Platform.runLater(() -> classes.add(k));
 			}));
 		}
 		// files sub-folder
 		if(resource.getFiles().size() > 0) {
 			addSourceChild(files = new FileFolderItem(resource));
 			// Register listeners and update if the files update
-			resource.getFiles().getRemoveListeners().add(InternalConsumer.internal(r -> {
-				String name = r.toString();
-				DirectoryItem di = files.getDeepChild(name);
-				if (di != null) {
-					Platform.runLater(() -> {
-						BaseItem parent = (BaseItem) di.getParent();
-						if(parent != null) {
-							parent.removeSourceChild(di);
-							// Remove directories if needed
-							while(parent.isLeaf() && !(parent instanceof FileFolderItem)) {
-								BaseItem parentOfParent = (BaseItem) parent.getParent();
-								parentOfParent.removeSourceChild(parent);
-								parent = parentOfParent;
-							}
-						}
-					});
-				}
-			}));
+			resource.getFiles().getRemoveListeners().add(InternalConsumer.internal(r ->
+					Platform.runLater(() -> files.remove(r.toString()))));
 			resource.getFiles().getPutListeners().add(InternalBiConsumer.internal((k, v) -> {
 				// Put includes updates, so only "add" the file when it doesn't already exist
 				if (!resource.getFiles().containsKey(k))
-					Platform.runLater(() -> files.addFile(k));
+					Platform.runLater(() -> files.add(k));
 			}));
 		}
 		// TODO: Sub-folders for these?
 		//  - docs
 		//  - sources
 	}
+
+	/**
+	 * @return Item containing the classes of the resource, or {@code null} if it had none.
+	 */
+	public ClassFolderItem getClasses() {
+		return classes;
+	}
+
+	/**
+	 * @return Item containing the files of the resource, or {@code null} if it had none.
+	 */
+	public FileFolderItem getFiles() {
+		return files;
+	}
 }
\ No newline at end of file
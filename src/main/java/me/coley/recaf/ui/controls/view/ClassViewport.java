@@ -3,6 +3,7 @@ package me.coley.recaf.ui.controls.view;
 import javafx.application.Platform;
 import javafx.scene.input.KeyEvent;
 import me.coley.recaf.control.gui.GuiController;
+import me.coley.recaf.decompile.DecompileCache;
 import me.coley.recaf.decompile.DecompileImpl;
 import me.coley.recaf.plugin.PluginKeybinds;
 import me.coley.recaf.ui.controls.ClassEditor;
@@ -100,12 +101,14 @@ public class ClassViewport extends EditorViewport {
 					// SUPPLIER: Fetch decompiled code
 					String decompile = (controller.config().decompile().showName ?
 							"// Decompiled with: " + decompiler.getNameAndVersion() + "\n" : "") +
-							decompiler.create(controller).decompile(path);
+							DecompileCache.getInstance().decompile(controller, decompiler, path);
 					return EscapeUtil.unescapeUnicode(decompile);
 				};
 				JavaEditorPane finalPane = pane;
 				Consumer<String> consumer = decompile -> {
 					// CONSUMER: Set decompiled text and check for errors
+					// Classes likely to be opened next are decompiled in the background
+					DecompileCache.getInstance().preDecompileNeighbours(controller, decompiler, path);
 					// Update text
 					Platform.runLater(() -> {
 						finalPane.setText(decompile);
@@ -1,6 +1,7 @@
 package me.coley.recaf.util;
 
 import me.coley.recaf.Recaf;
+import me.coley.recaf.search.ClassNameIndex;
 import me.coley.recaf.workspace.Workspace;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
@@ -18,30 +19,18 @@ import java.util.stream.Stream;
  */
 public class AutoCompleteUtil {
 	/**
-	 * A sorted list of class names for auto-completion,
+	 * @param prefix
+	 * 		Name prefix.
+	 *
+	 * @return Sorted names of classes available for completion that start with the prefix,
 	 * including {@linkplain ClasspathUtil#getSystemClassNames() the system's} and
-	 * {@linkplain Workspace#getClassNames()} the current input's}.
+	 * {@linkplain Workspace#getClassNameIndex() the current input's}.
 	 */
-	private static Set<String> cachedClassNames;
-
-	/**
-	 * Computes and/or returns a sorted list of class names available for completion.
-	 */
-	private static Stream<String> classNames() {
-		Set<String> systemClassNames = ClasspathUtil.getSystemClassNames();
-		Optional<Workspace> opt = Optional.ofNullable(Recaf.getCurrentWorkspace());
-		if (opt.isPresent()) {
-			Set<String> inputClasses = opt.get().getClassNames();
-			int totalSize = inputClasses.size() + systemClassNames.size();
-			cachedClassNames = Collections.unmodifiableSet(Stream
-					.concat(inputClasses.stream(), systemClassNames.stream())
-					.distinct()
-					.sorted(Comparator.naturalOrder())  // Pre-sort to save some time
-					.collect(Collectors.toCollection(() -> new LinkedHashSet<>(totalSize))));
-		} else {
-			cachedClassNames = systemClassNames;
-		}
-		return cachedClassNames.stream();
+	private static List<String> classNames(String prefix) {
+		Workspace workspace = Recaf.getCurrentWorkspace();
+		if (workspace != null)
+			return workspace.getClassNameIndex().getNamesWithPrefix(prefix);
+		return ClassNameIndex.getSystemNamesWithPrefix(prefix);
 	}
 
 	// =================================================================== //
@@ -58,9 +47,9 @@ public class AutoCompleteUtil {
 		String key = part.trim();
 		if (part.isEmpty())
 			return Collections.emptyList();
-		return classNames()
-				.filter(name -> name.startsWith(key) && !name.equals(key))
-				.collect(Collectors.toList());
+		List<String> names = classNames(key);
+		names.remove(key);
+		return names;
 	}
 
 	/**
@@ -96,9 +85,7 @@ public class AutoCompleteUtil {
 		//
 		String prefix = prefixBuilder.toString();
 		String key = keyBuilder.toString();
-		return classNames()
-				.filter(name -> name.startsWith(key))
-				// .sorted()                       // Input stream is already sorted
+		return classNames(key).stream()
 				.map(name -> prefix + name + ";")  // Re-adds the prefix and the suffix to the suggestions
 				.collect(Collectors.toList());
 	}
@@ -0,0 +1,719 @@
+package me.coley.recaf.util;
+
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Quick structural validation of class files.
+ * <br>
+ * The constant pool, member tables, attribute tables and method code are walked without building any
+ * trees. The check only confirms classes that ASM is known to read. When a class uses anything the check
+ * does not cover, or is malformed, the result is inconclusive and a full parse has to decide.
+ *
+ * @author Matt
+ */
+public class ClassStructureUtil {
+	// Newest version supported by the ASM version in use
+	private static final int MAX_VERSION = Opcodes.V16 & 0xFFFF;
+	private static final int UTF8 = 1;
+	private static final int INTEGER = 3;
+	private static final int FLOAT = 4;
+	private static final int LONG = 5;
+	private static final int DOUBLE = 6;
+	private static final int CLASS = 7;
+	private static final int STRING = 8;
+	private static final int FIELD = 9;
+	private static final int METHOD = 10;
+	private static final int INTERFACE_METHOD = 11;
+	private static final int NAME_TYPE = 12;
+	private static final int HANDLE = 15;
+	private static final int METHOD_TYPE = 16;
+	private static final int DYNAMIC = 17;
+	private static final int INVOKE_DYNAMIC = 18;
+	private static final int MODULE = 19;
+	private static final int PACKAGE = 20;
+	// Operand kinds of instructions with a fixed length
+	private static final int OPERAND_NONE = 0;
+	private static final int OPERAND_CONSTANT = 1;
+	private static final int OPERAND_CONSTANT_WIDE = 2;
+	private static final int OPERAND_JUMP = 3;
+	private static final int OPERAND_JUMP_WIDE = 4;
+	private static final int OPERAND_FIELD = 5;
+	private static final int OPERAND_METHOD = 6;
+	private static final int OPERAND_INVOKE_DYNAMIC = 7;
+	private static final int OPERAND_CLASS = 8;
+	// Instruction lengths by opcode, zero for variable length or unsupported instructions
+	private static final int[] INSTRUCTION_LENGTHS = new int[256];
+	private static final int[] OPERAND_KINDS = new int[256];
+	// Sizes of constant pool entries by tag including the tag, zero for variable size or unsupported entries
+	private static final int[] POOL_ENTRY_SIZES = new int[PACKAGE + 1];
+	// Constant pool tags of constant element values by their tag, zero for other element values
+	private static final int[] ELEMENT_CONSTANT_TAGS = new int[128];
+
+	/**
+	 * @param value
+	 * 		Class bytecode.
+	 *
+	 * @return Internal name of the class when its structure is valid, or {@code null} when the quick
+	 * check is inconclusive.
+	 */
+	public static String getValidatedName(byte[] value) {
+		try {
+			return new Walker(value).walk();
+		} catch(Inconclusive | IndexOutOfBoundsException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Walks over a single class file.
+	 */
+	private static class Walker {
+		private final byte[] b;
+		private int[] offsets;
+		private int[] tags;
+		private String[] strings;
+		private int bootstrapRequired;
+		private int bootstrapCount;
+		private int methodDesc;
+		private int codeLength;
+
+		private Walker(byte[] b) {
+			this.b = b;
+		}
+
+		private String walk() {
+			if (b.length < 10 || s4(0) != 0xCAFEBABE)
+				throw Inconclusive.INSTANCE;
+			int minor = u2(4);
+			int major = u2(6);
+			// Pre-java classes use a different code layout
+			if (major < 45 || (major == 45 && minor <= 2) || major > MAX_VERSION)
+				throw Inconclusive.INSTANCE;
+			int o = readPool();
+			int thisClass = u2(o + 2);
+			expect(thisClass, CLASS);
+			expectOptional(u2(o + 4), CLASS);
+			o = expectClasses(o + 6);
+			o = readMembers(o, false);
+			o = readMembers(o, true);
+			o = readAttributes(o, Context.CLASS);
+			// Dynamic constants point into the bootstrap method table
+			if (bootstrapRequired > bootstrapCount)
+				throw Inconclusive.INSTANCE;
+			return utf8(u2(offsets[thisClass]));
+		}
+
+		private int readPool() {
+			int count = u2(8);
+			offsets = new int[count];
+			tags = new int[count];
+			strings = new String[count];
+			int o = 10;
+			for (int i = 1; i < count; i++) {
+				int tag = u1(o);
+				tags[i] = tag;
+				offsets[i] = o + 1;
+				o += getPoolEntrySize(tag, o);
+				// Longs and doubles take up two slots, the second of which is unusable
+				if (tag == LONG || tag == DOUBLE)
+					i++;
+			}
+			for (int i = 1; i < count; i++)
+				checkPoolEntry(tags[i], offsets[i]);
+			return o;
+		}
+
+		private int getPoolEntrySize(int tag, int o) {
+			if (tag == UTF8)
+				return 3 + u2(o + 1);
+			int size = tag < POOL_ENTRY_SIZES.length ? POOL_ENTRY_SIZES[tag] : 0;
+			if (size == 0)
+				throw Inconclusive.INSTANCE;
+			return size;
+		}
+
+		private void checkPoolEntry(int tag, int offset) {
+			switch(tag) {
+				case CLASS:
+				case STRING:
+				case METHOD_TYPE:
+				case MODULE:
+				case PACKAGE:
+					expect(u2(offset), UTF8);
+					break;
+				case FIELD:
+				case METHOD:
+				case INTERFACE_METHOD:
+					expect(u2(offset), CLASS);
+					expect(u2(offset + 2), NAME_TYPE);
+					break;
+				case NAME_TYPE:
+					expect(u2(offset), UTF8);
+					expect(u2(offset + 2), UTF8);
+					break;
+				case HANDLE:
+					expectHandleReference(u1(offset), u2(offset + 1));
+					break;
+				case DYNAMIC:
+				case INVOKE_DYNAMIC:
+					bootstrapRequired = Math.max(bootstrapRequired, u2(offset) + 1);
+					expect(u2(offset + 2), NAME_TYPE);
+					break;
+				default:
+					break;
+			}
+		}
+
+		private int readMembers(int o, boolean methods) {
+			int count = u2(o);
+			o += 2;
+			for (int i = 0; i < count; i++) {
+				expect(u2(o + 2), UTF8);
+				methodDesc = u2(o + 4);
+				expect(methodDesc, UTF8);
+				o = readAttributes(o + 6, methods ? Context.METHOD : Context.FIELD);
+			}
+			return o;
+		}
+
+		private int readAttributes(int o, Context context) {
+			int count = u2(o);
+			o += 2;
+			for (int i = 0; i < count; i++) {
+				int nameIndex = u2(o);
+				expect(nameIndex, UTF8);
+				int length = s4(o + 2);
+				int start = o + 6;
+				if (length < 0 || start + length > b.length)
+					throw Inconclusive.INSTANCE;
+				readAttribute(utf8(nameIndex), start, context);
+				o = start + length;
+			}
+			return o;
+		}
+
+		private void readAttribute(String name, int o, Context context) {
+			// Attributes not known to ASM in the given context are read as opaque data
+			switch(name) {
+				case "Signature":
+					expect(u2(o), UTF8);
+					return;
+				case "RuntimeVisibleAnnotations":
+				case "RuntimeInvisibleAnnotations":
+					readAnnotations(o);
+					return;
+				case "RuntimeVisibleTypeAnnotations":
+				case "RuntimeInvisibleTypeAnnotations":
+					throw Inconclusive.INSTANCE;
+				default:
+					break;
+			}
+			switch(context) {
+				case CLASS:
+					readClassAttribute(name, o);
+					break;
+				case FIELD:
+					if (name.equals("ConstantValue"))
+						expectAny(u2(o), INTEGER, FLOAT, LONG, DOUBLE, STRING);
+					break;
+				case METHOD:
+					readMethodAttribute(name, o);
+					break;
+				case CODE:
+					readCodeAttribute(name, o);
+					break;
+				default:
+					break;
+			}
+		}
+
+		private void readClassAttribute(String name, int o) {
+			switch(name) {
+				case "SourceFile":
+					expect(u2(o), UTF8);
+					break;
+				case "NestHost":
+					expect(u2(o), CLASS);
+					break;
+				case "NestMembers":
+				case "PermittedSubclasses":
+					expectClasses(o);
+					break;
+				case "EnclosingMethod":
+					expect(u2(o), CLASS);
+					expectOptional(u2(o + 2), NAME_TYPE);
+					break;
+				case "InnerClasses": {
+					int count = u2(o);
+					o += 2;
+					for (int i = 0; i < count; i++, o += 8) {
+						expect(u2(o), CLASS);
+						expectOptional(u2(o + 2), CLASS);
+						expectOptional(u2(o + 4), UTF8);
+					}
+					break;
+				}
+				case "BootstrapMethods": {
+					bootstrapCount = u2(o);
+					o += 2;
+					for (int i = 0; i < bootstrapCount; i++) {
+						expect(u2(o), HANDLE);
+						int args = u2(o + 2);
+						o += 4;
+						for (int j = 0; j < args; j++, o += 2)
+							expectConstant(u2(o));
+					}
+					break;
+				}
+				case "Module":
+				case "ModulePackages":
+				case "ModuleMainClass":
+				case "Record":
+					throw Inconclusive.INSTANCE;
+				default:
+					break;
+			}
+		}
+
+		private void readMethodAttribute(String name, int o) {
+			switch(name) {
+				case "Code":
+					readCode(o);
+					break;
+				case "Exceptions":
+					expectClasses(o);
+					break;
+				case "AnnotationDefault":
+					readElementValue(o);
+					break;
+				case "RuntimeVisibleParameterAnnotations":
+				case "RuntimeInvisibleParameterAnnotations": {
+					int count = u1(o);
+					// ASM sizes its parameter annotation lists by the descriptor
+					if (count > getArgumentCount(utf8(methodDesc)))
+						throw Inconclusive.INSTANCE;
+					o++;
+					for (int i = 0; i < count; i++)
+						o = readAnnotations(o);
+					break;
+				}
+				case "MethodParameters": {
+					int count = u1(o);
+					o++;
+					for (int i = 0; i < count; i++, o += 4)
+						expectOptional(u2(o), UTF8);
+					break;
+				}
+				default:
+					break;
+			}
+		}
+
+		private void readCodeAttribute(String name, int o) {
+			switch(name) {
+				case "LineNumberTable": {
+					int count = u2(o);
+					o += 2;
+					for (int i = 0; i < count; i++, o += 4)
+						expectOffset(u2(o), false);
+					break;
+				}
+				case "LocalVariableTable":
+				case "LocalVariableTypeTable": {
+					int count = u2(o);
+					o += 2;
+					for (int i = 0; i < count; i++, o += 10) {
+						int start = u2(o);
+						expectOffset(start, true);
+						expectOffset(start + u2(o + 2), true);
+						expect(u2(o + 4), UTF8);
+						expect(u2(o + 6), UTF8);
+					}
+					break;
+				}
+				default:
+					break;
+			}
+		}
+
+		private void readCode(int o) {
+			codeLength = s4(o + 4);
+			int code = o + 8;
+			if (codeLength <= 0 || code + codeLength > b.length)
+				throw Inconclusive.INSTANCE;
+			readInstructions(code);
+			o = code + codeLength;
+			int handlers = u2(o);
+			o += 2;
+			for (int i = 0; i < handlers; i++, o += 8) {
+				expectOffset(u2(o), true);
+				expectOffset(u2(o + 2), true);
+				expectOffset(u2(o + 4), true);
+				expectOptional(u2(o + 6), CLASS);
+			}
+			readAttributes(o, Context.CODE);
+		}
+
+		private void readInstructions(int code) {
+			int pc = 0;
+			while (pc < codeLength) {
+				int op = u1(code + pc);
+				int length = INSTRUCTION_LENGTHS[op];
+				if (length > 0) {
+					readOperand(OPERAND_KINDS[op], code + pc, pc);
+					pc += length;
+				} else {
+					pc = readVariableInstruction(op, code, pc);
+				}
+			}
+			// The last instruction must not run past the end of the code
+			if (pc != codeLength)
+				throw Inconclusive.INSTANCE;
+		}
+
+		private void readOperand(int kind, int o, int pc) {
+			switch(kind) {
+				case OPERAND_CONSTANT:
+					expectConstant(u1(o + 1));
+					break;
+				case OPERAND_CONSTANT_WIDE:
+					expectConstant(u2(o + 1));
+					break;
+				case OPERAND_JUMP:
+					expectTarget(pc + (short) u2(o + 1));
+					break;
+				case OPERAND_JUMP_WIDE:
+					expectTarget(pc + s4(o + 1));
+					break;
+				case OPERAND_FIELD:
+					expect(u2(o + 1), FIELD);
+					break;
+				case OPERAND_METHOD:
+					expectAny(u2(o + 1), METHOD, INTERFACE_METHOD);
+					break;
+				case OPERAND_INVOKE_DYNAMIC:
+					expect(u2(o + 1), INVOKE_DYNAMIC);
+					break;
+				case OPERAND_CLASS:
+					expect(u2(o + 1), CLASS);
+					break;
+				default:
+					break;
+			}
+		}
+
+		private int readVariableInstruction(int op, int code, int pc) {
+			switch(op) {
+				case Opcodes.TABLESWITCH:
+					return readTableSwitch(code, pc);
+				case Opcodes.LOOKUPSWITCH:
+					return readLookupSwitch(code, pc);
+				case 196:
+					// WIDE
+					return pc + getWideLength(u1(code + pc + 1));
+				default:
+					throw Inconclusive.INSTANCE;
+			}
+		}
+
+		private int readTableSwitch(int code, int pc) {
+			int table = code + pc + 4 - (pc & 3);
+			expectTarget(pc + s4(table));
+			long count = (long) s4(table + 8) - s4(table + 4) + 1;
+			if (count <= 0 || table - code + 12 + count * 4 > codeLength)
+				throw Inconclusive.INSTANCE;
+			for (int i = 0; i < count; i++)
+				expectTarget(pc + s4(table + 12 + i * 4));
+			return (int) (table - code + 12 + count * 4);
+		}
+
+		private int readLookupSwitch(int code, int pc) {
+			int table = code + pc + 4 - (pc & 3);
+			expectTarget(pc + s4(table));
+			long count = s4(table + 4);
+			if (count < 0 || table - code + 8 + count * 8 > codeLength)
+				throw Inconclusive.INSTANCE;
+			for (int i = 0; i < count; i++)
+				expectTarget(pc + s4(table + 12 + i * 8));
+			return (int) (table - code + 8 + count * 8);
+		}
+
+		private int getWideLength(int op) {
+			if (op == Opcodes.IINC)
+				return 6;
+			// Only local variable instructions can be widened
+			boolean load = op >= Opcodes.ILOAD && op <= Opcodes.ALOAD;
+			boolean store = op >= Opcodes.ISTORE && op <= Opcodes.ASTORE;
+			if (!load && !store && op != Opcodes.RET)
+				throw Inconclusive.INSTANCE;
+			return 4;
+		}
+
+		private int readAnnotations(int o) {
+			int count = u2(o);
+			o += 2;
+			for (int i = 0; i < count; i++)
+				o = readAnnotation(o);
+			return o;
+		}
+
+		private int readAnnotation(int o) {
+			expect(u2(o), UTF8);
+			int pairs = u2(o + 2);
+			o += 4;
+			for (int i = 0; i < pairs; i++) {
+				expect(u2(o), UTF8);
+				o = readElementValue(o + 2);
+			}
+			return o;
+		}
+
+		private int readElementValue(int o) {
+			int tag = u1(o);
+			int constantTag = tag < ELEMENT_CONSTANT_TAGS.length ? ELEMENT_CONSTANT_TAGS[tag] : 0;
+			if (constantTag != 0) {
+				expect(u2(o + 1), constantTag);
+				return o + 3;
+			}
+			switch(tag) {
+				case 'c':
+					return readClassElementValue(o);
+				case 'e':
+					expect(u2(o + 1), UTF8);
+					expect(u2(o + 3), UTF8);
+					return o + 5;
+				case '@':
+					return readAnnotation(o + 1);
+				case '[':
+					return readArrayElementValue(o);
+				default:
+					throw Inconclusive.INSTANCE;
+			}
+		}
+
+		private int readClassElementValue(int o) {
+			// Class values are parsed as type descriptors
+			int index = u2(o + 1);
+			expect(index, UTF8);
+			String desc = utf8(index);
+			if (desc.isEmpty() || "VZCBSIFJDL[(".indexOf(desc.charAt(0)) < 0)
+				throw Inconclusive.INSTANCE;
+			return o + 3;
+		}
+
+		private int readArrayElementValue(int o) {
+			int count = u2(o + 1);
+			o += 3;
+			for (int i = 0; i < count; i++)
+				o = readElementValue(o);
+			return o;
+		}
+
+		private int getArgumentCount(String desc) {
+			if (desc.isEmpty() || desc.charAt(0) != '(')
+				throw Inconclusive.INSTANCE;
+			int count = 0;
+			int i = 1;
+			while (i < desc.length() && desc.charAt(i) != ')') {
+				while (desc.charAt(i) == '[')
+					i++;
+				if (desc.charAt(i) == 'L') {
+					i = desc.indexOf(';', i);
+					if (i < 0)
+						throw Inconclusive.INSTANCE;
+				} else if ("ZBCSIJFD".indexOf(desc.charAt(i)) < 0) {
+					throw Inconclusive.INSTANCE;
+				}
+				i++;
+				count++;
+			}
+			if (i >= desc.length())
+				throw Inconclusive.INSTANCE;
+			return count;
+		}
+
+		private int expectClasses(int o) {
+			int count = u2(o);
+			o += 2;
+			for (int i = 0; i < count; i++, o += 2)
+				expect(u2(o), CLASS);
+			return o;
+		}
+
+		private void expectConstant(int index) {
+			expectAny(index, INTEGER, FLOAT, LONG, DOUBLE, CLASS, STRING, HANDLE, METHOD_TYPE, DYNAMIC);
+			// Class constants are turned into types, which requires a name
+			if (tags[index] == CLASS && utf8(u2(offsets[index])).isEmpty())
+				throw Inconclusive.INSTANCE;
+		}
+
+		private void expectHandleReference(int kind, int index) {
+			if (kind >= 1 && kind <= 4)
+				expect(index, FIELD);
+			else if (kind == 5 || kind == 8)
+				expect(index, METHOD);
+			else if (kind == 6 || kind == 7)
+				expectAny(index, METHOD, INTERFACE_METHOD);
+			else if (kind == 9)
+				expect(index, INTERFACE_METHOD);
+			else
+				throw Inconclusive.INSTANCE;
+		}
+
+		private void expectTarget(int offset) {
+			if (offset < 0 || offset >= codeLength)
+				throw Inconclusive.INSTANCE;
+		}
+
+		private void expectOffset(int offset, boolean inclusive) {
+			if (offset < 0 || offset > codeLength || (!inclusive && offset == codeLength))
+				throw Inconclusive.INSTANCE;
+		}
+
+		private void expectOptional(int index, int tag) {
+			if (index != 0)
+				expect(index, tag);
+		}
+
+		private void expect(int index, int tag) {
+			if (index <= 0 || index >= tags.length || tags[index] != tag)
+				throw Inconclusive.INSTANCE;
+		}
+
+		private void expectAny(int index, int... allowed) {
+			if (index > 0 && index < tags.length)
+				for (int tag : allowed)
+					if (tags[index] == tag)
+						return;
+			throw Inconclusive.INSTANCE;
+		}
+
+		private String utf8(int index) {
+			String value = strings[index];
+			if (value != null)
+				return value;
+			// Modified UTF-8, decoded the same way as ASM does
+			int o = offsets[index];
+			int length = u2(o);
+			int end = o + 2 + length;
+			if (end > b.length)
+				throw Inconclusive.INSTANCE;
+			char[] chars = new char[length];
+			int count = 0;
+			for (int i = o + 2; i < end; ) {
+				int c = b[i++];
+				if ((c & 0x80) == 0)
+					chars[count++] = (char) (c & 0x7F);
+				else if ((c & 0xE0) == 0xC0)
+					chars[count++] = (char) (((c & 0x1F) << 6) + (b[i++] & 0x3F));
+				else
+					chars[count++] = (char) (((c & 0xF) << 12) + ((b[i++] & 0x3F) << 6) + (b[i++] & 0x3F));
+			}
+			return strings[index] = new String(chars, 0, count);
+		}
+
+		private int u1(int o) {
+			return b[o] & 0xFF;
+		}
+
+		private int u2(int o) {
+			return ((b[o] & 0xFF) << 8) | (b[o + 1] & 0xFF);
+		}
+
+		private int s4(int o) {
+			return ((b[o] & 0xFF) << 24) | ((b[o + 1] & 0xFF) << 16) | ((b[o + 2] & 0xFF) << 8) | (b[o + 3] & 0xFF);
+		}
+	}
+
+	/**
+	 * Location of an attribute, since ASM only interprets some attributes in some locations.
+	 */
+	private enum Context {
+		CLASS, FIELD, METHOD, CODE
+	}
+
+	/**
+	 * Thrown when the quick check cannot confirm a class is valid.
+	 * Shared and without a stack trace, since it is only used to unwind the walk.
+	 */
+	private static final class Inconclusive extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		private static final Inconclusive INSTANCE = new Inconclusive();
+
+		private Inconclusive() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static void defineInstructions(int first, int last, int length, int operand) {
+		for (int op = first; op <= last; op++) {
+			INSTRUCTION_LENGTHS[op] = length;
+			OPERAND_KINDS[op] = operand;
+		}
+	}
+
+	private static void defineInstruction(int op, int length, int operand) {
+		defineInstructions(op, op, length, operand);
+	}
+
+	static {
+		// Opcodes 26 to 45 and 59 to 78 are the implicit local variable loads and stores
+		defineInstructions(Opcodes.NOP, Opcodes.DCONST_1, 1, OPERAND_NONE);
+		defineInstructions(26, Opcodes.SALOAD, 1, OPERAND_NONE);
+		defineInstructions(59, Opcodes.LXOR, 1, OPERAND_NONE);
+		defineInstructions(Opcodes.I2L, Opcodes.DCMPG, 1, OPERAND_NONE);
+		defineInstructions(Opcodes.IRETURN, Opcodes.RETURN, 1, OPERAND_NONE);
+		defineInstruction(Opcodes.ARRAYLENGTH, 1, OPERAND_NONE);
+		defineInstruction(Opcodes.ATHROW, 1, OPERAND_NONE);
+		defineInstruction(Opcodes.MONITORENTER, 1, OPERAND_NONE);
+		defineInstruction(Opcodes.MONITOREXIT, 1, OPERAND_NONE);
+		defineInstruction(Opcodes.BIPUSH, 2, OPERAND_NONE);
+		defineInstruction(Opcodes.NEWARRAY, 2, OPERAND_NONE);
+		defineInstruction(Opcodes.RET, 2, OPERAND_NONE);
+		defineInstructions(Opcodes.ILOAD, Opcodes.ALOAD, 2, OPERAND_NONE);
+		defineInstructions(Opcodes.ISTORE, Opcodes.ASTORE, 2, OPERAND_NONE);
+		defineInstruction(Opcodes.SIPUSH, 3, OPERAND_NONE);
+		defineInstruction(Opcodes.IINC, 3, OPERAND_NONE);
+		defineInstruction(Opcodes.LDC, 2, OPERAND_CONSTANT);
+		// LDC_W and LDC2_W
+		defineInstructions(19, 20, 3, OPERAND_CONSTANT_WIDE);
+		defineInstructions(Opcodes.IFEQ, Opcodes.JSR, 3, OPERAND_JUMP);
+		defineInstruction(Opcodes.IFNULL, 3, OPERAND_JUMP);
+		defineInstruction(Opcodes.IFNONNULL, 3, OPERAND_JUMP);
+		// GOTO_W and JSR_W
+		defineInstructions(200, 201, 5, OPERAND_JUMP_WIDE);
+		defineInstructions(Opcodes.GETSTATIC, Opcodes.PUTFIELD, 3, OPERAND_FIELD);
+		defineInstructions(Opcodes.INVOKEVIRTUAL, Opcodes.INVOKESTATIC, 3, OPERAND_METHOD);
+		defineInstruction(Opcodes.INVOKEINTERFACE, 5, OPERAND_METHOD);
+		defineInstruction(Opcodes.INVOKEDYNAMIC, 5, OPERAND_INVOKE_DYNAMIC);
+		defineInstruction(Opcodes.NEW, 3, OPERAND_CLASS);
+		defineInstruction(Opcodes.ANEWARRAY, 3, OPERAND_CLASS);
+		defineInstruction(Opcodes.CHECKCAST, 3, OPERAND_CLASS);
+		defineInstruction(Opcodes.INSTANCEOF, 3, OPERAND_CLASS);
+		defineInstruction(Opcodes.MULTIANEWARRAY, 4, OPERAND_CLASS);
+		// Constant pool entries, other than UTF8 which is sized by its content
+		POOL_ENTRY_SIZES[INTEGER] = 5;
+		POOL_ENTRY_SIZES[FLOAT] = 5;
+		POOL_ENTRY_SIZES[FIELD] = 5;
+		POOL_ENTRY_SIZES[METHOD] = 5;
+		POOL_ENTRY_SIZES[INTERFACE_METHOD] = 5;
+		POOL_ENTRY_SIZES[NAME_TYPE] = 5;
+		POOL_ENTRY_SIZES[DYNAMIC] = 5;
+		POOL_ENTRY_SIZES[INVOKE_DYNAMIC] = 5;
+		POOL_ENTRY_SIZES[LONG] = 9;
+		POOL_ENTRY_SIZES[DOUBLE] = 9;
+		POOL_ENTRY_SIZES[CLASS] = 3;
+		POOL_ENTRY_SIZES[STRING] = 3;
+		POOL_ENTRY_SIZES[METHOD_TYPE] = 3;
+		POOL_ENTRY_SIZES[MODULE] = 3;
+		POOL_ENTRY_SIZES[PACKAGE] = 3;
+		POOL_ENTRY_SIZES[HANDLE] = 4;
+		// Element values holding a single constant
+		for (char c : "BCISZ".toCharArray())
+			ELEMENT_CONSTANT_TAGS[c] = INTEGER;
+		ELEMENT_CONSTANT_TAGS['D'] = DOUBLE;
+		ELEMENT_CONSTANT_TAGS['F'] = FLOAT;
+		ELEMENT_CONSTANT_TAGS['J'] = LONG;
+		ELEMENT_CONSTANT_TAGS['s'] = UTF8;
+	}
+}
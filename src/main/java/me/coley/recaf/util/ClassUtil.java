@@ -10,6 +10,8 @@ import org.objectweb.asm.tree.MethodNode;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 import static org.objectweb.asm.ClassReader.*;
 
@@ -265,6 +267,62 @@ public class ClassUtil {
 		return cw.toByteArray();
 	}
 
+	/**
+	 * @param code
+	 * 		Class bytecode.
+	 *
+	 * @return Names of the classes listed by the class's inner classes and nest members attributes, other than
+	 * the class itself. If an parse error occurred then the set is empty.
+	 */
+	public static Set<String> getInnerClassNames(byte[] code) {
+		Set<String> names = new TreeSet<>();
+		try {
+			ClassReader reader = new ClassReader(code);
+			String self = reader.getClassName();
+			reader.accept(new ClassVisitor(Recaf.ASM_VERSION) {
+				@Override
+				public void visitNestMember(String nestMember) {
+					names.add(nestMember);
+				}
+
+				@Override
+				public void visitInnerClass(String name, String outerName, String innerName, int access) {
+					if (!name.equals(self))
+						names.add(name);
+				}
+			}, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
+		} catch(Exception ex) { /* Bad class file? */ }
+		return names;
+	}
+
+	/**
+	 * @param code
+	 * 		Class bytecode.
+	 *
+	 * @return Name of the class the given class is declared in, or {@code null} for top level classes.
+	 * Local and anonymous classes are declared in the class of their enclosing method.
+	 */
+	public static String getOuterClassName(byte[] code) {
+		String[] outer = new String[2];
+		try {
+			ClassReader reader = new ClassReader(code);
+			String self = reader.getClassName();
+			reader.accept(new ClassVisitor(Recaf.ASM_VERSION) {
+				@Override
+				public void visitOuterClass(String owner, String name, String descriptor) {
+					outer[1] = owner;
+				}
+
+				@Override
+				public void visitInnerClass(String name, String outerName, String innerName, int access) {
+					if (name.equals(self))
+						outer[0] = outerName;
+				}
+			}, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
+		} catch(Exception ex) { /* Bad class file? */ }
+		return outer[0] != null ? outer[0] : outer[1];
+	}
+
 	/**
 	 * @param code
 	 * 		Class bytecode.
@@ -362,13 +420,30 @@ public class ClassUtil {
 	 * @return {@code true} when the class can be read by ASM.
 	 */
 	public static boolean isValidClass(byte[] value) {
-		if (!isClass(value))
-			return false;
+		return getValidClassName(value) != null;
+	}
+
+	/**
+	 * Validate the class can be parsed by ASM. A {@link ClassStructureUtil quick structural check} is
+	 * used first, and the class is only fully parsed when that check is inconclusive.
+	 *
+	 * @param value
+	 * 		Class bytecode.
+	 *
+	 * @return Internal name of the class when the class can be read by ASM, otherwise {@code null}.
+	 */
+	public static String getValidClassName(byte[] value) {
+		if (value == null || !isClass(value))
+			return null;
+		String name = ClassStructureUtil.getValidatedName(value);
+		if (name != null)
+			return name;
 		try {
-			getNode(new ClassReader(value), SKIP_FRAMES);
-			return true;
+			ClassReader reader = new ClassReader(value);
+			getNode(reader, SKIP_FRAMES);
+			return reader.getClassName();
 		} catch(Throwable t) {
-			return false;
+			return null;
 		}
 	}
 
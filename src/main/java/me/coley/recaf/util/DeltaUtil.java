@@ -0,0 +1,133 @@
+package me.coley.recaf.util;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Binary delta utilities. A delta describes how to build some target data out of ranges of a source
+ * <i>(Typically a previous version of the same file)</i> and literal bytes, so that similar versions
+ * can be stored at a fraction of their size.
+ *
+ * @author Matt
+ */
+public class DeltaUtil {
+	private static final int BLOCK = 16;
+
+	/**
+	 * @param source
+	 * 		Data to build the target from.
+	 * @param target
+	 * 		Data to describe.
+	 *
+	 * @return Delta to pass to {@link #patch(byte[], byte[])} along with the source to recreate the target.
+	 */
+	public static byte[] diff(byte[] source, byte[] target) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(16, target.length / 8));
+		writeVarInt(out, target.length);
+		// Index the start of each block of the source by its hash
+		int blocks = source.length / BLOCK;
+		int[] table = new int[Integer.highestOneBit(Math.max(1, blocks) * 2) * 2];
+		int mask = table.length - 1;
+		for (int i = blocks - 1; i >= 0; i--)
+			table[hash(source, i * BLOCK) & mask] = i * BLOCK + 1;
+		int literalStart = 0;
+		int i = 0;
+		while (i + BLOCK <= target.length) {
+			int candidate = table[hash(target, i) & mask] - 1;
+			if (candidate >= 0 && regionEquals(source, candidate, target, i, BLOCK)) {
+				// Extend the match in both directions
+				int start = i;
+				int sourceStart = candidate;
+				while (start > literalStart && sourceStart > 0 && source[sourceStart - 1] == target[start - 1]) {
+					start--;
+					sourceStart--;
+				}
+				int end = i + BLOCK;
+				int sourceEnd = candidate + BLOCK;
+				while (end < target.length && sourceEnd < source.length && source[sourceEnd] == target[end]) {
+					end++;
+					sourceEnd++;
+				}
+				writeLiteral(out, target, literalStart, start);
+				writeVarInt(out, ((end - start) << 1) | 1);
+				writeVarInt(out, sourceStart);
+				i = end;
+				literalStart = end;
+			} else {
+				i++;
+			}
+		}
+		writeLiteral(out, target, literalStart, target.length);
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param source
+	 * 		Data the delta was created from.
+	 * @param delta
+	 * 		Delta created by {@link #diff(byte[], byte[])}.
+	 *
+	 * @return Target data described by the delta.
+	 */
+	public static byte[] patch(byte[] source, byte[] delta) {
+		int[] pos = new int[1];
+		byte[] target = new byte[readVarInt(delta, pos)];
+		int written = 0;
+		while (pos[0] < delta.length) {
+			int op = readVarInt(delta, pos);
+			int length = op >>> 1;
+			if ((op & 1) == 1) {
+				int offset = readVarInt(delta, pos);
+				System.arraycopy(source, offset, target, written, length);
+			} else {
+				System.arraycopy(delta, pos[0], target, written, length);
+				pos[0] += length;
+			}
+			written += length;
+		}
+		if (written != target.length)
+			throw new IllegalStateException("Delta does not match source, expected " +
+					target.length + " bytes but got " + written);
+		return target;
+	}
+
+	private static void writeLiteral(ByteArrayOutputStream out, byte[] data, int start, int end) {
+		if (end <= start)
+			return;
+		writeVarInt(out, (end - start) << 1);
+		out.write(data, start, end - start);
+	}
+
+	private static void writeVarInt(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVarInt(byte[] data, int[] pos) {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = data[pos[0]++];
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static int hash(byte[] data, int offset) {
+		int h = 1;
+		for (int i = offset; i < offset + BLOCK; i++)
+			h = 31 * h + data[i];
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean regionEquals(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+		for (int i = 0; i < length; i++)
+			if (a[aOffset + i] != b[bOffset + i])
+				return false;
+		return true;
+	}
+}
@@ -16,6 +16,7 @@ import java.util.Map;
 public class RegexUtil {
 	private static final Pattern WORD = new Pattern("\\s*(\\S+)\\s*");
 	private static final String[] EMPTY = new String[0];
+	private static final String SINGLE_ESCAPES = "dDwWsSbBAGzZntrfea";
 	private static final Map<String, Pattern> PATTERNS = new HashMap<>();
 
 	/**
@@ -150,6 +151,79 @@ public class RegexUtil {
 		return PATTERNS.computeIfAbsent(regex, Pattern::new);
 	}
 
+	/**
+	 * Determines literal substrings that every match of the regex contains. Checking for these
+	 * with {@link String#indexOf(String)} is much cheaper than running the regex, and rejects most
+	 * text that cannot match.
+	 * <br>
+	 * The analysis is conservative: groups, character classes and escape sequences are skipped, and
+	 * patterns with top-level alternations, inline flags or escapes spanning multiple characters yield
+	 * no literals.
+	 *
+	 * @param regex
+	 * 		Pattern's regex.
+	 *
+	 * @return Literal substrings required by the regex. Empty when none could be determined.
+	 */
+	public static String[] getRequiredLiterals(String regex) {
+		if (regex.contains("(?") || regex.contains("\\Q"))
+			return EMPTY;
+		return new LiteralScanner(regex).scan();
+	}
+
+	/**
+	 * @param regex
+	 * 		Pattern's regex.
+	 * @param start
+	 * 		Index of the opening {@code [}.
+	 *
+	 * @return Index of the closing {@code ]}, or {@code -1} if there is none.
+	 */
+	private static int skipCharacterClass(String regex, int start) {
+		// A closing bracket directly after the opening one is part of the class
+		int first = start + 1;
+		if (first < regex.length() && regex.charAt(first) == '^')
+			first++;
+		int depth = 0;
+		for (int i = start; i < regex.length(); i++) {
+			char c = regex.charAt(i);
+			if (c == '\\')
+				i++;
+			else if (c == '[')
+				depth++;
+			else if (c == ']' && i > first && --depth == 0)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param regex
+	 * 		Pattern's regex.
+	 * @param start
+	 * 		Index of the opening {@code (}.
+	 *
+	 * @return Index of the closing {@code )}, or {@code -1} if there is none.
+	 */
+	private static int skipGroup(String regex, int start) {
+		int depth = 0;
+		for (int i = start; i < regex.length(); i++) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				i++;
+			} else if (c == '[') {
+				i = skipCharacterClass(regex, i);
+				if (i < 0)
+					return -1;
+			} else if (c == '(') {
+				depth++;
+			} else if (c == ')' && --depth == 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
 	/**
 	 * Checks if the entire input matches a pattern.
 	 *
@@ -161,4 +235,124 @@ public class RegexUtil {
 	public static boolean matches(String pattern, String input) {
 		return pattern(pattern).matches(input);
 	}
+
+	/**
+	 * Collects the runs of literal characters of a regex, see {@link #getRequiredLiterals(String)}.
+	 */
+	private static final class LiteralScanner {
+		private final List<String> literals = new ArrayList<>();
+		private final StringBuilder run = new StringBuilder();
+		private final String regex;
+		private boolean lastLiteral;
+		private int index;
+
+		private LiteralScanner(String regex) {
+			this.regex = regex;
+		}
+
+		/**
+		 * @return Literal substrings required by the regex. Empty when none could be determined.
+		 */
+		private String[] scan() {
+			for (index = 0; index < regex.length(); index++)
+				if (!next(regex.charAt(index)))
+					return EMPTY;
+			endRun();
+			return literals.toArray(EMPTY);
+		}
+
+		/**
+		 * @param c
+		 * 		Character at the current index.
+		 *
+		 * @return {@code false} when the regex has no literals that can be determined.
+		 */
+		private boolean next(char c) {
+			switch(c) {
+				case '\\':
+					return escape();
+				case '[':
+					return skipTo(skipCharacterClass(regex, index));
+				case '(':
+					return skipTo(skipGroup(regex, index));
+				case '?':
+				case '*':
+					// The previous character is optional
+					dropOptional();
+					return skipTo(index);
+				case '{':
+					dropOptional();
+					return skipTo(regex.indexOf('}', index));
+				case '+':
+				case '.':
+				case '^':
+				case '$':
+					return skipTo(index);
+				case '|':
+				case ')':
+					return false;
+				default:
+					literal(c);
+					return true;
+			}
+		}
+
+		/**
+		 * @return {@code false} when the escape at the current index is not understood.
+		 */
+		private boolean escape() {
+			if (index + 1 >= regex.length())
+				return false;
+			char next = regex.charAt(++index);
+			// Named back-reference
+			if (next == '{')
+				return false;
+			if (!Character.isLetterOrDigit(next)) {
+				literal(next);
+				return true;
+			}
+			if (next >= '1' && next <= '9') {
+				// Back-reference, which may have multiple digits
+				while (index + 1 < regex.length() && Character.isDigit(regex.charAt(index + 1)))
+					index++;
+				return skipTo(index);
+			}
+			// Escapes of a single character, character class or boundary. Other escapes, such as hex,
+			// unicode, octal and control characters, span more than one character and are not decoded.
+			return SINGLE_ESCAPES.indexOf(next) >= 0 && skipTo(index);
+		}
+
+		/**
+		 * Ends the current run of literals after skipping over a non-literal part of the regex.
+		 *
+		 * @param end
+		 * 		Index of the last character of the non-literal part.
+		 *
+		 * @return {@code false} when the part does not end within the regex.
+		 */
+		private boolean skipTo(int end) {
+			if (end < 0 || end >= regex.length())
+				return false;
+			index = end;
+			endRun();
+			return true;
+		}
+
+		private void literal(char c) {
+			run.append(c);
+			lastLiteral = true;
+		}
+
+		private void dropOptional() {
+			if (lastLiteral)
+				run.setLength(run.length() - 1);
+		}
+
+		private void endRun() {
+			if (run.length() > 0)
+				literals.add(run.toString());
+			run.setLength(0);
+			lastLiteral = false;
+		}
+	}
 }
@@ -27,6 +27,13 @@ public class ListeningMap<K, V> implements Map<K, V> {
 		this.backing = backing;
 	}
 
+	/**
+	 * @return The map containing the actual data. Changes made to it directly are not passed to listeners.
+	 */
+	public Map<K, V> getBacking() {
+		return backing;
+	}
+
 	/**
 	 * @return {@code true} when the backing map is not null.
 	 */
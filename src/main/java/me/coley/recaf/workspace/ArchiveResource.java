@@ -1,14 +1,40 @@
 package me.coley.recaf.workspace;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+
+import static me.coley.recaf.util.Log.*;
 
 /**
  * Importable archive base.
+ * <br>
+ * Archives are read in a single pass that populates both the classes and files of the
+ * {@link #getEntryLoader() entry loader}. Entry contents are read on a pool of worker threads.
+ * <br>
+ * Zip based archives can optionally use {@link #setMappedStorage(boolean) mapped storage}, where unmodified
+ * classes are not kept in memory but are read again from a memory-mapped view of the archive when requested.
  *
  * @author Matt
  */
 public abstract class ArchiveResource extends FileSystemResource {
+	/**
+	 * Archives with fewer entries than this are read on the calling thread.
+	 */
+	private static final int MIN_ENTRIES_PER_THREAD = 64;
+	private boolean pendingClasses;
+	private boolean pendingFiles;
+	private boolean mappedStorage;
+	private MappedArchive mappedArchive;
+	private Map<byte[], MappedArchive.Entry> mappedEntries;
+	private MappedClassMap mappedClasses;
+
 	/**
 	 * Constructs an archive file resource.
 	 *
@@ -23,4 +49,305 @@ public abstract class ArchiveResource extends FileSystemResource {
 	public ArchiveResource(ResourceKind kind, Path path) throws IOException {
 		super(kind, path);
 	}
+
+	@Override
+	protected Map<String, byte[]> loadClasses() throws IOException {
+		EntryLoader loader = getEntryLoader();
+		synchronized(this) {
+			// Files are read in the same pass, so the next file request can skip reading the archive
+			if (!pendingClasses) {
+				loadArchive(loader);
+				pendingFiles = true;
+			}
+			pendingClasses = false;
+			if (mappedClasses != null)
+				return mappedClasses;
+		}
+		return loader.getClasses();
+	}
+
+	@Override
+	protected Map<String, byte[]> loadFiles() throws IOException {
+		EntryLoader loader = getEntryLoader();
+		synchronized(this) {
+			// Classes are read in the same pass, so the next class request can skip reading the archive
+			if (!pendingFiles) {
+				loadArchive(loader);
+				pendingClasses = true;
+			}
+			pendingFiles = false;
+		}
+		return loader.getFiles();
+	}
+
+	/**
+	 * Read all classes and files of the archive.
+	 *
+	 * @param loader
+	 * 		Loader to feed classes and files to.
+	 *
+	 * @throws IOException
+	 * 		When the archive could not be read.
+	 */
+	private void loadArchive(EntryLoader loader) throws IOException {
+		mappedClasses = null;
+		if (mappedStorage) {
+			try {
+				mappedArchive = MappedArchive.open(getPath());
+				mappedEntries = new IdentityHashMap<>();
+			} catch(IOException ex) {
+				warn("Cannot use mapped storage for \"{}\", classes will be kept in memory: {}",
+						getPath().getFileName(), ex.getMessage());
+			}
+		}
+		try {
+			readArchive(loader);
+			loader.finishClasses();
+			loader.finishFiles();
+			if (mappedArchive != null)
+				mappedClasses = createMappedClasses(loader.getClasses());
+		} finally {
+			mappedArchive = null;
+			mappedEntries = null;
+		}
+	}
+
+	/**
+	 * @param classes
+	 * 		Classes read by the entry loader. Cleared once the mapped map is created so that the loader
+	 * 		does not keep the content in memory.
+	 *
+	 * @return Map of the classes where those that were not changed by the loader are referenced by their
+	 * location in the archive.
+	 */
+	private MappedClassMap createMappedClasses(Map<String, byte[]> classes) {
+		MappedClassMap map = new MappedClassMap(mappedArchive);
+		for (Map.Entry<String, byte[]> e : classes.entrySet()) {
+			// Classes modified by load interceptors or patched by the loader are kept as-is
+			MappedArchive.Entry entry = mappedEntries.get(e.getValue());
+			if (entry != null)
+				map.putReference(e.getKey(), entry);
+			else
+				map.put(e.getKey(), e.getValue());
+		}
+		classes.clear();
+		return map;
+	}
+
+	/**
+	 * Read the entries of the archive, passing classes to {@link #addClass(EntryLoader, String, byte[], int)}
+	 * and files to {@link #addFile(EntryLoader, String, byte[], int)}.
+	 *
+	 * @param loader
+	 * 		Loader to feed classes and files to.
+	 *
+	 * @throws IOException
+	 * 		When the archive could not be read.
+	 */
+	protected abstract void readArchive(EntryLoader loader) throws IOException;
+
+	/**
+	 * Read the given entries, splitting the work across multiple threads when there are enough entries
+	 * and the loader {@link EntryLoader#isConcurrent() supports it}. Otherwise the entries are read in order.
+	 *
+	 * @param loader
+	 * 		Loader the entries are fed to.
+	 * @param entries
+	 * 		Entries to read.
+	 * @param reader
+	 * 		Entry reading action.
+	 * @param <T>
+	 * 		Entry type.
+	 *
+	 * @throws IOException
+	 * 		When any of the entries could not be read.
+	 */
+	protected <T> void readEntries(EntryLoader loader, List<T> entries, EntryReader<T> reader)
+			throws IOException {
+		// Loaders that are not concurrent keep the first of same-named classes in the order they are given
+		int threads = !loader.isConcurrent() ? 1 : Math.min(Runtime.getRuntime().availableProcessors(),
+				entries.size() / MIN_ENTRIES_PER_THREAD);
+		AtomicInteger cursor = new AtomicInteger();
+		Callable<Void> worker = () -> {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int index;
+			while ((index = cursor.getAndIncrement()) < entries.size()) {
+				out.reset();
+				reader.read(entries.get(index), index, out, buffer);
+			}
+			return null;
+		};
+		if (threads <= 1) {
+			try {
+				worker.call();
+			} catch(IOException | RuntimeException ex) {
+				throw ex;
+			} catch(Exception ex) {
+				throw new IOException(ex);
+			}
+			return;
+		}
+		ExecutorService service = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+				.setNameFormat("Recaf Archive Loader #%d")
+				.setDaemon(true).build());
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++)
+				futures.add(service.submit(worker));
+			for (Future<Void> future : futures)
+				future.get();
+		} catch(ExecutionException ex) {
+			// Stop the other workers from reading any further
+			cursor.set(entries.size());
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			throw new IOException("Failed to read archive \"" + getPath() + "\"", cause);
+		} catch(InterruptedException ex) {
+			cursor.set(entries.size());
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted reading archive \"" + getPath() + "\"", ex);
+		} finally {
+			service.shutdownNow();
+		}
+	}
+
+	/**
+	 * Pass a class to the loader. Loaders that do not support concurrent loading are accessed one
+	 * thread at a time.
+	 *
+	 * @param loader
+	 * 		Loader to feed the class to.
+	 * @param entryName
+	 * 		Class's archive entry name.
+	 * @param value
+	 * 		Class's bytecode.
+	 * @param order
+	 * 		Index of the entry in the archive.
+	 */
+	protected void addClass(EntryLoader loader, String entryName, byte[] value, int order) {
+		if (loader.isConcurrent()) {
+			loader.onClass(entryName, value, order);
+		} else {
+			synchronized(loader) {
+				loader.onClass(entryName, value);
+			}
+		}
+	}
+
+	/**
+	 * Pass a class read from a zip archive to the loader.
+	 * When {@link #isMappedStorage() mapped storage} is used the class's location in the archive is recorded.
+	 *
+	 * @param loader
+	 * 		Loader to feed the class to.
+	 * @param entry
+	 * 		Class's archive entry.
+	 * @param name
+	 * 		Class's entry name, as passed to the loader.
+	 * @param value
+	 * 		Class's bytecode.
+	 * @param order
+	 * 		Index of the entry in the archive.
+	 */
+	protected void addClass(EntryLoader loader, ZipEntry entry, String name, byte[] value, int order) {
+		if (mappedArchive != null) {
+			MappedArchive.Entry mapped = mappedArchive.getEntry(entry);
+			if (mapped != null) {
+				synchronized(mappedEntries) {
+					mappedEntries.put(value, mapped);
+				}
+			}
+		}
+		addClass(loader, name, value, order);
+	}
+
+	/**
+	 * Pass a file to the loader. Loaders that do not support concurrent loading are accessed one
+	 * thread at a time.
+	 *
+	 * @param loader
+	 * 		Loader to feed the file to.
+	 * @param entryName
+	 * 		File's archive entry name.
+	 * @param value
+	 * 		File's raw value.
+	 * @param order
+	 * 		Index of the entry in the archive.
+	 */
+	protected void addFile(EntryLoader loader, String entryName, byte[] value, int order) {
+		if (loader.isConcurrent()) {
+			loader.onFile(entryName, value, order);
+		} else {
+			synchronized(loader) {
+				loader.onFile(entryName, value);
+			}
+		}
+	}
+
+	/**
+	 * Also unmaps the archive when {@link #isMappedStorage() mapped storage} is used.
+	 * Classes are read again from the archive when next requested.
+	 */
+	@Override
+	public void close() {
+		MappedClassMap classes;
+		synchronized(this) {
+			classes = mappedClasses;
+			mappedClasses = null;
+			pendingClasses = false;
+			pendingFiles = false;
+		}
+		if (classes == null) {
+			super.close();
+			return;
+		}
+		invalidate();
+		classes.getArchive().close();
+	}
+
+	/**
+	 * @return {@code true} when unmodified classes are read from a memory-mapped view of the archive
+	 * instead of being kept in memory.
+	 */
+	public boolean isMappedStorage() {
+		return mappedStorage;
+	}
+
+	/**
+	 * Mapped storage reduces memory usage for large archives, at the cost of inflating classes each time
+	 * they are requested. Changes only apply the next time the classes are loaded.
+	 * <br>
+	 * Only applies to zip based archives. The archive must not be modified while the resource is in use.
+	 *
+	 * @param mappedStorage
+	 * 		{@code true} to read unmodified classes from a memory-mapped view of the archive.
+	 */
+	public void setMappedStorage(boolean mappedStorage) {
+		this.mappedStorage = mappedStorage;
+	}
+
+	/**
+	 * Action for reading a single archive entry.
+	 *
+	 * @param <T>
+	 * 		Entry type.
+	 */
+	protected interface EntryReader<T> {
+		/**
+		 * @param entry
+		 * 		Entry to read.
+		 * @param order
+		 * 		Index of the entry.
+		 * @param out
+		 * 		Reusable output stream, reset before each entry.
+		 * @param buffer
+		 * 		Reusable read buffer.
+		 *
+		 * @throws IOException
+		 * 		When the entry could not be read.
+		 */
+		void read(T entry, int order, ByteArrayOutputStream out, byte[] buffer) throws IOException;
+	}
 }
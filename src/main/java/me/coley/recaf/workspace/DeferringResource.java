@@ -139,6 +139,16 @@ public class DeferringResource extends JavaResource {
 		return backing.setClassDocs(path);
 	}
 
+	@Override
+	public boolean isDeferAttachmentParsing() {
+		return backing.isDeferAttachmentParsing();
+	}
+
+	@Override
+	public void setDeferAttachmentParsing(boolean deferAttachmentParsing) {
+		backing.setDeferAttachmentParsing(deferAttachmentParsing);
+	}
+
 	@Override
 	public void invalidate() {
 		backing.invalidate();
@@ -2,14 +2,13 @@ package me.coley.recaf.workspace;
 
 import me.coley.recaf.util.IOUtil;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -35,57 +34,27 @@ public class DirectoryResource extends ArchiveResource {
 	}
 
 	@Override
-	protected Map<String, byte[]> loadClasses() throws IOException {
-		// iterate jar entries
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		byte[] buffer = new byte[8192];
-		EntryLoader loader = getEntryLoader();
+	protected void readArchive(EntryLoader loader) throws IOException {
 		Path root = getPath();
-		List<Path> classFilePaths = Files.walk(root)
+		List<Path> filePaths = Files.walk(root)
 				.filter(Files::isRegularFile)
 				.collect(Collectors.toList());
 		String absolutePath = IOUtil.toString(root);
-		for (Path path : classFilePaths) {
+		readEntries(loader, filePaths, (path, order, out, buffer) -> {
 			File file = path.toFile();
 			String relative = file.getAbsolutePath().substring(absolutePath.length() + 1)
 					.replace(SEPARATOR, "/");
 			if (shouldSkip(relative))
-				continue;
-			if(!loader.isFileValidClassName(relative))
-				continue;
-			out.reset();
-			byte[] in = IOUtil.toByteArray(new FileInputStream(file), out, buffer);
-			loader.onClass(relative, in);
-		}
-		loader.finishClasses();
-		return loader.getClasses();
-	}
-
-	@Override
-	protected Map<String, byte[]> loadFiles() throws IOException {
-		// iterate jar entries
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		byte[] buffer = new byte[8192];
-		EntryLoader loader = getEntryLoader();
-		Path root = getPath();
-		List<Path> classFilePaths = Files.walk(root)
-				.filter(Files::isRegularFile)
-				.collect(Collectors.toList());
-		String absolutePath = IOUtil.toString(root);
-		for (Path path : classFilePaths) {
-			File file = path.toFile();
-			String relative = file.getAbsolutePath().substring(absolutePath.length() + 1)
-					.replace(SEPARATOR, "/");
-			if (shouldSkip(relative))
-				continue;
-			if(loader.isFileValidClassName(relative))
-				continue;
-			out.reset();
-			byte[] in = IOUtil.toByteArray(new FileInputStream(file), out, buffer);
-			loader.onFile(relative, in);
-		}
-		loader.finishFiles();
-		return loader.getFiles();
+				return;
+			byte[] in;
+			try (InputStream stream = new FileInputStream(file)) {
+				in = IOUtil.toByteArray(stream, out, buffer);
+			}
+			if (loader.isFileValidClassName(relative))
+				addClass(loader, relative, in, order);
+			else
+				addFile(loader, relative, in, order);
+		});
 	}
 
 	@Override
@@ -8,22 +8,34 @@ import me.coley.recaf.util.Log;
 import org.objectweb.asm.ClassReader;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipEntry;
 
 import static me.coley.recaf.util.Log.*;
 
 /**
  * Standard archive content loader.
+ * <br>
+ * The default implementation can be fed classes and files from multiple threads at once.
+ * See {@link #isConcurrent()} for details. Entries are then given with their index in the archive, so
+ * the same entries are kept regardless of the order they are fed in.
  *
  * @author Matt
  */
 public class EntryLoader {
-	private final Map<String, byte[]> classes = new HashMap<>();
-	private final Map<String, byte[]> files = new HashMap<>();
-	private final Map<String, byte[]> invalidClasses = new HashMap<>();
+	/**
+	 * Order of entries given without an index, which come after all indexed entries.
+	 */
+	private static final int UNORDERED = Integer.MAX_VALUE;
+	private final Map<String, byte[]> classes = new ConcurrentHashMap<>();
+	private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+	private final Map<String, byte[]> invalidClasses = new ConcurrentHashMap<>();
+	private final Map<String, Integer> classOrder = new ConcurrentHashMap<>();
+	private final Map<String, Integer> fileOrder = new ConcurrentHashMap<>();
+	private final Map<String, Integer> invalidClassOrder = new ConcurrentHashMap<>();
+	private ResourceIndex index;
 
 	/**
 	 * @return New archive entry loader instance.
@@ -50,26 +62,47 @@ public class EntryLoader {
 	 * @return Addition was a success.
 	 */
 	public boolean onClass(String entryName, byte[] value) {
+		return onClass(entryName, value, UNORDERED);
+	}
+
+	/**
+	 * Load a class from the input. Of classes with the same name the one with the lowest order is kept,
+	 * as is the first one given when the order is the same.
+	 *
+	 * @param entryName
+	 * 		Class's archive entry name.
+	 * @param value
+	 * 		Class's bytecode.
+	 * @param order
+	 * 		Index of the entry in the archive.
+	 *
+	 * @return Addition was a success.
+	 */
+	public boolean onClass(String entryName, byte[] value, int order) {
+		// Entries that were validated in a previous session do not need to be checked again
+		boolean indexed = index != null && index.isValidEntry(entryName, value);
 		// Check if class is valid. If it is not it will be stored for later.
-		if (!ClassUtil.isValidClass(value)) {
-			if (invalidClasses.containsKey(entryName)) {
-				debug("Skipping duplicate invalid class '{}'", entryName);
-				return false;
-			} else {
+		// Validation yields the class name, so the class does not need to be read again for it.
+		String clsName = indexed ? new ClassReader(value).getClassName() : ClassUtil.getValidClassName(value);
+		if (clsName == null) {
+			if (putOrdered(invalidClasses, invalidClassOrder, entryName, order, true,
+					() -> invalidClasses.put(entryName, value))) {
 				debug("Invalid class detected \"{}\"", entryName);
+			} else {
+				debug("Skipping duplicate invalid class '{}'", entryName);
 			}
-			invalidClasses.put(entryName, value);
 			return false;
 		}
+		if (!indexed && index != null)
+			index.addValidEntry(entryName, value);
 		// Check if we've already seen this class
-		String clsName = new ClassReader(value).getClassName();
-		if (classes.containsKey(clsName)) {
+		Integer existing = classOrder.get(clsName);
+		if (existing != null && existing <= order && classes.containsKey(clsName)) {
 			debug("Skipping duplicate class '{}'", clsName);
 			return false;
 		}
 		// Load the class
-		handleAddClass(entryName, value);
-		return true;
+		return handleAddClass(entryName, clsName, value, order);
 	}
 
 	/**
@@ -77,13 +110,16 @@ public class EntryLoader {
 	 *
 	 * @param entryName
 	 * 		Class's archive entry name.
+	 * @param name
+	 * 		Class's internal name.
 	 * @param value
 	 * 		Class's bytecode.
+	 * @param order
+	 * 		Index of the entry in the archive.
 	 *
 	 * @return Addition was a success.
 	 */
-	private boolean handleAddClass(String entryName, byte[] value) {
-		String name = new ClassReader(value).getClassName();
+	private boolean handleAddClass(String entryName, String name, byte[] value, int order) {
 		for(LoadInterceptorPlugin interceptor :
 				PluginsManager.getInstance().ofType(LoadInterceptorPlugin.class)) {
 			// Intercept class
@@ -92,19 +128,65 @@ public class EntryLoader {
 			} catch(Throwable t) {
 				Log.error(t, "Plugin '{}' threw exception when reading the class '{}'", interceptor.getName(), name);
 			}
-			// Make sure the class interception doesn't break the class
-			if (!ClassUtil.isValidClass(value)) {
+			// Make sure the class interception doesn't break the class, and update the name
+			String interceptedName = ClassUtil.getValidClassName(value);
+			if (interceptedName == null) {
 				warn("Invalid class '{}' due to modifications by plugin '{}'\nAdding as a file instead.", entryName);
-				onFile(entryName, value);
+				onFile(entryName, value, order);
 				return false;
 			}
-			// Update name
-			name = new ClassReader(value).getClassName();
+			name = interceptedName;
+		}
+		// Another thread may have loaded a class of the same name since the duplicate check.
+		// The index is updated while the name is locked, so that it describes the kept class.
+		String className = name;
+		byte[] code = value;
+		if (!putOrdered(classes, classOrder, className, order, true, () -> {
+			classes.put(className, code);
+			if (index != null && !index.isLoaded())
+				index.addClass(new ClassReader(code));
+		})) {
+			debug("Skipping duplicate class '{}'", name);
+			return false;
 		}
-		classes.put(name, value);
 		return true;
 	}
 
+	/**
+	 * Put a value unless the key has a value of a preceding entry. Values of the same key are put one
+	 * at a time, so the kept value does not depend on the order of the calls.
+	 * <br>
+	 * Orders of keys that are no longer in the map, such as after the loaded classes were cleared to read
+	 * the archive again, are ignored.
+	 *
+	 * @param map
+	 * 		Map the value is put in.
+	 * @param orders
+	 * 		Order of the entries of the values put so far.
+	 * @param key
+	 * 		Key of the value.
+	 * @param order
+	 * 		Index of the entry of the value.
+	 * @param keepFirst
+	 * 		{@code true} to keep the value of the lowest order, {@code false} to keep that of the highest.
+	 * @param put
+	 * 		Action putting the value.
+	 *
+	 * @return {@code true} if the value was put.
+	 */
+	private static boolean putOrdered(Map<String, byte[]> map, Map<String, Integer> orders, String key, int order,
+									  boolean keepFirst, Runnable put) {
+		boolean[] added = {false};
+		orders.compute(key, (k, existing) -> {
+			if (existing != null && map.containsKey(k) && (keepFirst ? existing <= order : existing > order))
+				return existing;
+			put.run();
+			added[0] = true;
+			return order;
+		});
+		return added[0];
+	}
+
 	/**
 	 * Load a file.
 	 *
@@ -116,13 +198,50 @@ public class EntryLoader {
 	 * @return Addition was a success.
 	 */
 	public boolean onFile(String entryName, byte[] value) {
+		return onFile(entryName, value, UNORDERED);
+	}
+
+	/**
+	 * Load a file. Of files with the same name the one with the highest order is kept,
+	 * as is the last one given when the order is the same.
+	 *
+	 * @param entryName
+	 * 		File's archive entry name.
+	 * @param value
+	 * 		File's raw value.
+	 * @param order
+	 * 		Index of the entry in the archive.
+	 *
+	 * @return Addition was a success.
+	 */
+	public boolean onFile(String entryName, byte[] value, int order) {
 		for (LoadInterceptorPlugin interceptor : PluginsManager.getInstance().ofType(LoadInterceptorPlugin.class)) {
 			value = interceptor.interceptFile(entryName, value);
 		}
-		files.put(entryName, value);
+		if (value == null) {
+			debug("Skipping file with no content '{}'", entryName);
+			return false;
+		}
+		byte[] content = value;
+		putOrdered(files, fileOrder, entryName, order, false, () -> files.put(entryName, content));
 		return true;
 	}
 
+	/**
+	 * Archive resources read entries on multiple threads. When this returns {@code true} the
+	 * {@link #onClass(String, byte[])} and {@link #onFile(String, byte[])} calls are made from those
+	 * threads directly, otherwise they are made one at a time.
+	 * <br>
+	 * Loader implementations provided by plugins and {@link LoadInterceptorPlugin interceptors} are not
+	 * assumed to be thread safe. Sub-classes that are should override this.
+	 *
+	 * @return {@code true} if the loader can be fed entries from multiple threads at once.
+	 */
+	public boolean isConcurrent() {
+		return getClass() == EntryLoader.class &&
+				PluginsManager.getInstance().ofType(LoadInterceptorPlugin.class).isEmpty();
+	}
+
 	/**
 	 * @param entry
 	 * 		Zip entry in the archive.
@@ -192,9 +311,11 @@ public class EntryLoader {
 					}
 				}
 				// Check if class is valid
-				if (ClassUtil.isValidClass(value)) {
+				String name = ClassUtil.getValidClassName(value);
+				if (name != null) {
 					debug("Illegal class patching success!");
-					handleAddClass(entryName, value);
+					// Classes that were valid as read are kept over patched classes of the same name
+					handleAddClass(entryName, name, value, UNORDERED);
 				} else {
 					warn("Invalid class \"{}\" - Cannot be parsed with ASM reader\n" +
 							"Adding as a file instead.", entryName);
@@ -211,6 +332,29 @@ public class EntryLoader {
 	 */
 	public void finishFiles() {}
 
+	/**
+	 * @return Index of the resource being loaded, or {@code null} if there is none.
+	 */
+	public ResourceIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Set the index of the resource being loaded. Valid class entries and class information are
+	 * recorded into it, and entries it already knows to be valid are not validated again.
+	 * <br>
+	 * The index is not used when {@link LoadInterceptorPlugin interceptors} are active, since they may
+	 * change what is loaded between sessions.
+	 *
+	 * @param index
+	 * 		Index of the resource being loaded.
+	 */
+	public void setIndex(ResourceIndex index) {
+		if (index != null && !PluginsManager.getInstance().ofType(LoadInterceptorPlugin.class).isEmpty())
+			index = null;
+		this.index = index;
+	}
+
 	/**
 	 * @return Loaded classes.
 	 */
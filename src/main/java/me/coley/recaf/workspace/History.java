@@ -1,24 +1,42 @@
 package me.coley.recaf.workspace;
 
+import me.coley.recaf.util.DeltaUtil;
 import me.coley.recaf.util.struct.ListeningMap;
 
 import java.time.Instant;
-import java.util.Stack;
+import java.util.*;
+import java.util.function.Supplier;
 
 import static me.coley.recaf.util.Log.*;
 
 /**
  * History manager for files.
+ * <br>
+ * The initial state is kept by reference and the most recent state is kept in full, since both are
+ * usually shared with the file map. States in between are stored as deltas against the state saved
+ * after them, in a {@link HistoryStore} that may move them to disk.
  *
  * @author Matt
  */
 public class History {
-	// TODO: For large inputs it would make sense to offload this to the file system.
-	//  - But only for large inputs. In-memory is much faster and should be the default.
 	/**
-	 * Stack of changed content.
+	 * Storage of the deltas.
 	 */
-	private final Stack<byte[]> stack = new Stack<>();
+	private final HistoryStore store;
+	/**
+	 * Initial content. Content is supplied so that states such as the initial state of
+	 * {@link MappedClassMap mapped classes} do not need to be kept in memory.
+	 */
+	private Supplier<byte[]> initial;
+	/**
+	 * Content of the most recent state, if it is not the initial state.
+	 */
+	private byte[] latest;
+	/**
+	 * Stack of deltas of the states between the initial and latest states.
+	 * Each delta is against the state above it.
+	 */
+	private final Stack<HistoryStore.Delta> deltas = new Stack<>();
 	/**
 	 * Stack of when the content was changed.
 	 */
@@ -37,7 +55,7 @@ public class History {
 	private boolean atInitial = true;
 
 	/**
-	 * Constructs a history for an item of the given name in the given map.
+	 * Constructs a history for an item of the given name in the given map, with its own delta storage.
 	 *
 	 * @param map
 	 * 		Map containing the item.
@@ -45,15 +63,30 @@ public class History {
 	 * 		Item's key.
 	 */
 	public History(ListeningMap<String, byte[]> map, String name) {
+		this(map, name, new HistoryStore());
+	}
+
+	/**
+	 * Constructs a history for an item of the given name in the given map.
+	 *
+	 * @param map
+	 * 		Map containing the item.
+	 * @param name
+	 * 		Item's key.
+	 * @param store
+	 * 		Storage of the deltas, shared with the histories of the other items in the map.
+	 */
+	public History(ListeningMap<String, byte[]> map, String name, HistoryStore store) {
 		this.map = map;
 		this.name = name;
+		this.store = store;
 	}
 
 	/**
 	 * @return Size of history for the current file.
 	 */
 	public int size() {
-		return stack.size();
+		return times.size();
 	}
 
 	/**
@@ -67,8 +100,11 @@ public class History {
 	 * Wipe all items from the history.
 	 */
 	public void clear() {
-		stack.clear();
+		deltas.forEach(store::release);
+		deltas.clear();
 		times.clear();
+		initial = null;
+		latest = null;
 	}
 
 	/**
@@ -94,18 +130,29 @@ public class History {
 	 */
 	public byte[] pop() {
 		Instant time = times.pop();
-		byte[] content = stack.pop();
+		byte[] content;
+		if (latest != null) {
+			content = latest;
+			if (deltas.isEmpty()) {
+				latest = null;
+			} else {
+				HistoryStore.Delta delta = deltas.pop();
+				latest = DeltaUtil.patch(content, store.read(delta));
+				store.release(delta);
+			}
+		} else {
+			content = initial.get();
+		}
 		if (content != null) {
 			map.put(name, content);
 			// If the size is now 0, we just pop'd the initial state.
 			// Since we ALWAYS want to keep the initial state we will push it back.
 			if (size() == 0) {
 				times.push(time);
-				stack.push(content);
 				atInitial = true;
 				info("Reverted '{}' - initial state", name);
 			} else {
-				info("Reverted '{}' - {} total", name, stack.size());
+				info("Reverted '{}' - {} total", name, size());
 			}
 		} else {
 			throw new IllegalStateException("No history to revert to!");
@@ -117,7 +164,9 @@ public class History {
 	 * @return Most recent version of the tracked file.
 	 */
 	public byte[] peek() {
-		return stack.peek();
+		if (times.isEmpty())
+			throw new EmptyStackException();
+		return latest != null ? latest : initial.get();
 	}
 
 	/**
@@ -128,12 +177,30 @@ public class History {
 	 * 		Changed value.
 	 */
 	public void push(byte[] modified) {
-		stack.push(modified);
+		push(() -> modified);
+	}
+
+	/**
+	 * Updates current value, pushing the latest value into the history
+	 * stack.
+	 *
+	 * @param modified
+	 * 		Supplier of the changed value.
+	 */
+	public void push(Supplier<byte[]> modified) {
+		if (times.isEmpty()) {
+			initial = modified;
+		} else {
+			byte[] content = modified.get();
+			if (latest != null)
+				deltas.push(store.add(DeltaUtil.diff(content, latest)));
+			latest = content;
+		}
 		times.push(Instant.now());
 		// Don't log the initial push
-		if(stack.size() > 1) {
-			info("Saved '{}' - {} total", name, stack.size());
+		if(size() > 1) {
+			info("Saved '{}' - {} total", name, size());
 			atInitial = false;
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,216 @@
+package me.coley.recaf.workspace;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static me.coley.recaf.util.Log.*;
+
+/**
+ * Storage of the deltas of a group of {@link History histories}, such as those of a resource.
+ * <br>
+ * Once the deltas exceed the {@link #setMemoryBudget(long) memory budget} the oldest are moved to a temporary
+ * file. Space of released deltas in the file is reclaimed once it exceeds the space of the deltas still in
+ * use, and the file is deleted once none of its deltas are in use.
+ *
+ * @author Matt
+ */
+public class HistoryStore {
+	private static final long DEFAULT_MEMORY_BUDGET = 32L * 1024 * 1024;
+	/**
+	 * Deltas held in memory, oldest first.
+	 */
+	private final Set<Delta> inMemory = new LinkedHashSet<>();
+	/**
+	 * Deltas held on disk, in order of their offset.
+	 */
+	private final Set<Delta> onDisk = new LinkedHashSet<>();
+	private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+	private long memoryUsed;
+	private long diskUsed;
+	private long diskEnd;
+	private Path directory;
+	private Path spillPath;
+	private RandomAccessFile spillFile;
+	private boolean spillFailed;
+
+	/**
+	 * @param budget
+	 * 		Number of bytes of deltas to keep in memory. Older deltas are moved to disk.
+	 */
+	public synchronized void setMemoryBudget(long budget) {
+		memoryBudget = budget;
+		spill();
+	}
+
+	/**
+	 * @param directory
+	 * 		Directory to create the temporary file in, or {@code null} for the system's temporary directory.
+	 * 		Only applies to files created afterwards.
+	 */
+	public synchronized void setSpillDirectory(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return Temporary file holding deltas, or {@code null} if no deltas are on disk.
+	 */
+	public synchronized Path getSpillFile() {
+		return spillPath;
+	}
+
+	/**
+	 * @param data
+	 * 		Delta content.
+	 *
+	 * @return Stored delta.
+	 */
+	synchronized Delta add(byte[] data) {
+		Delta delta = new Delta();
+		delta.data = data;
+		inMemory.add(delta);
+		memoryUsed += data.length;
+		spill();
+		return delta;
+	}
+
+	/**
+	 * @param delta
+	 * 		Stored delta.
+	 *
+	 * @return Delta content.
+	 */
+	synchronized byte[] read(Delta delta) {
+		if (delta.data != null)
+			return delta.data;
+		if (!onDisk.contains(delta))
+			throw new IllegalStateException("History has been discarded");
+		byte[] data = new byte[delta.length];
+		try {
+			spillFile.seek(delta.offset);
+			spillFile.readFully(data);
+		} catch(IOException ex) {
+			throw new IllegalStateException("Failed to read history from disk", ex);
+		}
+		return data;
+	}
+
+	/**
+	 * Drop the delta.
+	 *
+	 * @param delta
+	 * 		Stored delta.
+	 */
+	synchronized void release(Delta delta) {
+		if (delta.data != null && inMemory.remove(delta)) {
+			memoryUsed -= delta.data.length;
+		} else if (onDisk.remove(delta)) {
+			diskUsed -= delta.length;
+			if (onDisk.isEmpty())
+				closeSpillFile();
+			else if (diskEnd - diskUsed > diskUsed)
+				compact();
+		}
+		delta.data = null;
+	}
+
+	/**
+	 * Move the oldest deltas to disk until the memory budget is met.
+	 */
+	private void spill() {
+		while (memoryUsed > memoryBudget && !spillFailed) {
+			Iterator<Delta> it = inMemory.iterator();
+			if (!it.hasNext())
+				break;
+			Delta delta = it.next();
+			try {
+				if (spillFile == null)
+					openSpillFile();
+				spillFile.seek(diskEnd);
+				spillFile.write(delta.data);
+			} catch(IOException ex) {
+				// Keep everything in memory instead
+				warn("Failed to move history to disk: {}", ex.getMessage());
+				spillFailed = true;
+				break;
+			}
+			it.remove();
+			delta.offset = diskEnd;
+			delta.length = delta.data.length;
+			memoryUsed -= delta.length;
+			diskUsed += delta.length;
+			diskEnd += delta.length;
+			delta.data = null;
+			onDisk.add(delta);
+		}
+	}
+
+	/**
+	 * Move the deltas on disk over the space of released deltas, then drop the freed space at the end.
+	 * This is only done once the released space exceeds the used space, so the cost of moving is at most
+	 * the size of the deltas released since the last compaction.
+	 */
+	private void compact() {
+		long position = 0;
+		try {
+			for (Delta delta : onDisk) {
+				if (delta.offset != position) {
+					byte[] data = new byte[delta.length];
+					spillFile.seek(delta.offset);
+					spillFile.readFully(data);
+					// Deltas are in order of their offset, so this only overwrites released space
+					spillFile.seek(position);
+					spillFile.write(data);
+					delta.offset = position;
+				}
+				position += delta.length;
+			}
+			spillFile.setLength(position);
+			diskEnd = position;
+		} catch(IOException ex) {
+			// Deltas that were moved have their new offset, the others are untouched
+			warn("Failed to compact history file: {}", ex.getMessage());
+		}
+	}
+
+	private void openSpillFile() throws IOException {
+		spillPath = directory == null ? Files.createTempFile("recaf-history", ".bin") :
+				Files.createTempFile(directory, "recaf-history", ".bin");
+		spillPath.toFile().deleteOnExit();
+		spillFile = new RandomAccessFile(spillPath.toFile(), "rw");
+		diskEnd = 0;
+	}
+
+	/**
+	 * Close and delete the temporary file.
+	 */
+	private void closeSpillFile() {
+		if (spillFile == null)
+			return;
+		try {
+			spillFile.close();
+			Files.deleteIfExists(spillPath);
+		} catch(IOException ex) {
+			warn("Failed to delete history file: {}", ex.getMessage());
+		}
+		spillFile = null;
+		spillPath = null;
+		diskUsed = 0;
+		diskEnd = 0;
+	}
+
+	/**
+	 * Delta of a state against the state saved after it. Content is held in memory, or on disk at the
+	 * given offset once it has been spilled.
+	 */
+	static final class Delta {
+		private byte[] data;
+		private long offset;
+		private int length;
+
+		private Delta() {
+		}
+	}
+}
@@ -28,61 +28,32 @@ public class JarResource extends ArchiveResource {
 	}
 
 	@Override
-	protected Map<String, byte[]> loadClasses() throws IOException {
-		// iterate jar entries
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		byte[] buffer = new byte[8192];
-		EntryLoader loader = getEntryLoader();
+	protected void readArchive(EntryLoader loader) throws IOException {
 		try (ZipFile zipFile = new ZipFile(getPath().toFile())) {
-			Enumeration<? extends ZipEntry> entries = zipFile.entries();
-			while(entries.hasMoreElements()) {
-				// verify entries are classes and valid files
-				// - skip intentional garbage / zip file abnormalities
-				ZipEntry entry = entries.nextElement();
+			// verify entries are valid files
+			// - skip intentional garbage / zip file abnormalities
+			List<ZipEntry> entries = new ArrayList<>(zipFile.size());
+			Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+			while(enumeration.hasMoreElements()) {
+				ZipEntry entry = enumeration.nextElement();
 				if (shouldSkip(entry.getName()))
 					continue;
-				if(!loader.isValidClassEntry(entry))
-					continue;
 				if(!loader.isValidFileEntry(entry))
 					continue;
-				out.reset();
-				InputStream stream = zipFile.getInputStream(entry);
-				byte[] in = IOUtil.toByteArray(stream, out, buffer);
-				// There is no possible way a "class" under 30 bytes is valid
-				if (in.length < 30)
-					continue;
-				loader.onClass(entry.getName(), in);
+				entries.add(entry);
 			}
-		}
-		loader.finishClasses();
-		return loader.getClasses();
-	}
-
-	@Override
-	protected Map<String, byte[]> loadFiles() throws IOException {
-		// iterate jar entries
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		byte[] buffer = new byte[8192];
-		EntryLoader loader = getEntryLoader();
-		try (ZipFile zipFile = new ZipFile(getPath().toFile())) {
-			Enumeration<? extends ZipEntry> entries = zipFile.entries();
-			while(entries.hasMoreElements()) {
-				// verify entries are not classes and are valid files
-				// - skip intentional garbage / zip file abnormalities
-				ZipEntry entry = entries.nextElement();
-				if (shouldSkip(entry.getName()))
-					continue;
-				if(loader.isValidClassEntry(entry))
-					continue;
-				if(!loader.isValidFileEntry(entry))
-					continue;
-				out.reset();
+			readEntries(loader, entries, (entry, order, out, buffer) -> {
 				InputStream stream = zipFile.getInputStream(entry);
 				byte[] in = IOUtil.toByteArray(stream, out, buffer);
-				loader.onFile(entry.getName(), in);
-			}
+				if (loader.isValidClassEntry(entry)) {
+					// There is no possible way a "class" under 30 bytes is valid
+					if (in.length < 30)
+						return;
+					addClass(loader, entry, entry.getName(), in, order);
+				} else {
+					addFile(loader, entry.getName(), in, order);
+				}
+			});
 		}
-		loader.finishFiles();
-		return loader.getFiles();
 	}
 }
@@ -2,20 +2,29 @@ package me.coley.recaf.workspace;
 
 import com.github.javaparser.ParseResult;
 import com.github.javaparser.ast.CompilationUnit;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import me.coley.recaf.parse.javadoc.DocumentationParseException;
 import me.coley.recaf.parse.javadoc.Javadocs;
 import me.coley.recaf.parse.source.SourceCode;
 import me.coley.recaf.parse.source.SourceCodeException;
+import me.coley.recaf.util.IOUtil;
 import me.coley.recaf.util.InternalElement;
+import me.coley.recaf.util.ThreadUtil;
 import me.coley.recaf.util.struct.InternalBiConsumer;
 import me.coley.recaf.util.struct.InternalConsumer;
 import me.coley.recaf.util.struct.ListeningMap;
+import me.coley.recaf.util.struct.Pair;
 import org.apache.commons.io.IOUtils;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.zip.*;
 
 import static me.coley.recaf.util.Log.*;
@@ -26,6 +35,9 @@ import static me.coley.recaf.util.Log.*;
  * @author Matt
  */
 public abstract class JavaResource {
+	private static final Pattern PACKAGE_PATTERN =
+			Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+	private static final int PARALLEL_CHUNK_SIZE = 64;
 	private final ResourceKind kind;
 	private EntryLoader entryLoader = EntryLoader.create();
 	private List<String> skippedPrefixes = Collections.emptyList();
@@ -33,12 +45,17 @@ public abstract class JavaResource {
 	private final ListeningMap<String, byte[]> cachedFiles = new ListeningMap<>();
 	private final Map<String, History> classHistory = new HashMap<>();
 	private final Map<String, History> fileHistory = new HashMap<>();
+	private final HistoryStore historyStore = new HistoryStore();
 	private final Set<String> dirtyClasses = new HashSet<>();
 	private final Set<String> dirtyFiles = new HashSet<>();
 	private final Map<String, SourceCode> classSource = new HashMap<>();
 	private final Map<String, Javadocs> classDocs = new HashMap<>();
+	private final Set<String> unparsedSources = new HashSet<>();
+	private final Set<String> unparsedDocs = new HashSet<>();
+	private boolean deferAttachmentParsing;
 	private Path classSourceFile;
 	private Path classDocsFile;
+	private ResourceIndex index;
 	private boolean isPrimary;
 
 	/**
@@ -100,6 +117,13 @@ public abstract class JavaResource {
 		return dirtyFiles;
 	}
 
+	/**
+	 * @return Storage of the deltas of the class and file histories.
+	 */
+	public HistoryStore getHistoryStore() {
+		return historyStore;
+	}
+
 	/**
 	 * @param name
 	 * 		Class name.
@@ -138,6 +162,7 @@ public abstract class JavaResource {
 	 * @return Map of class names to sources.
 	 */
 	public Map<String, SourceCode> getClassSources() {
+		parseAllDeferred(classSource, unparsedSources, this::parseSource);
 		return classSource;
 	}
 
@@ -148,13 +173,14 @@ public abstract class JavaResource {
 	 * @return Source code wrapper for class.
 	 */
 	public SourceCode getClassSource(String name) {
-		return classSource.get(name);
+		return parseDeferred(classSource, unparsedSources, name, this::parseSource);
 	}
 
 	/**
 	 * @return Map of class names to javadocs.
 	 */
 	public Map<String, Javadocs> getClassDocs() {
+		parseAllDeferred(classDocs, unparsedDocs, this::parseDocs);
 		return classDocs;
 	}
 
@@ -165,7 +191,24 @@ public abstract class JavaResource {
 	 * @return Javadocs wrapper for class.
 	 */
 	public Javadocs getClassDocs(String name) {
-		return classDocs.get(name);
+		return parseDeferred(classDocs, unparsedDocs, name, this::parseDocs);
+	}
+
+	/**
+	 * @return {@code true} when attached sources and documentation are only indexed when attached,
+	 * and each class is parsed when it is first requested.
+	 */
+	public boolean isDeferAttachmentParsing() {
+		return deferAttachmentParsing;
+	}
+
+	/**
+	 * @param deferAttachmentParsing
+	 *        {@code true} to only index attached sources and documentation when attached,
+	 * 		and parse each class when it is first requested.
+	 */
+	public void setDeferAttachmentParsing(boolean deferAttachmentParsing) {
+		this.deferAttachmentParsing = deferAttachmentParsing;
 	}
 
 	/**
@@ -181,7 +224,7 @@ public abstract class JavaResource {
 			byte[] value = cachedClasses.get(name);
 			if (value == null)
 				return false;
-			History history = classHistory.computeIfAbsent(name, key -> new History(cachedClasses, key));
+			History history = classHistory.computeIfAbsent(name, key -> new History(cachedClasses, key, historyStore));
 			history.push(value);
 		}
 		return true;
@@ -189,7 +232,14 @@ public abstract class JavaResource {
 
 	private void addClassSave(String name, byte[] value) {
 		if (isPrimary()) {
-			History history = classHistory.computeIfAbsent(name, key -> new History(cachedClasses, key));
+			History history = classHistory.computeIfAbsent(name, key -> new History(cachedClasses, key, historyStore));
+			history.push(value);
+		}
+	}
+
+	private void addClassSave(String name, Supplier<byte[]> value) {
+		if (isPrimary()) {
+			History history = classHistory.computeIfAbsent(name, key -> new History(cachedClasses, key, historyStore));
 			history.push(value);
 		}
 	}
@@ -207,7 +257,7 @@ public abstract class JavaResource {
 			byte[] value = cachedFiles.get(name);
 			if (value == null)
 				return false;
-			History history = fileHistory.computeIfAbsent(name, key -> new History(cachedFiles, key));
+			History history = fileHistory.computeIfAbsent(name, key -> new History(cachedFiles, key, historyStore));
 			history.push(value);
 		}
 		return true;
@@ -215,7 +265,7 @@ public abstract class JavaResource {
 
 	private void addFileSave(String name, byte[] value) {
 		if (isPrimary()) {
-			History history = fileHistory.computeIfAbsent(name, key -> new History(cachedFiles, key));
+			History history = fileHistory.computeIfAbsent(name, key -> new History(cachedFiles, key, historyStore));
 			history.push(value);
 		}
 	}
@@ -227,7 +277,10 @@ public abstract class JavaResource {
 		synchronized(cachedClasses) {
 			if (!cachedClasses.isBacked()) {
 				try {
-					cachedClasses.setBacking(copyMap(loadClasses()));
+					entryLoader.setIndex(index);
+					Map<String, byte[]> loaded = copyMap(loadClasses());
+					cachedClasses.setBacking(loaded);
+					saveIndex();
 					// If this resource is not the primary resource, we are done
 					if (!isPrimary())
 						return cachedClasses;
@@ -236,8 +289,20 @@ public abstract class JavaResource {
 							.add(InternalBiConsumer.internal((name, code) -> dirtyClasses.add(name)));
 					cachedClasses.getRemoveListeners().add(InternalConsumer.internal(dirtyClasses::remove));
 					// Create initial save state
-					for (Map.Entry<String, byte[]> e : cachedClasses.entrySet()) {
-						addClassSave(e.getKey(), e.getValue());
+					if (loaded instanceof MappedClassMap) {
+						// Mapped classes are only read when the initial state is requested
+						MappedClassMap mapped = (MappedClassMap) loaded;
+						for (String name : mapped.keySet()) {
+							Supplier<byte[]> original = mapped.getOriginal(name);
+							if (original != null)
+								addClassSave(name, original);
+							else
+								addClassSave(name, mapped.get(name));
+						}
+					} else {
+						for (Map.Entry<String, byte[]> e : cachedClasses.entrySet()) {
+							addClassSave(e.getKey(), e.getValue());
+						}
 					}
 					// Add listener to create initial save states for newly made classes
 					cachedClasses.getPutListeners().add(InternalBiConsumer.internal((name, code) -> {
@@ -292,15 +357,41 @@ public abstract class JavaResource {
 	public void invalidate() {
 		cachedFiles.getPutListeners().removeIf(InternalElement.INTERNAL_PREDICATE);
 		cachedFiles.getRemoveListeners().removeIf(InternalElement.INTERNAL_PREDICATE);
-		cachedFiles.clear();
+		if (cachedFiles.isBacked())
+			cachedFiles.clear();
 		cachedFiles.setBacking(null);
 		cachedClasses.getPutListeners().removeIf(InternalElement.INTERNAL_PREDICATE);
 		cachedClasses.getRemoveListeners().removeIf(InternalElement.INTERNAL_PREDICATE);
-		cachedClasses.clear();
+		if (cachedClasses.isBacked())
+			cachedClasses.clear();
 		cachedClasses.setBacking(null);
 		classDocs.clear();
 		classSource.clear();
+		synchronized(unparsedDocs) {
+			unparsedDocs.clear();
+		}
+		synchronized(unparsedSources) {
+			unparsedSources.clear();
+		}
+		clearHistory();
+	}
+
+	/**
+	 * Release what the resource holds once it is no longer part of a workspace.
+	 * The resource can still be used afterwards.
+	 */
+	public void close() {
+		clearHistory();
+	}
+
+	/**
+	 * Wipe the history of all classes and files.
+	 */
+	public void clearHistory() {
+		classHistory.values().forEach(History::clear);
 		classHistory.clear();
+		fileHistory.values().forEach(History::clear);
+		fileHistory.clear();
 	}
 
 	/**
@@ -312,6 +403,9 @@ public abstract class JavaResource {
 	 * @return Copied map.
 	 */
 	protected Map<String, byte[]> copyMap(Map<String, byte[]> map) {
+		// Copying would read every mapped class into memory
+		if (map instanceof MappedClassMap)
+			return map;
 		return new HashMap<>(map);
 	}
 
@@ -344,21 +438,29 @@ public abstract class JavaResource {
 		Map<String, SourceCode> map = new HashMap<>();
 		// Will throw IO exception if the file couldn't be opened as an archive
 		try (ZipFile zip = new ZipFile(path.toFile())) {
-			Enumeration<? extends ZipEntry> entries = zip.entries();
-			while (entries.hasMoreElements()) {
-				ZipEntry entry = entries.nextElement();
+			List<ZipEntry> entries = new ArrayList<>();
+			Enumeration<? extends ZipEntry> enumeration = zip.entries();
+			while (enumeration.hasMoreElements()) {
+				ZipEntry entry = enumeration.nextElement();
+				if (entry.getName().endsWith(".java"))
+					entries.add(entry);
+			}
+			boolean defer = deferAttachmentParsing;
+			for (Pair<String, SourceCode> pair : parseParallel(entries, entry -> {
 				String name = entry.getName();
-				if (!name.endsWith(".java"))
-					continue;
 				String src = IOUtils.toString(zip.getInputStream(entry), StandardCharsets.UTF_8);
+				SourceCode code = new SourceCode(this, src);
+				if (defer)
+					return new Pair<>(indexSourceName(name, src), code);
 				try {
-					SourceCode code = new SourceCode(this, src);
 					code.analyze();
-					map.put(code.getInternalName(), code);
+					return new Pair<>(code.getInternalName(), code);
 				} catch(SourceCodeException ex) {
 					error(ex, "Failed to parse source: {} in {}", name, path);
+					return null;
 				}
-			}
+			}))
+				map.put(pair.getKey(), pair.getValue());
 		}
 		return map;
 	}
@@ -376,23 +478,33 @@ public abstract class JavaResource {
 		Map<String, Javadocs> map = new HashMap<>(512, 1F);
 		// Will throw IO exception if the file couldn't be opened as an archive
 		try (ZipFile zip = new ZipFile(path.toFile())) {
-			Enumeration<? extends ZipEntry> entries = zip.entries();
-			while (entries.hasMoreElements()) {
-				ZipEntry entry = entries.nextElement();
+			List<ZipEntry> entries = new ArrayList<>();
+			Enumeration<? extends ZipEntry> enumeration = zip.entries();
+			while (enumeration.hasMoreElements()) {
+				ZipEntry entry = enumeration.nextElement();
 				String name = entry.getName();
 				if (!name.endsWith(".html"))
 					continue;
 				if (name.contains("-") || name.contains("index"))
 					continue;
+				entries.add(entry);
+			}
+			boolean defer = deferAttachmentParsing;
+			for (Pair<String, Javadocs> pair : parseParallel(entries, entry -> {
+				String name = entry.getName();
 				String src = IOUtils.toString(zip.getInputStream(entry), StandardCharsets.UTF_8);
+				Javadocs docs = new Javadocs(name, src);
+				if (defer)
+					return new Pair<>(docs.getInternalName(), docs);
 				try {
-					Javadocs docs = new Javadocs(name, src);
 					docs.parse();
-					map.put(docs.getInternalName(), docs);
+					return new Pair<>(docs.getInternalName(), docs);
 				} catch(DocumentationParseException ex) {
 					error(ex, "Failed to parse docs: {} in {}", name, path);
+					return null;
 				}
-			}
+			}))
+				map.put(pair.getKey(), pair.getValue());
 		}
 		return map;
 	}
@@ -412,7 +524,14 @@ public abstract class JavaResource {
 	public boolean setClassSources(Path path) throws  IOException {
 		this.classSourceFile = path;
 		this.classSource.clear();
-		this.classSource.putAll(loadSources(path));
+		Map<String, SourceCode> sources = loadSources(path);
+		this.classSource.putAll(sources);
+		synchronized(unparsedSources) {
+			unparsedSources.clear();
+			// Sources of single files are always parsed immediately
+			if (deferAttachmentParsing && !IOUtil.getExtension(path).equals("java"))
+				unparsedSources.addAll(sources.keySet());
+		}
 		return !classSource.isEmpty();
 	}
 
@@ -431,7 +550,13 @@ public abstract class JavaResource {
 	public boolean setClassDocs(Path path) throws  IOException {
 		this.classDocsFile = path;
 		this.classDocs.clear();
-		this.classDocs.putAll(loadDocs(path));
+		Map<String, Javadocs> docs = loadDocs(path);
+		this.classDocs.putAll(docs);
+		synchronized(unparsedDocs) {
+			unparsedDocs.clear();
+			if (deferAttachmentParsing)
+				unparsedDocs.addAll(docs.keySet());
+		}
 		return !classDocs.isEmpty();
 	}
 
@@ -462,7 +587,7 @@ public abstract class JavaResource {
 	 */
 	public Map<String, ParseResult<CompilationUnit>> analyzeSource(Workspace workspace) {
 		Map<String,ParseResult<CompilationUnit>> copy = new HashMap<>();
-		classSource.forEach((name, value) -> {
+		getClassSources().forEach((name, value) -> {
 			try {
 				copy.put(name, value.analyze(workspace));
 			} catch(SourceCodeException ex) {
@@ -491,6 +616,39 @@ public abstract class JavaResource {
 		this.entryLoader = entryLoader;
 	}
 
+	/**
+	 * @return Persistent index of the resource's content, or {@code null} if the resource is not indexed.
+	 */
+	public ResourceIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Set the index of the resource. Must be set before the classes are loaded to have any effect.
+	 *
+	 * @param index
+	 * 		Persistent index of the resource's content.
+	 */
+	public void setIndex(ResourceIndex index) {
+		this.index = index;
+	}
+
+	/**
+	 * Write the index if it was populated by loading the classes.
+	 */
+	private void saveIndex() {
+		ResourceIndex loaderIndex = entryLoader.getIndex();
+		if (loaderIndex == null || loaderIndex.isLoaded())
+			return;
+		ThreadUtil.run(() -> {
+			try {
+				loaderIndex.save();
+			} catch(IOException ex) {
+				warn("Failed to write index cache for \"{}\": {}", toString(), ex.getMessage());
+			}
+		});
+	}
+
 	/**
 	 * @return {@code true} if the resource is a workspace's primary resource.
 	 */
@@ -520,5 +678,187 @@ public abstract class JavaResource {
 	public String toString() {
 		return getShortName().toString();
 	}
+
+	/**
+	 * @param entryName
+	 * 		Name of source file in the archive.
+	 * @param src
+	 * 		Source code of the file.
+	 *
+	 * @return Internal name of the class declared by the source file, taken from the package declaration
+	 * and file name without parsing the whole file.
+	 */
+	private static String indexSourceName(String entryName, String src) {
+		String simpleName = entryName.substring(entryName.lastIndexOf('/') + 1, entryName.length() - 5);
+		Matcher matcher = PACKAGE_PATTERN.matcher(src);
+		if (matcher.find())
+			return matcher.group(1).replace('.', '/') + '/' + simpleName;
+		return simpleName;
+	}
+
+	/**
+	 * @param name
+	 * 		Class name.
+	 * @param code
+	 * 		Source code to parse.
+	 *
+	 * @return {@code true} if parsing succeeded.
+	 */
+	private boolean parseSource(String name, SourceCode code) {
+		try {
+			code.analyze();
+			return true;
+		} catch(SourceCodeException ex) {
+			error(ex, "Failed to parse source: {} in {}", name, classSourceFile);
+			return false;
+		}
+	}
+
+	/**
+	 * @param name
+	 * 		Class name.
+	 * @param docs
+	 * 		Documentation to parse.
+	 *
+	 * @return {@code true} if parsing succeeded.
+	 */
+	private boolean parseDocs(String name, Javadocs docs) {
+		try {
+			docs.parse();
+			return true;
+		} catch(DocumentationParseException ex) {
+			error(ex, "Failed to parse docs: {} in {}", name, classDocsFile);
+			return false;
+		}
+	}
+
+	/**
+	 * @param map
+	 * 		Map of class names to sources or documentation.
+	 * @param unparsed
+	 * 		Names of items in the map that have not been parsed yet.
+	 * @param name
+	 * 		Class name.
+	 * @param parser
+	 * 		Parse action, returning {@code false} when the item could not be parsed.
+	 * @param <T>
+	 * 		Type of source or documentation wrapper.
+	 *
+	 * @return Parsed item, or {@code null} if there is no item for the class or the item could not be parsed.
+	 */
+	private static <T> T parseDeferred(Map<String, T> map, Set<String> unparsed, String name,
+									   BiPredicate<String, T> parser) {
+		synchronized(unparsed) {
+			T value = map.get(name);
+			if (value != null && unparsed.remove(name) && !parser.test(name, value)) {
+				map.remove(name);
+				return null;
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * @param map
+	 * 		Map of class names to sources or documentation.
+	 * @param unparsed
+	 * 		Names of items in the map that have not been parsed yet.
+	 * @param parser
+	 * 		Parse action, returning {@code false} when the item could not be parsed.
+	 * @param <T>
+	 * 		Type of source or documentation wrapper.
+	 */
+	private static <T> void parseAllDeferred(Map<String, T> map, Set<String> unparsed,
+											 BiPredicate<String, T> parser) {
+		synchronized(unparsed) {
+			if (unparsed.isEmpty())
+				return;
+			List<String> names = new ArrayList<>(unparsed);
+			unparsed.clear();
+			List<String> failed;
+			try {
+				failed = parseParallel(names, name -> parser.test(name, map.get(name)) ? null : name);
+			} catch(IOException ex) {
+				// Parsing in memory does not do any IO
+				throw new IllegalStateException(ex);
+			}
+			failed.forEach(map::remove);
+		}
+	}
+
+	/**
+	 * Parse items on a bounded thread pool.
+	 *
+	 * @param items
+	 * 		Items to parse.
+	 * @param parser
+	 * 		Parse action, returning {@code null} to skip the item.
+	 * @param <I>
+	 * 		Type of items.
+	 * @param <O>
+	 * 		Type of parsed values.
+	 *
+	 * @return Parsed values, in no particular order.
+	 *
+	 * @throws IOException
+	 * 		When an item could not be read.
+	 */
+	private static <I, O> List<O> parseParallel(List<I> items, ParseAction<I, O> parser) throws IOException {
+		List<O> results = Collections.synchronizedList(new ArrayList<>(items.size()));
+		int threads = Math.min(Runtime.getRuntime().availableProcessors(),
+				(items.size() + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE);
+		if (threads <= 1) {
+			for (I item : items) {
+				O result = parser.parse(item);
+				if (result != null)
+					results.add(result);
+			}
+			return results;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+				.setNameFormat("Recaf Attach #%d")
+				.setDaemon(true)
+				.build());
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < items.size(); i += PARALLEL_CHUNK_SIZE) {
+				List<I> chunk = items.subList(i, Math.min(items.size(), i + PARALLEL_CHUNK_SIZE));
+				futures.add(pool.submit(() -> {
+					for (I item : chunk) {
+						O result = parser.parse(item);
+						if (result != null)
+							results.add(result);
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get();
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while parsing attachments", ex);
+		} catch(ExecutionException ex) {
+			if (ex.getCause() instanceof IOException)
+				throw (IOException) ex.getCause();
+			if (ex.getCause() instanceof RuntimeException)
+				throw (RuntimeException) ex.getCause();
+			throw new IllegalStateException("Failed to parse attachments", ex.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		return results;
+	}
+
+	/**
+	 * Parse action that may read from an archive.
+	 *
+	 * @param <I>
+	 * 		Type of input.
+	 * @param <O>
+	 * 		Type of output.
+	 */
+	private interface ParseAction<I, O> {
+		O parse(I input) throws IOException;
+	}
 }
 // TODO: Allow resources to have update-checks, ex: the referenced resource is modified externally
\ No newline at end of file
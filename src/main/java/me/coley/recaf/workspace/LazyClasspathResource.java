@@ -39,19 +39,22 @@ public class LazyClasspathResource extends JavaResource {
 				String key = name.toString();
 				if (key.contains("."))
 					key = key.replace('.', '/');
-				if(cache.containsKey(key))
-					return cache.get(key);
-				// Can't do "computeIfAbsent" since we also want to store null values.
-				byte[] value = null;
-				try (InputStream in = ClassLoader.getSystemResourceAsStream(key + ".class")) {
-					if (in != null) {
-						value = IOUtil.toByteArray(in);
+				// Lookups may come from multiple threads, such as parallel searches
+				synchronized(cache) {
+					if(cache.containsKey(key))
+						return cache.get(key);
+					// Can't do "computeIfAbsent" since we also want to store null values.
+					byte[] value = null;
+					try (InputStream in = ClassLoader.getSystemResourceAsStream(key + ".class")) {
+						if (in != null) {
+							value = IOUtil.toByteArray(in);
+						}
+					} catch (IOException ex) {
+						Log.error(ex, "Failed to fetch runtime bytecode of class '{}'", key);
 					}
-				} catch (IOException ex) {
-					Log.error(ex, "Failed to fetch runtime bytecode of class '{}'", key);
+					cache.put(key, value);
+					return value;
 				}
-				cache.put(key, value);
-				return value;
 			}
 
 			@Override
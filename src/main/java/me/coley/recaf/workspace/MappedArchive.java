@@ -0,0 +1,470 @@
+package me.coley.recaf.workspace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+import static me.coley.recaf.util.Log.*;
+
+/**
+ * Read-only view of a zip archive backed by a memory-mapped file.
+ * Entry contents are only inflated when {@link #read(Entry) requested}.
+ * <br>
+ * The archive file must not be modified while the view is in use. Views that are no longer needed should be
+ * {@link #close() closed}, otherwise the file stays mapped until the view is garbage collected.
+ *
+ * @author Matt
+ */
+public class MappedArchive implements Closeable {
+	private static final int SIG_LOCAL = 0x04034b50;
+	private static final int SIG_CENTRAL = 0x02014b50;
+	private static final int SIG_END = 0x06054b50;
+	private static final int SIG_END_64 = 0x06064b50;
+	private static final int SIG_END_64_LOCATOR = 0x07064b50;
+	private static final int END_MIN_SIZE = 22;
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+	private static final long MAX_32 = 0xFFFFFFFFL;
+	private final Map<String, Entry> entries = new HashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final ByteBuffer buffer;
+	private final Path path;
+	private boolean closed;
+
+	private MappedArchive(Path path, MappedByteBuffer buffer) {
+		this.path = path;
+		this.buffer = buffer;
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * @param path
+	 * 		Path to zip archive.
+	 *
+	 * @return Mapped view of the archive.
+	 *
+	 * @throws IOException
+	 * 		When the archive could not be mapped, or its central directory could not be read.
+	 */
+	public static MappedArchive open(Path path) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("Archive too large to map: " + path);
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+		MappedArchive archive = new MappedArchive(path, buffer);
+		try {
+			archive.readCentralDirectory();
+		} catch(IndexOutOfBoundsException | IllegalArgumentException ex) {
+			throw new IOException("Malformed central directory: " + path, ex);
+		}
+		return archive;
+	}
+
+	/**
+	 * @param name
+	 * 		Entry name.
+	 *
+	 * @return Entry of the given name, or {@code null} if no single entry of the name exists.
+	 */
+	public Entry getEntry(String name) {
+		return entries.get(name);
+	}
+
+	/**
+	 * @param zipEntry
+	 * 		Entry read by a {@link java.util.zip.ZipFile}.
+	 *
+	 * @return Matching entry in this archive, or {@code null} if there is no entry with the same name, size
+	 * and checksum.
+	 */
+	public Entry getEntry(ZipEntry zipEntry) {
+		Entry entry = getEntry(zipEntry.getName());
+		if (entry == null || entry.size != zipEntry.getSize() || entry.crc != zipEntry.getCrc())
+			return null;
+		return entry;
+	}
+
+	/**
+	 * @param entry
+	 * 		Entry to read.
+	 *
+	 * @return Uncompressed content of the entry.
+	 *
+	 * @throws IOException
+	 * 		When the entry data could not be read.
+	 */
+	public byte[] read(Entry entry) throws IOException {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			int dataOffset = getDataOffset(entry);
+			byte[] data = new byte[(int) entry.size];
+			if (entry.method == ZipEntry.STORED) {
+				copy(dataOffset, data, data.length);
+				return data;
+			}
+			// Inflater requires an extra trailing byte when there is no zlib wrapper
+			byte[] compressed = new byte[(int) entry.compressedSize + 1];
+			copy(dataOffset, compressed, compressed.length - 1);
+			Inflater inflater = new Inflater(true);
+			try {
+				inflater.setInput(compressed);
+				int read = 0;
+				while (read < data.length && !inflater.finished()) {
+					int count = inflater.inflate(data, read, data.length - read);
+					if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+						break;
+					read += count;
+				}
+				if (read != data.length)
+					throw new IOException("Truncated entry '" + entry.name + "' in " + path);
+			} finally {
+				inflater.end();
+			}
+			return data;
+		} catch(DataFormatException | IndexOutOfBoundsException ex) {
+			throw new IOException("Failed to read entry '" + entry.name + "' in " + path, ex);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Copy the entry's data as it is stored in the archive, without inflating it.
+	 *
+	 * @param entry
+	 * 		Entry to copy.
+	 * @param out
+	 * 		Stream to write the stored data to.
+	 *
+	 * @throws IOException
+	 * 		When the entry data could not be read, or the stream could not be written to.
+	 */
+	public void copyRaw(Entry entry, OutputStream out) throws IOException {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			ByteBuffer view = buffer.duplicate();
+			((Buffer) view).position(getDataOffset(entry));
+			byte[] chunk = new byte[8192];
+			long remaining = entry.compressedSize;
+			while (remaining > 0) {
+				int length = (int) Math.min(chunk.length, remaining);
+				view.get(chunk, 0, length);
+				out.write(chunk, 0, length);
+				remaining -= length;
+			}
+		} catch(IndexOutOfBoundsException | IllegalArgumentException ex) {
+			throw new IOException("Failed to read entry '" + entry.name + "' in " + path, ex);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return Path of the mapped archive.
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * @return {@code true} if the archive has been {@link #close() closed}.
+	 */
+	public boolean isClosed() {
+		lock.readLock().lock();
+		try {
+			return closed;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Unmap the archive, so the file is released without waiting on garbage collection.
+	 * Entries can no longer be read afterwards.
+	 */
+	@Override
+	public void close() {
+		lock.writeLock().lock();
+		try {
+			if (closed)
+				return;
+			closed = true;
+			unmap(buffer);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void checkOpen() throws IOException {
+		if (closed)
+			throw new IOException("Archive is closed: " + path);
+	}
+
+	/**
+	 * Release the mapping of a buffer. There is no public API for this, so the JDK internals are used.
+	 * If they are not accessible, the mapping is released once the buffer is garbage collected.
+	 *
+	 * @param buffer
+	 * 		Mapped buffer.
+	 */
+	private static void unmap(ByteBuffer buffer) {
+		try {
+			try {
+				// Java 9+
+				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			} catch(NoSuchMethodException ex) {
+				// Java 8
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null)
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch(ReflectiveOperationException | RuntimeException ex) {
+			debug("Failed to unmap archive: {}", ex.toString());
+		}
+	}
+
+	private int getDataOffset(Entry entry) throws IOException {
+		int local = (int) entry.localOffset;
+		if (buffer.getInt(local) != SIG_LOCAL)
+			throw new IOException("Missing local header for '" + entry.name + "' in " + path);
+		int nameLength = buffer.getShort(local + 26) & 0xFFFF;
+		int extraLength = buffer.getShort(local + 28) & 0xFFFF;
+		return local + 30 + nameLength + extraLength;
+	}
+
+	private void copy(int offset, byte[] dest, int length) {
+		// Duplicate so that concurrent reads do not share a position.
+		// Positioned through Buffer to stay compatible with the Java 8 API.
+		ByteBuffer view = buffer.duplicate();
+		((Buffer) view).position(offset);
+		view.get(dest, 0, length);
+	}
+
+	private void readCentralDirectory() throws IOException {
+		int end = findEnd();
+		if (end < 0)
+			throw new IOException("Missing end of central directory: " + path);
+		long count = buffer.getShort(end + 10) & 0xFFFF;
+		long offset = buffer.getInt(end + 16) & MAX_32;
+		// Zip64 archives store the real values in a separate record
+		int locator = end - 20;
+		if (locator >= 0 && buffer.getInt(locator) == SIG_END_64_LOCATOR) {
+			int end64 = (int) buffer.getLong(locator + 8);
+			if (buffer.getInt(end64) == SIG_END_64) {
+				count = buffer.getLong(end64 + 32);
+				offset = buffer.getLong(end64 + 48);
+			}
+		}
+		Set<String> duplicates = new HashSet<>();
+		int pos = (int) offset;
+		for (long i = 0; i < count; i++)
+			pos = readEntry(pos, i, duplicates);
+	}
+
+	/**
+	 * @param pos
+	 * 		Offset of the central directory header of the entry.
+	 * @param index
+	 * 		Index of the entry in the central directory.
+	 * @param duplicates
+	 * 		Names that show up more than once.
+	 *
+	 * @return Offset of the next central directory header.
+	 *
+	 * @throws IOException
+	 * 		When the header is malformed.
+	 */
+	private int readEntry(int pos, long index, Set<String> duplicates) throws IOException {
+		if (buffer.getInt(pos) != SIG_CENTRAL)
+			throw new IOException("Malformed central directory entry #" + index + ": " + path);
+		int flags = buffer.getShort(pos + 8) & 0xFFFF;
+		int method = buffer.getShort(pos + 10) & 0xFFFF;
+		int dosTime = buffer.getInt(pos + 12);
+		long crc = buffer.getInt(pos + 16) & MAX_32;
+		int nameLength = buffer.getShort(pos + 28) & 0xFFFF;
+		int extraLength = buffer.getShort(pos + 30) & 0xFFFF;
+		int commentLength = buffer.getShort(pos + 32) & 0xFFFF;
+		// Size, compressed size and local header offset, in the order of the Zip64 extra field
+		long[] values = {
+				buffer.getInt(pos + 24) & MAX_32,
+				buffer.getInt(pos + 20) & MAX_32,
+				buffer.getInt(pos + 42) & MAX_32
+		};
+		byte[] nameBytes = new byte[nameLength];
+		copy(pos + 46, nameBytes, nameLength);
+		String name = new String(nameBytes, StandardCharsets.UTF_8);
+		int extra = pos + 46 + nameLength;
+		readZip64Extra(extra, extra + extraLength, values);
+		if (isSupported(flags, method, values[0], values[2]))
+			addEntry(new Entry(name, method, dosTime, crc, values[1], values[0], values[2]), duplicates);
+		return extra + extraLength + commentLength;
+	}
+
+	/**
+	 * Replace the values that did not fit in the central directory header with those of the Zip64 extra field.
+	 *
+	 * @param extra
+	 * 		Offset of the extra fields.
+	 * @param extraEnd
+	 * 		End of the extra fields.
+	 * @param values
+	 * 		Size, compressed size and local header offset of the entry.
+	 */
+	private void readZip64Extra(int extra, int extraEnd, long[] values) {
+		while (extra + 4 <= extraEnd) {
+			int id = buffer.getShort(extra) & 0xFFFF;
+			int length = buffer.getShort(extra + 2) & 0xFFFF;
+			if (id == 0x0001) {
+				int field = extra + 4;
+				for (int i = 0; i < values.length; i++) {
+					if (values[i] == MAX_32) {
+						values[i] = buffer.getLong(field);
+						field += 8;
+					}
+				}
+				return;
+			}
+			extra += 4 + length;
+		}
+	}
+
+	/**
+	 * Only plain stored/deflated entries that fit in a single array are supported.
+	 *
+	 * @param flags
+	 * 		General purpose flags of the entry.
+	 * @param method
+	 * 		Compression method of the entry.
+	 * @param size
+	 * 		Uncompressed size of the entry.
+	 * @param localOffset
+	 * 		Offset of the local header of the entry.
+	 *
+	 * @return {@code true} if the entry can be read.
+	 */
+	private boolean isSupported(int flags, int method, long size, long localOffset) {
+		boolean encrypted = (flags & 1) != 0;
+		boolean supported = method == ZipEntry.STORED || method == ZipEntry.DEFLATED;
+		return !encrypted && supported && size < Integer.MAX_VALUE && localOffset < buffer.capacity();
+	}
+
+	/**
+	 * Names that show up more than once are ambiguous, so those are excluded.
+	 *
+	 * @param entry
+	 * 		Entry to add.
+	 * @param duplicates
+	 * 		Names that show up more than once.
+	 */
+	private void addEntry(Entry entry, Set<String> duplicates) {
+		if (duplicates.contains(entry.name))
+			return;
+		if (entries.put(entry.name, entry) != null) {
+			entries.remove(entry.name);
+			duplicates.add(entry.name);
+		}
+	}
+
+	private int findEnd() {
+		int min = Math.max(0, buffer.capacity() - END_MIN_SIZE - MAX_COMMENT_SIZE);
+		for (int i = buffer.capacity() - END_MIN_SIZE; i >= min; i--)
+			if (buffer.getInt(i) == SIG_END)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Location of an entry in the archive.
+	 */
+	public static final class Entry {
+		private final String name;
+		private final int method;
+		private final int dosTime;
+		private final long crc;
+		private final long compressedSize;
+		private final long size;
+		private final long localOffset;
+
+		private Entry(String name, int method, int dosTime, long crc, long compressedSize, long size,
+					  long localOffset) {
+			this.name = name;
+			this.method = method;
+			this.dosTime = dosTime;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.localOffset = localOffset;
+		}
+
+		/**
+		 * @return Entry name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return Compression method, either {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}.
+		 */
+		public int getMethod() {
+			return method;
+		}
+
+		/**
+		 * @return Modification time and date of the entry, in MS-DOS format.
+		 */
+		public int getDosTime() {
+			return dosTime;
+		}
+
+		/**
+		 * @return CRC-32 checksum of the uncompressed entry data.
+		 */
+		public long getCrc() {
+			return crc;
+		}
+
+		/**
+		 * @return Size of the entry data as stored in the archive.
+		 */
+		public long getCompressedSize() {
+			return compressedSize;
+		}
+
+		/**
+		 * @return Uncompressed size of the entry.
+		 */
+		public long getSize() {
+			return size;
+		}
+	}
+}
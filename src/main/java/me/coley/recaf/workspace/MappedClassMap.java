@@ -0,0 +1,221 @@
+package me.coley.recaf.workspace;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Class map where unmodified classes are kept as references into a {@link MappedArchive}.
+ * Referenced classes are inflated each time they are fetched and never kept on the heap.
+ * Values that are put into the map are stored as-is, replacing the reference.
+ *
+ * @author Matt
+ */
+public class MappedClassMap extends AbstractMap<String, byte[]> {
+	private final Map<String, Object> backing = new HashMap<>();
+	private final Map<String, MappedArchive.Entry> references = new HashMap<>();
+	private final MappedArchive archive;
+	private final EntrySet entrySet = new EntrySet();
+	private volatile Map<MappedArchive.Entry, byte[]> detached;
+
+	/**
+	 * @param archive
+	 * 		Archive to read referenced classes from.
+	 */
+	public MappedClassMap(MappedArchive archive) {
+		this.archive = archive;
+	}
+
+	/**
+	 * Add a class that can be read from the archive.
+	 *
+	 * @param name
+	 * 		Class name.
+	 * @param entry
+	 * 		Archive entry holding the class.
+	 */
+	public void putReference(String name, MappedArchive.Entry entry) {
+		backing.put(name, entry);
+		references.put(name, entry);
+	}
+
+	/**
+	 * @param name
+	 * 		Class name.
+	 *
+	 * @return {@code true} when the class is currently read from the archive rather than held in memory.
+	 */
+	public boolean isReference(String name) {
+		return backing.get(name) instanceof MappedArchive.Entry;
+	}
+
+	/**
+	 * @param name
+	 * 		Class name.
+	 *
+	 * @return Archive entry the class is currently read from, or {@code null} if the class is held in memory.
+	 */
+	public MappedArchive.Entry getReference(String name) {
+		Object value = backing.get(name);
+		return value instanceof MappedArchive.Entry ? (MappedArchive.Entry) value : null;
+	}
+
+	/**
+	 * @param name
+	 * 		Class name.
+	 *
+	 * @return Supplier of the class as it was initially in the archive. {@code null} if the class was not
+	 * loaded from the archive.
+	 */
+	public Supplier<byte[]> getOriginal(String name) {
+		MappedArchive.Entry entry = references.get(name);
+		if (entry == null)
+			return null;
+		return () -> read(entry);
+	}
+
+	/**
+	 * @return Archive classes are read from.
+	 */
+	public MappedArchive getArchive() {
+		return archive;
+	}
+
+	/**
+	 * Read every referenced class into memory and close the archive, so that the archive file can be replaced.
+	 * Initial states supplied by {@link #getOriginal(String)} remain readable.
+	 *
+	 * @throws IOException
+	 * 		When the archive cannot be read.
+	 */
+	public void detach() throws IOException {
+		if (detached != null)
+			return;
+		Map<MappedArchive.Entry, byte[]> contents = new IdentityHashMap<>();
+		for (MappedArchive.Entry entry : references.values())
+			contents.put(entry, archive.read(entry));
+		for (Entry<String, Object> e : backing.entrySet())
+			if (e.getValue() instanceof MappedArchive.Entry)
+				e.setValue(contents.get(e.getValue()));
+		detached = contents;
+		archive.close();
+	}
+
+	@Override
+	public byte[] get(Object key) {
+		return resolve(backing.get(key));
+	}
+
+	@Override
+	public byte[] put(String key, byte[] value) {
+		return resolve(backing.put(key, value));
+	}
+
+	@Override
+	public byte[] remove(Object key) {
+		return resolve(backing.remove(key));
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return backing.containsKey(key);
+	}
+
+	@Override
+	public int size() {
+		return backing.size();
+	}
+
+	@Override
+	public void clear() {
+		backing.clear();
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return backing.keySet();
+	}
+
+	@Override
+	public Set<Entry<String, byte[]>> entrySet() {
+		return entrySet;
+	}
+
+	private byte[] resolve(Object value) {
+		if (value instanceof MappedArchive.Entry)
+			return read((MappedArchive.Entry) value);
+		return (byte[]) value;
+	}
+
+	private byte[] read(MappedArchive.Entry entry) {
+		Map<MappedArchive.Entry, byte[]> contents = detached;
+		if (contents != null)
+			return contents.get(entry).clone();
+		try {
+			return archive.read(entry);
+		} catch(IOException ex) {
+			throw new IllegalStateException("Failed to read mapped class '" + entry.getName() + "'", ex);
+		}
+	}
+
+	/**
+	 * Entry view that only reads values from the archive when they are requested.
+	 */
+	private class EntrySet extends AbstractSet<Entry<String, byte[]>> {
+		@Override
+		public Iterator<Entry<String, byte[]>> iterator() {
+			Iterator<Entry<String, Object>> it = backing.entrySet().iterator();
+			return new Iterator<Entry<String, byte[]>>() {
+				@Override
+				public boolean hasNext() {
+					return it.hasNext();
+				}
+
+				@Override
+				public Entry<String, byte[]> next() {
+					Entry<String, Object> e = it.next();
+					return new Entry<String, byte[]>() {
+						@Override
+						public String getKey() {
+							return e.getKey();
+						}
+
+						@Override
+						public byte[] getValue() {
+							return resolve(e.getValue());
+						}
+
+						@Override
+						public byte[] setValue(byte[] value) {
+							return resolve(e.setValue(value));
+						}
+
+						@Override
+						public boolean equals(Object o) {
+							if (!(o instanceof Entry))
+								return false;
+							Entry<?, ?> other = (Entry<?, ?>) o;
+							return Objects.equals(getKey(), other.getKey()) &&
+									Objects.equals(getValue(), other.getValue());
+						}
+
+						@Override
+						public int hashCode() {
+							return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+						}
+					};
+				}
+
+				@Override
+				public void remove() {
+					it.remove();
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return backing.size();
+		}
+	}
+}
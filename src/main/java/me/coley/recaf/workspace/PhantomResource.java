@@ -9,20 +9,22 @@ import org.clyze.jphantom.ClassMembers;
 import org.clyze.jphantom.JPhantom;
 import org.clyze.jphantom.Phantoms;
 import org.clyze.jphantom.access.ClassAccessStateMachine;
+import org.clyze.jphantom.access.FieldAccessStateMachine;
+import org.clyze.jphantom.access.MethodAccessStateMachine;
 import org.clyze.jphantom.adapters.ClassPhantomExtractor;
 import org.clyze.jphantom.hier.ClassHierarchy;
 import org.clyze.jphantom.hier.IncrementalClassHierarchy;
 import org.objectweb.asm.*;
 import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodNode;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 /**
  * Resource for holding phantom references.
@@ -32,9 +34,10 @@ import java.util.jar.JarFile;
 public class PhantomResource extends JavaResource {
 	private static final ResourceLocation LOCATION = LiteralResourceLocation.ofKind(ResourceKind.JAR, "Phantoms");
 	private static final Path PHANTOM_DIR = Recaf.getDirectory("classpath").resolve("generated");
-	// TODO: Update phantom refs when:
-	//  - using the recompilers
-	//  - assembling methods (just at startup?)
+	/**
+	 * JPhantom keeps global state, so only one generation can run at a time.
+	 */
+	private static final Object LOCK = new Object();
 
 	// TODO: Add a visual indicator when this passes / fails
 
@@ -57,13 +60,11 @@ public class PhantomResource extends JavaResource {
 	public void clear() throws IOException {
 		// Clear internal
 		getClasses().clear();
-		// Clear file cache
-		Path input = PHANTOM_DIR.resolve("input.jar");
-		Path output = PHANTOM_DIR.resolve("output.jar");
+		// Clear file cache, including the input jar written by older versions
 		if (!Files.isDirectory(PHANTOM_DIR))
 			Files.createDirectories(PHANTOM_DIR);
-		Files.deleteIfExists(input);
-		Files.deleteIfExists(output);
+		Files.deleteIfExists(PHANTOM_DIR.resolve("input.jar"));
+		Files.deleteIfExists(PHANTOM_DIR.resolve("output.jar"));
 	}
 
 	/**
@@ -74,53 +75,147 @@ public class PhantomResource extends JavaResource {
 	 * 		Collection of classes to generate phantoms for.
 	 *
 	 * @throws IOException
-	 * 		Thrown when JPhantom cannot read from the temporary file where these classes are written to.
+	 * 		Thrown when the generated classes cannot be written to the output file.
 	 */
 	public void populatePhantoms(Collection<byte[]> classes) throws IOException {
 		Log.debug("Begin generating phantom classes, given {} input classes", classes.size());
-		// Clear old classes
-		clear();
-		Path input = PHANTOM_DIR.resolve("input.jar");
-		Path output = PHANTOM_DIR.resolve("output.jar");
-		// Write the parameter passed classes to a temp jar
-		Map<String, byte[]> classMap = new HashMap<>();
-		Map<Type, ClassNode> nodes = new HashMap<>();
-		classes.forEach(c -> {
-			ClassReader cr = new ClassReader(c);
-			ClassNode node = ClassUtil.getNode(cr, ClassReader.EXPAND_FRAMES);
-			classMap.put(node.name + ".class", c);
-			nodes.put(Type.getObjectType(node.name), node);
-		});
-		Export.writeArchive(input.toFile(), classMap);
-		Log.debug("Wrote classes to temp file, starting phantom analysis...", classes.size());
-		// Read into JPhantom
-		ClassHierarchy hierarchy = clsHierarchyFromArchive(new JarFile(input.toFile()));
-		ClassMembers members = ClassMembers.fromJar(new JarFile(input.toFile()), hierarchy);
-		classes.forEach(c -> {
-			// TODO: Look more into JPhantom having issues with type clashes of picocli classes
-			//  - Correctly identifies inner pico classes as annotations, then tries to mark them as normal classes
-			//    which JPhantom sees and decides to throw a type clash error.
+		synchronized(LOCK) {
+			Map<String, byte[]> generated = generate(classes, classes);
+			clear();
+			getClasses().putAll(generated);
+			writeOutput();
+		}
+		Log.debug("Phantom analysis complete");
+	}
+
+	/**
+	 * Generates phantom classes for the references of the given updated classes and adds them to the
+	 * existing phantom classes. Members of phantom classes that already exist are merged into them.
+	 *
+	 * @param classes
+	 * 		Collection of all classes of the program.
+	 * @param updated
+	 * 		Collection of classes that have changed since phantoms were last generated.
+	 *
+	 * @throws IOException
+	 * 		Thrown when the generated classes cannot be written to the output file.
+	 */
+	public void updatePhantoms(Collection<byte[]> classes, Collection<byte[]> updated) throws IOException {
+		Log.debug("Begin updating phantom classes, given {} updated classes", updated.size());
+		synchronized(LOCK) {
+			boolean changed = false;
+			for (Map.Entry<String, byte[]> e : generate(classes, updated).entrySet()) {
+				byte[] existing = getClasses().get(e.getKey());
+				byte[] merged = existing == null ? e.getValue() : merge(existing, e.getValue());
+				if (merged != existing) {
+					getClasses().put(e.getKey(), merged);
+					changed = true;
+				}
+			}
+			if (changed)
+				writeOutput();
+		}
+	}
+
+	/**
+	 * Populates the current resource with previously generated phantom classes
+	 * and dumps the classes into {@code [RECAF]/classpath/generated/output.jar}
+	 *
+	 * @param generated
+	 * 		Map of phantom class names to their bytecode.
+	 *
+	 * @throws IOException
+	 * 		Thrown when the classes cannot be written to the output file.
+	 */
+	public void populatePhantoms(Map<String, byte[]> generated) throws IOException {
+		synchronized(LOCK) {
+			clear();
+			getClasses().putAll(generated);
+			writeOutput();
+		}
+	}
+
+	/**
+	 * Runs JPhantom over classes held in memory.
+	 *
+	 * @param classes
+	 * 		Collection of all classes of the program, used to tell which referenced types are missing.
+	 * @param analyzed
+	 * 		Collection of classes to generate phantoms for the references of.
+	 *
+	 * @return Map of phantom class names to their bytecode.
+	 *
+	 * @throws IOException
+	 * 		Thrown when JPhantom fails to generate the classes.
+	 */
+	private Map<String, byte[]> generate(Collection<byte[]> classes, Collection<byte[]> analyzed)
+			throws IOException {
+		ClassHierarchy hierarchy = new IncrementalClassHierarchy();
+		ClassMembers members = createMembers(hierarchy);
+		for (byte[] c : classes) {
 			ClassReader cr = new ClassReader(c);
-			if (cr.getClassName().contains("$"))
-				return;
-			cr.accept(new ClassPhantomExtractor(hierarchy, members), 0);
-		});
-		// Remove duplicate constraints for faster analysis
-		Set<String> existingConstraints = new HashSet<>();
-		ClassAccessStateMachine.v().getConstraints().removeIf(c -> {
-			boolean isDuplicate = existingConstraints.contains(c.toString());
-			existingConstraints.add(c.toString());
-			return isDuplicate;
-		});
-		// Execute and populate the current resource with generated classes
-		JPhantom phantom = new JPhantom(nodes, hierarchy, members);
-		phantom.run();
-		phantom.getGenerated().forEach((k, v) -> getClasses().put(k.getInternalName(), decorate(v)));
-		classMap.clear();
-		getClasses().forEach((k, v) -> classMap.put(k + ".class", v));
-		Export.writeArchive(output.toFile(), classMap);
-		Log.debug("Phantom analysis complete, cleaning temp file", classes.size());
-		// Cleanup
+			addToHierarchy(hierarchy, cr);
+			cr.accept(members.new Feeder(), ClassReader.SKIP_CODE);
+		}
+		Map<Type, ClassNode> nodes = new HashMap<>();
+		try {
+			for (byte[] c : analyzed) {
+				ClassReader cr = new ClassReader(c);
+				ClassNode node = ClassUtil.getNode(cr, ClassReader.EXPAND_FRAMES);
+				nodes.put(Type.getObjectType(node.name), node);
+				// TODO: Look more into JPhantom having issues with type clashes of picocli classes
+				//  - Correctly identifies inner pico classes as annotations, then tries to mark them as normal classes
+				//    which JPhantom sees and decides to throw a type clash error.
+				if (cr.getClassName().contains("$"))
+					continue;
+				cr.accept(new ClassPhantomExtractor(hierarchy, members), 0);
+			}
+			// Remove duplicate constraints for faster analysis
+			Set<String> existingConstraints = new HashSet<>();
+			ClassAccessStateMachine.v().getConstraints().removeIf(c -> {
+				boolean isDuplicate = existingConstraints.contains(c.toString());
+				existingConstraints.add(c.toString());
+				return isDuplicate;
+			});
+			// Execute and collect the generated classes
+			JPhantom phantom = new JPhantom(nodes, hierarchy, members);
+			phantom.run();
+			Map<String, byte[]> generated = new HashMap<>();
+			phantom.getGenerated().forEach((k, v) -> generated.put(k.getInternalName(), decorate(v)));
+			return generated;
+		} finally {
+			cleanup();
+		}
+	}
+
+	/**
+	 * JPhantom only offers creating {@link ClassMembers} from a jar file, so the instance is created
+	 * directly to feed it classes held in memory.
+	 *
+	 * @param hierarchy
+	 * 		Class hierarchy.
+	 *
+	 * @return Class members, populated with {@code java/lang/Object}.
+	 *
+	 * @throws IOException
+	 * 		When the members cannot be created.
+	 */
+	private static ClassMembers createMembers(ClassHierarchy hierarchy) throws IOException {
+		try {
+			Constructor<ClassMembers> constructor = ClassMembers.class.getDeclaredConstructor(ClassHierarchy.class);
+			constructor.setAccessible(true);
+			ClassMembers members = constructor.newInstance(hierarchy);
+			new ClassReader("java/lang/Object").accept(members.new Feeder(), ClassReader.SKIP_CODE);
+			return members;
+		} catch(ReflectiveOperationException ex) {
+			throw new IOException("Failed to create JPhantom class members", ex);
+		}
+	}
+
+	/**
+	 * Reset the global state JPhantom keeps between runs.
+	 */
+	private static void cleanup() {
 		try {
 			Field tmap = Phantoms.class.getDeclaredField("transformers");
 			tmap.setAccessible(true);
@@ -130,56 +225,90 @@ public class PhantomResource extends JavaResource {
 			Log.error("Failed to cleanup phantom transformer cache");
 		}
 		Phantoms.V().clear();
-		Files.deleteIfExists(input);
+		// Constraints of analyzed classes would otherwise be solved again by the next run
+		ClassAccessStateMachine.v().getConstraints().clear();
+		FieldAccessStateMachine.v().getConstraints().clear();
+		MethodAccessStateMachine.v().getConstraints().clear();
 	}
 
 	/**
-	 * This is copy pasted from JPhantom, modified to be more lenient towards obfuscated inputs.
-	 *
-	 * @param file
-	 * 		Some jar file.
+	 * @param existing
+	 * 		Previously generated phantom class.
+	 * @param generated
+	 * 		Newly generated phantom class of the same type.
 	 *
-	 * @return Class hierarchy.
+	 * @return The existing class if it already declares everything the new class declares,
+	 * otherwise the existing class with the missing members and interfaces added.
+	 */
+	private static byte[] merge(byte[] existing, byte[] generated) {
+		ClassNode node = ClassUtil.getNode(new ClassReader(existing), 0);
+		ClassNode other = ClassUtil.getNode(new ClassReader(generated), 0);
+		boolean changed = false;
+		for (String itf : other.interfaces) {
+			if (!node.interfaces.contains(itf)) {
+				node.interfaces.add(itf);
+				changed = true;
+			}
+		}
+		for (FieldNode field : other.fields) {
+			if (node.fields.stream().noneMatch(f -> f.name.equals(field.name) && f.desc.equals(field.desc))) {
+				node.fields.add(field);
+				changed = true;
+			}
+		}
+		for (MethodNode method : other.methods) {
+			if (node.methods.stream().noneMatch(m -> m.name.equals(method.name) && m.desc.equals(method.desc))) {
+				node.methods.add(method);
+				changed = true;
+			}
+		}
+		if (!changed)
+			return existing;
+		ClassWriter cw = new ClassWriter(0);
+		node.accept(cw);
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Dump the current phantom classes into {@code [RECAF]/classpath/generated/output.jar}
+	 * so that they can be used by the compiler.
 	 *
 	 * @throws IOException
-	 * 		When the archive cannot be read.
+	 * 		Thrown when the classes cannot be written to the output file.
+	 */
+	private void writeOutput() throws IOException {
+		Map<String, byte[]> classMap = new HashMap<>();
+		getClasses().forEach((k, v) -> classMap.put(k + ".class", v));
+		Export.writeArchive(PHANTOM_DIR.resolve("output.jar").toFile(), classMap);
+	}
+
+	/**
+	 * This is copy pasted from JPhantom, modified to be more lenient towards obfuscated inputs
+	 * and to read classes held in memory.
+	 *
+	 * @param hierarchy
+	 * 		Class hierarchy to add to.
+	 * @param reader
+	 * 		Class to add.
 	 */
-	private static ClassHierarchy clsHierarchyFromArchive(JarFile file) throws IOException {
+	private static void addToHierarchy(ClassHierarchy hierarchy, ClassReader reader) {
+		String[] ifaceNames = reader.getInterfaces();
+		Type clazz = Type.getObjectType(reader.getClassName());
+		Type superclass = reader.getSuperName() == null ?
+				TypeUtil.OBJECT_TYPE : Type.getObjectType(reader.getSuperName());
+		Type[] ifaces = new Type[ifaceNames.length];
+		for (int i = 0; i < ifaces.length; i++)
+			ifaces[i] = Type.getObjectType(ifaceNames[i]);
+		// Add type to hierarchy
+		boolean isInterface = (reader.getAccess() & Opcodes.ACC_INTERFACE) != 0;
 		try {
-			ClassHierarchy hierarchy = new IncrementalClassHierarchy();
-			for (Enumeration<JarEntry> e = file.entries(); e.hasMoreElements(); ) {
-				JarEntry entry = e.nextElement();
-				if (entry.isDirectory())
-					continue;
-				if (!entry.getName().endsWith(".class"))
-					continue;
-				try (InputStream stream = file.getInputStream(entry)) {
-					ClassReader reader = new ClassReader(stream);
-					String[] ifaceNames = reader.getInterfaces();
-					Type clazz = Type.getObjectType(reader.getClassName());
-					Type superclass = reader.getSuperName() == null ?
-							TypeUtil.OBJECT_TYPE : Type.getObjectType(reader.getSuperName());
-					Type[] ifaces = new Type[ifaceNames.length];
-					for (int i = 0; i < ifaces.length; i++)
-						ifaces[i] = Type.getObjectType(ifaceNames[i]);
-					// Add type to hierarchy
-					boolean isInterface = (reader.getAccess() & Opcodes.ACC_INTERFACE) != 0;
-					try {
-						if (isInterface) {
-							hierarchy.addInterface(clazz, ifaces);
-						} else {
-							hierarchy.addClass(clazz, superclass, ifaces);
-						}
-					} catch (Exception ex) {
-						Log.error(ex, "JPhantom: Hierarchy failure for: {}", clazz);
-					}
-				} catch (IOException ex) {
-					Log.error(ex, "JPhantom: IO Error reading from archive: {}", file.getName());
-				}
+			if (isInterface) {
+				hierarchy.addInterface(clazz, ifaces);
+			} else {
+				hierarchy.addClass(clazz, superclass, ifaces);
 			}
-			return hierarchy;
-		} finally {
-			file.close();
+		} catch (Exception ex) {
+			Log.error(ex, "JPhantom: Hierarchy failure for: {}", clazz);
 		}
 	}
 
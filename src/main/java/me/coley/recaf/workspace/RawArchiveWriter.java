@@ -0,0 +1,292 @@
+package me.coley.recaf.workspace;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Zip archive writer that takes entry data that is already compressed.
+ * <br>
+ * This allows entries to be {@link #deflate(byte[]) deflated} ahead of time on multiple threads, and entries
+ * of a {@link MappedArchive} to be {@link #copy(String, MappedArchive, MappedArchive.Entry) copied} as they are
+ * stored, without being inflated and deflated again.
+ *
+ * @author Matt
+ */
+public class RawArchiveWriter implements Closeable {
+	private static final int SIG_LOCAL = 0x04034b50;
+	private static final int SIG_CENTRAL = 0x02014b50;
+	private static final int SIG_END = 0x06054b50;
+	private static final int SIG_END_64 = 0x06064b50;
+	private static final int SIG_END_64_LOCATOR = 0x07064b50;
+	private static final int VERSION = 20;
+	private static final int VERSION_64 = 45;
+	private static final int FLAG_UTF8 = 0x0800;
+	private static final long MAX_32 = 0xFFFFFFFFL;
+	private static final int MAX_16 = 0xFFFF;
+	private final List<Record> records = new ArrayList<>();
+	private final int dosTime = toDosTime(System.currentTimeMillis());
+	private final OutputStream out;
+	private long position;
+
+	/**
+	 * @param out
+	 * 		Stream to write the archive to.
+	 */
+	public RawArchiveWriter(OutputStream out) {
+		this.out = new BufferedOutputStream(out);
+	}
+
+	/**
+	 * @param data
+	 * 		Uncompressed entry data.
+	 *
+	 * @return Entry data prepared for {@link #write(String, Compressed)}.
+	 */
+	public static Compressed deflate(byte[] data) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			return deflate(data, deflater);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * @param data
+	 * 		Uncompressed entry data.
+	 * @param deflater
+	 * 		Deflater without a zlib wrapper. Reset before use so that it can be shared between calls on the
+	 * 		same thread.
+	 *
+	 * @return Entry data prepared for {@link #write(String, Compressed)}.
+	 */
+	public static Compressed deflate(byte[] data, Deflater deflater) {
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+		deflater.reset();
+		deflater.setInput(data);
+		deflater.finish();
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+		byte[] buffer = new byte[8192];
+		while (!deflater.finished()) {
+			int count = deflater.deflate(buffer);
+			compressed.write(buffer, 0, count);
+		}
+		return new Compressed(ZipEntry.DEFLATED, crc.getValue(), data.length, compressed.toByteArray());
+	}
+
+	/**
+	 * @param name
+	 * 		Directory entry name, ending with a {@code '/'}.
+	 *
+	 * @throws IOException
+	 * 		When the stream could not be written to.
+	 */
+	public void writeDirectory(String name) throws IOException {
+		writeHeader(name, ZipEntry.STORED, dosTime, 0, 0, 0);
+	}
+
+	/**
+	 * @param name
+	 * 		Entry name.
+	 * @param data
+	 * 		Compressed entry data.
+	 *
+	 * @throws IOException
+	 * 		When the stream could not be written to.
+	 */
+	public void write(String name, Compressed data) throws IOException {
+		writeHeader(name, data.method, dosTime, data.crc, data.data.length, data.size);
+		out.write(data.data);
+		position += data.data.length;
+	}
+
+	/**
+	 * Copy an entry without inflating its data. The entry keeps its modification time.
+	 *
+	 * @param name
+	 * 		Name of the entry in the written archive.
+	 * @param archive
+	 * 		Archive to copy the entry from.
+	 * @param entry
+	 * 		Entry to copy.
+	 *
+	 * @throws IOException
+	 * 		When the entry could not be read, or the stream could not be written to.
+	 */
+	public void copy(String name, MappedArchive archive, MappedArchive.Entry entry) throws IOException {
+		writeHeader(name, entry.getMethod(), entry.getDosTime(), entry.getCrc(), entry.getCompressedSize(),
+				entry.getSize());
+		archive.copyRaw(entry, out);
+		position += entry.getCompressedSize();
+	}
+
+	/**
+	 * Write the central directory and close the stream.
+	 *
+	 * @throws IOException
+	 * 		When the stream could not be written to.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			long start = position;
+			for (Record record : records)
+				writeCentral(record);
+			long size = position - start;
+			int count = records.size();
+			// Zip64 records are only needed when the regular end record cannot hold the values
+			boolean zip64 = count >= MAX_16 || start >= MAX_32 || size >= MAX_32;
+			if (zip64) {
+				long end64 = position;
+				writeInt(SIG_END_64);
+				writeLong(44);
+				writeShort(VERSION_64);
+				writeShort(VERSION_64);
+				writeInt(0);
+				writeInt(0);
+				writeLong(count);
+				writeLong(count);
+				writeLong(size);
+				writeLong(start);
+				writeInt(SIG_END_64_LOCATOR);
+				writeInt(0);
+				writeLong(end64);
+				writeInt(1);
+			}
+			writeInt(SIG_END);
+			writeShort(0);
+			writeShort(0);
+			writeShort(Math.min(count, MAX_16));
+			writeShort(Math.min(count, MAX_16));
+			writeInt((int) Math.min(size, MAX_32));
+			writeInt((int) Math.min(start, MAX_32));
+			writeShort(0);
+			out.flush();
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeHeader(String name, int method, int time, long crc, long compressedSize, long size)
+			throws IOException {
+		if (compressedSize >= MAX_32 || size >= MAX_32)
+			throw new IOException("Entry too large: " + name);
+		Record record = new Record(name.getBytes(StandardCharsets.UTF_8), method, time, crc, compressedSize,
+				size, position);
+		writeInt(SIG_LOCAL);
+		writeShort(VERSION);
+		writeShort(FLAG_UTF8);
+		writeShort(method);
+		writeInt(time);
+		writeInt((int) crc);
+		writeInt((int) compressedSize);
+		writeInt((int) size);
+		writeShort(record.name.length);
+		writeShort(0);
+		out.write(record.name);
+		position += record.name.length;
+		records.add(record);
+	}
+
+	private void writeCentral(Record record) throws IOException {
+		boolean zip64 = record.offset >= MAX_32;
+		writeInt(SIG_CENTRAL);
+		writeShort(zip64 ? VERSION_64 : VERSION);
+		writeShort(zip64 ? VERSION_64 : VERSION);
+		writeShort(FLAG_UTF8);
+		writeShort(record.method);
+		writeInt(record.time);
+		writeInt((int) record.crc);
+		writeInt((int) record.compressedSize);
+		writeInt((int) record.size);
+		writeShort(record.name.length);
+		writeShort(zip64 ? 12 : 0);
+		writeShort(0);
+		writeShort(0);
+		writeShort(0);
+		writeInt(0);
+		writeInt(zip64 ? (int) MAX_32 : (int) record.offset);
+		out.write(record.name);
+		position += record.name.length;
+		if (zip64) {
+			writeShort(0x0001);
+			writeShort(8);
+			writeLong(record.offset);
+		}
+	}
+
+	private void writeShort(int value) throws IOException {
+		out.write(value & 0xFF);
+		out.write((value >>> 8) & 0xFF);
+		position += 2;
+	}
+
+	private void writeInt(int value) throws IOException {
+		writeShort(value);
+		writeShort(value >>> 16);
+	}
+
+	private void writeLong(long value) throws IOException {
+		writeInt((int) value);
+		writeInt((int) (value >>> 32));
+	}
+
+	private static int toDosTime(long millis) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(millis);
+		int year = calendar.get(Calendar.YEAR);
+		if (year < 1980)
+			return (1 << 21) | (1 << 16);
+		return (year - 1980) << 25 | (calendar.get(Calendar.MONTH) + 1) << 21 |
+				calendar.get(Calendar.DAY_OF_MONTH) << 16 | calendar.get(Calendar.HOUR_OF_DAY) << 11 |
+				calendar.get(Calendar.MINUTE) << 5 | calendar.get(Calendar.SECOND) >> 1;
+	}
+
+	/**
+	 * Entry data in the form it is stored in the archive.
+	 */
+	public static final class Compressed {
+		private final int method;
+		private final long crc;
+		private final long size;
+		private final byte[] data;
+
+		private Compressed(int method, long crc, long size, byte[] data) {
+			this.method = method;
+			this.crc = crc;
+			this.size = size;
+			this.data = data;
+		}
+	}
+
+	/**
+	 * Central directory information of a written entry.
+	 */
+	private static final class Record {
+		private final byte[] name;
+		private final int method;
+		private final int time;
+		private final long crc;
+		private final long compressedSize;
+		private final long size;
+		private final long offset;
+
+		private Record(byte[] name, int method, int time, long crc, long compressedSize, long size,
+					   long offset) {
+			this.name = name;
+			this.method = method;
+			this.time = time;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.offset = offset;
+		}
+	}
+}
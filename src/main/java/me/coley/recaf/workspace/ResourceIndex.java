@@ -0,0 +1,378 @@
+package me.coley.recaf.workspace;
+
+import me.coley.recaf.Recaf;
+import me.coley.recaf.util.struct.Pair;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.objectweb.asm.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static me.coley.recaf.util.Log.*;
+
+/**
+ * Persistent index of the content of a file resource. The index is keyed by the hash of the resource's file,
+ * so an index that is found in the cache is known to describe the exact same content.
+ * <br>
+ * The index records:
+ * <ul>
+ * <li>Class entries that passed validation, so validation can be skipped when reading them again.</li>
+ * <li>Class names, parents and member definitions, used by the
+ * {@link me.coley.recaf.graph.inheritance.HierarchyGraph}.</li>
+ * <li>Generated phantom classes, used by the {@link PhantomResource}. These also depend on the rest of the
+ * workspace, so they are recorded along with a key describing it.</li>
+ * </ul>
+ * The recorded class data describes the classes as they were initially loaded. Callers must check the
+ * resource's {@link JavaResource#getDirtyClasses() modified classes} before using it.
+ *
+ * @author Matt
+ */
+public class ResourceIndex {
+	private static final Path CACHE_DIR = Recaf.getDirectory("cache").resolve("index");
+	private static final String EXTENSION = ".idx";
+	private static final int MAGIC = 0x52494458;
+	private static final int VERSION = 2;
+	private static final int MAX_CACHED_INDICES = 16;
+	private static final long CONFLICT = -1;
+	private final Map<String, Long> validEntries = new ConcurrentHashMap<>();
+	private final Map<String, ClassInfo> classes = new ConcurrentHashMap<>();
+	private final Path file;
+	private Map<String, byte[]> phantoms;
+	private String phantomKey;
+	private boolean loaded;
+
+	private ResourceIndex(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * @param path
+	 * 		Path to a resource's file.
+	 *
+	 * @return Index of the file's content. If no index exists in the cache, an empty index is returned which
+	 * is populated as the resource is loaded.
+	 *
+	 * @throws IOException
+	 * 		When the file could not be hashed.
+	 */
+	public static ResourceIndex of(Path path) throws IOException {
+		String hash;
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+			hash = DigestUtils.sha1Hex(in);
+		}
+		ResourceIndex index = new ResourceIndex(CACHE_DIR.resolve(hash + EXTENSION));
+		if (Files.exists(index.file)) {
+			try {
+				index.read();
+				index.loaded = true;
+				debug("Found cached index for \"{}\" with {} classes", path.getFileName(), index.classes.size());
+			} catch(IOException ex) {
+				warn("Discarding unreadable index cache for \"{}\": {}", path.getFileName(), ex.getMessage());
+				index.validEntries.clear();
+				index.classes.clear();
+				index.phantoms = null;
+				index.phantomKey = null;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @return {@code true} when the index was read from the cache.
+	 */
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * @param entryName
+	 * 		Class's archive entry name.
+	 * @param value
+	 * 		Class's bytecode.
+	 *
+	 * @return {@code true} when the entry with the given content previously passed validation.
+	 */
+	public boolean isValidEntry(String entryName, byte[] value) {
+		Long key = validEntries.get(entryName);
+		return key != null && key != CONFLICT && key == entryKey(value);
+	}
+
+	/**
+	 * Record that the class entry passed validation.
+	 *
+	 * @param entryName
+	 * 		Class's archive entry name.
+	 * @param value
+	 * 		Class's bytecode.
+	 */
+	public void addValidEntry(String entryName, byte[] value) {
+		long key = entryKey(value);
+		// Archives with duplicate entry names are ambiguous, so those entries are always validated
+		validEntries.merge(entryName, key, (a, b) -> a.equals(b) ? a : CONFLICT);
+	}
+
+	/**
+	 * Record the parents and members of a loaded class.
+	 *
+	 * @param reader
+	 * 		Class to record.
+	 */
+	public void addClass(ClassReader reader) {
+		ClassInfo info = new ClassInfo(reader.getClassName(), reader.getSuperName(), reader.getInterfaces());
+		reader.accept(new ClassVisitor(Recaf.ASM_VERSION) {
+			@Override
+			public FieldVisitor visitField(int access, String name, String desc, String sig, Object value) {
+				info.fields.add(new Pair<>(name, desc));
+				return null;
+			}
+
+			@Override
+			public MethodVisitor visitMethod(int access, String name, String desc, String sig, String[] ex) {
+				info.methods.add(new Pair<>(name, desc));
+				return null;
+			}
+		}, ClassReader.SKIP_DEBUG | ClassReader.SKIP_CODE);
+		classes.put(info.name, info);
+	}
+
+	/**
+	 * @param name
+	 * 		Class name.
+	 *
+	 * @return Recorded class information, or {@code null} if the class is not indexed.
+	 */
+	public ClassInfo getClass(String name) {
+		return classes.get(name);
+	}
+
+	/**
+	 * @param key
+	 * 		Description of the workspace the phantoms are generated in.
+	 *
+	 * @return Generated phantom classes, or {@code null} if phantoms have not been recorded for the given key.
+	 */
+	public Map<String, byte[]> getPhantoms(String key) {
+		return key.equals(phantomKey) ? phantoms : null;
+	}
+
+	/**
+	 * @param key
+	 * 		Description of the workspace the phantoms are generated in, such as the skipped prefixes and
+	 * 		libraries. Recorded phantoms are only used again for the same key.
+	 * @param phantoms
+	 * 		Generated phantom classes.
+	 */
+	public void setPhantoms(String key, Map<String, byte[]> phantoms) {
+		this.phantomKey = key;
+		this.phantoms = new HashMap<>(phantoms);
+	}
+
+	/**
+	 * Write the index to the cache.
+	 *
+	 * @throws IOException
+	 * 		When the index could not be written.
+	 */
+	public synchronized void save() throws IOException {
+		if (!Files.isDirectory(CACHE_DIR))
+			Files.createDirectories(CACHE_DIR);
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new GZIPOutputStream(Files.newOutputStream(temp))))) {
+			write(out);
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		loaded = true;
+		prune();
+	}
+
+	private void write(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(validEntries.size());
+		for (Map.Entry<String, Long> e : validEntries.entrySet()) {
+			writeString(out, e.getKey());
+			out.writeLong(e.getValue());
+		}
+		out.writeInt(classes.size());
+		for (ClassInfo info : classes.values()) {
+			writeString(out, info.name);
+			out.writeBoolean(info.superName != null);
+			if (info.superName != null)
+				writeString(out, info.superName);
+			out.writeShort(info.interfaces.length);
+			for (String itf : info.interfaces)
+				writeString(out, itf);
+			writeMembers(out, info.fields);
+			writeMembers(out, info.methods);
+		}
+		out.writeBoolean(phantoms != null);
+		if (phantoms != null) {
+			writeString(out, phantomKey);
+			out.writeInt(phantoms.size());
+			for (Map.Entry<String, byte[]> e : phantoms.entrySet()) {
+				writeString(out, e.getKey());
+				out.writeInt(e.getValue().length);
+				out.write(e.getValue());
+			}
+		}
+	}
+
+	private void read() throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new GZIPInputStream(Files.newInputStream(file))))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException("Unsupported index format");
+			int entries = in.readInt();
+			for (int i = 0; i < entries; i++)
+				validEntries.put(readString(in), in.readLong());
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String name = readString(in);
+				String superName = in.readBoolean() ? readString(in) : null;
+				String[] interfaces = new String[in.readUnsignedShort()];
+				for (int j = 0; j < interfaces.length; j++)
+					interfaces[j] = readString(in);
+				ClassInfo info = new ClassInfo(name, superName, interfaces);
+				readMembers(in, info.fields);
+				readMembers(in, info.methods);
+				classes.put(name, info);
+			}
+			if (in.readBoolean()) {
+				phantomKey = readString(in);
+				int phantomCount = in.readInt();
+				phantoms = new HashMap<>();
+				for (int i = 0; i < phantomCount; i++) {
+					String name = readString(in);
+					byte[] value = new byte[in.readInt()];
+					in.readFully(value);
+					phantoms.put(name, value);
+				}
+			}
+		}
+	}
+
+	private static void writeMembers(DataOutputStream out, List<Pair<String, String>> members) throws IOException {
+		out.writeInt(members.size());
+		for (Pair<String, String> member : members) {
+			writeString(out, member.getKey());
+			writeString(out, member.getValue());
+		}
+	}
+
+	private static void readMembers(DataInputStream in, List<Pair<String, String>> members) throws IOException {
+		int count = in.readInt();
+		for (int i = 0; i < count; i++)
+			members.add(new Pair<>(readString(in), readString(in)));
+	}
+
+	/**
+	 * Strings are written as length-prefixed bytes, as {@link DataOutputStream#writeUTF(String)} is limited
+	 * to 64 KB, which large signatures and generated names can exceed.
+	 */
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0)
+			throw new IOException("Malformed string length: " + length);
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static long entryKey(byte[] value) {
+		CRC32 crc = new CRC32();
+		crc.update(value, 0, value.length);
+		return ((long) value.length << 32) | crc.getValue();
+	}
+
+	/**
+	 * Remove the least recently written indices once the cache holds too many.
+	 */
+	private static void prune() {
+		try (Stream<Path> stream = Files.list(CACHE_DIR)) {
+			List<Path> indices = stream.filter(p -> p.toString().endsWith(EXTENSION))
+					.sorted(Comparator.comparingLong(ResourceIndex::lastModified).reversed())
+					.collect(Collectors.toList());
+			for (Path old : indices.subList(Math.min(MAX_CACHED_INDICES, indices.size()), indices.size()))
+				Files.deleteIfExists(old);
+		} catch(IOException ex) {
+			warn("Failed to prune index cache: {}", ex.getMessage());
+		}
+	}
+
+	private static long lastModified(Path path) {
+		try {
+			return Files.getLastModifiedTime(path).toMillis();
+		} catch(IOException ex) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Indexed class information.
+	 */
+	public static final class ClassInfo {
+		private final String name;
+		private final String superName;
+		private final String[] interfaces;
+		private final List<Pair<String, String>> fields = new ArrayList<>();
+		private final List<Pair<String, String>> methods = new ArrayList<>();
+
+		private ClassInfo(String name, String superName, String[] interfaces) {
+			this.name = name;
+			this.superName = superName;
+			this.interfaces = interfaces;
+		}
+
+		/**
+		 * @return Class name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return Parent class name.
+		 */
+		public String getSuperName() {
+			return superName;
+		}
+
+		/**
+		 * @return Implemented interface names.
+		 */
+		public String[] getInterfaces() {
+			return interfaces;
+		}
+
+		/**
+		 * @return Field name and descriptor pairs.
+		 */
+		public List<Pair<String, String>> getFields() {
+			return fields;
+		}
+
+		/**
+		 * @return Method name and descriptor pairs.
+		 */
+		public List<Pair<String, String>> getMethods() {
+			return methods;
+		}
+	}
+}
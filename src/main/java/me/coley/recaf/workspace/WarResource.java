@@ -4,8 +4,9 @@ import me.coley.recaf.util.IOUtil;
 
 import java.io.*;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.Map;
+import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -31,61 +32,32 @@ public class WarResource extends ArchiveResource {
 	}
 
 	@Override
-	protected Map<String, byte[]> loadClasses() throws IOException {
-		// iterate war entries
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		byte[] buffer = new byte[8192];
-		EntryLoader loader = getEntryLoader();
+	protected void readArchive(EntryLoader loader) throws IOException {
 		try (ZipFile zipFile = new ZipFile(getPath().toFile())) {
-			Enumeration<? extends ZipEntry> entries = zipFile.entries();
-			while(entries.hasMoreElements()) {
-				// verify entries are classes and valid files
-				// - skip intentional garbage / zip file abnormalities
-				ZipEntry entry = entries.nextElement();
+			// verify entries are valid files
+			// - skip intentional garbage / zip file abnormalities
+			List<ZipEntry> entries = new ArrayList<>(zipFile.size());
+			Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+			while(enumeration.hasMoreElements()) {
+				ZipEntry entry = enumeration.nextElement();
 				if (shouldSkip(entry.getName()))
 					continue;
-				if(!loader.isValidClassEntry(entry))
-					continue;
 				if(!loader.isValidFileEntry(entry))
 					continue;
-				out.reset();
-				InputStream stream = zipFile.getInputStream(entry);
-				String name = entry.getName();
-				if (name.startsWith(WAR_CLASS_PREFIX))
-					name = name.substring(WAR_CLASS_PREFIX.length());
-				byte[] value = IOUtil.toByteArray(stream, out, buffer);
-				loader.onClass(name, value);
+				entries.add(entry);
 			}
-		}
-		loader.finishClasses();
-		return loader.getClasses();
-	}
-
-	@Override
-	protected Map<String, byte[]> loadFiles() throws IOException {
-		// iterate war entries
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		byte[] buffer = new byte[8192];
-		EntryLoader loader = getEntryLoader();
-		try (ZipFile zipFile = new ZipFile(getPath().toFile())) {
-			Enumeration<? extends ZipEntry> entries = zipFile.entries();
-			while(entries.hasMoreElements()) {
-				// verify entries are not classes and are valid files
-				// - skip intentional garbage / zip file abnormalities
-				ZipEntry entry = entries.nextElement();
-				if (shouldSkip(entry.getName()))
-					continue;
-				if(loader.isValidClassEntry(entry))
-					continue;
-				if(!loader.isValidFileEntry(entry))
-					continue;
-				out.reset();
+			readEntries(loader, entries, (entry, order, out, buffer) -> {
 				InputStream stream = zipFile.getInputStream(entry);
 				byte[] in = IOUtil.toByteArray(stream, out, buffer);
-				loader.onFile(entry.getName(), in);
-			}
+				String name = entry.getName();
+				if (loader.isValidClassEntry(entry)) {
+					if (name.startsWith(WAR_CLASS_PREFIX))
+						name = name.substring(WAR_CLASS_PREFIX.length());
+					addClass(loader, entry, name, in, order);
+				} else {
+					addFile(loader, name, in, order);
+				}
+			});
 		}
-		loader.finishFiles();
-		return loader.getFiles();
 	}
 }
@@ -4,7 +4,6 @@ import com.github.javaparser.ParseResult;
 import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.symbolsolver.JavaSymbolSolver;
-import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
 import me.coley.recaf.Recaf;
 import me.coley.recaf.command.impl.Export;
 import me.coley.recaf.compiler.JavacCompiler;
@@ -15,13 +14,18 @@ import me.coley.recaf.graph.inheritance.HierarchyGraph;
 import me.coley.recaf.mapping.AsmMappingUtils;
 import me.coley.recaf.parse.javadoc.Javadocs;
 import me.coley.recaf.parse.source.*;
+import me.coley.recaf.search.ClassNameIndex;
+import me.coley.recaf.search.ConstantIndex;
 import me.coley.recaf.util.Log;
 import me.coley.recaf.util.ThreadUtil;
+import me.coley.recaf.util.struct.InternalBiConsumer;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -33,13 +37,19 @@ import java.util.stream.Stream;
  */
 public class Workspace {
 	private static final LazyClasspathResource CP = LazyClasspathResource.get();
+	private static final long PHANTOM_UPDATE_DELAY = 500;
 	private final Map<String, String> aggregatedMappings = new HashMap<>();
 	private final PhantomResource phantoms = new PhantomResource();
+	private final Set<String> pendingPhantomUpdates = new HashSet<>();
+	private boolean phantomListenerRegistered;
 	private final JavaResource primary;
 	private final List<JavaResource> libraries;
 	private HierarchyGraph hierarchyGraph;
 	private FlowGraph flowGraph;
+	private ConstantIndex constantIndex;
+	private ClassNameIndex classNameIndex;
 	private ParserConfiguration config;
+	private WorkspaceTypeResolver typeResolver;
 
 	/**
 	 * Constructs a workspace.
@@ -79,6 +89,31 @@ public class Workspace {
 		return libraries;
 	}
 
+	/**
+	 * @return Description of the {@link #getLibraries() libraries}, which changes when a library is added,
+	 * removed or has its file modified.
+	 */
+	public String describeLibraries() {
+		StringBuilder sb = new StringBuilder();
+		for (JavaResource library : getLibraries()) {
+			sb.append(library.getKind()).append(':').append(library);
+			// Hashing the content of every library each time would be too slow, so files are
+			// identified by their location, size and modification time instead
+			if (library instanceof FileSystemResource) {
+				Path path = ((FileSystemResource) library).getPath();
+				sb.append(':').append(path.toAbsolutePath());
+				try {
+					sb.append(':').append(Files.size(path))
+							.append(':').append(Files.getLastModifiedTime(path).toMillis());
+				} catch(IOException ex) {
+					// Missing files are still identified by their location
+				}
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
 	/**
 	 * @return Recaf managed resource containing phantom references.
 	 */
@@ -104,6 +139,24 @@ public class Workspace {
 		return flowGraph;
 	}
 
+	/**
+	 * @return Index of the constants of the primary resource's classes.
+	 */
+	public ConstantIndex getConstantIndex() {
+		if(constantIndex == null)
+			constantIndex = new ConstantIndex(this);
+		return constantIndex;
+	}
+
+	/**
+	 * @return Sorted index of the names of the workspace's classes.
+	 */
+	public synchronized ClassNameIndex getClassNameIndex() {
+		if(classNameIndex == null)
+			classNameIndex = new ClassNameIndex(this);
+		return classNameIndex;
+	}
+
 	/**
 	 * @return Aggregated ASM mappings for the workspace.
 	 */
@@ -186,15 +239,75 @@ public class Workspace {
 		ThreadUtil.run(() -> {
 			try {
 				long start = System.currentTimeMillis();
-				phantoms.populatePhantoms(getPrimaryClasses());
+				registerPhantomListener();
+				Set<byte[]> classes = getPrimaryClasses();
+				// Phantoms of an unmodified primary resource can be taken from its index
+				ResourceIndex index = primary.getIndex();
+				boolean unmodified = index != null && primary.getDirtyClasses().isEmpty();
+				// Skipped prefixes and libraries change which referenced types are missing
+				String key = primary.getSkippedPrefixes() + "\n" + describeLibraries();
+				Map<String, byte[]> cached = unmodified ? index.getPhantoms(key) : null;
+				if (cached != null) {
+					phantoms.populatePhantoms(cached);
+					Log.debug("Loaded {} cached phantom classes in {} ms",
+							phantoms.getClasses().size(), (System.currentTimeMillis() - start));
+					return;
+				}
+				phantoms.populatePhantoms(classes);
 				Log.debug("Generated {} phantom classes in {} ms",
 						phantoms.getClasses().size(), (System.currentTimeMillis() - start));
+				if (unmodified) {
+					index.setPhantoms(key, phantoms.getClasses());
+					index.save();
+				}
 			} catch (Throwable t) {
 				Log.error(t, "Failed to analyze phantom references for primary resource");
 			}
 		});
 	}
 
+	/**
+	 * Register a listener that regenerates phantoms for the references of modified primary classes.
+	 */
+	private synchronized void registerPhantomListener() {
+		if (phantomListenerRegistered)
+			return;
+		phantomListenerRegistered = true;
+		primary.getClasses().getPutListeners().add(InternalBiConsumer.internal((name, code) -> {
+			synchronized(pendingPhantomUpdates) {
+				// Batch edits made in quick succession, such as when applying mappings, into one update
+				if (pendingPhantomUpdates.isEmpty())
+					ThreadUtil.runDelayed(PHANTOM_UPDATE_DELAY, this::updatePhantoms);
+				pendingPhantomUpdates.add(name);
+			}
+		}));
+	}
+
+	/**
+	 * Generate phantoms for the references of primary classes modified since the last update.
+	 */
+	private void updatePhantoms() {
+		Set<String> names;
+		synchronized(pendingPhantomUpdates) {
+			names = new HashSet<>(pendingPhantomUpdates);
+			pendingPhantomUpdates.clear();
+		}
+		try {
+			long start = System.currentTimeMillis();
+			List<byte[]> updated = names.stream()
+					.map(name -> primary.getClasses().get(name))
+					.filter(Objects::nonNull)
+					.collect(Collectors.toList());
+			if (updated.isEmpty())
+				return;
+			phantoms.updatePhantoms(getPrimaryClasses(), updated);
+			Log.debug("Updated phantom classes for {} modified classes in {} ms",
+					updated.size(), (System.currentTimeMillis() - start));
+		} catch (Throwable t) {
+			Log.error(t, "Failed to update phantom references for modified classes");
+		}
+	}
+
 	/**
 	 * Update the aggregate ASM mappings in the workspace.
 	 *
@@ -446,9 +559,13 @@ public class Workspace {
 	 * Creates a source config with a type resolver that can access all types in the workspace.
 	 */
 	public void updateSourceConfig() {
-		TypeSolver solver = new WorkspaceTypeResolver(this);
+		// The resolver reads classes on demand and tracks modifications itself, so it can be reused
+		if (typeResolver == null)
+			typeResolver = new WorkspaceTypeResolver(this);
+		else
+			typeResolver.invalidateAll();
 		config = new ParserConfiguration()
-				.setSymbolResolver(new JavaSymbolSolver(solver))
+				.setSymbolResolver(new JavaSymbolSolver(typeResolver))
 				.setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_14);
 	}
 
@@ -2,6 +2,7 @@ package me.coley.recaf.workspace;
 
 import com.eclipsesource.json.*;
 import me.coley.recaf.util.IOUtil;
+import me.coley.recaf.util.Log;
 
 import java.io.File;
 import java.io.IOException;
@@ -98,6 +99,7 @@ public class WorkspaceIO {
 	private static JavaResource deserializeResource(JsonObject jresource) throws IllegalArgumentException, IOException {
 		JavaResource resource = deserializeBase(jresource);
 		deserializeExtras(resource, jresource);
+		deserializeIndex(resource);
 		return resource;
 	}
 
@@ -237,9 +239,32 @@ public class WorkspaceIO {
 		if (resource.getClassDocsPath() != null) {
 			jresource.add("attach-docs", resource.getClassDocsPath().toAbsolutePath().toString());
 		}
+		if (resource instanceof ArchiveResource && ((ArchiveResource) resource).isMappedStorage()) {
+			jresource.add("mapped", true);
+		}
 	}
 
 
+	/**
+	 * Attach the cached index of the resource's file, so that reopening an unchanged workspace
+	 * can skip redundant analysis.
+	 *
+	 * @param resource
+	 * 		Resource to attach an index to.
+	 */
+	private static void deserializeIndex(JavaResource resource) {
+		if (!(resource instanceof FileSystemResource))
+			return;
+		Path path = ((FileSystemResource) resource).getPath();
+		if (!Files.isRegularFile(path))
+			return;
+		try {
+			resource.setIndex(ResourceIndex.of(path));
+		} catch(IOException ex) {
+			Log.warn("Failed to read index of \"{}\": {}", path.getFileName(), ex.getMessage());
+		}
+	}
+
 	/**
 	 * Deserialize non-core attributes.
 	 *
@@ -257,6 +282,9 @@ public class WorkspaceIO {
 			value.asArray().forEach(val -> skipped.add(val.asString()));
 			resource.setSkippedPrefixes(skipped);
 		}
+		value = jresource.get("mapped");
+		if (value != null && resource instanceof ArchiveResource)
+			((ArchiveResource) resource).setMappedStorage(value.asBoolean());
 		value = jresource.get("attach-src");
 		if (value != null) {
 			File src = new File(value.asString());
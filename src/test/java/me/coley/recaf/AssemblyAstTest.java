@@ -1,5 +1,6 @@
 package me.coley.recaf;
 
+import me.coley.recaf.parse.bytecode.IncrementalParser;
 import me.coley.recaf.parse.bytecode.Parse;
 import me.coley.recaf.parse.bytecode.ParseResult;
 import me.coley.recaf.parse.bytecode.exception.ASTParseException;
@@ -176,6 +177,28 @@ public class AssemblyAstTest {
 			assertEquals(line, root.print());
 		}
 
+		@Test
+		public void testIncrementalParse() {
+			IncrementalParser parser = new IncrementalParser();
+			String code = "ALIAS hello \"\"Hello\"\"\nLDC ${hello}\nPOP\nRETURN";
+			RootAST first = parser.parse(code).getRoot();
+			AST pop = first.getAtLine(3);
+			// Lines after an insertion are reused and moved
+			String edited = "//comment\n" + code;
+			RootAST second = parser.parse(edited).getRoot();
+			assertSame(pop, second.getAtLine(4));
+			assertEquals(4, pop.getLine());
+			assertEquals(Parse.parse(edited).getRoot().print(), second.print());
+			assertNull(second.getChildren().get(0).getPrev());
+			// Changed lines are parsed again, with the problems of the current text
+			ParseResult<RootAST> broken = parser.parse(edited.replace("POP", "NOT_AN_OPCODE"));
+			assertEquals(1, broken.getProblems().size());
+			assertEquals(4, broken.getProblems().get(0).getLine());
+			// Changing an alias changes every line using it
+			RootAST third = parser.parse(edited.replace("Hello", "World")).getRoot();
+			assertEquals("LDC \"World\"", third.getAtLine(3).print());
+		}
+
 		@Test
 		public void testInsn() {
 			RootAST root = Parse.parse("ACONST_NULL\nARETURN").getRoot();
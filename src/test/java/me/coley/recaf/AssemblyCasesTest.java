@@ -52,6 +52,35 @@ public class AssemblyCasesTest {
 			verifyPass(Parse.parse(s));
 		}
 
+		@Test
+		public void testVerificationReusedForUnchangedCode() {
+			IncrementalParser parser = new IncrementalParser();
+			String code = D1 + "ICONST_0\nPUTSTATIC Test.boolVal Z\nRETURN" + D2;
+			Recaf.getController().config().assembler().verify = true;
+			MethodAssembler first = new MethodAssembler("Test", Recaf.getController().config().assembler());
+			MethodAssembler second = new MethodAssembler("Test", Recaf.getController().config().assembler());
+			MethodAssembler third = new MethodAssembler("Test", Recaf.getController().config().assembler());
+			MethodAssembler fourth = new MethodAssembler("Test", Recaf.getController().config().assembler());
+			try {
+				first.compile(parser.parse(code));
+				// Only comments and line positions changed
+				second.setPrevious(first);
+				second.compile(parser.parse("//comment\n\n" + code));
+				assertSame(first.getFrames(), second.getFrames());
+				// Code changed
+				third.setPrevious(second);
+				third.compile(parser.parse(code.replace("ICONST_0", "ICONST_1")));
+				assertNotSame(second.getFrames(), third.getFrames());
+				// Hierarchy changed
+				fourth.setPrevious(third);
+				Recaf.getCurrentWorkspace().getHierarchyGraph().refresh();
+				fourth.compile(parser.parse(code.replace("ICONST_0", "ICONST_1")));
+				assertNotSame(third.getFrames(), fourth.getFrames());
+			} catch(AssemblerException ex) {
+				fail(ex);
+			}
+		}
+
 		@Test
 		public void testOnlyParameterLocals() {
 			String s = "DEFINE public add(I unused, I count)V\n" +
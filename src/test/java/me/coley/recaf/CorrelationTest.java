@@ -84,6 +84,15 @@ public class CorrelationTest extends Base {
 			// 7 instance method renames
 			assertEquals(20, mappings.size());
 		}
+
+		@Test
+		public void testFingerprintMappingsInObfuscatedJar() {
+			Correlation correlation = new Correlation(workspace, base, target);
+			Map<String, String> flowMappings = correlation.analyze().iterator().next().getMappings();
+			Map<String, String> mappings = correlation.analyzeFingerprints();
+			// Everything found by flow analysis should also be found by matching fingerprints
+			flowMappings.forEach((key, value) -> assertEquals(value, mappings.get(key), key));
+		}
 	}
 
 	/**
@@ -174,5 +183,12 @@ public class CorrelationTest extends Base {
 			// However, there should be NO mappings since the jar has no identifiers renamed.
 			assertEquals(0, mappings.size());
 		}
+
+		@Test
+		public void testFingerprintMappingsInModifiedJar() {
+			// Matching does not depend on the modified entry point, and nothing was renamed
+			Correlation correlation = new Correlation(workspace, base, target);
+			assertEquals(Collections.emptyMap(), correlation.analyzeFingerprints());
+		}
 	}
 }
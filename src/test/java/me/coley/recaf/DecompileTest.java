@@ -1,13 +1,22 @@
 package me.coley.recaf;
 
+import me.coley.recaf.command.impl.DecompileAll;
 import me.coley.recaf.control.Controller;
+import me.coley.recaf.decompile.DecompileCache;
+import me.coley.recaf.decompile.DecompileImpl;
 import me.coley.recaf.decompile.cfr.CfrDecompiler;
 import me.coley.recaf.decompile.fernflower.FernFlowerDecompiler;
 import me.coley.recaf.decompile.procyon.ProcyonDecompiler;
 import me.coley.recaf.workspace.*;
 import org.junit.jupiter.api.*;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.*;
+import java.util.zip.ZipFile;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static me.coley.recaf.util.TestUtils.*;
@@ -65,6 +74,108 @@ public class DecompileTest extends Base {
 				assertNotNull(decomp);
 			}
 		}
+
+		@Test
+		public void testCacheInvalidatedByClassChange() {
+			DecompileCache cache = DecompileCache.getInstance();
+			String name = "test/Yoda";
+			String decomp = cache.decompile(controller, DecompileImpl.CFR, name);
+			assertTrue(cache.isCached(controller, DecompileImpl.CFR, name));
+			assertSame(decomp, cache.decompile(controller, DecompileImpl.CFR, name));
+			// Other decompilers are cached separately
+			assertFalse(cache.isCached(controller, DecompileImpl.PROCYON, name));
+			// Changing the class changes the key
+			ClassWriter cw = new ClassWriter(0);
+			controller.getWorkspace().getClassReader(name).accept(new ClassVisitor(Recaf.ASM_VERSION, cw) {
+				@Override
+				public void visitEnd() {
+					cw.visitField(Opcodes.ACC_PUBLIC, "addedField", "I", null, null).visitEnd();
+					super.visitEnd();
+				}
+			}, 0);
+			controller.getWorkspace().getPrimary().getClasses().put(name, cw.toByteArray());
+			assertFalse(cache.isCached(controller, DecompileImpl.CFR, name));
+			assertTrue(cache.decompile(controller, DecompileImpl.CFR, name).contains("addedField"));
+		}
+
+		@Test
+		public void testCacheKeyedByDeclaredInnerClassesAndLibraries() throws IOException {
+			DecompileCache cache = DecompileCache.getInstance();
+			Map<String, byte[]> classes = controller.getWorkspace().getPrimary().getClasses();
+			classes.put("test/Outer", generateClass("test/Outer", "test/Outer$In"));
+			classes.put("test/Outer$In", generateClass("test/Outer$In", "test/Outer$In"));
+			// Shares the prefix of the outer class, but is not declared by it
+			classes.put("test/Outer$Top", generateClass("test/Outer$Top", null));
+			String name = "test/Outer";
+			cache.decompile(controller, DecompileImpl.CFR, name);
+			assertTrue(cache.isCached(controller, DecompileImpl.CFR, name));
+			classes.put("test/Outer$Top", generateClass("test/Outer$Top", "test/Outer$Top"));
+			assertTrue(cache.isCached(controller, DecompileImpl.CFR, name));
+			// Declared inner classes are part of the key
+			ClassWriter cw = new ClassWriter(0);
+			cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "test/Outer$In", null, "java/lang/Object", null);
+			cw.visitInnerClass("test/Outer$In", "test/Outer", "In", Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC);
+			cw.visitField(Opcodes.ACC_PUBLIC, "addedField", "I", null, null).visitEnd();
+			cw.visitEnd();
+			classes.put("test/Outer$In", cw.toByteArray());
+			assertFalse(cache.isCached(controller, DecompileImpl.CFR, name));
+			// So are the workspace's libraries
+			cache.decompile(controller, DecompileImpl.CFR, name);
+			assertTrue(cache.isCached(controller, DecompileImpl.CFR, name));
+			controller.getWorkspace().getLibraries().add(new JarResource(getClasspathFile("calc.jar")));
+			assertFalse(cache.isCached(controller, DecompileImpl.CFR, name));
+		}
+
+		@Test
+		public void testDecompileAll() throws Exception {
+			File output = File.createTempFile("recaf", "-sources.zip");
+			output.deleteOnExit();
+			DecompileAll command = new DecompileAll();
+			command.setController(controller);
+			command.output = output;
+			command.threads = 2;
+			command.call();
+			Set<String> entries = new HashSet<>();
+			try (ZipFile zip = new ZipFile(output)) {
+				zip.stream().forEach(e -> entries.add(e.getName()));
+			}
+			Set<String> expected = new HashSet<>();
+			for (String name : controller.getWorkspace().getPrimaryClassNames())
+				expected.add(name + ".java");
+			assertEquals(expected, entries);
+		}
+
+		@Test
+		public void testDecompileAllSkipsOnlyDeclaredInnerClasses() throws Exception {
+			Map<String, byte[]> classes = controller.getWorkspace().getPrimary().getClasses();
+			// Top level classes with '$' in their names
+			classes.put("test/Obf", generateClass("test/Obf", null));
+			classes.put("test/Obf$Top", generateClass("test/Obf$Top", null));
+			// Inner class declared by its outer class
+			classes.put("test/Outer", generateClass("test/Outer", "test/Outer$In"));
+			classes.put("test/Outer$In", generateClass("test/Outer$In", "test/Outer$In"));
+			File output = File.createTempFile("recaf", "-sources.zip");
+			output.deleteOnExit();
+			DecompileAll command = new DecompileAll();
+			command.setController(controller);
+			command.output = output;
+			command.call();
+			Set<String> entries = new HashSet<>();
+			try (ZipFile zip = new ZipFile(output)) {
+				zip.stream().forEach(e -> entries.add(e.getName()));
+			}
+			assertTrue(entries.containsAll(Arrays.asList("test/Obf.java", "test/Obf$Top.java", "test/Outer.java")));
+			assertFalse(entries.contains("test/Outer$In.java"));
+		}
+
+		private byte[] generateClass(String name, String inner) {
+			ClassWriter cw = new ClassWriter(0);
+			cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+			if (inner != null)
+				cw.visitInnerClass(inner, "test/Outer", "In", Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC);
+			cw.visitEnd();
+			return cw.toByteArray();
+		}
 	}
 
 	@Nested
@@ -7,11 +7,18 @@ import me.coley.recaf.workspace.JarResource;
 import me.coley.recaf.workspace.Workspace;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import me.coley.recaf.util.ClassUtil;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.MethodNode;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -23,12 +30,13 @@ import static org.junit.jupiter.api.Assertions.*;
  * @author Matt
  */
 public class FlowGraphTest extends Base {
+	private Workspace workspace;
 	private FlowGraph graph;
 
 	@BeforeEach
 	public void setup() throws IOException {
 		Path file = getClasspathFile("calls.jar");
-		Workspace workspace = new Workspace(new JarResource(file));
+		workspace = new Workspace(new JarResource(file));
 		graph = workspace.getFlowGraph();
 	}
 
@@ -102,6 +110,36 @@ public class FlowGraphTest extends Base {
 		assertEquals(interfaceThing, calledInterface);
 	}
 
+	@Test
+	public void testCallers() {
+		// one -> two --> three
+		FlowVertex one = graph.getVertex("test/Chain", "one", "()V");
+		FlowVertex two = graph.getVertex("test/Chain", "two", "()V");
+		assertEquals(Collections.singletonList(one), graph.getCallers("test/Chain", "two", "()V"));
+		assertEquals(Collections.singletonList(two), graph.getCallers("test/Chain", "three", "()V"));
+		assertTrue(graph.getCallers("test/Chain", "one", "()V").isEmpty());
+	}
+
+	@Test
+	public void testCallsUpdatedOnEdit() {
+		FlowVertex old = graph.getVertex("test/Chain", "one", "()V");
+		// Remove the call to "two" from "one"
+		ClassNode node = ClassUtil.getNode(workspace.getClassReader("test/Chain"), 0);
+		for (MethodNode method : node.methods) {
+			if (method.name.equals("one")) {
+				method.instructions.clear();
+				method.instructions.add(new InsnNode(Opcodes.RETURN));
+				method.tryCatchBlocks.clear();
+			}
+		}
+		workspace.getPrimary().getClasses().put("test/Chain", ClassUtil.toCode(node, ClassWriter.COMPUTE_MAXS));
+		FlowVertex one = graph.getVertex("test/Chain", "one", "()V");
+		assertTrue(one.getEdges().isEmpty());
+		assertTrue(graph.getCallers("test/Chain", "two", "()V").isEmpty());
+		// Vertices of the previous code keep the calls of that code
+		assertEquals("two", getSingleEdgeOther(old).getName());
+	}
+
 	/**
 	 * @param vertex
 	 * 		Vertex with one edge.
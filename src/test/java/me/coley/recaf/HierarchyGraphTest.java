@@ -7,6 +7,8 @@ import me.coley.recaf.workspace.JarResource;
 import me.coley.recaf.workspace.Workspace;
 import org.junit.jupiter.api.*;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
 
 import java.io.File;
 import java.io.IOException;
@@ -22,12 +24,13 @@ import static org.junit.jupiter.api.Assertions.*;
  * @author Matt
  */
 public class HierarchyGraphTest extends Base {
+	private Workspace workspace;
 	private HierarchyGraph graph;
 
 	@BeforeEach
 	public void setup() throws IOException {
 		Path file = getClasspathFile("inherit.jar");
-		Workspace workspace = new Workspace(new JarResource(file));
+		workspace = new Workspace(new JarResource(file));
 		graph = workspace.getHierarchyGraph();
 	}
 
@@ -50,6 +53,25 @@ public class HierarchyGraphTest extends Base {
 		expectedParents.forEach(parent -> assertTrue(parents.contains(parent)));
 	}
 
+	@Test
+	public void testUnknownClassHasNoParents() {
+		assertEquals(0, graph.getParents("test/Unknown").count());
+		assertEquals(0, graph.getAllParents("test/Unknown").count());
+		assertFalse(graph.hasParent("test/Unknown", "java/lang/Object"));
+		assertFalse(graph.hasParent("test/Yoda", "test/Unknown"));
+		assertTrue(graph.hasParent("test/Yoda", "test/Greetings"));
+	}
+
+	@Test
+	public void testRuntimeClassParents() {
+		assertTrue(graph.hasParent("java/util/ArrayList", "java/util/List"));
+		assertTrue(graph.hasParent("java/util/ArrayList", "java/util/Collection"));
+		assertFalse(graph.hasParent("java/util/List", "java/util/ArrayList"));
+		assertTrue(graph.getParents("java/util/ArrayList").anyMatch("java/util/AbstractList"::equals));
+		assertTrue(graph.getAllParents("java/util/ArrayList").anyMatch("java/lang/Iterable"::equals));
+		assertEquals("java/util/AbstractList", graph.getCommon("java/util/ArrayList", "java/util/AbstractList"));
+	}
+
 	@Test
 	public void testParentToChildSearch() {
 		HierarchyVertex vertex = graph.getVertex("test/Person");
@@ -125,4 +147,46 @@ public class HierarchyGraphTest extends Base {
 		// No path between Yoda and Speech
 		assertFalse(graph.areLinked("test/Yoda", "say", "()V", "test/Speech", "say", "()V"));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testUpdatedByClassChanges() {
+		// Change Yoda to extend Sith instead of Jedi
+		ClassWriter cw = new ClassWriter(0);
+		workspace.getClassReader("test/Yoda").accept(new ClassVisitor(Recaf.ASM_VERSION, cw) {
+			@Override
+			public void visit(int version, int access, String name, String signature, String superName,
+							  String[] interfaces) {
+				super.visit(version, access, name, signature, "test/Sith", interfaces);
+			}
+		}, 0);
+		workspace.getPrimary().getClasses().put("test/Yoda", cw.toByteArray());
+		assertTrue(graph.hasParent("test/Yoda", "test/Sith"));
+		assertFalse(graph.hasParent("test/Yoda", "test/Jedi"));
+		assertTrue(graph.getDescendants("test/Sith").anyMatch("test/Yoda"::equals));
+		assertFalse(graph.getDescendants("test/Jedi").anyMatch("test/Yoda"::equals));
+		// Removed classes are no longer descendants
+		workspace.getPrimary().getClasses().remove("test/Yoda");
+		assertFalse(graph.getAllDescendants("test/Person").anyMatch("test/Yoda"::equals));
+	}
+
+	@Test
+	public void testHasParentUpdatedByParentChanges() {
+		// Yoda -> Jedi -> Person -> Greetings
+		assertTrue(graph.hasParent("test/Yoda", "test/Person"));
+		assertTrue(graph.hasParent("test/Jedi", "test/Person"));
+		// Change Jedi to extend Object, which must also update the known parents of Yoda
+		ClassWriter cw = new ClassWriter(0);
+		workspace.getClassReader("test/Jedi").accept(new ClassVisitor(Recaf.ASM_VERSION, cw) {
+			@Override
+			public void visit(int version, int access, String name, String signature, String superName,
+							  String[] interfaces) {
+				super.visit(version, access, name, signature, "java/lang/Object", interfaces);
+			}
+		}, 0);
+		workspace.getPrimary().getClasses().put("test/Jedi", cw.toByteArray());
+		assertTrue(graph.hasParent("test/Yoda", "test/Jedi"));
+		assertFalse(graph.hasParent("test/Yoda", "test/Person"));
+		assertFalse(graph.hasParent("test/Jedi", "test/Person"));
+		assertTrue(graph.hasParent("test/Yoda", "java/lang/Object"));
+	}
+}
@@ -1,10 +1,17 @@
 package me.coley.recaf;
 
+import me.coley.recaf.util.DeltaUtil;
 import me.coley.recaf.workspace.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -16,6 +23,8 @@ import static org.junit.jupiter.api.Assertions.*;
 public class HistoryTest extends Base {
 	private final static byte[] DUMMY = new byte[] { 1, 2, 3, 4};
 	private JavaResource resource;
+	@TempDir
+	Path spillDir;
 
 	@BeforeEach
 	public void setup() {
@@ -116,4 +125,131 @@ public class HistoryTest extends Base {
 		assertArrayEquals(DUMMY, resource.getFileHistory(key).pop());
 		assertArrayEquals(initial, resource.getFileHistory(key).pop());
 	}
+
+	@Test
+	public void testRollbackThroughManySaves() {
+		String key = "Start";
+		History history = resource.getClassHistory(key);
+		byte[] initial = history.peek();
+		List<byte[]> versions = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			byte[] version = Arrays.copyOf(initial, initial.length + i);
+			version[i * 7 % initial.length] ^= 0x55;
+			versions.add(version);
+			resource.getClasses().put(key, version);
+			resource.createClassSave(key);
+		}
+		assertEquals(11, history.size());
+		assertEquals(11, history.getFileTimes().length);
+		for (int i = versions.size() - 1; i >= 0; i--) {
+			assertArrayEquals(versions.get(i), history.peek());
+			assertArrayEquals(versions.get(i), history.pop());
+			assertArrayEquals(versions.get(i), resource.getClasses().get(key));
+		}
+		assertArrayEquals(initial, history.pop());
+		assertEquals(1, history.size());
+	}
+
+	@Test
+	public void testRollbackFromDisk() {
+		String key = "Start";
+		History history = resource.getClassHistory(key);
+		byte[] initial = history.peek();
+		// Move all deltas to disk
+		resource.getHistoryStore().setSpillDirectory(spillDir);
+		resource.getHistoryStore().setMemoryBudget(0);
+		byte[] first = Arrays.copyOf(initial, initial.length + 1);
+		byte[] second = Arrays.copyOf(initial, initial.length + 2);
+		resource.getClasses().put(key, first);
+		resource.createClassSave(key);
+		resource.getClasses().put(key, second);
+		resource.createClassSave(key);
+		resource.getClasses().put(key, DUMMY);
+		resource.createClassSave(key);
+		assertArrayEquals(DUMMY, history.pop());
+		assertArrayEquals(second, history.pop());
+		assertArrayEquals(first, history.pop());
+		assertArrayEquals(initial, history.pop());
+	}
+
+	@Test
+	public void testDiskHistoryCompacted() throws IOException {
+		resource.getHistoryStore().setSpillDirectory(spillDir);
+		resource.getHistoryStore().setMemoryBudget(0);
+		// Deltas of one class are followed on disk by those of another
+		History start = resource.getClassHistory("Start");
+		byte[] initial = start.peek();
+		List<byte[]> versions = new ArrayList<>();
+		Random random = new Random(0);
+		for (int i = 0; i < 10; i++) {
+			// Unrelated content, so that each delta is about as large as the content
+			byte[] version = new byte[1000];
+			random.nextBytes(version);
+			versions.add(version);
+			resource.getClasses().put("Start", version);
+			resource.createClassSave("Start");
+		}
+		String otherKey = resource.getClasses().keySet().stream()
+				.filter(name -> !name.equals("Start")).findFirst().get();
+		History other = resource.getClassHistory(otherKey);
+		byte[] otherInitial = other.peek();
+		byte[] otherFirst = Arrays.copyOf(otherInitial, otherInitial.length + 1);
+		byte[] otherSecond = Arrays.copyOf(otherInitial, otherInitial.length + 2);
+		resource.getClasses().put(otherKey, otherFirst);
+		resource.createClassSave(otherKey);
+		resource.getClasses().put(otherKey, otherSecond);
+		resource.createClassSave(otherKey);
+		Path file = resource.getHistoryStore().getSpillFile();
+		long size = Files.size(file);
+		// Releasing most of the deltas of the first class reclaims their space
+		for (int i = versions.size() - 1; i >= 2; i--)
+			assertArrayEquals(versions.get(i), start.pop());
+		assertTrue(Files.size(file) < size / 2);
+		// Deltas that were moved can still be read
+		assertArrayEquals(otherSecond, other.pop());
+		assertArrayEquals(otherFirst, other.pop());
+		assertArrayEquals(otherInitial, other.pop());
+		assertArrayEquals(versions.get(1), start.pop());
+		assertArrayEquals(versions.get(0), start.pop());
+		assertArrayEquals(initial, start.pop());
+		assertNull(resource.getHistoryStore().getSpillFile());
+	}
+
+	@Test
+	public void testDiskHistoryDeletedWhenCleared() throws IOException {
+		String key = "Start";
+		byte[] initial = resource.getClassHistory(key).peek();
+		resource.getHistoryStore().setSpillDirectory(spillDir);
+		resource.getHistoryStore().setMemoryBudget(0);
+		resource.getClasses().put(key, Arrays.copyOf(initial, initial.length + 1));
+		resource.createClassSave(key);
+		resource.getClasses().put(key, DUMMY);
+		resource.createClassSave(key);
+		assertEquals(1, getHistoryFiles(spillDir).size());
+		resource.clearHistory();
+		assertTrue(getHistoryFiles(spillDir).isEmpty());
+	}
+
+	private static Set<Path> getHistoryFiles(Path dir) throws IOException {
+		try (Stream<Path> stream = Files.list(dir)) {
+			return stream.filter(path -> path.getFileName().toString().startsWith("recaf-history"))
+					.collect(Collectors.toSet());
+		}
+	}
+
+	@Test
+	public void testDeltaRoundTrip() {
+		byte[] source = new byte[1000];
+		for (int i = 0; i < source.length; i++)
+			source[i] = (byte) (i * 31 >> 3);
+		byte[] target = new byte[1100];
+		System.arraycopy(source, 500, target, 0, 500);
+		System.arraycopy(source, 0, target, 600, 500);
+		target[550] = 42;
+		byte[] delta = DeltaUtil.diff(source, target);
+		assertTrue(delta.length < target.length / 4);
+		assertArrayEquals(target, DeltaUtil.patch(source, delta));
+		assertArrayEquals(target, DeltaUtil.patch(new byte[0], DeltaUtil.diff(new byte[0], target)));
+		assertArrayEquals(new byte[0], DeltaUtil.patch(source, DeltaUtil.diff(source, new byte[0])));
+	}
 }
@@ -11,6 +11,8 @@ import org.objectweb.asm.tree.ClassNode;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -166,6 +168,54 @@ public class RemappingTest extends Base {
 		}
 	}
 
+	@Test
+	public void testSwappedClassNames() {
+		Map<String, byte[]> classes = resource.getClasses();
+		int count = classes.size();
+		Map<String, String> swap = new HashMap<>();
+		swap.put("test/Jedi", "test/Sith");
+		swap.put("test/Sith", "test/Jedi");
+		Mappings mappings = new Mappings(workspace);
+		mappings.setMappings(swap);
+		mappings.accept(resource);
+		// Neither class should be lost when the classes take each other's names
+		assertEquals(count, classes.size());
+		assertEquals("test/Jedi", new ClassReader(classes.get("test/Jedi")).getClassName());
+		assertEquals("test/Sith", new ClassReader(classes.get("test/Sith")).getClassName());
+		assertEquals("test/Sith", new ClassReader(classes.get("test/Yoda")).getSuperName());
+	}
+
+	@Test
+	public void testMappingTableMatchesMapKeys() {
+		Map<String, String> expected = new HashMap<>();
+		expected.put("a", "Apple");
+		expected.put("a.b", "field");
+		expected.put("a.b I", "typedField");
+		expected.put("a.c()V", "method");
+		expected.put("a.c(I)V", "overload");
+		MappingTable table = new MappingTable();
+		table.putAll(expected);
+		assertEquals(expected, table);
+		assertEquals(expected, new HashMap<>(table));
+		assertEquals("Apple", table.mapClass("a"));
+		assertEquals("field", table.mapField("a", "b", null));
+		assertEquals("typedField", table.mapField("a", "b", "I"));
+		assertEquals("overload", table.mapMethod("a", "c", "(I)V"));
+		assertNull(table.mapMethod("a", "c", "(J)V"));
+		assertNull(table.get("a.d()V"));
+		// Removal works like it does for other maps
+		assertEquals("overload", table.remove("a.c(I)V"));
+		assertEquals("typedField", table.remove("a.b I"));
+		assertNull(table.remove("a.b J"));
+		expected.remove("a.c(I)V");
+		expected.remove("a.b I");
+		assertEquals(expected, table);
+		assertEquals(expected.size(), table.size());
+		table.keySet().removeIf(key -> key.startsWith("a."));
+		assertEquals(Collections.singletonMap("a", "Apple"), table);
+		assertNull(table.mapMethod("a", "c", "()V"));
+	}
+
 	@Test
 	public void testEngimaMappings() {
 		testSame(MappingImpl.ENIGMA, methodEnigmaMapFile);
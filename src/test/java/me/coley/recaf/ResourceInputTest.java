@@ -1,16 +1,35 @@
 package me.coley.recaf;
 
+import me.coley.recaf.command.impl.Export;
+import me.coley.recaf.control.headless.HeadlessController;
 import me.coley.recaf.debug.VMWrap;
+import me.coley.recaf.util.ClassStructureUtil;
+import me.coley.recaf.util.ClassUtil;
 import me.coley.recaf.workspace.*;
 import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static me.coley.recaf.util.TestUtils.removeController;
+import static org.objectweb.asm.Opcodes.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -46,6 +65,260 @@ public class ResourceInputTest extends Base {
 		}
 	}
 
+	@Test
+	public void testLargeJarLoadsClassesAndFiles() {
+		// Enough entries to have the archive read on multiple threads
+		int count = 2000;
+		try {
+			Path file = Files.createTempFile("recaf", "large.jar");
+			file.toFile().deleteOnExit();
+			try (OutputStream os = Files.newOutputStream(file); JarOutputStream jos = new JarOutputStream(os)) {
+				for (int i = 0; i < count; i++) {
+					ClassWriter cw = new ClassWriter(0);
+					cw.visit(V1_8, ACC_PUBLIC, "gen/Type" + i, null, "java/lang/Object", null);
+					cw.visitEnd();
+					jos.putNextEntry(new JarEntry("gen/Type" + i + ".class"));
+					jos.write(cw.toByteArray());
+					jos.closeEntry();
+					jos.putNextEntry(new JarEntry("gen/file" + i + ".txt"));
+					jos.write(("file" + i).getBytes(StandardCharsets.UTF_8));
+					jos.closeEntry();
+				}
+			}
+			JavaResource resource = new JarResource(file);
+			assertEquals(count, resource.getClasses().size());
+			assertEquals(count, resource.getFiles().size());
+			assertTrue(resource.getClasses().containsKey("gen/Type" + (count - 1)));
+			assertEquals("file0", new String(resource.getFiles().get("gen/file0.txt"), StandardCharsets.UTF_8));
+		} catch(IOException ex) {
+			fail(ex);
+		}
+	}
+
+	@Test
+	public void testDuplicateClassesKeepFirstEntry() {
+		// Enough entries to have the archive read on multiple threads
+		int count = 1000;
+		try {
+			Path file = Files.createTempFile("recaf", "duplicates.jar");
+			file.toFile().deleteOnExit();
+			List<byte[]> firsts = new ArrayList<>();
+			try (OutputStream os = Files.newOutputStream(file); JarOutputStream jos = new JarOutputStream(os)) {
+				for (int i = 0; i < count; i++) {
+					// Each class is followed by another entry declaring a class of the same name
+					for (String prefix : new String[] { "gen/", "dup/" }) {
+						ClassWriter cw = new ClassWriter(0);
+						cw.visit(V1_8, ACC_PUBLIC, "gen/Type" + i, null, "java/lang/Object", null);
+						cw.visitSource(prefix, null);
+						cw.visitEnd();
+						byte[] code = cw.toByteArray();
+						if (prefix.equals("gen/"))
+							firsts.add(code);
+						jos.putNextEntry(new JarEntry(prefix + "Type" + i + ".class"));
+						jos.write(code);
+						jos.closeEntry();
+					}
+				}
+			}
+			// The outcome must not depend on which thread reads an entry first
+			for (int run = 0; run < 5; run++) {
+				JavaResource resource = new JarResource(file);
+				assertEquals(count, resource.getClasses().size());
+				for (int i = 0; i < count; i++)
+					assertArrayEquals(firsts.get(i), resource.getClasses().get("gen/Type" + i));
+			}
+		} catch(IOException ex) {
+			fail(ex);
+		}
+	}
+
+	@Test
+	public void testMappedJar() {
+		try {
+			Path file = getClasspathFile("calc.jar");
+			JarResource resource = new JarResource(file);
+			resource.setMappedStorage(true);
+			resource.setPrimary(true);
+			Map<String, byte[]> classes = resource.getClasses();
+			assertEquals(CLASSES_IN_CALC_JAR, classes.size());
+			// Unmodified classes match the normally loaded content
+			JavaResource heap = new JarResource(file);
+			for (Map.Entry<String, byte[]> e : heap.getClasses().entrySet())
+				assertArrayEquals(e.getValue(), classes.get(e.getKey()));
+			// Changes are kept in memory, and the initial state is still read from the archive
+			String name = classes.keySet().iterator().next();
+			byte[] original = classes.get(name);
+			classes.put(name, new byte[] { 1, 2, 3 });
+			assertArrayEquals(new byte[] { 1, 2, 3 }, classes.get(name));
+			assertArrayEquals(original, resource.getClassHistory(name).peek());
+			resource.getClassHistory(name).pop();
+			assertArrayEquals(original, classes.get(name));
+		} catch(IOException ex) {
+			fail(ex);
+		}
+	}
+
+	@Test
+	public void testIncrementalExport() {
+		try {
+			Path file = getClasspathFile("calc.jar");
+			JarResource resource = new JarResource(file);
+			resource.setMappedStorage(true);
+			HeadlessController controller = new HeadlessController(null, null);
+			controller.setWorkspace(new Workspace(resource));
+			// Change a single class
+			Map<String, byte[]> classes = resource.getClasses();
+			String name = classes.keySet().iterator().next();
+			ClassWriter cw = new ClassWriter(0);
+			new ClassReader(classes.get(name)).accept(cw, ClassReader.SKIP_DEBUG);
+			classes.put(name, cw.toByteArray());
+			Path output = Files.createTempFile("recaf-export", ".jar");
+			try {
+				Export export = new Export();
+				export.setController(controller);
+				export.output = output.toFile();
+				export.incremental = true;
+				export.call();
+				// Exported content matches the workspace
+				JavaResource exported = new JarResource(output);
+				assertEquals(classes.keySet(), exported.getClasses().keySet());
+				for (Map.Entry<String, byte[]> e : exported.getClasses().entrySet())
+					assertArrayEquals(classes.get(e.getKey()), e.getValue());
+				assertEquals(resource.getFiles().keySet(), exported.getFiles().keySet());
+				// Unchanged classes are stored exactly as they were in the input
+				try (MappedArchive in = MappedArchive.open(file); MappedArchive out = MappedArchive.open(output)) {
+					for (String key : classes.keySet()) {
+						if (key.equals(name))
+							continue;
+						String entryName = key + ".class";
+						assertEquals(in.getEntry(entryName).getCompressedSize(),
+								out.getEntry(entryName).getCompressedSize());
+					}
+					// Closed archives can no longer be read
+					MappedArchive.Entry entry = out.getEntry(name + ".class");
+					out.close();
+					assertThrows(IOException.class, () -> out.read(entry));
+				}
+			} finally {
+				Files.deleteIfExists(output);
+				removeController();
+			}
+		} catch(Exception ex) {
+			fail(ex);
+		}
+	}
+
+	@Test
+	public void testExportOverMappedInput() {
+		try {
+			Path file = Files.createTempFile("recaf-mapped", ".jar");
+			try {
+				Files.copy(getClasspathFile("calc.jar"), file, StandardCopyOption.REPLACE_EXISTING);
+				Map<String, byte[]> expected = new JarResource(file).getClasses();
+				JarResource resource = new JarResource(file);
+				resource.setMappedStorage(true);
+				HeadlessController controller = new HeadlessController(null, null);
+				controller.setWorkspace(new Workspace(resource));
+				Map<String, byte[]> classes = resource.getClasses();
+				String name = classes.keySet().iterator().next();
+				ClassWriter cw = new ClassWriter(0);
+				new ClassReader(classes.get(name)).accept(cw, ClassReader.SKIP_DEBUG);
+				byte[] modified = cw.toByteArray();
+				classes.put(name, modified);
+				for (boolean incremental : new boolean[] { false, true }) {
+					Export export = new Export();
+					export.setController(controller);
+					export.output = file.toFile();
+					export.incremental = incremental;
+					export.call();
+					// Unmodified classes and initial states are still readable after the input is replaced
+					for (Map.Entry<String, byte[]> e : expected.entrySet()) {
+						if (!e.getKey().equals(name))
+							assertArrayEquals(e.getValue(), classes.get(e.getKey()));
+					}
+					assertArrayEquals(expected.get(name), resource.getClassHistory(name).peek());
+					// The replaced input holds the exported content
+					JavaResource exported = new JarResource(file);
+					assertEquals(classes.keySet(), exported.getClasses().keySet());
+					assertArrayEquals(modified, exported.getClasses().get(name));
+				}
+				// Resources that are no longer in use are unmapped, and read again when requested
+				controller.setWorkspace(new Workspace(new JarResource(getClasspathFile("calc.jar"))));
+				assertArrayEquals(modified, resource.getClasses().get(name));
+			} finally {
+				Files.deleteIfExists(file);
+				removeController();
+			}
+		} catch(Exception ex) {
+			fail(ex);
+		}
+	}
+
+	@Test
+	public void testQuickClassValidation() {
+		try {
+			JavaResource resource = new JarResource(getClasspathFile("calc.jar"));
+			for (byte[] value : resource.getClasses().values()) {
+				// Plain classes are confirmed without a full parse
+				String name = new ClassReader(value).getClassName();
+				assertEquals(name, ClassStructureUtil.getValidatedName(value));
+				// Broken constant pool references are not
+				byte[] broken = value.clone();
+				int thisClass = new ClassReader(value).header + 2;
+				broken[thisClass] = (byte) 0xFF;
+				broken[thisClass + 1] = (byte) 0xFF;
+				assertNull(ClassStructureUtil.getValidatedName(broken));
+				assertFalse(ClassUtil.isValidClass(broken));
+				// Truncated classes are not either
+				byte[] truncated = Arrays.copyOf(value, value.length / 2);
+				assertNull(ClassStructureUtil.getValidatedName(truncated));
+				assertNull(ClassUtil.getValidClassName(truncated));
+			}
+		} catch(IOException ex) {
+			fail(ex);
+		}
+	}
+
+	@Test
+	public void testIndexedJar() {
+		try {
+			Path file = getClasspathFile("calc.jar");
+			ResourceIndex index = ResourceIndex.of(file);
+			JavaResource resource = new JarResource(file);
+			resource.setIndex(index);
+			assertEquals(CLASSES_IN_CALC_JAR, resource.getClasses().size());
+			// Names longer than 64 KB when encoded must be recorded as well
+			char[] longName = new char[0x10000];
+			Arrays.fill(longName, 'a');
+			Map<String, byte[]> phantoms = Collections.singletonMap(new String(longName), new byte[]{1, 2, 3});
+			index.setPhantoms("key", phantoms);
+			index.save();
+			// Reading the index again should give the same information as the classes
+			ResourceIndex cached = ResourceIndex.of(file);
+			assertTrue(cached.isLoaded());
+			// Phantoms are only used again for the same workspace description
+			assertNull(cached.getPhantoms("other"));
+			Map<String, byte[]> cachedPhantoms = cached.getPhantoms("key");
+			assertNotNull(cachedPhantoms);
+			assertEquals(phantoms.keySet(), cachedPhantoms.keySet());
+			assertArrayEquals(new byte[]{1, 2, 3}, cachedPhantoms.values().iterator().next());
+			for (Map.Entry<String, byte[]> e : resource.getClasses().entrySet()) {
+				ClassReader reader = new ClassReader(e.getValue());
+				ResourceIndex.ClassInfo info = cached.getClass(e.getKey());
+				assertNotNull(info);
+				assertEquals(reader.getSuperName(), info.getSuperName());
+				assertArrayEquals(reader.getInterfaces(), info.getInterfaces());
+				assertTrue(cached.isValidEntry(e.getKey() + ".class", e.getValue()));
+			}
+			// Loading with the cached index gives the same classes
+			JavaResource reopened = new JarResource(file);
+			reopened.setIndex(cached);
+			assertEquals(resource.getClasses().keySet(), reopened.getClasses().keySet());
+		} catch(IOException ex) {
+			fail(ex);
+		}
+	}
+
 	@Test
 	public void testClass() {
 		try {
@@ -1,12 +1,15 @@
 package me.coley.recaf;
 
 import me.coley.recaf.search.*;
+import me.coley.recaf.util.RegexUtil;
 import me.coley.recaf.workspace.*;
 import org.junit.jupiter.api.*;
+import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static me.coley.recaf.search.StringMatchMode.*;
@@ -281,6 +284,198 @@ public class SearchTest extends Base {
 		assertTrue(results.contains("calc/Constant"));
 	}
 
+	@Test
+	public void testParallelMatchesSerial() {
+		// Enough classes to split the search across multiple workers
+		Map<String, byte[]> classes = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			ClassWriter cw = new ClassWriter(0);
+			cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "gen/Type" + i, null, "java/lang/Object", null);
+			cw.visitField(Opcodes.ACC_STATIC, "value", "Ljava/lang/String;", null, "text" + i).visitEnd();
+			cw.visitEnd();
+			classes.put("gen/Type" + i, cw.toByteArray());
+		}
+		Workspace generated = generatedWorkspace(classes);
+		List<String> serial = SearchBuilder.in(generated)
+				.query(new StringQuery("text", STARTS_WITH)).build()
+				.getAllResults().stream().map(r -> ((StringResult) r).getText()).collect(Collectors.toList());
+		int[] progress = new int[1];
+		List<String> parallel = SearchBuilder.in(generated).parallel()
+				.onProgress((done, total) -> {
+					synchronized(progress) {
+						progress[0] = Math.max(progress[0], done);
+					}
+				})
+				.query(new StringQuery("text", STARTS_WITH)).build()
+				.getAllResults().stream().map(r -> ((StringResult) r).getText()).collect(Collectors.toList());
+		assertEquals(1000, serial.size());
+		assertEquals(serial, parallel);
+		assertEquals(1000, progress[0]);
+		// Cancelled searches stop early
+		assertTrue(SearchBuilder.in(generated).parallel().cancelWhen(() -> true)
+				.query(new StringQuery("text", STARTS_WITH)).build().getAllResults().isEmpty());
+	}
+
+	@Test
+	public void testConstantIndexUpdatedByClassChanges() {
+		Map<String, byte[]> classes = new HashMap<>();
+		classes.put("gen/A", generateClass("gen/A", "first"));
+		Workspace generated = generatedWorkspace(classes);
+		Query query = new StringQuery("second", EQUALS);
+		assertTrue(SearchBuilder.in(generated).query(query).build().getAllResults().isEmpty());
+		// Added classes are indexed
+		generated.getPrimary().getClasses().put("gen/B", generateClass("gen/B", "second"));
+		assertEquals(Collections.singleton("gen/B"),
+				generated.getConstantIndex().getClassesWithUtf8("second"::equals));
+		assertEquals(1, SearchBuilder.in(generated).query(query).build().getAllResults().size());
+		// Updated classes are re-indexed
+		generated.getPrimary().getClasses().put("gen/B", generateClass("gen/B", "third"));
+		assertTrue(SearchBuilder.in(generated).query(query).build().getAllResults().isEmpty());
+		assertEquals(1, SearchBuilder.in(generated).query(new StringQuery("third", EQUALS))
+				.build().getAllResults().size());
+		// Removed classes are dropped
+		generated.getPrimary().getClasses().remove("gen/B");
+		assertTrue(generated.getConstantIndex().getClassesWithUtf8("third"::equals).isEmpty());
+	}
+
+	@Test
+	public void testClassNameIndexUpdatedByClassChanges() {
+		Map<String, byte[]> classes = new HashMap<>();
+		classes.put("gen/A", generateClass("gen/A", "first"));
+		Workspace generated = generatedWorkspace(classes);
+		ClassNameIndex index = generated.getClassNameIndex();
+		assertEquals(Collections.singletonList("gen/A"), index.getNamesWithPrefix("gen/"));
+		// Workspace names are merged with system names in sorted order
+		generated.getPrimary().getClasses().put("java/lang/Gen", generateClass("java/lang/Gen", "second"));
+		List<String> names = index.getNamesWithPrefix("java/lang/");
+		assertTrue(names.containsAll(Arrays.asList("java/lang/Gen", "java/lang/String")));
+		assertEquals(names.stream().sorted().distinct().collect(Collectors.toList()), names);
+		// Names in libraries added later are included, and kept while any resource has them
+		JavaResource library = generatedWorkspace(Collections.singletonMap("gen/A",
+				generateClass("gen/A", "third"))).getPrimary();
+		generated.getLibraries().add(library);
+		generated.getPrimary().getClasses().put("gen/B", generateClass("gen/B", "fourth"));
+		assertEquals(Arrays.asList("gen/A", "gen/B"), index.getNamesWithPrefix("gen/"));
+		generated.getPrimary().getClasses().remove("gen/A");
+		generated.getPrimary().getClasses().remove("gen/B");
+		assertEquals(Collections.singletonList("gen/A"), new ArrayList<>(index.getNames().subSet("gen/", "gen0")));
+		// Clearing classes does not notify listeners, but is still picked up
+		generated.getPrimary().getClasses().clear();
+		assertFalse(index.getNames().contains("java/lang/Gen"));
+		generated.getPrimary().getClasses().put("gen/B", generateClass("gen/B", "fifth"));
+		generated.getPrimary().getClasses().remove("gen/B");
+		assertEquals(Collections.singletonList("gen/A"), index.getNamesWithPrefix("gen/"));
+		// Invalidating a resource removes the index's listeners, which are registered again
+		library.getFiles();
+		library.invalidate();
+		assertEquals(Collections.singletonList("gen/A"), index.getNamesWithPrefix("gen/"));
+		library.getClasses().remove("gen/A");
+		assertTrue(index.getNamesWithPrefix("gen/").isEmpty());
+	}
+
+	@Test
+	public void testIndexedQueriesMatchFullScan() {
+		// Class name queries are never indexed, so adding one forces a full scan
+		Query fullScan = new ClassNameQuery("does/not/Exist", EQUALS);
+		Query[] queries = {
+				new StringQuery("EVAL", STARTS_WITH),
+				new ClassReferenceQuery("calc/Exponent"),
+				new ClassReferenceQuery("Exp", CONTAINS),
+				new MemberReferenceQuery(null, "evaluate", null, EQUALS),
+				new ValueQuery(30)
+		};
+		for (Query query : queries) {
+			List<SearchResult> indexed = SearchBuilder.in(workspace).query(query).build().getAllResults();
+			List<SearchResult> scanned = SearchBuilder.in(workspace).query(query).query(fullScan).build()
+					.getAllResults();
+			assertFalse(indexed.isEmpty());
+			assertEquals(scanned.size(), indexed.size());
+			for (int i = 0; i < indexed.size(); i++)
+				assertEquals(0, scanned.get(i).compareTo(indexed.get(i)));
+		}
+	}
+
+	@Test
+	public void testStringRegex() {
+		SearchCollector collector = SearchBuilder.in(workspace).skipDebug()
+				.query(new StringQuery("^EVAL:\\s$", REGEX)).build();
+		List<SearchResult> results = collector.getAllResults();
+		assertEquals(1, results.size());
+		assertEquals("EVAL: ", ((StringResult) results.get(0)).getText());
+	}
+
+	@Test
+	public void testRegexLiteralPrefilter() {
+		assertArrayEquals(new String[]{"EVAL: "}, RegexUtil.getRequiredLiterals("^EVAL: "));
+		assertArrayEquals(new String[]{"ab", "c"}, RegexUtil.getRequiredLiterals("abd?c"));
+		assertArrayEquals(new String[]{"a", "b.c"}, RegexUtil.getRequiredLiterals("a[xy]+b\\.c"));
+		assertArrayEquals(new String[]{"x", "z"}, RegexUtil.getRequiredLiterals("x(y|w)z"));
+		assertEquals(0, RegexUtil.getRequiredLiterals("a|b").length);
+		assertEquals(0, RegexUtil.getRequiredLiterals("(?i)abc").length);
+		assertEquals(0, RegexUtil.getRequiredLiterals("a(b[c").length);
+		// Prefiltered matching must agree with the regex alone
+		String[] patterns = {"abd?c", "a[xy]+b\\.c", "x(y|w)z", "[^]a]b", "a{0,2}b", "\\d+ms", "a|b", "ca+t"};
+		String[] texts = {"abc", "abdc", "axb.c", "xwz", "xz", "b", "]b", "aab", "12ms", "ms", "ct", "caat", ""};
+		for (String pattern : patterns) {
+			Predicate<String> compiled = REGEX.compile(pattern);
+			for (String text : texts)
+				assertEquals(new jregex.Pattern(pattern).matcher(text).find(), compiled.test(text),
+						pattern + " ~ " + text);
+		}
+	}
+
+	@Test
+	public void testRegexEscapesMatchFullScan() {
+		Map<String, byte[]> classes = new HashMap<>();
+		classes.put("gen/A", generateClass("gen/A", "xAB"));
+		classes.put("gen/B", generateClass("gen/B", "x\u0001B"));
+		classes.put("gen/C", generateClass("gen/C", "x{name}"));
+		Workspace generated = generatedWorkspace(classes);
+		// Class name queries are never indexed, so adding one forces a full scan
+		Query fullScan = new ClassNameQuery("does/not/Exist", EQUALS);
+		String[] patterns = {"\\x41B", "\\u0041B", "\\0101B", "\\cAB", "x\\{name}"};
+		for (String pattern : patterns) {
+			Query query = new StringQuery(pattern, REGEX);
+			List<SearchResult> indexed = SearchBuilder.in(generated).query(query).build().getAllResults();
+			List<SearchResult> scanned = SearchBuilder.in(generated).query(query).query(fullScan).build()
+					.getAllResults();
+			assertEquals(1, indexed.size(), pattern);
+			assertEquals(1, scanned.size(), pattern);
+		}
+	}
+
+	private static Workspace generatedWorkspace(Map<String, byte[]> classes) {
+		return new Workspace(new JavaResource(ResourceKind.JAR) {
+			@Override
+			protected Map<String, byte[]> loadClasses() {
+				return classes;
+			}
+
+			@Override
+			protected Map<String, byte[]> loadFiles() {
+				return Collections.emptyMap();
+			}
+
+			@Override
+			public ResourceLocation getShortName() {
+				return LiteralResourceLocation.ofKind(ResourceKind.JAR, "generated");
+			}
+
+			@Override
+			public ResourceLocation getName() {
+				return getShortName();
+			}
+		});
+	}
+
+	private static byte[] generateClass(String name, String constant) {
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+		cw.visitField(Opcodes.ACC_STATIC, "value", "Ljava/lang/String;", null, constant).visitEnd();
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
 	private static void contextEquals(Context<?> context, String owner, String name, String desc) {
 		assertTrue(context instanceof Context.MemberContext);
 		Context.MemberContext member = (Context.MemberContext) context;
@@ -10,8 +10,14 @@ import com.github.javaparser.resolution.types.ResolvedPrimitiveType;
 import com.github.javaparser.resolution.types.ResolvedReferenceType;
 import com.google.common.collect.Sets;
 import me.coley.recaf.parse.source.SourceCode;
+import me.coley.recaf.parse.source.WorkspaceTypeResolver;
+import me.coley.recaf.util.ClassUtil;
 import me.coley.recaf.workspace.*;
 import org.junit.jupiter.api.*;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
 
 import java.io.File;
 import java.io.IOException;
@@ -107,6 +113,24 @@ public class SourceCodeTest extends Base {
 			assertEquals("java/lang/Integer", toInternal(decPrim));
 		}
 
+		@Test
+		public void testResolverTracksModifiedClasses() {
+			int listeners = resource.getClasses().getPutListeners().size();
+			WorkspaceTypeResolver resolver = new WorkspaceTypeResolver(workspace);
+			ResolvedReferenceTypeDeclaration dec = resolver.solveType("calc.Exponent");
+			assertSame(dec, resolver.solveType("calc.Exponent"));
+			assertFalse(dec.getDeclaredFields().stream().anyMatch(f -> f.getName().equals("added")));
+			// Modify the class, the resolver should read the new definition
+			ClassNode node = ClassUtil.getNode(new ClassReader(resource.getClasses().get("calc/Exponent")), 0);
+			node.fields.add(new FieldNode(Opcodes.ACC_PUBLIC, "added", "I", null, null));
+			resource.getClasses().put("calc/Exponent", ClassUtil.toCode(node, 0));
+			dec = resolver.solveType("calc.Exponent");
+			assertTrue(dec.getDeclaredFields().stream().anyMatch(f -> f.getName().equals("added")));
+			// Disposed resolvers no longer listen for changes
+			resolver.dispose();
+			assertEquals(listeners, resource.getClasses().getPutListeners().size());
+		}
+
 		@Test
 		public void testFieldResolve() {
 			// Enable advanced resolving
@@ -222,6 +246,25 @@ public class SourceCodeTest extends Base {
 			assertMatchingSource(resource);
 		}
 
+		@Test
+		public void testDeferredSourceLoading() {
+			JavaResource resource;
+			try {
+				Path file = getClasspathFile("calc.jar");
+				resource = new JarResource(file);
+				resource.getClasses();
+				resource.setDeferAttachmentParsing(true);
+				if(!resource.setClassSources(file))
+					fail("Failed to read sources!");
+			} catch(IOException ex) {
+				fail(ex);
+				return;
+			}
+			// Sources are parsed when requested
+			assertEquals("Constant", resource.getClassSource("calc/Constant").getName());
+			assertMatchingSource(resource);
+		}
+
 		@Test
 		public void testSingleClassSourceLoading() {
 			JavaResource resource;
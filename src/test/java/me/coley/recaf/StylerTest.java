@@ -2,13 +2,16 @@ package me.coley.recaf;
 
 import me.coley.recaf.ui.controls.text.model.LanguageStyler;
 import me.coley.recaf.ui.controls.text.model.Languages;
+import org.fxmisc.richtext.model.StyleSpan;
+import org.fxmisc.richtext.model.StyleSpans;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.*;
 
 import java.util.*;
 import java.util.stream.Stream;
 
-import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Regression tests to assert the odd load-order-based errors with the language styler don't resurface.
@@ -45,6 +48,59 @@ public class StylerTest {
 		}
 	}
 
+	@Test
+	public void testIncrementalUpdates() {
+		LanguageStyler styler = new LanguageStyler(Languages.find("java"));
+		String text = "class Name {\n\tstatic int i = 0;\n\tString s = \"str\";\n}\n";
+		List<String> displayed = new ArrayList<>();
+		String[] edits = {
+				// Typing within a line
+				"class Name {\n\tstatic int index = 0;\n\tString s = \"str\";\n}\n",
+				// Opening a comment that is not yet closed
+				"class Name {\n\t/*static int index = 0;\n\tString s = \"str\";\n}\n",
+				// Closing it on a later line
+				"class Name {\n\t/*static int index = 0;\n\tString s = \"str\";*/\n}\n",
+				// Removing a line
+				"class Name {\n\t/*static int index = 0;*/\n}\n"
+		};
+		LanguageStyler.StyleUpdate initial = styler.computeStyleUpdate(text);
+		assertTrue(styler.accept(initial));
+		apply(displayed, text, initial);
+		for (String edit : edits) {
+			// Only the changed region is styled again
+			LanguageStyler.StyleUpdate update = styler.computeStyleUpdate(edit);
+			assertTrue(update.getStart() > 0);
+			text = edit;
+			assertTrue(styler.accept(update));
+			apply(displayed, text, update);
+			assertEquals(toList(styler.computeStyle(text)), displayed);
+		}
+		// Updates computed before another update was accepted are rejected
+		LanguageStyler.StyleUpdate outdated = styler.computeStyleUpdate(text + "int");
+		assertTrue(styler.accept(styler.computeStyleUpdate(text + "long")));
+		assertFalse(styler.accept(outdated));
+	}
+
+	private static void apply(List<String> displayed, String text, LanguageStyler.StyleUpdate update) {
+		// Text outside of the update is unchanged, so its styles move along with it
+		int shift = text.length() - displayed.size();
+		List<String> after = new ArrayList<>(displayed.subList(update.getEnd() - shift, displayed.size()));
+		List<String> before = new ArrayList<>(displayed.subList(0, Math.min(update.getStart(), displayed.size())));
+		displayed.clear();
+		displayed.addAll(before);
+		if (update.getEnd() > update.getStart())
+			displayed.addAll(toList(update.getSpans(update.getStart(), update.getEnd())));
+		displayed.addAll(after);
+	}
+
+	private static List<String> toList(StyleSpans<Collection<String>> spans) {
+		List<String> styles = new ArrayList<>();
+		for (StyleSpan<Collection<String>> span : spans)
+			for (int i = 0; i < span.getLength(); i++)
+				styles.add(String.join(",", span.getStyle()));
+		return styles;
+	}
+
 	public static Stream<Arguments> generateCombinations() {
 		List<Arguments> pairs = new ArrayList<>();
 		for (String first : langToExample.keySet())